@@ -0,0 +1,25 @@
+package expensetracker;
+
+class Account {
+    private final int id;
+    private final int userId;
+    private final String name;
+    private final double balance;
+
+    public Account(int id, int userId, String name, double balance) {
+        this.id = id;
+        this.userId = userId;
+        this.name = name;
+        this.balance = balance;
+    }
+
+    public int getId() { return id; }
+    public int getUserId() { return userId; }
+    public String getName() { return name; }
+    public double getBalance() { return balance; }
+
+    @Override
+    public String toString() {
+        return String.format("%s (%.2f)", name, balance);
+    }
+}
@@ -0,0 +1,106 @@
+package expensetracker;
+
+import java.math.BigDecimal;
+import java.sql.*;
+import java.util.*;
+
+// Reads a user's rows in Accounts. Balances are never recomputed from the expenses: every expense
+// write applies its own delta through applyExpenseChange(), in the transaction that writes the expense.
+class AccountDAO {
+    private final int userId;
+
+    public AccountDAO(int userId) {
+        this.userId = userId;
+    }
+
+    public List<Account> getAccounts() throws SQLException {
+        List<Account> accounts = new ArrayList<>();
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(
+                     "SELECT AccountID, AccountName, Balance FROM Accounts WHERE UserID = ? ORDER BY AccountName, AccountID")) {
+            pstmt.setInt(1, userId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    accounts.add(new Account(rs.getInt(1), userId, rs.getString(2), rs.getDouble(3)));
+                }
+            }
+        }
+        return accounts;
+    }
+
+    public Account findAccount(int accountId) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(
+                     "SELECT AccountName, Balance FROM Accounts WHERE AccountID = ? AND UserID = ?")) {
+            pstmt.setInt(1, accountId);
+            pstmt.setInt(2, userId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? new Account(accountId, userId, rs.getString(1), rs.getDouble(2)) : null;
+            }
+        }
+    }
+
+    // An expense charged to an account lowers its balance. Pass null for the old side of an insert
+    // and for the new side of a delete. A new account that is not the user's fails the write; an
+    // old one that no longer exists is skipped.
+    static void applyExpenseChange(Connection conn, int userId, Integer oldAccount, double oldAmount,
+                                   Integer newAccount, double newAmount) throws SQLException {
+        applyExpenseChange(conn, userId, oldAccount, oldAmount, newAccount, newAmount, true);
+    }
+
+    // With required false a missing new account is skipped too; ExpenseSync uses this for rows
+    // that were validated by the store they were written to.
+    static void applyExpenseChange(Connection conn, int userId, Integer oldAccount, double oldAmount,
+                                   Integer newAccount, double newAmount, boolean required) throws SQLException {
+        long oldCents = oldAccount == null ? 0 : ExpenseAggregates.toCents(oldAmount);
+        long newCents = newAccount == null ? 0 : ExpenseAggregates.toCents(newAmount);
+        if (Objects.equals(oldAccount, newAccount)) {
+            if (newAccount != null && oldCents != newCents) adjust(conn, userId, newAccount, oldCents - newCents, required);
+            return;
+        }
+        if (oldAccount != null) adjust(conn, userId, oldAccount, oldCents, false);
+        if (newAccount != null) adjust(conn, userId, newAccount, -newCents, required);
+    }
+
+    // Adds the balance change of replacing oldExp by newExp, in cents per account, to deltaCents, as
+    // applyExpenseChange would apply it. Pass null for the old side of an insert and the new side of a delete.
+    static void addExpenseChange(Map<Integer, Long> deltaCents, Expense oldExp, Expense newExp) {
+        if (oldExp != null && oldExp.getAccountId() != null) {
+            deltaCents.merge(oldExp.getAccountId(), ExpenseAggregates.toCents(oldExp.getAmount()), Long::sum);
+        }
+        if (newExp != null && newExp.getAccountId() != null) {
+            deltaCents.merge(newExp.getAccountId(), -ExpenseAggregates.toCents(newExp.getAmount()), Long::sum);
+        }
+    }
+
+    // One balance update per account for a batch of new expenses.
+    static void applyInserts(Connection conn, int userId, Collection<? extends Expense> expenses) throws SQLException {
+        Map<Integer, Long> spent = new TreeMap<>();
+        for (Expense exp : expenses) {
+            if (exp.getAccountId() != null) spent.merge(exp.getAccountId(), ExpenseAggregates.toCents(exp.getAmount()), Long::sum);
+        }
+        for (Map.Entry<Integer, Long> e : spent.entrySet()) {
+            adjust(conn, userId, e.getKey(), -e.getValue(), true);
+        }
+    }
+
+    // Net balance changes of a batch of expense writes, one UPDATE per account. As in
+    // applyExpenseChange, an account that expenses were charged to must be the user's.
+    static void applyDeltas(Connection conn, int userId, Map<Integer, Long> deltaCents, Set<Integer> charged) throws SQLException {
+        for (Map.Entry<Integer, Long> e : deltaCents.entrySet()) {
+            if (e.getValue() != 0) adjust(conn, userId, e.getKey(), e.getValue(), charged.contains(e.getKey()));
+        }
+    }
+
+    private static void adjust(Connection conn, int userId, int accountId, long deltaCents, boolean required) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "UPDATE Accounts SET Balance = Balance + ? WHERE AccountID = ? AND UserID = ?")) {
+            pstmt.setBigDecimal(1, BigDecimal.valueOf(deltaCents, 2));
+            pstmt.setInt(2, accountId);
+            pstmt.setInt(3, userId);
+            if (pstmt.executeUpdate() == 0 && required) {
+                throw new SQLException("Account " + accountId + " does not exist for user " + userId + ".");
+            }
+        }
+    }
+}
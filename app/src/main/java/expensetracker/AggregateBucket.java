@@ -0,0 +1,67 @@
+package expensetracker;
+
+class AggregateBucket {
+    private long count;
+    private long sumCents;
+    private long minCents = Long.MAX_VALUE;
+    private long maxCents = Long.MIN_VALUE;
+
+    public long getCount() { return count; }
+    public long getSumCents() { return sumCents; }
+    public double getSum() { return sumCents / 100.0; }
+    public long getMinCents() { return count == 0 ? 0 : minCents; }
+    public long getMaxCents() { return count == 0 ? 0 : maxCents; }
+    public double getAverage() { return count == 0 ? 0 : sumCents / 100.0 / count; }
+
+    // Returns true when a removal took away the current min or max, leaving it unknown.
+    boolean apply(int delta, long cents) {
+        count += delta;
+        sumCents += delta * cents;
+        if (delta > 0) {
+            minCents = Math.min(minCents, cents);
+            maxCents = Math.max(maxCents, cents);
+            return false;
+        }
+        if (count == 0) {
+            reset();
+            return false;
+        }
+        return cents == minCents || cents == maxCents;
+    }
+
+    // A row changing its amount within the bucket: one sum delta, count unchanged. Returns true like
+    // apply() when the old amount was the min or max and the new one does not take its place.
+    boolean replace(long oldCents, long newCents) {
+        sumCents += newCents - oldCents;
+        boolean stale = (oldCents == minCents && newCents > oldCents) || (oldCents == maxCents && newCents < oldCents);
+        minCents = Math.min(minCents, newCents);
+        maxCents = Math.max(maxCents, newCents);
+        return stale;
+    }
+
+    void merge(long count, long sumCents, long minCents, long maxCents) {
+        this.count += count;
+        this.sumCents += sumCents;
+        this.minCents = Math.min(this.minCents, minCents);
+        this.maxCents = Math.max(this.maxCents, maxCents);
+    }
+
+    void reset() {
+        count = 0;
+        sumCents = 0;
+        minCents = Long.MAX_VALUE;
+        maxCents = Long.MIN_VALUE;
+    }
+
+    AggregateBucket copy() {
+        AggregateBucket b = new AggregateBucket();
+        b.merge(count, sumCents, minCents, maxCents);
+        return b;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count=%d sum=%.2f min=%.2f max=%.2f",
+                count, getSum(), getMinCents() / 100.0, getMaxCents() / 100.0);
+    }
+}
@@ -0,0 +1,160 @@
+package expensetracker;
+
+import javax.swing.SwingUtilities;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Method;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+
+// Runs ExpenseManager calls on background threads so the Swing EDT never waits on the database.
+// Chain results with thenAcceptAsync(..., AsyncExpenseManager.EDT) to get back onto the EDT.
+class AsyncExpenseManager implements AutoCloseable {
+    static final Executor EDT = SwingUtilities::invokeLater;
+
+    interface SqlTask<T> {
+        T call() throws SQLException;
+    }
+
+    private final CompletableFuture<ExpenseManager> manager;
+    private final ExecutorService executor;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile IntConsumer busyListener = n -> {};
+
+    public AsyncExpenseManager(ExpenseManager manager) {
+        this(manager, newVirtualThreadExecutor("expense-io"));
+    }
+
+    public AsyncExpenseManager(ExpenseManager manager, ExecutorService executor) {
+        this(CompletableFuture.completedFuture(manager), executor);
+    }
+
+    // For a manager still being built off the EDT: calls submitted meanwhile wait for it on their
+    // worker threads, and fail with its error if it cannot be built.
+    public AsyncExpenseManager(CompletableFuture<ExpenseManager> manager) {
+        this(manager, newVirtualThreadExecutor("expense-io"));
+    }
+
+    public AsyncExpenseManager(CompletableFuture<ExpenseManager> manager, ExecutorService executor) {
+        this.manager = manager;
+        this.executor = executor;
+    }
+
+    // Waits for the manager if it is still being built, so call it from submitted tasks, not the EDT.
+    public ExpenseManager getManager() { return manager.join(); }
+
+    // Null until the manager is built.
+    public ExpenseManager getManagerNow() { return manager.getNow(null); }
+
+    // Called on the EDT with the number of outstanding tasks whenever it changes.
+    public void setBusyListener(IntConsumer busyListener) {
+        this.busyListener = busyListener;
+    }
+
+    // Cancelling the returned future interrupts the worker and discards its result.
+    public <T> CompletableFuture<T> submit(SqlTask<T> task) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        inFlight.incrementAndGet();
+        busyChanged();
+        Future<?> running = executor.submit(() -> {
+            try {
+                if (!result.isDone()) result.complete(task.call());
+            } catch (SQLException ex) {
+                result.completeExceptionally(new UncheckedSQLException(ex));
+            } catch (Throwable t) {
+                result.completeExceptionally(t);
+            } finally {
+                inFlight.decrementAndGet();
+                busyChanged();
+            }
+        });
+        result.whenComplete((value, error) -> {
+            if (result.isCancelled()) running.cancel(true);
+        });
+        return result;
+    }
+
+    public CompletableFuture<Void> addExpense(Expense expense) {
+        return submit(() -> {
+            getManager().addExpense(expense);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> updateExpense(Expense expense) {
+        return submit(() -> {
+            getManager().updateExpense(expense);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> deleteExpense(int expenseId) {
+        return submit(() -> {
+            getManager().deleteExpense(expenseId);
+            return null;
+        });
+    }
+
+    public CompletableFuture<List<Expense>> getExpensesPage(ExpenseSort sort, Expense after, int limit) {
+        return submit(() -> getManager().getExpensesPage(sort, after, limit));
+    }
+
+    public CompletableFuture<List<Expense>> getExpensesAt(ExpenseSort sort, int offset, int limit) {
+        return submit(() -> getManager().getExpensesAt(sort, offset, limit));
+    }
+
+    public CompletableFuture<List<Expense>> search(String query, ExpenseSort sort) {
+        return submit(() -> getManager().search(query, sort));
+    }
+
+    public CompletableFuture<Integer> countExpenses() {
+        return submit(() -> getManager().countExpenses());
+    }
+
+    public CompletableFuture<Double> getTotalExpenses() {
+        return submit(() -> getManager().getTotalExpenses());
+    }
+
+    public CompletableFuture<List<Account>> getAccounts() {
+        return submit(() -> getManager().getAccounts());
+    }
+
+    public CompletableFuture<List<BudgetAlert>> getBudgetAlerts() {
+        return submit(() -> getManager().getBudgetAlerts());
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    // Strips CompletionException/UncheckedSQLException/UncheckedIOException wrappers to get at the error worth showing.
+    static Throwable unwrap(Throwable error) {
+        while ((error instanceof CompletionException || error instanceof ExecutionException
+                || error instanceof UncheckedSQLException || error instanceof UncheckedIOException) && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error;
+    }
+
+    // One virtual thread per task on JDK 21+, a daemon cached pool on older runtimes.
+    static ExecutorService newVirtualThreadExecutor(String name) {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException ex) {
+            AtomicInteger counter = new AtomicInteger();
+            return Executors.newCachedThreadPool(r -> {
+                Thread t = new Thread(r, name + "-" + counter.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    private void busyChanged() {
+        EDT.execute(() -> busyListener.accept(inFlight.get()));
+    }
+}
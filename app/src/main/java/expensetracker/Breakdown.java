@@ -0,0 +1,28 @@
+package expensetracker;
+
+// What a breakdown groups by. Detail breakdowns only cover the type that has the detail.
+enum Breakdown {
+    TYPE(null, "type"),
+    RESTAURANT("Food", "restaurant"),
+    DESTINATION("Travel", "destination"),
+    TRANSPORT_MODE("Travel", "transport_mode"),
+    UTILITY_TYPE("Utility", "utility_type");
+
+    final String type;
+    final String column;
+
+    Breakdown(String type, String column) {
+        this.type = type;
+        this.column = column;
+    }
+
+    // Reads the grouping key out of the combined details value of an expense of this.type.
+    String keyFromDetails(String details) {
+        if (this == DESTINATION || this == TRANSPORT_MODE) {
+            TravelExpense travel = new TravelExpense(0, 0, null, null, "", "");
+            travel.setDetailsFromString(details);
+            return this == DESTINATION ? travel.getDestination() : travel.getTransportMode();
+        }
+        return details;
+    }
+}
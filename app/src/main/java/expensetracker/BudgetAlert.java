@@ -0,0 +1,32 @@
+package expensetracker;
+
+import java.time.YearMonth;
+
+class BudgetAlert {
+    private final String type;
+    private final YearMonth month;
+    private final long spentCents;
+    private final long limitCents;
+    private final boolean exceeded;
+
+    BudgetAlert(String type, YearMonth month, long spentCents, long limitCents, boolean exceeded) {
+        this.type = type;
+        this.month = month;
+        this.spentCents = spentCents;
+        this.limitCents = limitCents;
+        this.exceeded = exceeded;
+    }
+
+    // Null for the budget on all types together.
+    public String getType() { return type; }
+    public YearMonth getMonth() { return month; }
+    public double getSpent() { return spentCents / 100.0; }
+    public double getLimit() { return limitCents / 100.0; }
+    public boolean isExceeded() { return exceeded; }
+
+    @Override
+    public String toString() {
+        return String.format("%s %s %s budget: $%,.2f of $%,.2f", type == null ? "All expenses" : type, month,
+                exceeded ? "over" : "near", getSpent(), getLimit());
+    }
+}
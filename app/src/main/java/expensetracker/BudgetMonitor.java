@@ -0,0 +1,149 @@
+package expensetracker;
+
+import java.time.YearMonth;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Monthly spending limits per expense type, plus an optional limit on the whole month ("*"), e.g.
+// expense.budgets=Food=500,Travel=1200,*=3000. ExpenseAggregates calls check() with the running
+// sums of the buckets a mutation touched, so each add, update or delete costs a map lookup per
+// budget it falls under; nothing is re-read or re-summed. After the aggregates are reseeded,
+// evaluate() walks the month buckets once instead.
+//
+// A bucket is in alert from expense.budgets.warnPercent of its limit (warning) and above its
+// limit (exceeded). The listener is told that alerts changed at most once until getAlerts() is
+// called, so a bulk insert crossing many thresholds queues a single refresh.
+class BudgetMonitor {
+    static final String ALL_TYPES = "*";
+
+    private static final Counter CROSSED = Metrics.counter("budgets.crossed");
+
+    private final Map<String, Budget> byType = new HashMap<>();
+    private Budget total;
+    private final int warnPercent;
+    private final AtomicBoolean notified = new AtomicBoolean();
+    private volatile Runnable listener;
+
+    BudgetMonitor(int warnPercent) {
+        if (warnPercent <= 0 || warnPercent > 100) throw new IllegalArgumentException("warnPercent must be in 1..100");
+        this.warnPercent = warnPercent;
+    }
+
+    static BudgetMonitor fromProperties() {
+        BudgetMonitor monitor = new BudgetMonitor(Integer.getInteger("expense.budgets.warnPercent", 80));
+        String spec = System.getProperty("expense.budgets", "").trim();
+        if (spec.isEmpty()) return monitor;
+        for (String entry : spec.split(",")) {
+            int eq = entry.indexOf('=');
+            try {
+                if (eq <= 0) throw new NumberFormatException("expected type=amount");
+                monitor.setLimit(entry.substring(0, eq).trim(), Double.parseDouble(entry.substring(eq + 1).trim()));
+            } catch (IllegalArgumentException ex) {
+                System.err.println("Ignoring budget \"" + entry.trim() + "\": " + ex.getMessage());
+            }
+        }
+        return monitor;
+    }
+
+    // A non-positive amount removes the budget. Existing alerts for the type are dropped; the owner
+    // re-evaluates against its aggregates afterwards.
+    synchronized void setLimit(String type, double amount) {
+        long cents = ExpenseAggregates.toCents(amount);
+        if (type.equals(ALL_TYPES)) {
+            total = cents > 0 ? new Budget(null, cents) : null;
+        } else if (cents > 0) {
+            byType.put(type, new Budget(type, cents));
+        } else {
+            byType.remove(type);
+        }
+        changed();
+    }
+
+    synchronized Map<String, Double> getLimits() {
+        Map<String, Double> limits = new TreeMap<>();
+        byType.forEach((type, b) -> limits.put(type, b.limitCents / 100.0));
+        if (total != null) limits.put(ALL_TYPES, total.limitCents / 100.0);
+        return limits;
+    }
+
+    synchronized boolean isEmpty() {
+        return total == null && byType.isEmpty();
+    }
+
+    // Run on the mutating thread while locks are held, at most once between two getAlerts() calls;
+    // it should only hand off, e.g. to the EDT.
+    void setListener(Runnable listener) {
+        this.listener = listener;
+        notified.set(false);
+    }
+
+    // One mutation's effect on its month: the new sum of its type and of all types in that month.
+    synchronized void check(String type, int monthKey, long typeCents, long monthCents) {
+        checkType(type, monthKey, typeCents);
+        if (total != null) update(total, monthKey, monthCents);
+    }
+
+    // For the type an update moved a row out of, when the month and so its total stayed the same.
+    synchronized void checkType(String type, int monthKey, long typeCents) {
+        Budget budget = byType.get(type);
+        if (budget != null) update(budget, monthKey, typeCents);
+    }
+
+    // Recomputes every alert from month buckets, e.g. after the aggregates were reseeded. Alerts
+    // that still hold are kept, so only real crossings are counted.
+    synchronized void evaluate(Map<String, Map<Integer, AggregateBucket>> typeMonths, Map<Integer, AggregateBucket> months) {
+        for (Budget budget : byType.values()) {
+            evaluate(budget, typeMonths.getOrDefault(budget.type, Collections.emptyMap()));
+        }
+        if (total != null) evaluate(total, months);
+        changed();
+    }
+
+    private void evaluate(Budget budget, Map<Integer, AggregateBucket> months) {
+        budget.alerts.keySet().retainAll(months.keySet());
+        months.forEach((month, b) -> update(budget, month, b.getSumCents()));
+    }
+
+    // Current alerts, latest month first and exceeded before warnings; re-arms the listener.
+    List<BudgetAlert> getAlerts() {
+        notified.set(false);
+        List<BudgetAlert> alerts = new ArrayList<>();
+        synchronized (this) {
+            byType.values().forEach(b -> alerts.addAll(b.alerts.values()));
+            if (total != null) alerts.addAll(total.alerts.values());
+        }
+        alerts.sort(Comparator.comparing(BudgetAlert::getMonth).reversed()
+                .thenComparing(BudgetAlert::isExceeded, Comparator.reverseOrder())
+                .thenComparing(a -> a.getType() == null ? "" : a.getType()));
+        return alerts;
+    }
+
+    private void update(Budget budget, int monthKey, long spentCents) {
+        boolean exceeded = spentCents > budget.limitCents;
+        boolean warning = !exceeded && spentCents * 100 >= budget.limitCents * warnPercent;
+        if (exceeded || warning) {
+            BudgetAlert previous = budget.alerts.put(monthKey, new BudgetAlert(budget.type,
+                    YearMonth.of(monthKey / 100, monthKey % 100), spentCents, budget.limitCents, exceeded));
+            if (previous == null || previous.isExceeded() != exceeded) CROSSED.increment();
+        } else if (budget.alerts.remove(monthKey) == null) {
+            return;
+        }
+        changed();
+    }
+
+    private void changed() {
+        Runnable l = listener;
+        if (l != null && notified.compareAndSet(false, true)) l.run();
+    }
+
+    private static final class Budget {
+        final String type;
+        final long limitCents;
+        final Map<Integer, BudgetAlert> alerts = new HashMap<>();
+
+        Budget(String type, long limitCents) {
+            this.type = type;
+            this.limitCents = limitCents;
+        }
+    }
+}
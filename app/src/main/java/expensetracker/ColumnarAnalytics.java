@@ -0,0 +1,242 @@
+package expensetracker;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+// Fork-join reductions over a ColumnarExpenseStore. Each leaf scans a contiguous row range of the
+// primitive columns into its own accumulator and siblings are combined on the way up, so there is
+// no shared mutable state and no per-row allocation. With a null pool every report runs as one
+// sequential scan on the calling thread.
+class ColumnarAnalytics implements ExpenseAnalytics {
+    private static final int MIN_LEAF_ROWS = 16_384;
+
+    interface RangeReducer<A> {
+        A create();
+        void accumulate(A acc, int from, int to);
+        A combine(A left, A right);
+    }
+
+    private final ColumnarExpenseStore store;
+    private final ForkJoinPool pool;
+    private final int leafRows;
+
+    public ColumnarAnalytics(ColumnarExpenseStore store) {
+        this(store, ForkJoinPool.commonPool());
+    }
+
+    public ColumnarAnalytics(ColumnarExpenseStore store, ForkJoinPool pool) {
+        this.store = store;
+        this.pool = pool;
+        // A few leaves per worker balances uneven progress without multiplying the combine work.
+        this.leafRows = pool == null ? Integer.MAX_VALUE : Math.max(MIN_LEAF_ROWS, store.size() / (pool.getParallelism() * 4) + 1);
+    }
+
+    public <A> A reduce(RangeReducer<A> reducer) {
+        int size = store.size();
+        if (pool == null || size <= leafRows) {
+            A acc = reducer.create();
+            reducer.accumulate(acc, 0, size);
+            return acc;
+        }
+        return pool.invoke(new ReduceTask<>(reducer, 0, size));
+    }
+
+    @Override
+    public DailyTotals dailyTotals(String type) {
+        int typeCode = typeFilter(type);
+        if (typeCode == -2 || store.size() == 0) return DailyTotals.empty();
+        int[] days = store.epochDayColumn();
+        long[] cents = store.amountColumn();
+        byte[] types = store.typeColumn();
+        // Leaves accumulate by day in a sparse map, so one far-off date (a mistyped year) cannot
+        // make every leaf allocate arrays spanning the whole gap; only the result is dense.
+        IntBucketMap byDay = reduce(new BucketReducer(1024) {
+            public void accumulate(IntBucketMap acc, int from, int to) {
+                for (int i = from; i < to; i++) {
+                    if (typeCode < 0 || types[i] == typeCode) acc.add(days[i], cents[i]);
+                }
+            }
+        });
+        long[] range = {Long.MAX_VALUE, Long.MIN_VALUE};
+        byDay.forEach((day, b) -> {
+            range[0] = Math.min(range[0], day);
+            range[1] = Math.max(range[1], day);
+        });
+        if (range[0] > range[1]) return DailyTotals.empty();
+        DailyTotals totals = new DailyTotals(range[0], (int) (range[1] - range[0] + 1));
+        byDay.forEach((day, b) -> totals.merge(day, b.getCount(), b.getSumCents(), b.getMinCents(), b.getMaxCents()));
+        return totals;
+    }
+
+    @Override
+    public Map<String, AggregateBucket> breakdown(Breakdown by) {
+        Map<String, AggregateBucket> result = new TreeMap<>();
+        long[] cents = store.amountColumn();
+        byte[] types = store.typeColumn();
+        if (by == Breakdown.TYPE) {
+            int typeCount = store.typeCount();
+            IntBucketMap byType = reduce(new BucketReducer(typeCount) {
+                public void accumulate(IntBucketMap acc, int from, int to) {
+                    for (int i = from; i < to; i++) acc.add(types[i], cents[i]);
+                }
+            });
+            byType.forEach((code, b) -> result.put(store.typeName(code), b));
+            return result;
+        }
+        int typeCode = typeFilter(by.type);
+        if (typeCode < 0) return result;
+        int[] details = store.detailColumn();
+        IntBucketMap byDetail = reduce(new BucketReducer(64) {
+            public void accumulate(IntBucketMap acc, int from, int to) {
+                for (int i = from; i < to; i++) {
+                    if (types[i] == typeCode) acc.add(details[i], cents[i]);
+                }
+            }
+        });
+        // Distinct detail values are few, so the key is extracted once per value rather than per row.
+        byDetail.forEach((code, b) -> {
+            String key = by.keyFromDetails(store.decodeString(code));
+            AggregateBucket existing = result.get(key);
+            if (existing == null) {
+                result.put(key, b);
+            } else {
+                existing.merge(b.getCount(), b.getSumCents(), b.getMinCents(), b.getMaxCents());
+            }
+        });
+        return result;
+    }
+
+    @Override
+    public List<Expense> top(int n, String type) {
+        int typeCode = typeFilter(type);
+        List<Expense> result = new ArrayList<>(n);
+        if (typeCode == -2 || n <= 0) return result;
+        long[] cents = store.amountColumn();
+        byte[] types = store.typeColumn();
+        TopRows top = reduce(new RangeReducer<TopRows>() {
+            public TopRows create() { return new TopRows(n); }
+            public void accumulate(TopRows acc, int from, int to) {
+                for (int i = from; i < to; i++) {
+                    if (typeCode < 0 || types[i] == typeCode) acc.offer(cents[i], i);
+                }
+            }
+            public TopRows combine(TopRows l, TopRows r) { return l.combine(r); }
+        });
+        for (int i = 0; i < top.size; i++) result.add(store.materialize(top.rows[i]));
+        return result;
+    }
+
+    @Override
+    public long[] percentiles(String type, double... percentiles) {
+        int typeCode = typeFilter(type);
+        long[] values;
+        if (typeCode == -1) {
+            values = Arrays.copyOf(store.amountColumn(), store.size());
+        } else {
+            long[] cents = store.amountColumn();
+            byte[] types = store.typeColumn();
+            values = new long[store.size()];
+            int n = 0;
+            for (int i = 0; i < store.size(); i++) {
+                if (types[i] == typeCode) values[n++] = cents[i];
+            }
+            values = Arrays.copyOf(values, n);
+        }
+        if (pool == null) {
+            Arrays.sort(values);
+        } else {
+            Arrays.parallelSort(values);
+        }
+        long[] result = new long[percentiles.length];
+        for (int i = 0; i < percentiles.length; i++) {
+            if (values.length > 0) result[i] = values[nearestRank(percentiles[i], values.length) - 1];
+        }
+        return result;
+    }
+
+    static int nearestRank(double percentile, long n) {
+        if (percentile < 0 || percentile > 100) throw new IllegalArgumentException("Percentile must be between 0 and 100: " + percentile);
+        return (int) Math.max(1, Math.min(n, (long) Math.ceil(percentile / 100 * n)));
+    }
+
+    // -1 for every type, -2 for a type with no rows, otherwise the store's code for it.
+    private int typeFilter(String type) {
+        if (type == null) return -1;
+        int code = store.findTypeCode(type);
+        return code < 0 ? -2 : code;
+    }
+
+    private final class ReduceTask<A> extends RecursiveTask<A> {
+        private static final long serialVersionUID = 1L;
+
+        private final RangeReducer<A> reducer;
+        private final int from;
+        private final int to;
+
+        ReduceTask(RangeReducer<A> reducer, int from, int to) {
+            this.reducer = reducer;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected A compute() {
+            if (to - from <= leafRows) {
+                A acc = reducer.create();
+                reducer.accumulate(acc, from, to);
+                return acc;
+            }
+            int mid = (from + to) >>> 1;
+            ReduceTask<A> left = new ReduceTask<>(reducer, from, mid);
+            left.fork();
+            A right = new ReduceTask<>(reducer, mid, to).compute();
+            return reducer.combine(left.join(), right);
+        }
+    }
+
+    private abstract static class BucketReducer implements RangeReducer<IntBucketMap> {
+        private final int initialCapacity;
+
+        BucketReducer(int initialCapacity) {
+            this.initialCapacity = initialCapacity;
+        }
+
+        public IntBucketMap create() { return new IntBucketMap(initialCapacity); }
+        public IntBucketMap combine(IntBucketMap l, IntBucketMap r) { return l.combine(r); }
+    }
+
+    // The n best rows seen so far, ordered by amount descending and row ascending on ties, so the
+    // result does not depend on how the rows were split.
+    private static final class TopRows {
+        final long[] cents;
+        final int[] rows;
+        int size;
+
+        TopRows(int n) {
+            cents = new long[n];
+            rows = new int[n];
+        }
+
+        void offer(long c, int row) {
+            if (size == cents.length && !better(c, row, cents[size - 1], rows[size - 1])) return;
+            int i = size == cents.length ? size - 1 : size++;
+            while (i > 0 && better(c, row, cents[i - 1], rows[i - 1])) {
+                cents[i] = cents[i - 1];
+                rows[i] = rows[i - 1];
+                i--;
+            }
+            cents[i] = c;
+            rows[i] = row;
+        }
+
+        TopRows combine(TopRows other) {
+            for (int i = 0; i < other.size; i++) offer(other.cents[i], other.rows[i]);
+            return this;
+        }
+
+        private static boolean better(long c1, int r1, long c2, int r2) {
+            return c1 > c2 || (c1 == c2 && r1 < r2);
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package expensetracker;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+// Compact, read-mostly copy of the expense table: one primitive array per column instead of one
+// object graph per row. Descriptions and details are dictionary-encoded, so repeated values such as
+// restaurant names are stored once. Rows are exposed through a reusable flyweight Expense view.
+class ColumnarExpenseStore {
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private int size;
+    private int[] ids = new int[INITIAL_CAPACITY];
+    private long[] amountCents = new long[INITIAL_CAPACITY];
+    private int[] epochDays = new int[INITIAL_CAPACITY];
+    private byte[] typeCodes = new byte[INITIAL_CAPACITY];
+    private int[] descriptionCodes = new int[INITIAL_CAPACITY];
+    private int[] detailCodes = new int[INITIAL_CAPACITY];
+
+    private final StringDictionary strings = new StringDictionary();
+    private final List<String> typeNames = new ArrayList<>();
+    private final Map<String, Byte> typeCodeByName = new HashMap<>();
+
+    public static ColumnarExpenseStore load(Stream<Expense> expenses) {
+        ColumnarExpenseStore store = new ColumnarExpenseStore();
+        expenses.forEach(store::add);
+        return store;
+    }
+
+    public int size() { return size; }
+
+    public void add(Expense exp) {
+        if (size == ids.length) grow();
+        set(size++, exp);
+    }
+
+    public void set(int row, Expense exp) {
+        checkRow(row);
+        ids[row] = exp.getId();
+        amountCents[row] = ExpenseAggregates.toCents(exp.getAmount());
+        epochDays[row] = (int) exp.getDate().toLocalDate().toEpochDay();
+        typeCodes[row] = typeCode(exp.getType());
+        descriptionCodes[row] = strings.encode(exp.getDescription());
+        detailCodes[row] = strings.encode(exp.getDetails());
+    }
+
+    // O(1) removal by moving the last row into the gap; row order is not preserved.
+    public void removeAt(int row) {
+        checkRow(row);
+        int last = --size;
+        ids[row] = ids[last];
+        amountCents[row] = amountCents[last];
+        epochDays[row] = epochDays[last];
+        typeCodes[row] = typeCodes[last];
+        descriptionCodes[row] = descriptionCodes[last];
+        detailCodes[row] = detailCodes[last];
+    }
+
+    public int getId(int row) { return ids[checkRow(row)]; }
+    public long getAmountCents(int row) { return amountCents[checkRow(row)]; }
+    public int getEpochDay(int row) { return epochDays[checkRow(row)]; }
+    public String getType(int row) { return typeNames.get(typeCodes[checkRow(row)]); }
+    public String getDescription(int row) { return strings.decode(descriptionCodes[checkRow(row)]); }
+    public String getDetails(int row) { return strings.decode(detailCodes[checkRow(row)]); }
+
+    public long sumCents() {
+        long sum = 0;
+        for (int i = 0; i < size; i++) sum += amountCents[i];
+        return sum;
+    }
+
+    // Returns a view positioned on the given row; reposition it with moveTo() to avoid allocating per row.
+    public RowView view(int row) {
+        RowView view = new RowView();
+        view.moveTo(row);
+        return view;
+    }
+
+    // Builds a standalone Expense of the concrete subclass for the row.
+    public Expense materialize(int row) {
+        java.sql.Date date = java.sql.Date.valueOf(LocalDate.ofEpochDay(getEpochDay(row)));
+        return ExpenseTypes.get(getType(row)).create(getId(row), getAmountCents(row) / 100.0, date,
+                getDescription(row), getDetails(row));
+    }
+
+    // Bytes held by the column arrays and the dictionary (approximate for strings).
+    public long estimatedBytes() {
+        long arrays = arrayBytes(ids.length, 4) * 4 + arrayBytes(amountCents.length, 8) + arrayBytes(typeCodes.length, 1);
+        return arrays + strings.estimatedBytes();
+    }
+
+    public int distinctStrings() { return strings.size(); }
+
+    // Raw columns for bulk scans such as ColumnarAnalytics. They are shared, not copied, and may be
+    // longer than size(); only the first size() entries are rows. Callers must not write to them.
+    int[] epochDayColumn() { return epochDays; }
+    long[] amountColumn() { return amountCents; }
+    byte[] typeColumn() { return typeCodes; }
+    int[] detailColumn() { return detailCodes; }
+
+    int typeCount() { return typeNames.size(); }
+    String typeName(int code) { return typeNames.get(code); }
+    String decodeString(int code) { return strings.decode(code); }
+
+    // The code for an existing type, or -1 when no row has it.
+    int findTypeCode(String type) {
+        Byte code = typeCodeByName.get(type);
+        return code == null ? -1 : code;
+    }
+
+    private byte typeCode(String type) {
+        Byte code = typeCodeByName.get(type);
+        if (code == null) {
+            if (typeNames.size() == Byte.MAX_VALUE) throw new IllegalStateException("Too many expense types.");
+            code = (byte) typeNames.size();
+            typeNames.add(type);
+            typeCodeByName.put(type, code);
+        }
+        return code;
+    }
+
+    private int checkRow(int row) {
+        if (row < 0 || row >= size) throw new IndexOutOfBoundsException("Row " + row + " of " + size);
+        return row;
+    }
+
+    private void grow() {
+        int capacity = ids.length * 2;
+        ids = Arrays.copyOf(ids, capacity);
+        amountCents = Arrays.copyOf(amountCents, capacity);
+        epochDays = Arrays.copyOf(epochDays, capacity);
+        typeCodes = Arrays.copyOf(typeCodes, capacity);
+        descriptionCodes = Arrays.copyOf(descriptionCodes, capacity);
+        detailCodes = Arrays.copyOf(detailCodes, capacity);
+    }
+
+    private static long arrayBytes(int length, int width) {
+        return 16 + (long) length * width;
+    }
+
+    // Read-only Expense backed by one row of the store. Getters read straight from the columns;
+    // getDate() has to allocate because the Expense API returns java.sql.Date.
+    class RowView extends Expense {
+        private int row;
+
+        private RowView() {
+            super(-1, 0, null, null);
+        }
+
+        public RowView moveTo(int row) {
+            this.row = checkRow(row);
+            return this;
+        }
+
+        public int getRow() { return row; }
+
+        @Override public int getId() { return ids[row]; }
+        @Override public double getAmount() { return amountCents[row] / 100.0; }
+        @Override public java.sql.Date getDate() { return java.sql.Date.valueOf(LocalDate.ofEpochDay(epochDays[row])); }
+        @Override public String getDescription() { return strings.decode(descriptionCodes[row]); }
+        @Override public String getType() { return typeNames.get(typeCodes[row]); }
+        @Override public String getDetails() { return strings.decode(detailCodes[row]); }
+
+        @Override public void setId(int id) { throw readOnly(); }
+        @Override public void setAmount(double amount) { throw readOnly(); }
+        @Override public void setDate(java.sql.Date date) { throw readOnly(); }
+        @Override public void setDescription(String description) { throw readOnly(); }
+        @Override public void setDetailsFromString(String details) { throw readOnly(); }
+
+        private UnsupportedOperationException readOnly() {
+            return new UnsupportedOperationException("Columnar rows are read-only; use ColumnarExpenseStore.set().");
+        }
+    }
+}
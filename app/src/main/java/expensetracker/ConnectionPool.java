@@ -0,0 +1,393 @@
+package expensetracker;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.*;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Bounded JDBC connection pool. Callers borrow a connection and return it by closing it.
+// Each pooled connection also keeps the statements callers prepared on it, see StatementCache.
+class ConnectionPool implements AutoCloseable {
+    // Statement-level settings that would leak into the next user of a cached statement; a statement
+    // that had one of these changed is closed instead of cached.
+    private static final Set<String> STATEMENT_SETTINGS = Set.of("setFetchSize", "setFetchDirection", "setMaxRows",
+            "setLargeMaxRows", "setMaxFieldSize", "setQueryTimeout", "setEscapeProcessing", "setCursorName", "setPoolable");
+
+    private final String url;
+    private final String username;
+    private final String password;
+    private final int maxSize;
+    private final int minIdle;
+    private final long acquireTimeoutMillis;
+    private final long validationIntervalMillis;
+    private final int statementCacheSize;
+
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final Semaphore permits;
+    private final ScheduledExecutorService housekeeper;
+
+    private final AtomicInteger active = new AtomicInteger();
+    // Physical connections, open or being opened; grows only under the idle lock, see pollOrReserve().
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong acquired = new AtomicLong();
+    private final AtomicLong waitNanos = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong statementHits = new AtomicLong();
+    private final AtomicLong statementMisses = new AtomicLong();
+    private volatile boolean closed;
+
+    public ConnectionPool(String url, String username, String password, int maxSize, int minIdle,
+                          long acquireTimeoutMillis, long validationIntervalMillis) {
+        this(url, username, password, maxSize, minIdle, acquireTimeoutMillis, validationIntervalMillis, 0);
+    }
+
+    // statementCacheSize is per connection; 0 prepares every statement afresh.
+    public ConnectionPool(String url, String username, String password, int maxSize, int minIdle,
+                          long acquireTimeoutMillis, long validationIntervalMillis, int statementCacheSize) {
+        if (maxSize <= 0) throw new IllegalArgumentException("maxSize must be positive");
+        if (statementCacheSize < 0) throw new IllegalArgumentException("statementCacheSize must not be negative");
+        this.url = url;
+        this.username = username;
+        this.password = password;
+        this.maxSize = maxSize;
+        this.minIdle = Math.max(0, Math.min(minIdle, maxSize));
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        this.validationIntervalMillis = validationIntervalMillis;
+        this.statementCacheSize = statementCacheSize;
+        this.permits = new Semaphore(maxSize, true);
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "connection-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1000, validationIntervalMillis);
+        // minIdle connections are opened right away, so the first borrowers do not pay for connecting.
+        housekeeper.execute(this::warmUp);
+        housekeeper.scheduleWithFixedDelay(this::maintain, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    public Connection getConnection() throws SQLException {
+        if (closed) throw new SQLException("Connection pool is closed.");
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                timeouts.incrementAndGet();
+                throw new SQLTransientConnectionException(
+                        "Connection pool exhausted: no connection available within " + acquireTimeoutMillis + " ms.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection.", e);
+        } finally {
+            waitNanos.addAndGet(System.nanoTime() - start);
+        }
+        try {
+            PooledConnection pc;
+            while ((pc = pollOrReserve()) != null) {
+                if (isUsable(pc)) break;
+                discard(pc);
+            }
+            if (pc == null) pc = newConnection();
+            active.incrementAndGet();
+            acquired.incrementAndGet();
+            return pc.lease();
+        } catch (SQLException | RuntimeException ex) {
+            permits.release();
+            throw ex;
+        }
+    }
+
+    // Opens connections until minIdle are waiting; failures are left for the next borrower to report.
+    // Each one is opened under a permit, as if borrowed: a borrower that finds no idle connection then
+    // holds one of the other permits, so the pool it adds to is below maxSize. One warm-up runs at a time.
+    public synchronized void warmUp() {
+        while (!closed && idle.size() < minIdle && permits.tryAcquire()) {
+            try {
+                synchronized (idle) {
+                    if (idle.size() >= minIdle || size.get() >= maxSize) return;
+                    size.incrementAndGet();
+                }
+                PooledConnection pc = newConnection();
+                if (closed) {
+                    discard(pc);
+                    return;
+                }
+                idle.offerFirst(pc);
+            } catch (SQLException e) {
+                return;
+            } finally {
+                permits.release();
+            }
+        }
+    }
+
+    public PoolStats getStats() {
+        return new PoolStats(active.get(), idle.size(), maxSize, created.get(), acquired.get(),
+                TimeUnit.NANOSECONDS.toMillis(waitNanos.get()), timeouts.get(), statementHits.get(), statementMisses.get());
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        PooledConnection pc;
+        while ((pc = idle.pollFirst()) != null) discard(pc);
+    }
+
+    // Takes the most recently used idle connection, or, when there is none, counts the one the caller
+    // is about to open. Both under one lock so that a warm-up cannot slip in between.
+    private PooledConnection pollOrReserve() {
+        synchronized (idle) {
+            PooledConnection pc = idle.pollFirst();
+            if (pc == null) size.incrementAndGet();
+            return pc;
+        }
+    }
+
+    // Opens the connection reserved by pollOrReserve() or warmUp(), giving the slot back on failure.
+    private PooledConnection newConnection() throws SQLException {
+        Connection physical;
+        try {
+            physical = DriverManager.getConnection(url, username, password);
+        } catch (SQLException | RuntimeException ex) {
+            size.decrementAndGet();
+            throw ex;
+        }
+        created.incrementAndGet();
+        return new PooledConnection(physical);
+    }
+
+    // Connections that were used recently are trusted; older ones get a cheap isValid() round trip.
+    private boolean isUsable(PooledConnection pc) {
+        if (pc.broken) return false;
+        if (System.currentTimeMillis() - pc.lastUsed < validationIntervalMillis) return true;
+        try {
+            return pc.physical.isValid(2);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void release(PooledConnection pc) {
+        active.decrementAndGet();
+        try {
+            if (!pc.broken && !pc.physical.getAutoCommit()) {
+                pc.physical.rollback();
+                pc.physical.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            pc.broken = true;
+        }
+        pc.lastUsed = System.currentTimeMillis();
+        if (closed || pc.broken) {
+            discard(pc);
+        } else {
+            idle.offerFirst(pc);
+        }
+        permits.release();
+    }
+
+    private void discard(PooledConnection pc) {
+        size.decrementAndGet();
+        try {
+            pc.physical.close();
+        } catch (SQLException ignored) {}
+    }
+
+    private void maintain() {
+        int n = idle.size();
+        for (int i = 0; i < n; i++) {
+            PooledConnection pc = idle.pollLast();
+            if (pc == null) break;
+            if (isUsable(pc)) {
+                idle.offerLast(pc);
+            } else {
+                discard(pc);
+            }
+        }
+        warmUp();
+    }
+
+    private final class PooledConnection {
+        final Connection physical;
+        final StatementCache statements;
+        volatile long lastUsed = System.currentTimeMillis();
+        volatile boolean broken;
+
+        PooledConnection(Connection physical) {
+            this.physical = physical;
+            this.statements = statementCacheSize > 0 ? new StatementCache(this) : null;
+        }
+
+        Connection lease() {
+            AtomicBoolean returned = new AtomicBoolean();
+            InvocationHandler handler = (proxy, method, args) -> {
+                String name = method.getName();
+                if (name.equals("close")) {
+                    if (returned.compareAndSet(false, true)) release(this);
+                    return null;
+                }
+                if (name.equals("isClosed")) {
+                    return returned.get() || physical.isClosed();
+                }
+                if (returned.get()) throw new SQLException("Connection has already been returned to the pool.");
+                if (statements != null && name.equals("prepareStatement") && cacheable(args)) {
+                    return statements.prepare((Connection) proxy, (String) args[0],
+                            args.length == 1 ? Statement.NO_GENERATED_KEYS : (Integer) args[1]);
+                }
+                return invoke(physical, method, args);
+            };
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, handler);
+        }
+
+        // prepareStatement(sql) and prepareStatement(sql, autoGeneratedKeys); other variants fix
+        // cursor settings per statement and are rare enough not to cache.
+        private boolean cacheable(Object[] args) {
+            return args.length == 1 || (args.length == 2 && args[1] instanceof Integer);
+        }
+
+        Object invoke(Object target, Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof SQLException) checkBroken((SQLException) cause);
+                throw cause;
+            }
+        }
+
+        // SQLState class 08 means the link itself is gone; never hand this connection out again.
+        void checkBroken(SQLException ex) {
+            String state = ex.getSQLState();
+            if (ex instanceof SQLNonTransientConnectionException || (state != null && state.startsWith("08"))) {
+                broken = true;
+            }
+        }
+    }
+
+    // The prepared statements of one connection, kept open after callers close them so that the next
+    // prepareStatement with the same SQL skips parsing and planning in the driver and the database.
+    // Bounded to statementCacheSize, least recently used first out. A statement is handed to one
+    // caller at a time; preparing SQL that is already checked out gets a plain uncached statement.
+    private final class StatementCache {
+        private final PooledConnection owner;
+        private final LinkedHashMap<StatementKey, CachedStatement> statements = new LinkedHashMap<>(16, 0.75f, true);
+
+        StatementCache(PooledConnection owner) {
+            this.owner = owner;
+        }
+
+        synchronized PreparedStatement prepare(Connection lease, String sql, int autoGeneratedKeys) throws SQLException {
+            StatementKey key = new StatementKey(sql, autoGeneratedKeys);
+            CachedStatement cached = statements.get(key);
+            if (cached != null && !cached.inUse) {
+                statementHits.incrementAndGet();
+                return cached.checkOut(lease);
+            }
+            statementMisses.incrementAndGet();
+            PreparedStatement statement;
+            try {
+                statement = owner.physical.prepareStatement(sql, autoGeneratedKeys);
+            } catch (SQLException ex) {
+                owner.checkBroken(ex);
+                throw ex;
+            }
+            if (cached != null) return statement;
+            cached = new CachedStatement(statement);
+            statements.put(key, cached);
+            Iterator<CachedStatement> eldest = statements.values().iterator();
+            while (statements.size() > statementCacheSize) {
+                CachedStatement evicted = eldest.next();
+                eldest.remove();
+                evicted.evicted = true;
+                if (!evicted.inUse) evicted.closeQuietly();
+            }
+            return cached.checkOut(lease);
+        }
+
+        synchronized void checkIn(CachedStatement cached) {
+            cached.inUse = false;
+            if (!cached.evicted && !cached.dirty) {
+                try {
+                    cached.statement.clearParameters();
+                    cached.statement.clearBatch();
+                    return;
+                } catch (SQLException e) {
+                    // Fall through and drop it.
+                }
+            }
+            statements.values().remove(cached);
+            cached.closeQuietly();
+        }
+
+        private final class CachedStatement {
+            final PreparedStatement statement;
+            boolean inUse;
+            boolean evicted;
+            boolean dirty;
+
+            CachedStatement(PreparedStatement statement) {
+                this.statement = statement;
+            }
+
+            // A fresh proxy per caller, so a statement closed by one caller cannot be used to reach the next.
+            PreparedStatement checkOut(Connection lease) {
+                inUse = true;
+                AtomicBoolean returned = new AtomicBoolean();
+                InvocationHandler handler = (proxy, method, args) -> {
+                    String name = method.getName();
+                    if (name.equals("close")) {
+                        if (returned.compareAndSet(false, true)) checkIn(this);
+                        return null;
+                    }
+                    if (name.equals("isClosed")) return returned.get() || statement.isClosed();
+                    if (returned.get()) throw new SQLException("Statement has already been closed.");
+                    if (name.equals("getConnection")) return lease;
+                    if (STATEMENT_SETTINGS.contains(name)) dirty = true;
+                    return owner.invoke(statement, method, args);
+                };
+                return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                        new Class<?>[]{PreparedStatement.class}, handler);
+            }
+
+            void closeQuietly() {
+                try {
+                    statement.close();
+                } catch (SQLException ignored) {}
+            }
+        }
+    }
+
+    private static final class StatementKey {
+        final String sql;
+        final int autoGeneratedKeys;
+
+        StatementKey(String sql, int autoGeneratedKeys) {
+            this.sql = sql;
+            this.autoGeneratedKeys = autoGeneratedKeys;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof StatementKey)) return false;
+            StatementKey other = (StatementKey) o;
+            return autoGeneratedKeys == other.autoGeneratedKeys && sql.equals(other.sql);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(sql, autoGeneratedKeys);
+        }
+    }
+}
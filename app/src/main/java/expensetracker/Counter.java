@@ -0,0 +1,11 @@
+package expensetracker;
+
+import java.util.concurrent.atomic.LongAdder;
+
+final class Counter {
+    private final LongAdder value = new LongAdder();
+
+    void increment() { value.increment(); }
+    void add(long delta) { value.add(delta); }
+    long get() { return value.sum(); }
+}
@@ -0,0 +1,88 @@
+package expensetracker;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+// Header mapping and field splitting for CSV records.
+final class CsvColumns {
+    private final TransferField[] fieldOfColumn;
+    private final byte separator;
+
+    private CsvColumns(TransferField[] fieldOfColumn, byte separator) {
+        this.fieldOfColumn = fieldOfColumn;
+        this.separator = separator;
+    }
+
+    static CsvColumns parse(byte[] buf, int from, int to) throws IOException {
+        byte separator = ',';
+        boolean sawComma = false;
+        boolean sawSemicolon = false;
+        for (int i = from; i < to; i++) {
+            if (buf[i] == ',') sawComma = true;
+            if (buf[i] == ';') sawSemicolon = true;
+        }
+        if (sawSemicolon && !sawComma) separator = ';';
+        List<TransferField> fields = new ArrayList<>();
+        int pos = from;
+        while (pos < to) {
+            int end = pos;
+            while (end < to && buf[end] != separator && buf[end] != '\n' && buf[end] != '\r') end++;
+            int s = pos;
+            int e = end;
+            while (s < e && (buf[s] <= ' ' || buf[s] == '"')) s++;
+            while (e > s && (buf[e - 1] <= ' ' || buf[e - 1] == '"')) e--;
+            fields.add(TransferField.match(buf, s, e));
+            if (end >= to || buf[end] != separator) break;
+            pos = end + 1;
+        }
+        if (!fields.contains(TransferField.TYPE) || !fields.contains(TransferField.DATE) || !fields.contains(TransferField.AMOUNT)) {
+            throw new IOException("The CSV header must name the type, date and amount columns.");
+        }
+        return new CsvColumns(fields.toArray(new TransferField[0]), separator);
+    }
+
+    // Reads one record starting at pos into record and returns the position after it.
+    int read(byte[] buf, int pos, int to, RawRecord record) {
+        record.clear();
+        int column = 0;
+        while (true) {
+            int start;
+            int end;
+            boolean hasEscapes = false;
+            if (pos < to && buf[pos] == '"') {
+                start = ++pos;
+                while (pos < to) {
+                    if (buf[pos] == '"') {
+                        if (pos + 1 < to && buf[pos + 1] == '"') {
+                            hasEscapes = true;
+                            pos += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    pos++;
+                }
+                end = pos;
+                if (pos < to) pos++;
+                while (pos < to && buf[pos] != separator && buf[pos] != '\n') pos++;
+            } else {
+                start = pos;
+                while (pos < to && buf[pos] != separator && buf[pos] != '\n') pos++;
+                end = pos;
+                if (end > start && buf[end - 1] == '\r') end--;
+            }
+            if (column < fieldOfColumn.length && fieldOfColumn[column] != null) {
+                record.set(fieldOfColumn[column], start, end, hasEscapes, false);
+            }
+            column++;
+            if (pos >= to) return to;
+            if (buf[pos] == '\n') return pos + 1;
+            pos++;
+        }
+    }
+
+    static String unescape(byte[] buf, int start, int end) {
+        return new String(buf, start, end - start, StandardCharsets.UTF_8).replace("\"\"", "\"");
+    }
+}
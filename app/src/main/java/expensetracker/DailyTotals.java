@@ -0,0 +1,123 @@
+package expensetracker;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.Month;
+import java.time.YearMonth;
+import java.util.*;
+
+// Per-day count, sum, min and max in cents for a contiguous range of days, densely stored.
+class DailyTotals {
+    private final long firstDay;
+    private final long[] count;
+    private final long[] sumCents;
+    private final long[] minCents;
+    private final long[] maxCents;
+
+    DailyTotals(long firstDay, int days) {
+        this.firstDay = firstDay;
+        this.count = new long[days];
+        this.sumCents = new long[days];
+        this.minCents = new long[days];
+        this.maxCents = new long[days];
+        Arrays.fill(minCents, Long.MAX_VALUE);
+        Arrays.fill(maxCents, Long.MIN_VALUE);
+    }
+
+    static DailyTotals empty() {
+        return new DailyTotals(0, 0);
+    }
+
+    void add(long epochDay, long cents) {
+        int i = (int) (epochDay - firstDay);
+        count[i]++;
+        sumCents[i] += cents;
+        if (cents < minCents[i]) minCents[i] = cents;
+        if (cents > maxCents[i]) maxCents[i] = cents;
+    }
+
+    void merge(long epochDay, long n, long sum, long min, long max) {
+        int i = (int) (epochDay - firstDay);
+        count[i] += n;
+        sumCents[i] += sum;
+        minCents[i] = Math.min(minCents[i], min);
+        maxCents[i] = Math.max(maxCents[i], max);
+    }
+
+    DailyTotals combine(DailyTotals other) {
+        for (int i = 0; i < count.length; i++) {
+            count[i] += other.count[i];
+            sumCents[i] += other.sumCents[i];
+            minCents[i] = Math.min(minCents[i], other.minCents[i]);
+            maxCents[i] = Math.max(maxCents[i], other.maxCents[i]);
+        }
+        return this;
+    }
+
+    public boolean isEmpty() { return count.length == 0; }
+    public LocalDate getFirstDay() { return LocalDate.ofEpochDay(firstDay); }
+    public LocalDate getLastDay() { return LocalDate.ofEpochDay(firstDay + count.length - 1); }
+
+    public AggregateBucket get(LocalDate day) {
+        AggregateBucket b = new AggregateBucket();
+        long i = day.toEpochDay() - firstDay;
+        if (i >= 0 && i < count.length) mergeDay(b, (int) i);
+        return b;
+    }
+
+    public AggregateBucket total() {
+        AggregateBucket b = new AggregateBucket();
+        for (int i = 0; i < count.length; i++) mergeDay(b, i);
+        return b;
+    }
+
+    public NavigableMap<YearMonth, AggregateBucket> monthly() {
+        NavigableMap<YearMonth, AggregateBucket> months = new TreeMap<>();
+        for (int i = 0; i < count.length; i++) {
+            if (count[i] > 0) mergeDay(months.computeIfAbsent(YearMonth.from(LocalDate.ofEpochDay(firstDay + i)), m -> new AggregateBucket()), i);
+        }
+        return months;
+    }
+
+    // Keyed by the Monday that starts each ISO week.
+    public NavigableMap<LocalDate, AggregateBucket> weekly() {
+        NavigableMap<LocalDate, AggregateBucket> weeks = new TreeMap<>();
+        for (int i = 0; i < count.length; i++) {
+            if (count[i] == 0) continue;
+            LocalDate day = LocalDate.ofEpochDay(firstDay + i);
+            LocalDate monday = day.minusDays(day.getDayOfWeek().getValue() - DayOfWeek.MONDAY.getValue());
+            mergeDay(weeks.computeIfAbsent(monday, w -> new AggregateBucket()), i);
+        }
+        return weeks;
+    }
+
+    // Average spend per calendar day over the trailing window ending on each day, in cents; days
+    // without expenses count as zero.
+    public NavigableMap<LocalDate, Double> movingAverage(int windowDays) {
+        if (windowDays <= 0) throw new IllegalArgumentException("windowDays must be positive");
+        NavigableMap<LocalDate, Double> averages = new TreeMap<>();
+        long window = 0;
+        for (int i = 0; i < count.length; i++) {
+            window += sumCents[i];
+            if (i >= windowDays) window -= sumCents[i - windowDays];
+            averages.put(LocalDate.ofEpochDay(firstDay + i), window / (double) Math.min(i + 1, windowDays));
+        }
+        return averages;
+    }
+
+    public List<MonthComparison> yearOverYear(int year) {
+        NavigableMap<YearMonth, AggregateBucket> months = monthly();
+        List<MonthComparison> rows = new ArrayList<>(12);
+        for (Month month : Month.values()) {
+            AggregateBucket current = months.get(YearMonth.of(year, month));
+            AggregateBucket previous = months.get(YearMonth.of(year - 1, month));
+            rows.add(new MonthComparison(YearMonth.of(year, month),
+                    current == null ? 0 : current.getSumCents(), previous == null ? 0 : previous.getSumCents()));
+        }
+        return rows;
+    }
+
+    private void mergeDay(AggregateBucket b, int i) {
+        if (count[i] > 0) b.merge(count[i], sumCents[i], minCents[i], maxCents[i]);
+    }
+}
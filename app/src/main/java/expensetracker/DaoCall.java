@@ -0,0 +1,45 @@
+package expensetracker;
+
+import java.util.concurrent.TimeUnit;
+
+// Times one ExpenseDAO call from the first borrow to the last close, with the rows it read or
+// wrote and the approximate bytes of the rows it mapped. Use as the first try-with-resources
+// resource so that it closes last.
+final class DaoCall implements AutoCloseable {
+    private static final Counter ROWS = Metrics.counter("dao.rows");
+    private static final Counter BYTES = Metrics.counter("dao.bytes");
+    private static final Counter SLOW = Metrics.counter("dao.slow");
+
+    private final String op;
+    private final CharSequence sql;
+    private final long start = System.nanoTime();
+    private long rows;
+    private long bytes;
+
+    DaoCall(String op, CharSequence sql) {
+        this.op = op;
+        this.sql = sql;
+    }
+
+    void rows(long count) {
+        rows += count;
+    }
+
+    void mapped(ExpenseRowMapper mapper) {
+        rows += mapper.getRows();
+        bytes += mapper.getBytes();
+    }
+
+    @Override
+    public void close() {
+        long nanos = System.nanoTime() - start;
+        Metrics.histogram("dao." + op).record(nanos);
+        ROWS.add(rows);
+        BYTES.add(bytes);
+        if (Metrics.SLOW_QUERY_NANOS > 0 && nanos >= Metrics.SLOW_QUERY_NANOS) {
+            SLOW.increment();
+            System.err.printf("Slow query: %s took %d ms, %d rows%s%n", op, TimeUnit.NANOSECONDS.toMillis(nanos), rows,
+                    sql == null ? "" : ": " + sql);
+        }
+    }
+}
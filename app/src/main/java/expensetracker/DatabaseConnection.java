@@ -0,0 +1,112 @@
+package expensetracker;
+
+import java.sql.*;
+
+// With sync enabled (the default) the app works against an embedded H2 file and ExpenseSync mirrors
+// it to the upstream database in the background; otherwise it talks to the upstream directly.
+class DatabaseConnection {
+    private static final String URL = System.getProperty("expense.db.url",
+            "jdbc:mysql://localhost:3306/expense_tracker?useSSL=false&serverTimezone=UTC&rewriteBatchedStatements=true&useCursorFetch=true&useServerPrepStmts=true");
+    private static final String USERNAME = System.getProperty("expense.db.user", "root");
+    private static final String PASSWORD = System.getProperty("expense.db.password", "");
+    private static final boolean SYNC_ENABLED = Boolean.parseBoolean(System.getProperty("expense.sync.enabled", "true"));
+    private static final String LOCAL_URL = System.getProperty("expense.local.url",
+            "jdbc:h2:file:" + System.getProperty("user.home") + "/.expensetracker/expenses;MODE=MySQL");
+    private static final String LOCAL_USERNAME = System.getProperty("expense.local.user", "sa");
+    private static final String LOCAL_PASSWORD = System.getProperty("expense.local.password", "");
+    private static final int POOL_SIZE = Integer.getInteger("expense.db.pool.size", 8);
+    private static final int MIN_IDLE = Integer.getInteger("expense.db.pool.minIdle", 2);
+    private static final long ACQUIRE_TIMEOUT_MS = Long.getLong("expense.db.pool.timeoutMs", 5000L);
+    private static final long VALIDATION_INTERVAL_MS = Long.getLong("expense.db.pool.validationMs", 30000L);
+    private static final int STATEMENT_CACHE_SIZE = Integer.getInteger("expense.db.statementCacheSize", 64);
+    private static final boolean MIGRATE = Boolean.parseBoolean(System.getProperty("expense.db.migrate", "true"));
+
+    private static final LatencyHistogram ACQUIRE = Metrics.histogram("db.acquire");
+
+    private static volatile ConnectionPool pool;
+
+    static {
+        Metrics.gauge("db.pool.active", () -> getPoolStats().getActive());
+        Metrics.gauge("db.pool.idle", () -> getPoolStats().getIdle());
+        Metrics.gauge("db.pool.timeouts", () -> getPoolStats().getTimeouts());
+        Metrics.gauge("db.statements.hits", () -> getPoolStats().getStatementHits());
+        Metrics.gauge("db.statements.misses", () -> getPoolStats().getStatementMisses());
+    }
+
+    // Returns a pooled connection; callers must close it to hand it back.
+    public static Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return pool().getConnection();
+        } finally {
+            ACQUIRE.record(System.nanoTime() - start);
+        }
+    }
+
+    public static boolean isSyncEnabled() {
+        return SYNC_ENABLED;
+    }
+
+    // The URL the pool connects to: the local store when syncing, the upstream database otherwise.
+    public static String getStoreUrl() {
+        return SYNC_ENABLED ? LOCAL_URL : URL;
+    }
+
+    public static boolean isMigrateEnabled() {
+        return MIGRATE;
+    }
+
+    // A separate, small pool on the upstream database for the sync worker; the caller closes it.
+    // Nothing connects until the first borrow, so this succeeds while offline.
+    public static ConnectionPool openUpstream() throws SQLException {
+        loadDriver(URL);
+        return new ConnectionPool(URL, USERNAME, PASSWORD, 2, 0, ACQUIRE_TIMEOUT_MS, VALIDATION_INTERVAL_MS, STATEMENT_CACHE_SIZE);
+    }
+
+    public static PoolStats getPoolStats() {
+        ConnectionPool p = pool;
+        return p == null ? new PoolStats(0, 0, POOL_SIZE, 0, 0, 0, 0, 0, 0) : p.getStats();
+    }
+
+    public static synchronized void closeConnection() {
+        if (pool != null) {
+            pool.close();
+            pool = null;
+        }
+    }
+
+    private static void loadDriver(String url) throws SQLException {
+        if (url.startsWith("jdbc:mysql:")) {
+            try {
+                Class.forName("com.mysql.cj.jdbc.Driver");
+            } catch (ClassNotFoundException e) {
+                throw new SQLException("MySQL JDBC Driver not found.", e);
+            }
+        }
+    }
+
+    private static ConnectionPool pool() throws SQLException {
+        ConnectionPool p = pool;
+        if (p != null) return p;
+        synchronized (DatabaseConnection.class) {
+            if (pool == null) {
+                String url = getStoreUrl();
+                loadDriver(url);
+                ConnectionPool created = SYNC_ENABLED
+                        ? new ConnectionPool(url, LOCAL_USERNAME, LOCAL_PASSWORD, POOL_SIZE, MIN_IDLE,
+                                ACQUIRE_TIMEOUT_MS, VALIDATION_INTERVAL_MS, STATEMENT_CACHE_SIZE)
+                        : new ConnectionPool(url, USERNAME, PASSWORD, POOL_SIZE, MIN_IDLE,
+                                ACQUIRE_TIMEOUT_MS, VALIDATION_INTERVAL_MS, STATEMENT_CACHE_SIZE);
+                try (Connection conn = created.getConnection()) {
+                    if (MIGRATE || SYNC_ENABLED) new SchemaMigrator().migrate(conn);
+                    if (SYNC_ENABLED) ExpenseSync.createLocalTables(conn);
+                } catch (SQLException ex) {
+                    created.close();
+                    throw ex;
+                }
+                pool = created;
+            }
+            return pool;
+        }
+    }
+}
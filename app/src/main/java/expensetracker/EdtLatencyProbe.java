@@ -0,0 +1,86 @@
+package expensetracker;
+
+import javax.swing.SwingUtilities;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Measures how long the EDT takes to pick up a posted event; a long delay means the UI was frozen.
+// Every sample also goes to the edt.latency histogram and edt.stalls counter in Metrics.
+// Enable with -Dexpense.edt.probe=true to print a summary to stderr every few seconds.
+class EdtLatencyProbe {
+    private static final long STALL_THRESHOLD_MS = 100;
+    private static final LatencyHistogram LATENCY = Metrics.histogram("edt.latency");
+    private static final Counter STALLS = Metrics.counter("edt.stalls");
+
+    private final long intervalMillis;
+    private final AtomicLong samples = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+    private final AtomicLong stalls = new AtomicLong();
+    private volatile boolean running;
+
+    public EdtLatencyProbe(long intervalMillis) {
+        this.intervalMillis = intervalMillis;
+    }
+
+    // Samples always; only reports to stderr when expense.edt.probe is set.
+    public static void startDefault() {
+        EdtLatencyProbe probe = new EdtLatencyProbe(50);
+        probe.start();
+        if (!Boolean.getBoolean("expense.edt.probe")) return;
+        Thread reporter = new Thread(() -> {
+            while (true) {
+                try {
+                    Thread.sleep(5000);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                System.err.println("EDT latency: " + probe.summarizeAndReset());
+            }
+        }, "edt-latency-reporter");
+        reporter.setDaemon(true);
+        reporter.start();
+    }
+
+    public void start() {
+        running = true;
+        Thread sampler = new Thread(() -> {
+            while (running) {
+                long posted = System.nanoTime();
+                try {
+                    SwingUtilities.invokeAndWait(() -> record(System.nanoTime() - posted));
+                    Thread.sleep(intervalMillis);
+                } catch (InterruptedException e) {
+                    return;
+                } catch (Exception ignored) {}
+            }
+        }, "edt-latency-probe");
+        sampler.setDaemon(true);
+        sampler.start();
+    }
+
+    public void stop() {
+        running = false;
+    }
+
+    public String summarizeAndReset() {
+        long n = samples.getAndSet(0);
+        long total = totalNanos.getAndSet(0);
+        long max = maxNanos.getAndSet(0);
+        long stalled = stalls.getAndSet(0);
+        double avgMillis = n == 0 ? 0 : total / (double) n / 1_000_000;
+        return String.format("samples=%d avg=%.2fms max=%dms stalls(>%dms)=%d",
+                n, avgMillis, TimeUnit.NANOSECONDS.toMillis(max), STALL_THRESHOLD_MS, stalled);
+    }
+
+    private void record(long delayNanos) {
+        samples.incrementAndGet();
+        totalNanos.addAndGet(delayNanos);
+        maxNanos.accumulateAndGet(delayNanos, Math::max);
+        LATENCY.record(delayNanos);
+        if (delayNanos >= TimeUnit.MILLISECONDS.toNanos(STALL_THRESHOLD_MS)) {
+            stalls.incrementAndGet();
+            STALLS.increment();
+        }
+    }
+}
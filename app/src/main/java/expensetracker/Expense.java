@@ -0,0 +1,45 @@
+package expensetracker;
+
+abstract class Expense {
+    private int id;
+    private double amount;
+    private java.sql.Date date;
+    private String description;
+    // Filled in by ExpenseDAO from its scope; null accountId means the expense is not charged to an account.
+    private int userId;
+    private Integer accountId;
+
+    public Expense(int id, double amount, java.sql.Date date, String description) {
+        this.id = id;
+        this.amount = amount;
+        this.date = date;
+        this.description = description;
+    }
+    public Expense(double amount, java.sql.Date date, String description) {
+        this(-1, amount, date, description);
+    }
+
+    public int getId() { return id; }
+    public void setId(int id) { this.id = id; }
+
+    public double getAmount() { return amount; }
+    public void setAmount(double amount) { this.amount = amount; }
+
+    public java.sql.Date getDate() { return date; }
+    public void setDate(java.sql.Date date) { this.date = date; }
+
+    public String getDescription() { return description; }
+    public void setDescription(String description) { this.description = description; }
+
+    public int getUserId() { return userId; }
+    public void setUserId(int userId) { this.userId = userId; }
+
+    public Integer getAccountId() { return accountId; }
+    public void setAccountId(Integer accountId) { this.accountId = accountId; }
+
+    public abstract String getType();
+
+    public abstract String getDetails();
+
+    public abstract void setDetailsFromString(String details);
+}
@@ -0,0 +1,155 @@
+package expensetracker;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Running totals kept up to date on every mutation, so totals never require re-summing expenses.
+// Amounts are held as long cents to stay exact over millions of rows. With a BudgetMonitor set,
+// each mutation hands it the month sums it changed.
+class ExpenseAggregates {
+    private final AggregateBucket total = new AggregateBucket();
+    private final Map<String, AggregateBucket> byType = new HashMap<>();
+    private final Map<Long, AggregateBucket> byDay = new HashMap<>();
+    private final Map<Integer, AggregateBucket> byMonth = new HashMap<>();
+    private final Map<String, Map<Integer, AggregateBucket>> byTypeMonth = new HashMap<>();
+    private boolean extremesStale;
+    private BudgetMonitor budgets;
+
+    public static long toCents(double amount) {
+        return Math.round(amount * 100);
+    }
+
+    public synchronized void add(Expense exp) {
+        apply(exp.getType(), exp.getDate().toLocalDate(), 1, toCents(exp.getAmount()));
+    }
+
+    public synchronized void remove(Expense exp) {
+        apply(exp.getType(), exp.getDate().toLocalDate(), -1, toCents(exp.getAmount()));
+    }
+
+    // An update as one delta per bucket rather than a remove and an add, so that the budgets see
+    // each month it touched once, with its final sums.
+    public synchronized void replace(Expense previous, Expense next) {
+        String oldType = previous.getType();
+        String newType = next.getType();
+        LocalDate oldDay = previous.getDate().toLocalDate();
+        LocalDate newDay = next.getDate().toLocalDate();
+        int oldMonth = monthKey(oldDay);
+        int newMonth = monthKey(newDay);
+        long oldCents = toCents(previous.getAmount());
+        long newCents = toCents(next.getAmount());
+        extremesStale |= total.replace(oldCents, newCents);
+        extremesStale |= move(byType, oldType, newType, oldCents, newCents);
+        extremesStale |= move(byDay, oldDay.toEpochDay(), newDay.toEpochDay(), oldCents, newCents);
+        extremesStale |= move(byMonth, oldMonth, newMonth, oldCents, newCents);
+        if (oldType.equals(newType)) {
+            move(byTypeMonth.computeIfAbsent(newType, t -> new HashMap<>()), oldMonth, newMonth, oldCents, newCents);
+        } else {
+            bucket(byTypeMonth.computeIfAbsent(oldType, t -> new HashMap<>()), oldMonth).apply(-1, oldCents);
+            bucket(byTypeMonth.computeIfAbsent(newType, t -> new HashMap<>()), newMonth).apply(1, newCents);
+        }
+        if (budgets == null) return;
+        budgets.check(newType, newMonth, byTypeMonth.get(newType).get(newMonth).getSumCents(), byMonth.get(newMonth).getSumCents());
+        long oldTypeCents = byTypeMonth.get(oldType).get(oldMonth).getSumCents();
+        if (oldMonth != newMonth) {
+            budgets.check(oldType, oldMonth, oldTypeCents, byMonth.get(oldMonth).getSumCents());
+        } else if (!oldType.equals(newType)) {
+            budgets.checkType(oldType, oldMonth, oldTypeCents);
+        }
+    }
+
+    // Loads one pre-aggregated (type, day) group, as produced by a SQL GROUP BY.
+    public synchronized void seed(String type, LocalDate day, long count, long sumCents, long minCents, long maxCents) {
+        total.merge(count, sumCents, minCents, maxCents);
+        bucket(byType, type).merge(count, sumCents, minCents, maxCents);
+        bucket(byDay, day.toEpochDay()).merge(count, sumCents, minCents, maxCents);
+        bucket(byMonth, monthKey(day)).merge(count, sumCents, minCents, maxCents);
+        bucket(byTypeMonth.computeIfAbsent(type, t -> new HashMap<>()), monthKey(day)).merge(count, sumCents, minCents, maxCents);
+    }
+
+    public synchronized void setBudgets(BudgetMonitor budgets) {
+        this.budgets = budgets;
+    }
+
+    // Brings the budget alerts in line with the totals, once seeding or a limit change is done.
+    public synchronized void evaluateBudgets() {
+        if (budgets != null) budgets.evaluate(byTypeMonth, byMonth);
+    }
+
+    public synchronized void clear() {
+        total.reset();
+        byType.clear();
+        byDay.clear();
+        byMonth.clear();
+        byTypeMonth.clear();
+        extremesStale = false;
+    }
+
+    // Min/max cannot be derived after the current extreme is removed; the owner reseeds when this is set.
+    public synchronized boolean hasStaleExtremes() { return extremesStale; }
+
+    public synchronized AggregateBucket getTotal() { return total.copy(); }
+
+    public synchronized AggregateBucket getByType(String type) {
+        AggregateBucket b = byType.get(type);
+        return b == null ? new AggregateBucket() : b.copy();
+    }
+
+    public synchronized AggregateBucket getByDay(LocalDate day) {
+        AggregateBucket b = byDay.get(day.toEpochDay());
+        return b == null ? new AggregateBucket() : b.copy();
+    }
+
+    public synchronized AggregateBucket getByMonth(YearMonth month) {
+        AggregateBucket b = byMonth.get(month.getYear() * 100 + month.getMonthValue());
+        return b == null ? new AggregateBucket() : b.copy();
+    }
+
+    public synchronized Map<String, AggregateBucket> getTypeTotals() {
+        Map<String, AggregateBucket> copy = new TreeMap<>();
+        byType.forEach((type, b) -> copy.put(type, b.copy()));
+        return copy;
+    }
+
+    public synchronized AggregateBucket getByTypeAndMonth(String type, YearMonth month) {
+        AggregateBucket b = byTypeMonth.getOrDefault(type, Map.of()).get(month.getYear() * 100 + month.getMonthValue());
+        return b == null ? new AggregateBucket() : b.copy();
+    }
+
+    public synchronized Map<YearMonth, AggregateBucket> getMonthTotals() {
+        Map<YearMonth, AggregateBucket> copy = new TreeMap<>();
+        byMonth.forEach((key, b) -> copy.put(YearMonth.of(key / 100, key % 100), b.copy()));
+        return copy;
+    }
+
+    private void apply(String type, LocalDate day, int delta, long cents) {
+        int month = monthKey(day);
+        AggregateBucket monthBucket = bucket(byMonth, month);
+        AggregateBucket typeMonthBucket = bucket(byTypeMonth.computeIfAbsent(type, t -> new HashMap<>()), month);
+        extremesStale |= total.apply(delta, cents);
+        extremesStale |= bucket(byType, type).apply(delta, cents);
+        extremesStale |= bucket(byDay, day.toEpochDay()).apply(delta, cents);
+        extremesStale |= monthBucket.apply(delta, cents);
+        typeMonthBucket.apply(delta, cents);
+        if (budgets != null) budgets.check(type, month, typeMonthBucket.getSumCents(), monthBucket.getSumCents());
+    }
+
+    // Returns true when the move left the old bucket's min or max unknown.
+    private static <K> boolean move(Map<K, AggregateBucket> buckets, K from, K to, long oldCents, long newCents) {
+        if (from.equals(to)) return bucket(buckets, from).replace(oldCents, newCents);
+        boolean stale = bucket(buckets, from).apply(-1, oldCents);
+        bucket(buckets, to).apply(1, newCents);
+        return stale;
+    }
+
+    private static int monthKey(LocalDate day) {
+        return day.getYear() * 100 + day.getMonthValue();
+    }
+
+    private static <K> AggregateBucket bucket(Map<K, AggregateBucket> buckets, K key) {
+        return buckets.computeIfAbsent(key, k -> new AggregateBucket());
+    }
+}
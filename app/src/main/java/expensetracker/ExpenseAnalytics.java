@@ -0,0 +1,20 @@
+package expensetracker;
+
+import java.sql.SQLException;
+import java.util.*;
+
+// Reports over the expense history. ColumnarAnalytics runs them as fork-join reductions over an
+// in-memory columnar copy; SqlAnalytics pushes them down to the database as aggregate queries.
+// Calendar rollups, moving averages and year-over-year comparisons are derived from DailyTotals.
+// Amounts are in cents, as in ExpenseAggregates. A null type means every type.
+interface ExpenseAnalytics {
+    DailyTotals dailyTotals(String type) throws SQLException;
+
+    Map<String, AggregateBucket> breakdown(Breakdown by) throws SQLException;
+
+    // The n largest expenses, largest first.
+    List<Expense> top(int n, String type) throws SQLException;
+
+    // Nearest-rank percentiles (0-100) of the amounts, in cents; 0 when there are no rows.
+    long[] percentiles(String type, double... percentiles) throws SQLException;
+}
@@ -0,0 +1,269 @@
+package expensetracker;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.stream.Stream;
+
+// Write-through cache in front of ExpenseDAO with secondary indexes for range queries. With
+// write-behind, ExpenseManager changes rows here through apply() and discard() and queues the writes.
+// Date-keyed indexes use (epochDay << 32 | id) as key so that each row has a unique slot.
+// When every row fits (see warm()), range queries are answered from memory; once anything has
+// been evicted the cache is incomplete and queries go to the database instead.
+// Cached expenses are shared with callers and must not be modified in place.
+class ExpenseCache {
+    private final ExpenseDAO dao;
+    private final int maxEntries;
+
+    private final LinkedHashMap<Integer, Expense> byId = new LinkedHashMap<>(1024, 0.75f, true);
+    private final NavigableMap<Long, Expense> byDate = new TreeMap<>();
+    private final Map<String, NavigableMap<Long, Expense>> byTypeAndDate = new HashMap<>();
+    private final NavigableMap<Long, Map<Integer, Expense>> byAmount = new TreeMap<>();
+    private boolean complete;
+    // Bumped by every change to the contents, so a row read on a miss is only kept if nothing was
+    // written while it was being read; otherwise it may be older than what a writer just put here.
+    private long writes;
+    private static final Counter HITS = Metrics.counter("cache.hits");
+    private static final Counter MISSES = Metrics.counter("cache.misses");
+
+    private long hits;
+    private long misses;
+
+    public ExpenseCache(ExpenseDAO dao, int maxEntries) {
+        this.dao = dao;
+        this.maxEntries = maxEntries;
+    }
+
+    // Loads the whole table if it fits, after which range queries no longer touch the database.
+    public boolean warm() throws SQLException {
+        if (dao.countExpenses() > maxEntries) return false;
+        synchronized (this) {
+            clear();
+            try (Stream<Expense> rows = dao.streamExpenses()) {
+                rows.forEach(this::index);
+            } catch (UncheckedSQLException ex) {
+                clear();
+                throw ex.getCause();
+            }
+            complete = byId.size() <= maxEntries;
+            return complete;
+        }
+    }
+
+    // Replaces the contents with rows known to be the whole table, e.g. replayed from the journal.
+    public synchronized boolean restore(Collection<Expense> rows) {
+        clear();
+        if (rows.size() > maxEntries) return false;
+        rows.forEach(this::index);
+        complete = true;
+        return true;
+    }
+
+    // The whole table if every row is cached, otherwise null.
+    public synchronized List<Expense> snapshot() {
+        return complete ? new ArrayList<>(byId.values()) : null;
+    }
+
+    // Row count, or -1 unless every row is cached.
+    public synchronized int count() {
+        return complete ? byId.size() : -1;
+    }
+
+    // Rows other than exp that sort before it, or -1 unless every row is cached. Only copying the
+    // row references holds the monitor; the comparisons run on the copy, so other readers and
+    // writers are not held up by the scan.
+    public int countBefore(ExpenseSort sort, Expense exp) {
+        Expense[] rows;
+        synchronized (this) {
+            if (!complete) return -1;
+            rows = byId.values().toArray(new Expense[0]);
+        }
+        int before = 0;
+        for (Expense row : rows) {
+            if (row.getId() != exp.getId() && sort.compare(row, exp) < 0) before++;
+        }
+        return before;
+    }
+
+    public synchronized void invalidate() {
+        clear();
+    }
+
+    public Expense get(int id) throws SQLException {
+        long seen;
+        synchronized (this) {
+            Expense cached = byId.get(id);
+            if (cached != null || complete) {
+                if (cached != null) {
+                    hits++;
+                    HITS.increment();
+                }
+                return cached;
+            }
+            misses++;
+            MISSES.increment();
+            seen = writes;
+        }
+        Expense loaded = dao.findExpense(id);
+        synchronized (this) {
+            if (loaded != null && writes == seen) put(loaded);
+        }
+        return loaded;
+    }
+
+    // Rows for the given ids that exist, from memory when the cache is complete.
+    public List<Expense> getAll(int[] ids) throws SQLException {
+        synchronized (this) {
+            if (complete) {
+                hits++;
+                HITS.increment();
+                List<Expense> rows = new ArrayList<>(ids.length);
+                for (int id : ids) {
+                    Expense cached = byId.get(id);
+                    if (cached != null) rows.add(cached);
+                }
+                return rows;
+            }
+            misses++;
+            MISSES.increment();
+        }
+        return dao.findExpenses(ids);
+    }
+
+    public void insert(Expense exp) throws SQLException {
+        dao.insertExpense(exp);
+        put(exp);
+    }
+
+    public void insertAll(Collection<? extends Expense> expenses) throws SQLException {
+        dao.insertExpenses(expenses);
+        synchronized (this) {
+            for (Expense exp : expenses) put(exp);
+        }
+    }
+
+    // Returns the version that was replaced, or null if it is unknown.
+    public Expense update(Expense exp) throws SQLException {
+        Expense previous = get(exp.getId());
+        dao.updateExpense(exp);
+        put(exp);
+        return previous;
+    }
+
+    public Expense delete(int id) throws SQLException {
+        Expense previous = get(id);
+        dao.deleteExpense(id);
+        discard(id);
+        return previous;
+    }
+
+    // Changes the cached row only; the caller writes it to the database.
+    public void apply(Expense exp) {
+        put(exp);
+    }
+
+    public synchronized void discard(int id) {
+        writes++;
+        Expense removed = byId.remove(id);
+        if (removed != null) unindex(removed);
+    }
+
+    // Expenses matching every non-null bound, newest first. Dates are [from, toExclusive), amounts inclusive.
+    public List<Expense> query(String type, LocalDate from, LocalDate toExclusive, Double minAmount, Double maxAmount)
+            throws SQLException {
+        synchronized (this) {
+            if (complete) {
+                hits++;
+                HITS.increment();
+                return queryIndexes(type, from, toExclusive, minAmount, maxAmount);
+            }
+            misses++;
+            MISSES.increment();
+        }
+        return dao.findExpenses(type, from, toExclusive, minAmount, maxAmount);
+    }
+
+    public synchronized boolean isComplete() { return complete; }
+    public synchronized int size() { return byId.size(); }
+
+    public synchronized String getStats() {
+        return String.format("entries=%d/%d complete=%b hits=%d misses=%d", byId.size(), maxEntries, complete, hits, misses);
+    }
+
+    private List<Expense> queryIndexes(String type, LocalDate from, LocalDate toExclusive, Double minAmount, Double maxAmount) {
+        long low = from == null ? Long.MIN_VALUE : dateKey(from.toEpochDay(), Integer.MIN_VALUE);
+        long high = toExclusive == null ? Long.MAX_VALUE : dateKey(toExclusive.toEpochDay(), Integer.MIN_VALUE);
+        long minCents = minAmount == null ? Long.MIN_VALUE : ExpenseAggregates.toCents(minAmount);
+        long maxCents = maxAmount == null ? Long.MAX_VALUE : ExpenseAggregates.toCents(maxAmount);
+        List<Expense> result = new ArrayList<>();
+
+        if (type == null && from == null && toExclusive == null && (minAmount != null || maxAmount != null)) {
+            // Only an amount bound: walk the amount index, then restore date order.
+            for (Map<Integer, Expense> sameAmount : byAmount.subMap(minCents, true, maxCents, true).values()) {
+                result.addAll(sameAmount.values());
+            }
+            result.sort(Comparator.comparing(Expense::getDate).thenComparingInt(Expense::getId).reversed());
+            return result;
+        }
+
+        NavigableMap<Long, Expense> index = type == null ? byDate : byTypeAndDate.get(type);
+        if (index == null) return result;
+        for (Expense exp : index.subMap(low, true, high, false).descendingMap().values()) {
+            long cents = ExpenseAggregates.toCents(exp.getAmount());
+            if (cents >= minCents && cents <= maxCents) result.add(exp);
+        }
+        return result;
+    }
+
+    private synchronized void put(Expense exp) {
+        writes++;
+        Expense old = byId.remove(exp.getId());
+        if (old != null) unindex(old);
+        index(exp);
+        while (byId.size() > maxEntries) {
+            Iterator<Expense> eldest = byId.values().iterator();
+            Expense evicted = eldest.next();
+            eldest.remove();
+            unindex(evicted);
+            complete = false;
+        }
+    }
+
+    private void index(Expense exp) {
+        byId.put(exp.getId(), exp);
+        long key = dateKey(exp);
+        byDate.put(key, exp);
+        byTypeAndDate.computeIfAbsent(exp.getType(), t -> new TreeMap<>()).put(key, exp);
+        byAmount.computeIfAbsent(ExpenseAggregates.toCents(exp.getAmount()), c -> new HashMap<>()).put(exp.getId(), exp);
+    }
+
+    private void unindex(Expense exp) {
+        long key = dateKey(exp);
+        byDate.remove(key);
+        NavigableMap<Long, Expense> typeIndex = byTypeAndDate.get(exp.getType());
+        if (typeIndex != null) typeIndex.remove(key);
+        long cents = ExpenseAggregates.toCents(exp.getAmount());
+        Map<Integer, Expense> sameAmount = byAmount.get(cents);
+        if (sameAmount != null) {
+            sameAmount.remove(exp.getId());
+            if (sameAmount.isEmpty()) byAmount.remove(cents);
+        }
+    }
+
+    private void clear() {
+        writes++;
+        byId.clear();
+        byDate.clear();
+        byTypeAndDate.clear();
+        byAmount.clear();
+        complete = false;
+    }
+
+    private static long dateKey(Expense exp) {
+        return dateKey(exp.getDate().toLocalDate().toEpochDay(), exp.getId());
+    }
+
+    private static long dateKey(long epochDay, int id) {
+        return (epochDay << 32) + ((long) id - Integer.MIN_VALUE);
+    }
+}
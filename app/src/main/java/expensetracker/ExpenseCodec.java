@@ -0,0 +1,65 @@
+package expensetracker;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+// Binary form of one expense, shared by ExpenseJournal, WriteBehindLog and ViewSnapshot:
+// [int id][double amount][long epochDay][int userId][int accountId][type][description][details],
+// big-endian, strings as [int byteLength][UTF-8] with -1 for null. Account ids start at 1, so 0
+// stands for no account. Each file frames and checksums the records itself.
+final class ExpenseCodec {
+    private ExpenseCodec() {}
+
+    // Returns buf, or a larger copy of it when the expense did not fit.
+    static ByteBuffer put(ByteBuffer buf, Expense exp) {
+        buf = ensure(buf, 4 + 8 + 8 + 4 + 4);
+        buf.putInt(exp.getId());
+        buf.putDouble(exp.getAmount());
+        buf.putLong(exp.getDate().toLocalDate().toEpochDay());
+        buf.putInt(exp.getUserId());
+        buf.putInt(exp.getAccountId() == null ? 0 : exp.getAccountId());
+        buf = putString(buf, exp.getType());
+        buf = putString(buf, exp.getDescription());
+        return putString(buf, exp.getDetails());
+    }
+
+    static Expense get(ByteBuffer buf) throws IOException {
+        int id = buf.getInt();
+        double amount = buf.getDouble();
+        java.sql.Date date = java.sql.Date.valueOf(LocalDate.ofEpochDay(buf.getLong()));
+        int userId = buf.getInt();
+        int accountId = buf.getInt();
+        String typeName = getString(buf);
+        ExpenseType type = ExpenseTypes.get(typeName);
+        if (type == null) throw new IOException("Unknown expense type '" + typeName + "'.");
+        Expense exp = type.create(id, amount, date, getString(buf), getString(buf));
+        exp.setUserId(userId);
+        exp.setAccountId(accountId == 0 ? null : accountId);
+        return exp;
+    }
+
+    static ByteBuffer putString(ByteBuffer buf, String s) {
+        if (s == null) return ensure(buf, 4).putInt(-1);
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        return ensure(buf, 4 + bytes.length).putInt(bytes.length).put(bytes);
+    }
+
+    static String getString(ByteBuffer buf) throws IOException {
+        int length = buf.getInt();
+        if (length < 0) return null;
+        if (length > buf.remaining()) throw new IOException("String of " + length + " bytes runs past the record.");
+        byte[] bytes = new byte[length];
+        buf.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Heap buffers only; the copy keeps what was written so far and its position.
+    static ByteBuffer ensure(ByteBuffer buf, int more) {
+        if (buf.remaining() >= more) return buf;
+        ByteBuffer bigger = ByteBuffer.allocate(Math.max(buf.capacity() * 2, buf.position() + more));
+        buf.flip();
+        return bigger.put(buf);
+    }
+}
@@ -0,0 +1,663 @@
+package expensetracker;
+
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+class ExpenseDAO {
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+    public static final int STREAM_FETCH_SIZE = 500;
+    // Every column ExpenseRowMapper reads, and nothing else, so reads do not ship the typed detail,
+    // sync and version columns.
+    static final String COLUMNS = "id, amount, date, description, type, details, user_id, account_id";
+    static final String SELECT_SQL = "SELECT " + COLUMNS + " FROM expenses";
+    // Lists of ids are bound as IN lists of one of these lengths, the last id repeated to fill the
+    // rest, so the per-connection statement cache holds a few shapes rather than one per length.
+    private static final int[] IN_LIST_SIZES = {1, 8, 64, STREAM_FETCH_SIZE};
+    static final int MAX_IN_LIST = STREAM_FETCH_SIZE;
+    static final String INSERT_SQL = "INSERT INTO expenses (amount, date, description, type, details, "
+            + "restaurant, destination, transport_mode, utility_type, user_id, account_id) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    static final String OCCURRENCE_INSERT_SQL = "INSERT INTO expenses (amount, date, description, type, details, "
+            + "restaurant, destination, transport_mode, utility_type, user_id, account_id, recurrence_id) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    // Every query is filtered by the scope; writes stamp its user on the expense and keep account balances in step.
+    private final ExpenseScope scope;
+    // In local-first mode every write also queues the row id for ExpenseSync, in the same transaction;
+    // otherwise it is logged for the local stores that pull from this database.
+    private final boolean trackChanges;
+    private int batchSize = DEFAULT_BATCH_SIZE;
+
+    public ExpenseDAO() {
+        this(ExpenseScope.defaultScope());
+    }
+
+    public ExpenseDAO(boolean trackChanges) {
+        this(ExpenseScope.defaultScope(), trackChanges);
+    }
+
+    public ExpenseDAO(ExpenseScope scope) {
+        this(scope, DatabaseConnection.isSyncEnabled());
+    }
+
+    public ExpenseDAO(ExpenseScope scope, boolean trackChanges) {
+        this.scope = scope;
+        this.trackChanges = trackChanges;
+    }
+
+    public ExpenseScope getScope() { return scope; }
+
+    public int getBatchSize() { return batchSize; }
+    public void setBatchSize(int batchSize) {
+        if (batchSize <= 0) throw new IllegalArgumentException("Batch size must be positive.");
+        this.batchSize = batchSize;
+    }
+
+    public void insertExpense(Expense exp) throws SQLException {
+        assignScope(exp);
+        try (DaoCall call = Metrics.dao("insertExpense", INSERT_SQL);
+             Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+            conn.setAutoCommit(false);
+            bindExpense(pstmt, exp);
+            int affectedRows = pstmt.executeUpdate();
+            if (affectedRows == 0) throw new SQLException("Insert failed, no rows affected.");
+            call.rows(affectedRows);
+            try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
+                if (generatedKeys.next()) {
+                    exp.setId(generatedKeys.getInt(1));
+                }
+            }
+            AccountDAO.applyExpenseChange(conn, exp.getUserId(), null, 0, exp.getAccountId(), exp.getAmount());
+            recordChanges(conn, List.of(exp.getId()), Set.of());
+            conn.commit();
+        }
+    }
+
+    // Inserts all expenses in one transaction using JDBC batches; every expense gets its generated id.
+    public void insertExpenses(Collection<? extends Expense> expenses) throws SQLException {
+        if (expenses.isEmpty()) return;
+        expenses.forEach(this::assignScope);
+        try (DaoCall call = Metrics.dao("insertExpenses", INSERT_SQL);
+             Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement pstmt = conn.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+                List<Expense> pending = new ArrayList<>(Math.min(batchSize, expenses.size()));
+                for (Expense exp : expenses) {
+                    bindExpense(pstmt, exp);
+                    pstmt.addBatch();
+                    pending.add(exp);
+                    if (pending.size() == batchSize) executeInsertBatch(conn, pstmt, pending);
+                }
+                executeInsertBatch(conn, pstmt, pending);
+                conn.commit();
+                call.rows(expenses.size());
+            } catch (SQLException ex) {
+                conn.rollback();
+                for (Expense exp : expenses) exp.setId(-1);
+                throw ex;
+            }
+        }
+    }
+
+    // Streams expenses into the table, committing once per batch so memory stays bounded by the batch size.
+    public ImportResult importExpenses(Iterator<? extends Expense> source, Consumer<ImportResult> progress) throws SQLException {
+        long start = System.nanoTime();
+        long rows = 0;
+        try (DaoCall call = Metrics.dao("importExpenses", INSERT_SQL);
+             Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement pstmt = conn.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+                List<Expense> pending = new ArrayList<>(batchSize);
+                while (source.hasNext()) {
+                    Expense exp = source.next();
+                    assignScope(exp);
+                    bindExpense(pstmt, exp);
+                    pstmt.addBatch();
+                    pending.add(exp);
+                    if (pending.size() == batchSize) {
+                        rows += pending.size();
+                        executeInsertBatch(conn, pstmt, pending);
+                        conn.commit();
+                        if (progress != null) progress.accept(new ImportResult(rows, System.nanoTime() - start));
+                    }
+                }
+                rows += pending.size();
+                executeInsertBatch(conn, pstmt, pending);
+                conn.commit();
+                call.rows(rows);
+            } catch (SQLException ex) {
+                conn.rollback();
+                throw ex;
+            }
+        }
+        ImportResult result = new ImportResult(rows, System.nanoTime() - start);
+        if (progress != null) progress.accept(result);
+        return result;
+    }
+
+    // Writes occurrences of one recurring expense on the caller's transaction, which also advances
+    // the rule (see RecurringExpenseDAO); every occurrence gets its generated id.
+    void insertOccurrences(Connection conn, int recurrenceId, List<Expense> occurrences) throws SQLException {
+        try (DaoCall call = Metrics.dao("insertOccurrences", OCCURRENCE_INSERT_SQL);
+             PreparedStatement pstmt = conn.prepareStatement(OCCURRENCE_INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+            List<Expense> pending = new ArrayList<>(occurrences.size());
+            for (Expense exp : occurrences) {
+                assignScope(exp);
+                bindExpense(pstmt, exp);
+                pstmt.setInt(12, recurrenceId);
+                pstmt.addBatch();
+                pending.add(exp);
+            }
+            executeInsertBatch(conn, pstmt, pending);
+            call.rows(occurrences.size());
+        }
+    }
+
+    private void executeInsertBatch(Connection conn, PreparedStatement pstmt, List<Expense> pending) throws SQLException {
+        if (pending.isEmpty()) return;
+        for (int count : pstmt.executeBatch()) {
+            if (count == 0) throw new SQLException("Batch insert failed, no rows affected.");
+        }
+        try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
+            int i = 0;
+            while (i < pending.size() && generatedKeys.next()) {
+                pending.get(i++).setId(generatedKeys.getInt(1));
+            }
+            if (i != pending.size()) {
+                throw new SQLException("Batch insert returned " + i + " generated keys for " + pending.size() + " rows.");
+            }
+        }
+        AccountDAO.applyInserts(conn, scope.getUserId(), pending);
+        List<Integer> ids = new ArrayList<>(pending.size());
+        for (Expense exp : pending) ids.add(exp.getId());
+        recordChanges(conn, ids, Set.of());
+        pending.clear();
+    }
+
+    // An account-scoped DAO charges expenses without an account to its account.
+    void assignScope(Expense exp) {
+        exp.setUserId(scope.getUserId());
+        if (exp.getAccountId() == null) exp.setAccountId(scope.getAccountId());
+    }
+
+    // details keeps the combined display value; the typed columns let the database filter on each field.
+    static void bindExpense(PreparedStatement pstmt, Expense exp) throws SQLException {
+        pstmt.setDouble(1, exp.getAmount());
+        pstmt.setDate(2, exp.getDate());
+        pstmt.setString(3, exp.getDescription());
+        pstmt.setString(4, exp.getType());
+        pstmt.setString(5, exp.getDetails());
+        pstmt.setString(6, exp instanceof FoodExpense ? ((FoodExpense) exp).getRestaurant() : null);
+        pstmt.setString(7, exp instanceof TravelExpense ? ((TravelExpense) exp).getDestination() : null);
+        pstmt.setString(8, exp instanceof TravelExpense ? ((TravelExpense) exp).getTransportMode() : null);
+        pstmt.setString(9, exp instanceof UtilityExpense ? ((UtilityExpense) exp).getUtilityType() : null);
+        pstmt.setInt(10, exp.getUserId());
+        pstmt.setObject(11, exp.getAccountId(), Types.INTEGER);
+    }
+
+    public void updateExpense(Expense exp) throws SQLException {
+        if (exp.getId() <= 0) throw new SQLException("Expense ID is invalid for update.");
+        assignScope(exp);
+        String sql = updateSql();
+        try (DaoCall call = Metrics.dao("updateExpense", sql);
+             Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            conn.setAutoCommit(false);
+            Expense previous = lockExpense(conn, exp.getId());
+            if (previous == null) throw new SQLException("Update failed, no rows affected.");
+            bindExpense(pstmt, exp);
+            pstmt.setInt(12, exp.getId());
+            scope.bind(pstmt, 13);
+            if (pstmt.executeUpdate() == 0) throw new SQLException("Update failed, no rows affected.");
+            call.rows(1);
+            AccountDAO.applyExpenseChange(conn, scope.getUserId(), previous.getAccountId(), previous.getAmount(),
+                    exp.getAccountId(), exp.getAmount());
+            recordChanges(conn, List.of(exp.getId()), Set.of());
+            conn.commit();
+        }
+    }
+
+    public void deleteExpense(int expenseId) throws SQLException {
+        String sql = "DELETE FROM expenses WHERE id=? AND " + scope.where();
+        try (DaoCall call = Metrics.dao("deleteExpense", sql);
+             Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            conn.setAutoCommit(false);
+            Expense previous = lockExpense(conn, expenseId);
+            if (previous == null) throw new SQLException("Delete failed, no rows affected.");
+            pstmt.setInt(1, expenseId);
+            scope.bind(pstmt, 2);
+            if (pstmt.executeUpdate() == 0) throw new SQLException("Delete failed, no rows affected.");
+            call.rows(1);
+            AccountDAO.applyExpenseChange(conn, scope.getUserId(), previous.getAccountId(), previous.getAmount(), null, 0);
+            recordChanges(conn, List.of(expenseId), Set.of(expenseId));
+            conn.commit();
+        }
+    }
+
+    // Writes the updates and deletes queued by a WriteBehindQueue in one transaction, one JDBC batch
+    // each, with one balance change per account. Rows that no longer exist are skipped and their ids
+    // returned; any other failure rolls the whole transaction back.
+    public List<Integer> applyChanges(Collection<? extends Expense> updates, Collection<Integer> deletes) throws SQLException {
+        List<Integer> missing = new ArrayList<>();
+        if (updates.isEmpty() && deletes.isEmpty()) return missing;
+        int[] ids = new int[updates.size() + deletes.size()];
+        int n = 0;
+        for (Expense exp : updates) {
+            if (exp.getId() <= 0) throw new SQLException("Expense ID is invalid for update.");
+            assignScope(exp);
+            ids[n++] = exp.getId();
+        }
+        for (int id : deletes) ids[n++] = id;
+        try (DaoCall call = Metrics.dao("applyChanges");
+             Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            Map<Integer, Expense> previous = lockExpenses(conn, ids);
+            Map<Integer, Long> deltaCents = new TreeMap<>();
+            Set<Integer> charged = new HashSet<>();
+            List<Integer> changed = new ArrayList<>(ids.length);
+            Set<Integer> deleted = new HashSet<>();
+            try (PreparedStatement update = conn.prepareStatement(updateSql());
+                 PreparedStatement delete = conn.prepareStatement("DELETE FROM expenses WHERE id=? AND " + scope.where())) {
+                for (Expense exp : updates) {
+                    Expense old = previous.get(exp.getId());
+                    if (old == null) {
+                        missing.add(exp.getId());
+                        continue;
+                    }
+                    bindExpense(update, exp);
+                    update.setInt(12, exp.getId());
+                    scope.bind(update, 13);
+                    update.addBatch();
+                    if (old.getAccountId() != null) deltaCents.merge(old.getAccountId(), ExpenseAggregates.toCents(old.getAmount()), Long::sum);
+                    if (exp.getAccountId() != null) {
+                        deltaCents.merge(exp.getAccountId(), -ExpenseAggregates.toCents(exp.getAmount()), Long::sum);
+                        charged.add(exp.getAccountId());
+                    }
+                    changed.add(exp.getId());
+                }
+                for (int id : deletes) {
+                    Expense old = previous.get(id);
+                    if (old == null) {
+                        missing.add(id);
+                        continue;
+                    }
+                    delete.setInt(1, id);
+                    scope.bind(delete, 2);
+                    delete.addBatch();
+                    if (old.getAccountId() != null) deltaCents.merge(old.getAccountId(), ExpenseAggregates.toCents(old.getAmount()), Long::sum);
+                    changed.add(id);
+                    deleted.add(id);
+                }
+                update.executeBatch();
+                delete.executeBatch();
+            }
+            AccountDAO.applyDeltas(conn, scope.getUserId(), deltaCents, charged);
+            recordChanges(conn, changed, deleted);
+            conn.commit();
+            call.rows(changed.size());
+        }
+        return missing;
+    }
+
+    // Call last before the commit: logging the change locks the sync clock until then.
+    private void recordChanges(Connection conn, Collection<Integer> ids, Collection<Integer> deletedIds) throws SQLException {
+        if (trackChanges) {
+            ExpenseSync.markChangedIds(conn, ids);
+        } else {
+            ExpenseSync.recordChanges(conn, ids, deletedIds);
+        }
+    }
+
+    private String updateSql() {
+        return "UPDATE expenses SET amount=?, date=?, description=?, type=?, details=?, "
+                + "restaurant=?, destination=?, transport_mode=?, utility_type=?, user_id=?, account_id=?, "
+                + "version=version+1 WHERE id=? AND " + scope.where();
+    }
+
+    // Like lockExpense for many rows, in chunks of MAX_IN_LIST ids.
+    private Map<Integer, Expense> lockExpenses(Connection conn, int[] ids) throws SQLException {
+        Map<Integer, Expense> rows = new HashMap<>(ids.length * 2);
+        for (int from = 0; from < ids.length; from += MAX_IN_LIST) {
+            int to = Math.min(ids.length, from + MAX_IN_LIST);
+            String sql = SELECT_SQL + " WHERE " + scope.where() + " AND id IN " + inList(to - from) + " FOR UPDATE";
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                bindInList(pstmt, scope.bind(pstmt, 1), ids, from, to);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    ExpenseRowMapper mapper = new ExpenseRowMapper(rs);
+                    while (rs.next()) {
+                        Expense exp = mapper.map(rs);
+                        rows.put(exp.getId(), exp);
+                    }
+                }
+            }
+        }
+        return rows;
+    }
+
+    // The stored row, locked until the caller's transaction ends, so its balance effect can be reversed.
+    private Expense lockExpense(Connection conn, int expenseId) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(SELECT_SQL + " WHERE id=? AND " + scope.where() + " FOR UPDATE")) {
+            pstmt.setInt(1, expenseId);
+            scope.bind(pstmt, 2);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? new ExpenseRowMapper(rs).map(rs) : null;
+            }
+        }
+    }
+
+    public List<Expense> getAllExpenses() throws SQLException {
+        String sql = SELECT_SQL + " WHERE " + scope.where() + " ORDER BY date DESC, id DESC";
+        try (DaoCall call = Metrics.dao("getAllExpenses", sql);
+             Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            scope.bind(pstmt, 1);
+            return readPage(pstmt, 1024, call);
+        }
+    }
+
+    // Keyset pagination on (date, id): pass the last row of the previous page, or null for the first page.
+    public List<Expense> getExpensesPage(Expense after, int limit) throws SQLException {
+        return getExpensesPage(ExpenseSort.DEFAULT, after, limit);
+    }
+
+    public List<Expense> getExpensesPage(ExpenseSort sort, Expense after, int limit) throws SQLException {
+        String sql = SELECT_SQL + " WHERE " + scope.where() + (after == null ? "" : " AND " + sort.afterPredicate())
+                + " ORDER BY " + sort.orderBy() + " LIMIT ?";
+        try (DaoCall call = Metrics.dao("getExpensesPage", sql);
+             Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            int i = scope.bind(pstmt, 1);
+            if (after != null) i = sort.bindKey(pstmt, i, after);
+            pstmt.setInt(i, limit);
+            return readPage(pstmt, limit, call);
+        }
+    }
+
+    // Offset-based access for random jumps (e.g. dragging the scrollbar); sequential reads should use keysets.
+    public List<Expense> getExpensesAt(ExpenseSort sort, int offset, int limit) throws SQLException {
+        String sql = SELECT_SQL + " WHERE " + scope.where() + " ORDER BY " + sort.orderBy() + " LIMIT ? OFFSET ?";
+        try (DaoCall call = Metrics.dao("getExpensesAt", sql);
+             Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            int i = scope.bind(pstmt, 1);
+            pstmt.setInt(i++, limit);
+            pstmt.setInt(i, offset);
+            return readPage(pstmt, limit, call);
+        }
+    }
+
+    public int countExpenses() throws SQLException {
+        return countExpenses(null);
+    }
+
+    // Number of rows that come before the given expense in the given order, i.e. its row index.
+    public int countExpensesBefore(ExpenseSort sort, Expense exp) throws SQLException {
+        String sql = "SELECT COUNT(*) FROM expenses WHERE " + scope.where() + " AND " + sort.beforePredicate();
+        try (DaoCall call = Metrics.dao("countExpensesBefore", sql);
+             Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            sort.bindKey(pstmt, scope.bind(pstmt, 1), exp);
+            call.rows(1);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        }
+    }
+
+    private static List<Expense> readPage(PreparedStatement pstmt, int limit, DaoCall call) throws SQLException {
+        List<Expense> page = new ArrayList<>(Math.min(limit, 1024));
+        try (ResultSet rs = pstmt.executeQuery()) {
+            ExpenseRowMapper mapper = new ExpenseRowMapper(rs);
+            while (rs.next()) {
+                page.add(mapper.map(rs));
+            }
+            call.mapped(mapper);
+        }
+        return page;
+    }
+
+    // Lazily streams every expense over one borrowed connection; close the stream to release it.
+    public Stream<Expense> streamExpenses() throws SQLException {
+        String sql = SELECT_SQL + " WHERE " + scope.where() + " ORDER BY date DESC, id DESC";
+        DaoCall call = Metrics.dao("streamExpenses", sql);
+        Connection conn = DatabaseConnection.getConnection();
+        try {
+            PreparedStatement stmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            stmt.setFetchSize(STREAM_FETCH_SIZE);
+            scope.bind(stmt, 1);
+            ResultSet rs = stmt.executeQuery();
+            ExpenseRowMapper mapper = new ExpenseRowMapper(rs);
+            Spliterator<Expense> rows = new Spliterators.AbstractSpliterator<Expense>(Long.MAX_VALUE,
+                    Spliterator.ORDERED | Spliterator.NONNULL) {
+                @Override
+                public boolean tryAdvance(Consumer<? super Expense> action) {
+                    try {
+                        if (!rs.next()) return false;
+                        action.accept(mapper.map(rs));
+                        return true;
+                    } catch (SQLException ex) {
+                        throw new UncheckedSQLException(ex);
+                    }
+                }
+            };
+            // The call times the whole stream, from the query until the caller closes it.
+            return StreamSupport.stream(rows, false).onClose(() -> {
+                try {
+                    rs.close();
+                    stmt.close();
+                    conn.close();
+                } catch (SQLException ex) {
+                    throw new UncheckedSQLException(ex);
+                } finally {
+                    call.mapped(mapper);
+                    call.close();
+                }
+            });
+        } catch (SQLException | RuntimeException ex) {
+            conn.close();
+            call.close();
+            throw ex;
+        }
+    }
+
+    public Expense findExpense(int expenseId) throws SQLException {
+        try (DaoCall call = Metrics.dao("findExpense");
+             Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(SELECT_SQL + " WHERE id=? AND " + scope.where())) {
+            pstmt.setInt(1, expenseId);
+            scope.bind(pstmt, 2);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (!rs.next()) return null;
+                ExpenseRowMapper mapper = new ExpenseRowMapper(rs);
+                Expense exp = mapper.map(rs);
+                call.mapped(mapper);
+                return exp;
+            }
+        }
+    }
+
+    // Range query used when the cache cannot answer; any null bound is ignored.
+    public List<Expense> findExpenses(String type, LocalDate from, LocalDate toExclusive, Double minAmount, Double maxAmount)
+            throws SQLException {
+        StringBuilder sql = new StringBuilder(SELECT_SQL + " WHERE ").append(scope.where());
+        if (type != null) sql.append(" AND type = ?");
+        if (from != null) sql.append(" AND date >= ?");
+        if (toExclusive != null) sql.append(" AND date < ?");
+        if (minAmount != null) sql.append(" AND amount >= ?");
+        if (maxAmount != null) sql.append(" AND amount <= ?");
+        sql.append(" ORDER BY date DESC, id DESC");
+        try (DaoCall call = Metrics.dao("findExpenses", sql);
+             Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql.toString())) {
+            int i = scope.bind(pstmt, 1);
+            if (type != null) pstmt.setString(i++, type);
+            if (from != null) pstmt.setDate(i++, java.sql.Date.valueOf(from));
+            if (toExclusive != null) pstmt.setDate(i++, java.sql.Date.valueOf(toExclusive));
+            if (minAmount != null) pstmt.setDouble(i++, minAmount);
+            if (maxAmount != null) pstmt.setDouble(i++, maxAmount);
+            return readPage(pstmt, 1024, call);
+        }
+    }
+
+    // Rows for the given ids, in no particular order; ids without a row are skipped.
+    public List<Expense> findExpenses(int[] ids) throws SQLException {
+        List<Expense> rows = new ArrayList<>(ids.length);
+        try (DaoCall call = Metrics.dao("findExpensesById");
+             Connection conn = DatabaseConnection.getConnection()) {
+            for (int from = 0; from < ids.length; from += MAX_IN_LIST) {
+                int to = Math.min(ids.length, from + MAX_IN_LIST);
+                String sql = SELECT_SQL + " WHERE " + scope.where() + " AND id IN " + inList(to - from);
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    bindInList(pstmt, scope.bind(pstmt, 1), ids, from, to);
+                    rows.addAll(readPage(pstmt, to - from, call));
+                }
+            }
+        }
+        return rows;
+    }
+
+    // Placeholders for an IN list of count ids, at most MAX_IN_LIST, padded to the next list length.
+    static String inList(int count) {
+        return "(" + String.join(", ", Collections.nCopies(inListSize(count), "?")) + ")";
+    }
+
+    // Binds ids[from, to) to an inList(to - from) starting at index and returns the next index.
+    static int bindInList(PreparedStatement pstmt, int index, int[] ids, int from, int to) throws SQLException {
+        int size = inListSize(to - from);
+        for (int i = 0; i < size; i++) pstmt.setInt(index + i, ids[Math.min(from + i, to - 1)]);
+        return index + size;
+    }
+
+    private static int inListSize(int count) {
+        for (int size : IN_LIST_SIZES) {
+            if (count <= size) return size;
+        }
+        throw new IllegalArgumentException("IN lists hold at most " + MAX_IN_LIST + " ids: " + count);
+    }
+
+    public TableFingerprint fingerprint() throws SQLException {
+        try (DaoCall call = Metrics.dao("fingerprint");
+             Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(
+                     "SELECT COUNT(*), SUM(ROUND(amount * 100)), MAX(id) FROM expenses WHERE " + scope.where())) {
+            scope.bind(pstmt, 1);
+            call.rows(1);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? new TableFingerprint(rs.getLong(1), rs.getLong(2), rs.getLong(3)) : new TableFingerprint(0, 0, 0);
+            }
+        }
+    }
+
+    // Pushes the summing down to the database: one row per (type, day), rolled up by the caller.
+    public void seedAggregates(ExpenseAggregates target) throws SQLException {
+        String sql = "SELECT type, date, COUNT(*), SUM(ROUND(amount * 100)), MIN(ROUND(amount * 100)), MAX(ROUND(amount * 100)) "
+                + "FROM expenses WHERE " + scope.where() + " GROUP BY type, date";
+        try (DaoCall call = Metrics.dao("seedAggregates", sql);
+             Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            scope.bind(pstmt, 1);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    target.seed(rs.getString(1), rs.getDate(2).toLocalDate(), rs.getLong(3),
+                            rs.getLong(4), rs.getLong(5), rs.getLong(6));
+                    call.rows(1);
+                }
+            }
+        }
+    }
+
+    // The SqlAnalytics side of ExpenseAnalytics: the same reports answered by aggregate queries.
+    public DailyTotals dailyTotals(String type) throws SQLException {
+        String sql = "SELECT date, COUNT(*), SUM(ROUND(amount * 100)), MIN(ROUND(amount * 100)), MAX(ROUND(amount * 100)) "
+                + "FROM expenses WHERE " + scope.where() + (type == null ? "" : " AND type = ?") + " GROUP BY date ORDER BY date";
+        try (DaoCall call = Metrics.dao("dailyTotals", sql);
+             Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            int i = scope.bind(pstmt, 1);
+            if (type != null) pstmt.setString(i, type);
+            List<long[]> days = new ArrayList<>();
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    days.add(new long[]{rs.getDate(1).toLocalDate().toEpochDay(), rs.getLong(2), rs.getLong(3), rs.getLong(4), rs.getLong(5)});
+                }
+            }
+            call.rows(days.size());
+            if (days.isEmpty()) return DailyTotals.empty();
+            long first = days.get(0)[0];
+            DailyTotals totals = new DailyTotals(first, (int) (days.get(days.size() - 1)[0] - first + 1));
+            for (long[] d : days) totals.merge(d[0], d[1], d[2], d[3], d[4]);
+            return totals;
+        }
+    }
+
+    public Map<String, AggregateBucket> breakdown(Breakdown by) throws SQLException {
+        String sql = "SELECT COALESCE(" + by.column + ", ''), COUNT(*), SUM(ROUND(amount * 100)), MIN(ROUND(amount * 100)), "
+                + "MAX(ROUND(amount * 100)) FROM expenses WHERE " + scope.where() + (by.type == null ? "" : " AND type = ?")
+                + " GROUP BY COALESCE(" + by.column + ", '')";
+        Map<String, AggregateBucket> result = new TreeMap<>();
+        try (DaoCall call = Metrics.dao("breakdown", sql);
+             Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            int i = scope.bind(pstmt, 1);
+            if (by.type != null) pstmt.setString(i, by.type);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    AggregateBucket b = new AggregateBucket();
+                    b.merge(rs.getLong(2), rs.getLong(3), rs.getLong(4), rs.getLong(5));
+                    result.put(rs.getString(1), b);
+                }
+            }
+            call.rows(result.size());
+        }
+        return result;
+    }
+
+    public List<Expense> topExpenses(int n, String type) throws SQLException {
+        String sql = SELECT_SQL + " WHERE " + scope.where() + (type == null ? "" : " AND type = ?")
+                + " ORDER BY amount DESC, id LIMIT ?";
+        try (DaoCall call = Metrics.dao("topExpenses", sql);
+             Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            int i = scope.bind(pstmt, 1);
+            if (type != null) pstmt.setString(i++, type);
+            pstmt.setInt(i, n);
+            return readPage(pstmt, n, call);
+        }
+    }
+
+    public int countExpenses(String type) throws SQLException {
+        String sql = "SELECT COUNT(*) FROM expenses WHERE " + scope.where() + (type == null ? "" : " AND type = ?");
+        try (DaoCall call = Metrics.dao("countExpenses", sql);
+             Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            int i = scope.bind(pstmt, 1);
+            if (type != null) pstmt.setString(i, type);
+            call.rows(1);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        }
+    }
+
+    // The amount in cents of the rank-th smallest expense (1-based).
+    public long amountCentsAtRank(String type, int rank) throws SQLException {
+        String sql = "SELECT ROUND(amount * 100) FROM expenses WHERE " + scope.where() + (type == null ? "" : " AND type = ?")
+                + " ORDER BY amount LIMIT 1 OFFSET ?";
+        try (DaoCall call = Metrics.dao("amountCentsAtRank", sql);
+             Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            int i = scope.bind(pstmt, 1);
+            if (type != null) pstmt.setString(i++, type);
+            pstmt.setInt(i, rank - 1);
+            call.rows(1);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : 0;
+            }
+        }
+    }
+}
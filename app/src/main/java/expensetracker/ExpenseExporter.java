@@ -0,0 +1,258 @@
+package expensetracker;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+// Streams the table to CSV or JSON without materializing it: rows come from
+// ExpenseManager.streamExpenses() and are encoded straight into a buffer that is drained to the
+// file channel whenever it fills. ExpenseServer uses the same encoder for HTTP responses, with ids.
+class ExpenseExporter {
+    private static final int BUFFER_SIZE = 256 * 1024;
+    private static final long PROGRESS_EVERY = 10_000;
+    private static final String CSV_HEADER = "type,date,amount,description,restaurant,destination,transport_mode,utility_type,account_id\n";
+
+    private final Path file;
+    private final ExpenseFormat format;
+    // Ids are left out of files, which are meant to be imported again as new rows.
+    private final boolean withIds;
+    private final ByteBuffer out;
+    private WritableByteChannel channel;
+
+    public ExpenseExporter(Path file) throws IOException {
+        this(file, ExpenseFormat.forFile(file));
+    }
+
+    public ExpenseExporter(Path file, ExpenseFormat format) {
+        this(file, format, false, BUFFER_SIZE);
+    }
+
+    // For write() only.
+    ExpenseExporter(ExpenseFormat format, boolean withIds, int bufferSize) {
+        this(null, format, withIds, bufferSize);
+    }
+
+    private ExpenseExporter(Path file, ExpenseFormat format, boolean withIds, int bufferSize) {
+        this.file = file;
+        this.format = format;
+        this.withIds = withIds;
+        this.out = ByteBuffer.allocate(bufferSize);
+    }
+
+    public ImportResult run(ExpenseManager manager, Consumer<ImportResult> progress) throws IOException, SQLException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+             Stream<Expense> expenses = manager.streamExpenses()) {
+            return write(ch, expenses.iterator(), progress);
+        } catch (UncheckedSQLException ex) {
+            throw ex.getCause();
+        }
+    }
+
+    public ImportResult write(WritableByteChannel target, Iterator<? extends Expense> expenses, Consumer<ImportResult> progress)
+            throws IOException {
+        long start = System.nanoTime();
+        long rows = 0;
+        try {
+            channel = target;
+            out.clear();
+            if (format == ExpenseFormat.CSV) ascii(CSV_HEADER);
+            if (format == ExpenseFormat.JSON) ascii("[\n");
+            while (expenses.hasNext()) {
+                Expense exp = expenses.next();
+                if (format == ExpenseFormat.CSV) {
+                    writeCsv(exp);
+                } else {
+                    if (format == ExpenseFormat.JSON && rows > 0) ascii(",\n");
+                    writeJson(exp);
+                    if (format == ExpenseFormat.JSON_LINES) put('\n');
+                }
+                rows++;
+                if (progress != null && rows % PROGRESS_EVERY == 0) progress.accept(new ImportResult(rows, System.nanoTime() - start));
+            }
+            if (format == ExpenseFormat.JSON) ascii(rows > 0 ? "\n]\n" : "]\n");
+            drain();
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        } finally {
+            channel = null;
+        }
+        ImportResult result = new ImportResult(rows, System.nanoTime() - start);
+        if (progress != null) progress.accept(result);
+        return result;
+    }
+
+    private void writeCsv(Expense exp) throws IOException {
+        csv(exp.getType());
+        put(',');
+        date(exp.getDate());
+        put(',');
+        cents(ExpenseAggregates.toCents(exp.getAmount()));
+        put(',');
+        csv(exp.getDescription());
+        String[] typed = typedFields(exp);
+        for (String value : typed) {
+            put(',');
+            csv(value);
+        }
+        put(',');
+        if (exp.getAccountId() != null) ascii(exp.getAccountId().toString());
+        put('\n');
+    }
+
+    private void writeJson(Expense exp) throws IOException {
+        put('{');
+        if (withIds) {
+            ascii("\"id\":");
+            ascii(Integer.toString(exp.getId()));
+            put(',');
+        }
+        ascii("\"type\":");
+        json(exp.getType());
+        ascii(",\"date\":\"");
+        date(exp.getDate());
+        ascii("\",\"amount\":");
+        cents(ExpenseAggregates.toCents(exp.getAmount()));
+        ascii(",\"description\":");
+        json(exp.getDescription());
+        String[] typed = typedFields(exp);
+        String[] keys = {"restaurant", "destination", "transport_mode", "utility_type"};
+        for (int i = 0; i < typed.length; i++) {
+            if (typed[i] == null) continue;
+            ascii(",\"");
+            ascii(keys[i]);
+            ascii("\":");
+            json(typed[i]);
+        }
+        if (exp.getAccountId() != null) {
+            ascii(",\"account_id\":");
+            ascii(exp.getAccountId().toString());
+        }
+        put('}');
+    }
+
+    private static String[] typedFields(Expense exp) {
+        String[] typed = new String[4];
+        if (exp instanceof FoodExpense) typed[0] = ((FoodExpense) exp).getRestaurant();
+        if (exp instanceof TravelExpense) {
+            typed[1] = ((TravelExpense) exp).getDestination();
+            typed[2] = ((TravelExpense) exp).getTransportMode();
+        }
+        if (exp instanceof UtilityExpense) typed[3] = ((UtilityExpense) exp).getUtilityType();
+        return typed;
+    }
+
+    // Amounts are stored with two decimals, so cents print exactly and never in exponent form.
+    private void cents(long cents) throws IOException {
+        if (cents < 0) {
+            put('-');
+            cents = -cents;
+        }
+        ascii(Long.toString(cents / 100));
+        put('.');
+        put((char) ('0' + cents % 100 / 10));
+        put((char) ('0' + cents % 10));
+    }
+
+    private void date(java.sql.Date date) throws IOException {
+        LocalDate d = date.toLocalDate();
+        digits(d.getYear(), 4);
+        put('-');
+        digits(d.getMonthValue(), 2);
+        put('-');
+        digits(d.getDayOfMonth(), 2);
+    }
+
+    private void digits(int value, int width) throws IOException {
+        for (int div = (int) Math.pow(10, width - 1); div > 0; div /= 10) put((char) ('0' + value / div % 10));
+    }
+
+    private void csv(String value) throws IOException {
+        if (value == null) return;
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            text(value);
+            return;
+        }
+        put('"');
+        text(value.replace("\"", "\"\""));
+        put('"');
+    }
+
+    private void json(String value) throws IOException {
+        if (value == null) {
+            ascii("null");
+            return;
+        }
+        put('"');
+        int i = 0;
+        while (i < value.length() && value.charAt(i) >= 0x20 && value.charAt(i) != '"' && value.charAt(i) != '\\') i++;
+        if (i == value.length()) {
+            text(value);
+        } else {
+            StringBuilder escaped = new StringBuilder(value.length() + 8);
+            for (i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                switch (c) {
+                    case '"': escaped.append("\\\""); break;
+                    case '\\': escaped.append("\\\\"); break;
+                    case '\n': escaped.append("\\n"); break;
+                    case '\r': escaped.append("\\r"); break;
+                    case '\t': escaped.append("\\t"); break;
+                    default:
+                        if (c < 0x20) escaped.append(String.format("\\u%04x", (int) c));
+                        else escaped.append(c);
+                }
+            }
+            text(escaped.toString());
+        }
+        put('"');
+    }
+
+    // ASCII goes straight into the buffer; anything else is encoded as UTF-8 for the whole string.
+    private void text(String value) throws IOException {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) >= 0x80) {
+                bytes(value.getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+        }
+        ascii(value);
+    }
+
+    private void ascii(String value) throws IOException {
+        for (int i = 0; i < value.length(); i++) put(value.charAt(i));
+    }
+
+    private void bytes(byte[] value) throws IOException {
+        for (byte b : value) {
+            if (!out.hasRemaining()) drain();
+            out.put(b);
+        }
+    }
+
+    private void put(char c) throws IOException {
+        if (!out.hasRemaining()) drain();
+        out.put((byte) c);
+    }
+
+    private void drain() throws IOException {
+        out.flip();
+        while (out.hasRemaining()) channel.write(out);
+        out.clear();
+    }
+}
@@ -0,0 +1,6 @@
+package expensetracker;
+
+// Builds an expense of one kind from the stored columns; `details` is the value of getDetails().
+interface ExpenseFactory {
+    Expense create(int id, double amount, java.sql.Date date, String description, String details);
+}
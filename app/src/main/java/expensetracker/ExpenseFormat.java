@@ -0,0 +1,53 @@
+package expensetracker;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+
+// File formats for import and export. CSV has a header row naming the columns (any order, extra
+// columns ignored, ',' or ';' separated); JSON is an array of flat objects, JSON_LINES one object
+// per line. Field names are the typed columns of the expenses table plus an optional account_id;
+// a combined `details` field is accepted when the typed ones are missing.
+enum ExpenseFormat {
+    CSV, JSON, JSON_LINES;
+
+    static ExpenseFormat forFile(Path file) throws IOException {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".csv")) return CSV;
+        if (name.endsWith(".json")) return JSON;
+        if (name.endsWith(".jsonl") || name.endsWith(".ndjson")) return JSON_LINES;
+        throw new IOException("Unsupported file type: " + file.getFileName() + " (expected .csv, .json or .jsonl)");
+    }
+
+    // End of the last complete record in buf[0, len), or 0 if there is none yet. CSV records end at a
+    // newline outside quotes; JSON records at the '}' that closes a top-level object.
+    int lastBoundary(byte[] buf, int len) {
+        int boundary = 0;
+        boolean quoted = false;
+        if (this == CSV) {
+            for (int i = 0; i < len; i++) {
+                byte b = buf[i];
+                if (b == '"') quoted = !quoted;
+                else if (b == '\n' && !quoted) boundary = i + 1;
+            }
+        } else {
+            int depth = 0;
+            boolean escaped = false;
+            for (int i = 0; i < len; i++) {
+                byte b = buf[i];
+                if (quoted) {
+                    if (escaped) escaped = false;
+                    else if (b == '\\') escaped = true;
+                    else if (b == '"') quoted = false;
+                } else if (b == '"') {
+                    quoted = true;
+                } else if (b == '{') {
+                    depth++;
+                } else if (b == '}' && depth > 0 && --depth == 0) {
+                    boundary = i + 1;
+                }
+            }
+        }
+        return boundary;
+    }
+}
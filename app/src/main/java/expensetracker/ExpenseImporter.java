@@ -0,0 +1,199 @@
+package expensetracker;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+// Streams a CSV or JSON file into the database in three stages. A reader thread pulls large chunks
+// through a FileChannel and cuts them at record boundaries; a pool of parsers turns chunks into
+// validated expenses in parallel; the calling thread writes them in file order through
+// ExpenseManager.importExpenses, which commits in DAO-sized batches. The chunks travel as futures
+// through a bounded queue, so a slow database stalls the parsers and the reader rather than letting
+// the file pile up in memory. Rows that fail validation are skipped and reported by row number.
+class ExpenseImporter {
+    private static final byte[] BOM = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+
+    private final Path file;
+    private final ExpenseFormat format;
+    private final int threads;
+    private final int chunkBytes;
+
+    private long rejected;
+    private final List<String> errors = new ArrayList<>();
+
+    public ExpenseImporter(Path file) throws IOException {
+        this(file, ExpenseFormat.forFile(file), Integer.getInteger("expense.import.threads", Runtime.getRuntime().availableProcessors()),
+                Integer.getInteger("expense.import.chunkBytes", 4 << 20));
+    }
+
+    public ExpenseImporter(Path file, ExpenseFormat format, int threads, int chunkBytes) {
+        if (threads <= 0 || chunkBytes <= 0) throw new IllegalArgumentException("threads and chunkBytes must be positive");
+        this.file = file;
+        this.format = format;
+        this.threads = threads;
+        this.chunkBytes = chunkBytes;
+    }
+
+    public long getRejected() { return rejected; }
+
+    // The first ParsedChunk.MAX_ERRORS validation failures, as "row N: message".
+    public List<String> getErrors() { return errors; }
+
+    public ImportResult run(ExpenseManager manager, Consumer<ImportResult> progress) throws IOException, SQLException {
+        AtomicInteger counter = new AtomicInteger();
+        ExecutorService parsers = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "expense-import-parse-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        BlockingQueue<CompletableFuture<ParsedChunk>> parsed = new ArrayBlockingQueue<>(threads * 2);
+        Thread reader = new Thread(() -> readChunks(parsers, parsed), "expense-import-read");
+        reader.setDaemon(true);
+        reader.start();
+        try {
+            return manager.importExpenses(new ParsedRows(parsed), progress);
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        } finally {
+            reader.interrupt();
+            parsers.shutdownNow();
+        }
+    }
+
+    private void readChunks(ExecutorService parsers, BlockingQueue<CompletableFuture<ParsedChunk>> parsed) {
+        try {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                byte[] buf = new byte[chunkBytes];
+                int filled = 0;
+                int start = 0;
+                boolean first = true;
+                CsvColumns columns = null;
+                boolean eof = false;
+                while (!eof) {
+                    ByteBuffer target = ByteBuffer.wrap(buf, filled, buf.length - filled);
+                    while (target.hasRemaining() && !eof) eof = channel.read(target) < 0;
+                    filled = target.position();
+                    if (first) {
+                        if (filled >= 3 && Arrays.equals(buf, 0, 3, BOM, 0, 3)) start = 3;
+                        if (format == ExpenseFormat.CSV) {
+                            int headerEnd = lineEnd(buf, start, filled);
+                            if (headerEnd < 0 && !eof) {
+                                buf = Arrays.copyOf(buf, buf.length * 2);
+                                continue;
+                            }
+                            columns = CsvColumns.parse(buf, start, headerEnd < 0 ? filled : headerEnd);
+                            start = headerEnd < 0 ? filled : headerEnd;
+                        }
+                        first = false;
+                    }
+                    int cut = eof ? filled : format.lastBoundary(buf, filled);
+                    if (cut <= start && !eof) {
+                        // A single record larger than the buffer: read more before cutting.
+                        if (filled == buf.length) buf = Arrays.copyOf(buf, buf.length * 2);
+                        continue;
+                    }
+                    byte[] chunk = buf;
+                    int from = start;
+                    int to = cut;
+                    CsvColumns chunkColumns = columns;
+                    parsed.put(CompletableFuture.supplyAsync(() -> parseChunk(chunk, from, to, chunkColumns), parsers));
+                    buf = new byte[Math.max(chunkBytes, filled - cut)];
+                    System.arraycopy(chunk, cut, buf, 0, filled - cut);
+                    filled -= cut;
+                    start = 0;
+                }
+            }
+            parsed.put(CompletableFuture.completedFuture(ParsedChunk.END));
+        } catch (InterruptedException ex) {
+            // The writer stopped; nobody is waiting for more chunks.
+        } catch (IOException | RuntimeException ex) {
+            try {
+                parsed.put(CompletableFuture.failedFuture(ex));
+            } catch (InterruptedException ignored) {}
+        }
+    }
+
+    private ParsedChunk parseChunk(byte[] buf, int from, int to, CsvColumns columns) {
+        ParsedChunk chunk = new ParsedChunk();
+        RawRecord record = new RawRecord(buf);
+        if (format == ExpenseFormat.CSV) {
+            int pos = from;
+            while (pos < to) {
+                pos = columns.read(buf, pos, to, record);
+                if (record.isBlank()) continue;
+                chunk.accept(record);
+            }
+        } else {
+            JsonRecords json = new JsonRecords(buf, from, to);
+            while (json.next(record)) chunk.accept(record);
+        }
+        return chunk;
+    }
+
+    private static int lineEnd(byte[] buf, int from, int to) {
+        boolean quoted = false;
+        for (int i = from; i < to; i++) {
+            if (buf[i] == '"') quoted = !quoted;
+            else if (buf[i] == '\n' && !quoted) return i + 1;
+        }
+        return -1;
+    }
+
+    // Hands the parsed rows to the DAO in file order, pulling the next chunk only when it needs rows.
+    private final class ParsedRows implements Iterator<Expense> {
+        private final BlockingQueue<CompletableFuture<ParsedChunk>> parsed;
+        private Iterator<Expense> current = Collections.emptyIterator();
+        private long rowBase;
+        private boolean done;
+
+        ParsedRows(BlockingQueue<CompletableFuture<ParsedChunk>> parsed) {
+            this.parsed = parsed;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!current.hasNext() && !done) {
+                ParsedChunk chunk = take();
+                if (chunk == ParsedChunk.END) {
+                    done = true;
+                } else {
+                    rejected += chunk.rejected;
+                    for (int i = 0; i < chunk.errorRows.size() && errors.size() < ParsedChunk.MAX_ERRORS; i++) {
+                        errors.add("row " + (rowBase + chunk.errorRows.get(i)) + ": " + chunk.errorMessages.get(i));
+                    }
+                    rowBase += chunk.rows;
+                    current = chunk.expenses.iterator();
+                }
+            }
+            return current.hasNext();
+        }
+
+        @Override
+        public Expense next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            return current.next();
+        }
+
+        private ParsedChunk take() {
+            try {
+                return parsed.take().join();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new UncheckedIOException(new IOException("Import interrupted.", ex));
+            } catch (CompletionException ex) {
+                Throwable cause = ex.getCause();
+                if (cause instanceof IOException) throw new UncheckedIOException((IOException) cause);
+                if (cause instanceof UncheckedIOException) throw (UncheckedIOException) cause;
+                throw new UncheckedIOException(new IOException("Import failed: " + cause.getMessage(), cause));
+            }
+        }
+    }
+}
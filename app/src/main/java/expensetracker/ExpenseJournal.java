@@ -0,0 +1,346 @@
+package expensetracker;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+// Append-only journal of the mutations made through ExpenseManager, plus a snapshot of the whole
+// table it applies to. On a clean restart the snapshot and journal are replayed instead of reading
+// every row from the database; when the journal grows past compactBytes it is folded into a new
+// snapshot and started over.
+//
+// The journal is a memory-mapped file: appends are plain memory writes and a flusher thread forces
+// them to disk every fsyncMillis (0 forces on every append). Each record carries a CRC over the
+// journal generation and its body, so a torn tail or a stale record left over from before the last
+// compaction ends the replay. The database stays the source of truth: records are written after
+// the database commit, so the journal is only trusted if the previous run closed it cleanly.
+//
+// Journal file: header, then records of [int bodyLength][byte op, payload][int crc].
+// Snapshot file: header, int count, then records of [int bodyLength][expense][int crc].
+class ExpenseJournal implements AutoCloseable {
+    private static final int JOURNAL_MAGIC = 0x45584a31; // "EXJ1"
+    private static final int SNAPSHOT_MAGIC = 0x45585331; // "EXS1"
+    private static final int FORMAT = 2;
+    // magic, format, generation, store hash, clean flag
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 8 + 4;
+    private static final int CLEAN_OFFSET = 24;
+    private static final long INITIAL_MAP_SIZE = 1 << 20;
+
+    private static final byte OP_ADD = 1;
+    private static final byte OP_UPDATE = 2;
+    private static final byte OP_DELETE = 3;
+
+    private final Path journalFile;
+    private final Path snapshotFile;
+    private final long storeHash;
+    private final long fsyncMillis;
+    private final long compactBytes;
+    private final FileChannel channel;
+    private final ScheduledExecutorService flusher;
+    private final CRC32 crc = new CRC32();
+    private ByteBuffer scratch = ByteBuffer.allocate(512);
+
+    private MappedByteBuffer map;
+    private long generation;
+    private int position = HEADER_SIZE;
+    // Appends are only worth keeping while a snapshot of the same generation exists.
+    private boolean active;
+    private boolean dirty;
+
+    private ExpenseJournal(Path dir, String storeKey, long fsyncMillis, long compactBytes) throws IOException {
+        Files.createDirectories(dir);
+        this.journalFile = dir.resolve("expenses.journal");
+        this.snapshotFile = dir.resolve("expenses.snapshot");
+        this.storeHash = hash(storeKey);
+        this.fsyncMillis = fsyncMillis;
+        this.compactBytes = compactBytes;
+        this.channel = FileChannel.open(journalFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "expense-journal-flush");
+            t.setDaemon(true);
+            return t;
+        });
+        if (fsyncMillis > 0) {
+            flusher.scheduleWithFixedDelay(this::flushQuietly, fsyncMillis, fsyncMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // Opens the journal for the given store (usually its JDBC URL); a journal written for another
+    // store, by another format, or by a run that did not close it is ignored until the next compact().
+    public static ExpenseJournal open(Path dir, String storeKey, long fsyncMillis, long compactBytes) throws IOException {
+        ExpenseJournal journal = new ExpenseJournal(dir, storeKey, fsyncMillis, compactBytes);
+        try {
+            journal.openHeader();
+        } catch (IOException | RuntimeException ex) {
+            journal.close();
+            throw ex;
+        }
+        return journal;
+    }
+
+    // Returns null when the journal is disabled or cannot be opened; the app then reads the database.
+    // The journal mirrors the default scope's rows only, so the scope is part of the store key.
+    public static ExpenseJournal openDefault() {
+        if (!Boolean.parseBoolean(System.getProperty("expense.journal.enabled", "true"))) return null;
+        Path dir = Paths.get(System.getProperty("expense.journal.dir", System.getProperty("user.home") + "/.expensetracker"));
+        try {
+            return open(dir, DatabaseConnection.getStoreUrl() + "#" + ExpenseScope.defaultScope(), Long.getLong("expense.journal.fsyncMs", 200L),
+                    Long.getLong("expense.journal.compactBytes", 16L << 20));
+        } catch (IOException ex) {
+            System.err.println("Expense journal unavailable: " + ex.getMessage());
+            return null;
+        }
+    }
+
+    public synchronized boolean isActive() { return active; }
+
+    // Rebuilds the table from the snapshot and the journal, or returns null if they cannot be trusted.
+    // A torn or stale tail is cut off so that new records follow the last good one.
+    public synchronized Map<Integer, Expense> recover() throws IOException {
+        if (!active) return null;
+        Map<Integer, Expense> rows = readSnapshot();
+        if (rows == null) {
+            active = false;
+            return null;
+        }
+        int pos = HEADER_SIZE;
+        while (true) {
+            ByteBuffer body = readRecord(map, pos, map.limit());
+            if (body == null) break;
+            byte op = body.get();
+            if (op == OP_DELETE) {
+                rows.remove(body.getInt());
+            } else if (op == OP_ADD || op == OP_UPDATE) {
+                Expense exp = ExpenseCodec.get(body);
+                rows.put(exp.getId(), exp);
+            } else {
+                break;
+            }
+            pos += 8 + body.limit();
+        }
+        position = pos;
+        ensureCapacity(position + 4);
+        map.putInt(position, 0);
+        return rows;
+    }
+
+    public void appendAdd(Expense exp) {
+        append(OP_ADD, exp, 0);
+    }
+
+    public void appendAdds(Collection<? extends Expense> expenses) {
+        for (Expense exp : expenses) append(OP_ADD, exp, 0);
+    }
+
+    public void appendUpdate(Expense exp) {
+        append(OP_UPDATE, exp, 0);
+    }
+
+    public void appendDelete(int expenseId) {
+        append(OP_DELETE, null, expenseId);
+    }
+
+    public synchronized boolean needsCompaction() {
+        return active && position - HEADER_SIZE > compactBytes;
+    }
+
+    // Writes rows as the new snapshot and starts an empty journal on top of it. rows must be the
+    // complete table, with no mutation running concurrently.
+    public synchronized void compact(Collection<Expense> rows) throws IOException {
+        long next = generation + 1;
+        Path temp = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buf = ByteBuffer.allocate(64 * 1024);
+            buf.putInt(SNAPSHOT_MAGIC).putInt(FORMAT).putLong(next).putLong(storeHash).putInt(1).putInt(rows.size());
+            for (Expense exp : rows) {
+                ByteBuffer record = encodeRecord(next, (byte) 0, exp, 0);
+                if (buf.remaining() < record.remaining()) {
+                    buf.flip();
+                    while (buf.hasRemaining()) out.write(buf);
+                    buf.clear();
+                }
+                if (buf.remaining() < record.remaining()) {
+                    while (record.hasRemaining()) out.write(record);
+                } else {
+                    buf.put(record);
+                }
+            }
+            buf.flip();
+            while (buf.hasRemaining()) out.write(buf);
+            out.force(true);
+        }
+        Files.move(temp, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        // A crash before the header below is forced leaves the journal on the old generation, which
+        // no longer matches the snapshot, so the next start falls back to the database.
+        startGeneration(next);
+        active = true;
+    }
+
+    // Called when rows changed without going through the journal (imports, sync pulls); the journal
+    // stays inactive until the next compact().
+    public synchronized void invalidate() {
+        if (!active) return;
+        active = false;
+        try {
+            startGeneration(generation + 1);
+            Files.deleteIfExists(snapshotFile);
+        } catch (IOException ex) {
+            System.err.println("Expense journal could not be reset: " + ex.getMessage());
+        }
+    }
+
+    public synchronized String getStats() {
+        return String.format("generation=%d active=%b bytes=%d", generation, active, position - HEADER_SIZE);
+    }
+
+    // Marks the journal as cleanly closed, which is what lets the next start trust it.
+    @Override
+    public synchronized void close() {
+        flusher.shutdownNow();
+        try {
+            if (map != null) {
+                map.putInt(CLEAN_OFFSET, 1);
+                map.force();
+            }
+            channel.close();
+        } catch (IOException ex) {
+            System.err.println("Expense journal could not be closed: " + ex.getMessage());
+        }
+        map = null;
+        active = false;
+    }
+
+    private void openHeader() throws IOException {
+        boolean fresh = channel.size() < HEADER_SIZE;
+        map = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(INITIAL_MAP_SIZE, channel.size()));
+        if (!fresh && map.getInt(0) == JOURNAL_MAGIC && map.getInt(4) == FORMAT && map.getLong(16) == storeHash) {
+            generation = map.getLong(8);
+            boolean clean = map.getInt(CLEAN_OFFSET) == 1;
+            if (!clean) System.err.println("Expense journal was not closed cleanly; reloading from the database.");
+            active = clean && Files.exists(snapshotFile);
+            map.putInt(CLEAN_OFFSET, 0);
+            map.force();
+        } else {
+            startGeneration(fresh ? 1 : map.getLong(8) + 1);
+        }
+    }
+
+    private void startGeneration(long next) {
+        generation = next;
+        map.putInt(0, JOURNAL_MAGIC).putInt(4, FORMAT).putLong(8, next).putLong(16, storeHash).putInt(CLEAN_OFFSET, 0);
+        position = HEADER_SIZE;
+        map.putInt(position, 0);
+        map.force();
+        dirty = false;
+    }
+
+    // Journal failures never fail the mutation, which is already committed to the database;
+    // the journal is simply dropped until the next compact().
+    private synchronized void append(byte op, Expense exp, int expenseId) {
+        if (!active) return;
+        try {
+            ByteBuffer record = encodeRecord(generation, op, exp, expenseId);
+            ensureCapacity(position + record.remaining() + 4);
+            map.put(position, record, 0, record.remaining());
+            position += record.remaining();
+            map.putInt(position, 0);
+            if (fsyncMillis == 0) {
+                map.force();
+            } else {
+                dirty = true;
+            }
+        } catch (IOException | RuntimeException ex) {
+            System.err.println("Expense journal append failed: " + ex.getMessage());
+            invalidate();
+        }
+    }
+
+    private void ensureCapacity(long needed) throws IOException {
+        if (needed <= map.capacity()) return;
+        if (needed > Integer.MAX_VALUE) throw new IOException("Journal is full; compaction is overdue.");
+        long size = Math.min(Integer.MAX_VALUE, Math.max(needed, (long) map.capacity() * 2));
+        map.force();
+        map = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+    }
+
+    private synchronized void flushQuietly() {
+        if (!dirty || map == null) return;
+        map.force();
+        dirty = false;
+    }
+
+    private Map<Integer, Expense> readSnapshot() throws IOException {
+        if (!Files.exists(snapshotFile)) return null;
+        try (FileChannel in = FileChannel.open(snapshotFile, StandardOpenOption.READ)) {
+            MappedByteBuffer data = in.map(FileChannel.MapMode.READ_ONLY, 0, in.size());
+            if (data.limit() < HEADER_SIZE + 4 || data.getInt(0) != SNAPSHOT_MAGIC || data.getInt(4) != FORMAT
+                    || data.getLong(8) != generation || data.getLong(16) != storeHash) {
+                return null;
+            }
+            int count = data.getInt(HEADER_SIZE);
+            Map<Integer, Expense> rows = new LinkedHashMap<>(Math.max(16, count * 4 / 3 + 1));
+            int pos = HEADER_SIZE + 4;
+            for (int i = 0; i < count; i++) {
+                ByteBuffer body = readRecord(data, pos, data.limit());
+                if (body == null) return null;
+                body.get();
+                Expense exp = ExpenseCodec.get(body);
+                rows.put(exp.getId(), exp);
+                pos += 8 + body.limit();
+            }
+            return rows;
+        }
+    }
+
+    // Returns the body of the record at pos, or null at the end of valid data.
+    private ByteBuffer readRecord(ByteBuffer data, int pos, int limit) {
+        if (pos + 8 > limit) return null;
+        int length = data.getInt(pos);
+        if (length <= 0 || length > limit - pos - 8) return null;
+        ByteBuffer body = data.slice(pos + 4, length);
+        crc.reset();
+        crc.update(longBytes(generation));
+        crc.update(body.duplicate());
+        if ((int) crc.getValue() != data.getInt(pos + 4 + length)) return null;
+        return body;
+    }
+
+    private ByteBuffer encodeRecord(long gen, byte op, Expense exp, int expenseId) {
+        scratch.clear();
+        scratch.putInt(0);
+        scratch.put(op);
+        if (exp == null) {
+            scratch.putInt(expenseId);
+        } else {
+            scratch = ExpenseCodec.put(scratch, exp);
+        }
+        int length = scratch.position() - 4;
+        scratch.putInt(0, length);
+        crc.reset();
+        crc.update(longBytes(gen));
+        crc.update(scratch.array(), 4, length);
+        scratch = ExpenseCodec.ensure(scratch, 4);
+        scratch.putInt((int) crc.getValue());
+        scratch.flip();
+        return scratch;
+    }
+
+    private static byte[] longBytes(long value) {
+        return ByteBuffer.allocate(8).putLong(value).array();
+    }
+
+    private static long hash(String key) {
+        CRC32 c = new CRC32();
+        c.update(key.getBytes(StandardCharsets.UTF_8));
+        return ((long) key.length() << 32) | c.getValue();
+    }
+}
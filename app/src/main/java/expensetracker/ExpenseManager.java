@@ -0,0 +1,595 @@
+package expensetracker;
+
+import java.io.IOException;
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+class ExpenseManager implements AutoCloseable {
+    private final ExpenseDAO expenseDAO;
+    private final ExpenseCache cache;
+    private final ExpenseAggregates aggregates = new ExpenseAggregates();
+    // May be null; mutations are journaled after they commit so a clean restart can skip re-reading the table.
+    private final ExpenseJournal journal;
+    // Mutations share the read lock; rebuilding derived state (aggregates, cache) takes the write
+    // lock so that no mutation is counted twice or lost while the database is being re-read.
+    private final ReentrantReadWriteLock stateLock = new ReentrantReadWriteLock();
+    private volatile boolean aggregatesSeeded;
+    private boolean journalReplayed;
+    // Built on the first search, then kept current by the mutations below.
+    private volatile ExpenseSearchIndex searchIndex;
+    // Bumped by every mutation and invalidation; ExpenseServer derives its ETags from it.
+    private final AtomicLong changes = new AtomicLong();
+    // The columnar copy analytics() last built from the cache, reused until the change count moves.
+    private volatile ColumnarCopy columnar;
+    // Null unless expense.writeBehind.enabled. Then updates and deletes change the cache and derived
+    // state at once and reach the database when the queue is flushed; reads that go to the database
+    // flush it first. Inserts still write through, since the database assigns their ids.
+    private final WriteBehindQueue writeBehind;
+    // Limits from expense.budgets. The aggregates check them on every mutation once seeded, and
+    // re-evaluate them whole after each seeding.
+    private final BudgetMonitor budgets = BudgetMonitor.fromProperties();
+    private final RecurringExpenseDAO recurringDAO;
+    // Null unless expense.recurring.enabled; writes due occurrences of recurring expenses in the background.
+    private final RecurringScheduler recurring;
+    private volatile Runnable recurringListener;
+    // The user's accounts as last read, kept current by every write made through this manager so that
+    // balances can be shown after each edit without a query; null until read and after invalidate().
+    // accountVersion is bumped by every write, so that a read that raced one is not kept.
+    private final Object accountLock = new Object();
+    private Map<Integer, Account> accountView;
+    private long accountVersion;
+
+    public ExpenseManager() {
+        this(ExpenseJournal.openDefault());
+    }
+
+    public ExpenseManager(ExpenseJournal journal) {
+        this(ExpenseScope.defaultScope(), journal);
+    }
+
+    // Caches, aggregates and search cover the scope's rows only; see ExpenseManagers for one per user.
+    public ExpenseManager(ExpenseScope scope, ExpenseJournal journal) {
+        expenseDAO = new ExpenseDAO(scope);
+        cache = new ExpenseCache(expenseDAO, Integer.getInteger("expense.cache.maxEntries", 200_000));
+        this.journal = journal;
+        aggregates.setBudgets(budgets);
+        writeBehind = WriteBehindQueue.openDefault(expenseDAO, this::invalidate);
+        // Changes left queued by the last run are not in the table yet, so the journal cannot be trusted.
+        if (writeBehind != null && !writeBehind.isEmpty() && journal != null) journal.invalidate();
+        recurringDAO = new RecurringExpenseDAO(expenseDAO);
+        // Last, since its first run starts at once.
+        recurring = RecurringScheduler.startDefault(this);
+    }
+
+    public ExpenseScope getScope() {
+        return expenseDAO.getScope();
+    }
+
+    // Balances read through this do not include queued changes; see getAccounts().
+    public AccountDAO accounts() {
+        return new AccountDAO(expenseDAO.getScope().getUserId());
+    }
+
+    // Balances include queued changes. Read once, then served from memory; with write-behind the read
+    // adds the queued changes to the database balances rather than writing them out first.
+    public List<Account> getAccounts() throws SQLException {
+        long version;
+        synchronized (accountLock) {
+            if (accountView != null) return new ArrayList<>(accountView.values());
+            version = accountVersion;
+        }
+        List<Account> accounts = null;
+        if (writeBehind != null) {
+            accounts = writeBehind.readBalances(pending -> withBalanceChanges(accounts().getAccounts(), pending));
+        }
+        if (accounts == null) {
+            flushPending();
+            accounts = accounts().getAccounts();
+        }
+        synchronized (accountLock) {
+            if (accountVersion == version) {
+                accountView = new LinkedHashMap<>();
+                for (Account account : accounts) accountView.put(account.getId(), account);
+            }
+        }
+        return accounts;
+    }
+
+    private static List<Account> withBalanceChanges(List<Account> accounts, Map<Integer, Long> deltaCents) {
+        if (deltaCents.isEmpty()) return accounts;
+        List<Account> adjusted = new ArrayList<>(accounts.size());
+        for (Account account : accounts) adjusted.add(withBalanceChange(account, deltaCents.getOrDefault(account.getId(), 0L)));
+        return adjusted;
+    }
+
+    private static Account withBalanceChange(Account account, long deltaCents) {
+        if (deltaCents == 0) return account;
+        long cents = ExpenseAggregates.toCents(account.getBalance()) + deltaCents;
+        return new Account(account.getId(), account.getUserId(), account.getName(), cents / 100.0);
+    }
+
+    // Applies one write to the account view; previous is null for an insert, next for a delete.
+    private void recordBalanceChange(Expense previous, Expense next) {
+        Map<Integer, Long> deltaCents = new HashMap<>(4);
+        AccountDAO.addExpenseChange(deltaCents, previous, next);
+        synchronized (accountLock) {
+            accountVersion++;
+            if (accountView == null || deltaCents.isEmpty()) return;
+            for (Map.Entry<Integer, Long> e : deltaCents.entrySet()) {
+                Account account = accountView.get(e.getKey());
+                if (account == null) {
+                    // An account this manager has not read; read them all again next time.
+                    accountView = null;
+                    return;
+                }
+                accountView.put(account.getId(), withBalanceChange(account, e.getValue()));
+            }
+        }
+    }
+
+    private void dropAccountView() {
+        synchronized (accountLock) {
+            accountVersion++;
+            accountView = null;
+        }
+    }
+
+    public void addExpense(Expense expense) throws SQLException {
+        stateLock.readLock().lock();
+        try {
+            cache.insert(expense);
+            changes.incrementAndGet();
+            recordBalanceChange(null, expense);
+            if (aggregatesSeeded) aggregates.add(expense);
+            ExpenseSearchIndex index = searchIndex;
+            if (index != null) index.add(expense);
+            if (journal != null) journal.appendAdd(expense);
+        } finally {
+            stateLock.readLock().unlock();
+        }
+        compactJournalIfNeeded();
+    }
+
+    public void addExpenses(Collection<? extends Expense> expenses) throws SQLException {
+        stateLock.readLock().lock();
+        try {
+            cache.insertAll(expenses);
+            recordAdded(expenses);
+        } finally {
+            stateLock.readLock().unlock();
+        }
+        compactJournalIfNeeded();
+    }
+
+    // Caller holds the read lock; the expenses are already in the table.
+    private void recordAdded(Collection<? extends Expense> expenses) {
+        changes.incrementAndGet();
+        for (Expense exp : expenses) recordBalanceChange(null, exp);
+        if (aggregatesSeeded) expenses.forEach(aggregates::add);
+        ExpenseSearchIndex index = searchIndex;
+        if (index != null) expenses.forEach(index::add);
+        if (journal != null) journal.appendAdds(expenses);
+    }
+
+    // Stores the rule and writes the occurrences already due, up to RecurringScheduler.MAX_PER_RUN;
+    // the scheduler writes the rest. Throws IllegalArgumentException for a schedule it cannot parse.
+    public RecurringExpense addRecurring(Expense template, String schedule, LocalDate start, LocalDate end) throws SQLException {
+        RecurringExpense rule = RecurringExpense.of(template, schedule, start, end);
+        recurringDAO.addRule(rule);
+        materializeRecurring(LocalDate.now(), RecurringScheduler.MAX_PER_RUN);
+        return rule;
+    }
+
+    public List<RecurringExpense> getRecurring() throws SQLException {
+        return recurringDAO.getRules();
+    }
+
+    public boolean deleteRecurring(int ruleId) throws SQLException {
+        return recurringDAO.deleteRule(ruleId);
+    }
+
+    // Writes occurrences due through the given day, at most limit days' worth, and records them like
+    // addExpenses. Returns the due days handled (see RecurringExpenseDAO.materializeDue).
+    public int materializeRecurring(LocalDate through, int limit) throws SQLException {
+        boolean[] added = new boolean[1];
+        int handled = recurringDAO.materializeDue(through, limit, batch -> {
+            stateLock.readLock().lock();
+            try {
+                batch.forEach(cache::apply);
+                recordAdded(batch);
+            } finally {
+                stateLock.readLock().unlock();
+            }
+            compactJournalIfNeeded();
+            added[0] = true;
+        });
+        Runnable listener = recurringListener;
+        if (added[0] && listener != null) listener.run();
+        return handled;
+    }
+
+    // Told, on the writing thread, after occurrences of recurring expenses were added.
+    public void setRecurringListener(Runnable listener) {
+        recurringListener = listener;
+    }
+
+    // Streamed rows are not retained, so the aggregates are reseeded and the cache rewarmed afterwards.
+    // Budgets are then checked against one GROUP BY rather than row by row.
+    public ImportResult importExpenses(Iterator<? extends Expense> source, Consumer<ImportResult> progress) throws SQLException {
+        ImportResult result;
+        try {
+            result = expenseDAO.importExpenses(source, progress);
+        } finally {
+            aggregatesSeeded = false;
+            searchIndex = null;
+            cache.invalidate();
+            changes.incrementAndGet();
+            dropAccountView();
+            if (journal != null) journal.invalidate();
+        }
+        if (!budgets.isEmpty()) seededAggregates(false);
+        return result;
+    }
+
+    // Drops derived state after rows changed underneath the manager, e.g. when ExpenseSync pulled them.
+    public void invalidate() {
+        stateLock.writeLock().lock();
+        try {
+            changes.incrementAndGet();
+            aggregatesSeeded = false;
+            searchIndex = null;
+            cache.invalidate();
+            dropAccountView();
+            if (journal != null) journal.invalidate();
+        } finally {
+            stateLock.writeLock().unlock();
+        }
+    }
+
+    public void updateExpense(Expense expense) throws SQLException {
+        stateLock.readLock().lock();
+        try {
+            Expense previous = writeBehind == null ? cache.update(expense) : queueUpdate(expense);
+            changes.incrementAndGet();
+            if (previous != null) {
+                recordBalanceChange(previous, expense);
+            } else {
+                dropAccountView();
+            }
+            if (aggregatesSeeded && previous != null) {
+                aggregates.replace(previous, expense);
+            }
+            ExpenseSearchIndex index = searchIndex;
+            if (index != null) {
+                if (previous != null) {
+                    index.update(previous, expense);
+                } else {
+                    index.add(expense);
+                }
+            }
+            if (journal != null) journal.appendUpdate(expense);
+        } finally {
+            stateLock.readLock().unlock();
+        }
+        compactJournalIfNeeded();
+    }
+
+    public void deleteExpense(int expenseId) throws SQLException {
+        stateLock.readLock().lock();
+        try {
+            Expense previous = writeBehind == null ? cache.delete(expenseId) : queueDelete(expenseId);
+            changes.incrementAndGet();
+            if (previous != null) {
+                recordBalanceChange(previous, null);
+            } else {
+                dropAccountView();
+            }
+            if (aggregatesSeeded && previous != null) aggregates.remove(previous);
+            ExpenseSearchIndex index = searchIndex;
+            if (index != null && previous != null) index.remove(previous);
+            if (journal != null) journal.appendDelete(expenseId);
+        } finally {
+            stateLock.readLock().unlock();
+        }
+        compactJournalIfNeeded();
+    }
+
+    // Write-behind checks the row and the account up front, as the database would, so that callers
+    // still get their errors from the call that caused them.
+    private Expense queueUpdate(Expense expense) throws SQLException {
+        if (expense.getId() <= 0) throw new SQLException("Expense ID is invalid for update.");
+        Expense previous = pendingOrCached(expense.getId());
+        if (previous == null) throw new SQLException("Update failed, no rows affected.");
+        expenseDAO.assignScope(expense);
+        Integer account = expense.getAccountId();
+        if (account != null && !account.equals(previous.getAccountId())
+                && new AccountDAO(expense.getUserId()).findAccount(account) == null) {
+            throw new SQLException("Account " + account + " does not exist for user " + expense.getUserId() + ".");
+        }
+        writeBehind.update(expense, previous);
+        cache.apply(expense);
+        return previous;
+    }
+
+    private Expense queueDelete(int expenseId) throws SQLException {
+        Expense previous = pendingOrCached(expenseId);
+        if (previous == null) throw new SQLException("Delete failed, no rows affected.");
+        writeBehind.delete(previous);
+        cache.discard(expenseId);
+        return previous;
+    }
+
+    private Expense pendingOrCached(int expenseId) throws SQLException {
+        if (writeBehind.isPendingDelete(expenseId)) return null;
+        Expense pending = writeBehind.pendingUpdate(expenseId);
+        return pending != null ? pending : cache.get(expenseId);
+    }
+
+    // Reads that go to the database write out queued changes first, so callers see their own writes.
+    private void flushPending() throws SQLException {
+        if (writeBehind != null && !writeBehind.isEmpty()) writeBehind.flush();
+    }
+
+    public Expense getExpense(int expenseId) throws SQLException {
+        return writeBehind == null ? cache.get(expenseId) : pendingOrCached(expenseId);
+    }
+
+    public long getChangeCount() {
+        return changes.get();
+    }
+
+    // Answered from memory once the cache is warm; otherwise a single indexed query.
+    public List<Expense> findExpenses(String type, LocalDate from, LocalDate toExclusive, Double minAmount, Double maxAmount)
+            throws SQLException {
+        flushPending();
+        return cache.query(type, from, toExclusive, minAmount, maxAmount);
+    }
+
+    // Expenses whose description or details match the query (see ExpenseSearchIndex), in the given order.
+    public List<Expense> search(String query, ExpenseSort sort) throws SQLException {
+        flushPending();
+        return sort.sort(cache.getAll(searchIndex().search(query)));
+    }
+
+    // Built under the write lock so that no mutation lands between the table scan and the first update.
+    private ExpenseSearchIndex searchIndex() throws SQLException {
+        ExpenseSearchIndex index = searchIndex;
+        if (index != null) return index;
+        stateLock.writeLock().lock();
+        try {
+            if (searchIndex == null) {
+                List<Expense> rows = cache.snapshot();
+                if (rows != null) {
+                    searchIndex = ExpenseSearchIndex.build(rows.stream());
+                } else {
+                    try (Stream<Expense> stream = expenseDAO.streamExpenses()) {
+                        searchIndex = ExpenseSearchIndex.build(stream);
+                    } catch (UncheckedSQLException ex) {
+                        throw ex.getCause();
+                    }
+                }
+            }
+            return searchIndex;
+        } finally {
+            stateLock.writeLock().unlock();
+        }
+    }
+
+    public boolean warmCache() throws SQLException {
+        flushPending();
+        stateLock.writeLock().lock();
+        try {
+            if (replayJournal()) return true;
+            boolean complete = cache.warm();
+            if (complete) compactJournal();
+            return complete;
+        } finally {
+            stateLock.writeLock().unlock();
+        }
+    }
+
+    // On the first warm-up, rebuilds the cache and aggregates from the journal instead of the table,
+    // provided the replayed rows still agree with the database on count, amount total and highest id.
+    private boolean replayJournal() throws SQLException {
+        if (journal == null || journalReplayed) return false;
+        journalReplayed = true;
+        Map<Integer, Expense> rows;
+        try {
+            rows = journal.recover();
+        } catch (IOException ex) {
+            System.err.println("Expense journal could not be replayed: " + ex.getMessage());
+            rows = null;
+        }
+        if (rows == null) return false;
+        if (!TableFingerprint.of(rows.values()).equals(expenseDAO.fingerprint()) || !cache.restore(rows.values())) {
+            journal.invalidate();
+            cache.invalidate();
+            return false;
+        }
+        aggregates.clear();
+        rows.values().forEach(aggregates::add);
+        aggregates.evaluateBudgets();
+        aggregatesSeeded = true;
+        return true;
+    }
+
+    private void compactJournalIfNeeded() {
+        if (journal == null || !journal.needsCompaction()) return;
+        stateLock.writeLock().lock();
+        try {
+            compactJournal();
+        } finally {
+            stateLock.writeLock().unlock();
+        }
+    }
+
+    // Caller holds the write lock. Only a complete cache is the whole table, so anything less drops the journal.
+    private void compactJournal() {
+        if (journal == null) return;
+        List<Expense> rows = cache.snapshot();
+        if (rows == null) {
+            journal.invalidate();
+            return;
+        }
+        try {
+            journal.compact(rows);
+        } catch (IOException ex) {
+            System.err.println("Expense journal compaction failed: " + ex.getMessage());
+            journal.invalidate();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (recurring != null) recurring.close();
+        if (writeBehind != null) writeBehind.close();
+        if (journal != null) journal.close();
+    }
+
+    // Streams the table into a compact columnar copy, for analysis over very large histories.
+    public ColumnarExpenseStore loadColumnar() throws SQLException {
+        flushPending();
+        try (Stream<Expense> rows = expenseDAO.streamExpenses()) {
+            return ColumnarExpenseStore.load(rows);
+        } catch (UncheckedSQLException ex) {
+            throw ex.getCause();
+        }
+    }
+
+    // Reports run as fork-join scans over a columnar copy of the warm cache; when the cache does not
+    // hold the whole table they are pushed down to the database instead of loading it. The copy is
+    // rebuilt only after a change. Every mutation bumps the change count after changing the cache,
+    // so a copy taken while one was in flight is labelled with the count from before it and rebuilt.
+    public ExpenseAnalytics analytics() throws SQLException {
+        ColumnarCopy copy = columnar;
+        long current = changes.get();
+        if (copy != null && copy.changeCount == current) return new ColumnarAnalytics(copy.store);
+        List<Expense> rows;
+        stateLock.readLock().lock();
+        try {
+            current = changes.get();
+            rows = cache.snapshot();
+        } finally {
+            stateLock.readLock().unlock();
+        }
+        if (rows == null) {
+            columnar = null;
+            flushPending();
+            return new SqlAnalytics(expenseDAO);
+        }
+        copy = new ColumnarCopy(current, ColumnarExpenseStore.load(rows.stream()));
+        columnar = copy;
+        return new ColumnarAnalytics(copy.store);
+    }
+
+    public String getCacheStats() {
+        return cache.getStats();
+    }
+
+    // Seeded once with a GROUP BY query, then maintained incrementally by the mutations above.
+    public ExpenseAggregates getAggregates() throws SQLException {
+        return seededAggregates(true);
+    }
+
+    private ExpenseAggregates seededAggregates(boolean exactExtremes) throws SQLException {
+        if (aggregatesSeeded && !(exactExtremes && aggregates.hasStaleExtremes())) return aggregates;
+        flushPending();
+        stateLock.writeLock().lock();
+        try {
+            if (!aggregatesSeeded || (exactExtremes && aggregates.hasStaleExtremes())) {
+                aggregates.clear();
+                expenseDAO.seedAggregates(aggregates);
+                aggregates.evaluateBudgets();
+                aggregatesSeeded = true;
+            }
+            return aggregates;
+        } finally {
+            stateLock.writeLock().unlock();
+        }
+    }
+
+    public Map<String, Double> getBudgets() {
+        return budgets.getLimits();
+    }
+
+    // Monthly limit for a type, or for all types with BudgetMonitor.ALL_TYPES; 0 removes it.
+    public void setBudget(String type, double amount) throws SQLException {
+        budgets.setLimit(type, amount);
+        seededAggregates(false).evaluateBudgets();
+    }
+
+    public List<BudgetAlert> getBudgetAlerts() throws SQLException {
+        if (!budgets.isEmpty()) seededAggregates(false);
+        return budgets.getAlerts();
+    }
+
+    // Told when alerts may have changed, on the mutating thread and at most once until
+    // getBudgetAlerts() is next called; it should only hand off.
+    public void setBudgetListener(Runnable listener) {
+        budgets.setListener(listener);
+    }
+
+    public List<Expense> getAllExpenses() throws SQLException {
+        flushPending();
+        return expenseDAO.getAllExpenses();
+    }
+
+    public List<Expense> getExpensesPage(Expense after, int limit) throws SQLException {
+        flushPending();
+        return expenseDAO.getExpensesPage(after, limit);
+    }
+
+    public List<Expense> getExpensesPage(ExpenseSort sort, Expense after, int limit) throws SQLException {
+        flushPending();
+        return expenseDAO.getExpensesPage(sort, after, limit);
+    }
+
+    public List<Expense> getExpensesAt(ExpenseSort sort, int offset, int limit) throws SQLException {
+        flushPending();
+        return expenseDAO.getExpensesAt(sort, offset, limit);
+    }
+
+    // Counts come from the cache when it holds the whole table, queued changes included, so that only
+    // a cold cache writes the queue out to count in the database.
+    public int countExpenses() throws SQLException {
+        int cached = cache.count();
+        if (cached >= 0) return cached;
+        flushPending();
+        return expenseDAO.countExpenses();
+    }
+
+    public int countExpensesBefore(ExpenseSort sort, Expense expense) throws SQLException {
+        int cached = cache.countBefore(sort, expense);
+        if (cached >= 0) return cached;
+        flushPending();
+        return expenseDAO.countExpensesBefore(sort, expense);
+    }
+
+    public Stream<Expense> streamExpenses() throws SQLException {
+        flushPending();
+        return expenseDAO.streamExpenses();
+    }
+
+    public double getTotalExpenses() throws SQLException {
+        return seededAggregates(false).getTotal().getSum();
+    }
+
+    public double getTotalExpenses(List<Expense> expenses) {
+        return expenses.stream().mapToDouble(Expense::getAmount).sum();
+    }
+
+    private static final class ColumnarCopy {
+        final long changeCount;
+        final ColumnarExpenseStore store;
+
+        ColumnarCopy(long changeCount, ColumnarExpenseStore store) {
+            this.changeCount = changeCount;
+            this.store = store;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package expensetracker;
+
+import java.util.*;
+
+// Per-user cache partitions: one ExpenseManager, with its own cache, aggregates and search index,
+// per user, so that serving one user never scans or evicts another user's rows. The least recently
+// used partitions beyond expense.cache.maxUsers are dropped, and each is closed once the last lease
+// on it is released, so a request that still holds an evicted manager can finish with it.
+class ExpenseManagers implements AutoCloseable {
+    private final int maxUsers;
+    private final LinkedHashMap<Integer, Partition> partitions = new LinkedHashMap<>(16, 0.75f, true);
+
+    public ExpenseManagers() {
+        this(Integer.getInteger("expense.cache.maxUsers", 64));
+    }
+
+    public ExpenseManagers(int maxUsers) {
+        if (maxUsers <= 0) throw new IllegalArgumentException("maxUsers must be positive");
+        this.maxUsers = maxUsers;
+    }
+
+    // The caller must close the lease when done with the manager. Only the map is updated under
+    // the lock; the manager itself is built under its partition's lock, so a user whose manager is
+    // still loading does not hold up requests for other users.
+    public Lease forUser(int userId) {
+        Partition partition;
+        List<Partition> evicted = new ArrayList<>();
+        synchronized (this) {
+            partition = partitions.get(userId);
+            if (partition == null) {
+                partition = new Partition(userId);
+                partitions.put(userId, partition);
+                Iterator<Partition> eldest = partitions.values().iterator();
+                while (partitions.size() > maxUsers) {
+                    Partition p = eldest.next();
+                    eldest.remove();
+                    p.evicted = true;
+                    if (p.leases == 0) evicted.add(p);
+                }
+            }
+            partition.leases++;
+        }
+        evicted.forEach(Partition::close);
+        try {
+            return new Lease(partition, partition.manager());
+        } catch (RuntimeException | Error ex) {
+            release(partition);
+            throw ex;
+        }
+    }
+
+    private void release(Partition partition) {
+        boolean close;
+        synchronized (this) {
+            close = --partition.leases == 0 && partition.evicted;
+        }
+        if (close) partition.close();
+    }
+
+    public synchronized int size() {
+        return partitions.size();
+    }
+
+    // After rows changed underneath every partition, e.g. a sync pull. A manager still being built
+    // reads the rows afresh anyway.
+    public void invalidateAll() {
+        List<Partition> current;
+        synchronized (this) {
+            current = new ArrayList<>(partitions.values());
+        }
+        for (Partition p : current) {
+            ExpenseManager manager = p.manager;
+            if (manager != null) manager.invalidate();
+        }
+    }
+
+    @Override
+    public void close() {
+        List<Partition> current;
+        synchronized (this) {
+            current = new ArrayList<>(partitions.values());
+            partitions.clear();
+        }
+        current.forEach(Partition::close);
+    }
+
+    // A manager in use by one caller; closing the lease lets an evicted manager be closed.
+    final class Lease implements AutoCloseable {
+        private final Partition partition;
+        private final ExpenseManager manager;
+        private boolean released;
+
+        private Lease(Partition partition, ExpenseManager manager) {
+            this.partition = partition;
+            this.manager = manager;
+        }
+
+        public ExpenseManager manager() {
+            return manager;
+        }
+
+        @Override
+        public void close() {
+            if (released) return;
+            released = true;
+            release(partition);
+        }
+    }
+
+    private static final class Partition {
+        final int userId;
+        // Guarded by the ExpenseManagers lock.
+        int leases;
+        boolean evicted;
+        volatile ExpenseManager manager;
+        private boolean closed;
+
+        Partition(int userId) {
+            this.userId = userId;
+        }
+
+        synchronized ExpenseManager manager() {
+            if (closed) throw new IllegalStateException("The manager for user " + userId + " is closed.");
+            if (manager == null) manager = new ExpenseManager(ExpenseScope.user(userId), null);
+            return manager;
+        }
+
+        synchronized void close() {
+            closed = true;
+            if (manager != null) manager.close();
+        }
+    }
+}
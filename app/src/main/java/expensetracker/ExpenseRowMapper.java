@@ -0,0 +1,77 @@
+package expensetracker;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLDataException;
+import java.sql.SQLException;
+
+// Maps rows of one ResultSet. Column positions are resolved once up front rather than by name
+// per row, and the type of the previous row is remembered since rows of one kind tend to cluster.
+// It also counts the rows it maps and their approximate size, for DaoCall.
+class ExpenseRowMapper {
+    // id, amount, date, user and account; strings add two bytes per character.
+    private static final int FIXED_ROW_BYTES = 32;
+
+    private final int idColumn;
+    private final int amountColumn;
+    private final int dateColumn;
+    private final int descriptionColumn;
+    private final int typeColumn;
+    private final int detailsColumn;
+    // 0 when the result set has no such column, e.g. an upstream database that predates them.
+    private final int userColumn;
+    private final int accountColumn;
+
+    private String lastTypeName;
+    private ExpenseType lastType;
+    private long rows;
+    private long bytes;
+
+    public ExpenseRowMapper(ResultSet rs) throws SQLException {
+        idColumn = rs.findColumn("id");
+        amountColumn = rs.findColumn("amount");
+        dateColumn = rs.findColumn("date");
+        descriptionColumn = rs.findColumn("description");
+        typeColumn = rs.findColumn("type");
+        detailsColumn = rs.findColumn("details");
+        userColumn = optionalColumn(rs, "user_id");
+        accountColumn = optionalColumn(rs, "account_id");
+    }
+
+    public Expense map(ResultSet rs) throws SQLException {
+        int id = rs.getInt(idColumn);
+        String typeName = rs.getString(typeColumn);
+        if (!typeName.equals(lastTypeName)) {
+            ExpenseType type = ExpenseTypes.get(typeName);
+            if (type == null) throw new SQLDataException("Unknown expense type '" + typeName + "' for expense " + id + ".");
+            lastTypeName = typeName;
+            lastType = type;
+        }
+        String description = rs.getString(descriptionColumn);
+        String details = rs.getString(detailsColumn);
+        Expense exp = lastType.create(id, rs.getDouble(amountColumn), rs.getDate(dateColumn), description, details);
+        rows++;
+        bytes += FIXED_ROW_BYTES + 2L * (typeName.length() + length(description) + length(details));
+        if (userColumn > 0) exp.setUserId(rs.getInt(userColumn));
+        if (accountColumn > 0) {
+            int accountId = rs.getInt(accountColumn);
+            exp.setAccountId(rs.wasNull() ? null : accountId);
+        }
+        return exp;
+    }
+
+    public long getRows() { return rows; }
+    public long getBytes() { return bytes; }
+
+    private static int length(String s) {
+        return s == null ? 0 : s.length();
+    }
+
+    private static int optionalColumn(ResultSet rs, String name) throws SQLException {
+        ResultSetMetaData meta = rs.getMetaData();
+        for (int i = 1; i <= meta.getColumnCount(); i++) {
+            if (name.equalsIgnoreCase(meta.getColumnLabel(i))) return i;
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,62 @@
+package expensetracker;
+
+import java.sql.*;
+import java.util.*;
+
+// Whose expenses a DAO or manager sees: one user, optionally narrowed to one of their accounts.
+// ExpenseDAO puts where() first in every query so that the indexes leading with user_id apply.
+final class ExpenseScope {
+    private static final ExpenseScope DEFAULT = new ExpenseScope(Integer.getInteger("expense.user.id", 1), null);
+
+    private final int userId;
+    private final Integer accountId;
+
+    private ExpenseScope(int userId, Integer accountId) {
+        this.userId = userId;
+        this.accountId = accountId;
+    }
+
+    // The desktop app's user, from expense.user.id.
+    public static ExpenseScope defaultScope() {
+        return DEFAULT;
+    }
+
+    public static ExpenseScope user(int userId) {
+        return new ExpenseScope(userId, null);
+    }
+
+    public ExpenseScope account(Integer accountId) {
+        return new ExpenseScope(userId, accountId);
+    }
+
+    public int getUserId() { return userId; }
+    public Integer getAccountId() { return accountId; }
+
+    public String where() {
+        return accountId == null ? "user_id = ?" : "user_id = ? AND account_id = ?";
+    }
+
+    // Binds the parameters of where() and returns the next parameter index.
+    public int bind(PreparedStatement pstmt, int index) throws SQLException {
+        pstmt.setInt(index++, userId);
+        if (accountId != null) pstmt.setInt(index++, accountId);
+        return index;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof ExpenseScope)) return false;
+        ExpenseScope other = (ExpenseScope) o;
+        return userId == other.userId && Objects.equals(accountId, other.accountId);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * userId + Objects.hashCode(accountId);
+    }
+
+    @Override
+    public String toString() {
+        return accountId == null ? "user " + userId : "user " + userId + " account " + accountId;
+    }
+}
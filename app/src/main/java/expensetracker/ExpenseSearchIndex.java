@@ -0,0 +1,169 @@
+package expensetracker;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+// Inverted index from the words of each expense's description and details (restaurant, destination,
+// transport mode, utility type) to the ids of the expenses that contain them. Every query word must
+// match; a word matches any indexed term it is a prefix of, and when it is a prefix of none, any term
+// within a small edit distance of it, so "resturant" still finds "restaurant". Terms are lower-case
+// runs of letters and digits. Maintained incrementally by ExpenseManager; safe for concurrent use.
+class ExpenseSearchIndex {
+    private final NavigableMap<String, PostingList> terms = new TreeMap<>();
+    private int maxId;
+
+    public static ExpenseSearchIndex build(Stream<Expense> expenses) {
+        ExpenseSearchIndex index = new ExpenseSearchIndex();
+        expenses.forEach(index::addUnsynchronized);
+        return index;
+    }
+
+    public synchronized void add(Expense exp) {
+        addUnsynchronized(exp);
+    }
+
+    // Takes the version that was indexed, so its words can be found again.
+    public synchronized void remove(Expense exp) {
+        forEachTerm(exp, term -> {
+            PostingList postings = terms.get(term);
+            if (postings != null && postings.remove(exp.getId()) && postings.size == 0) terms.remove(term);
+        });
+    }
+
+    public synchronized void update(Expense previous, Expense exp) {
+        remove(previous);
+        addUnsynchronized(exp);
+    }
+
+    public synchronized int termCount() {
+        return terms.size();
+    }
+
+    // Ids of the expenses matching every word of the query, ascending. A query without words matches nothing.
+    public synchronized int[] search(String query) {
+        String[] words = tokenize(query);
+        if (words.length == 0) return new int[0];
+        BitSet result = null;
+        for (String word : words) {
+            BitSet matches = matchWord(word);
+            if (result == null) {
+                result = matches;
+            } else {
+                result.and(matches);
+            }
+            if (result.isEmpty()) return new int[0];
+        }
+        return result.stream().toArray();
+    }
+
+    private void addUnsynchronized(Expense exp) {
+        forEachTerm(exp, term -> terms.computeIfAbsent(term, t -> new PostingList()).add(exp.getId()));
+        maxId = Math.max(maxId, exp.getId());
+    }
+
+    private BitSet matchWord(String word) {
+        BitSet matches = new BitSet(maxId + 1);
+        // Every term starting with word sorts between word itself and word followed by the highest char.
+        for (PostingList postings : terms.subMap(word, true, word + Character.MAX_VALUE, false).values()) {
+            postings.addTo(matches);
+        }
+        if (!matches.isEmpty()) return matches;
+        int maxEdits = maxEdits(word);
+        if (maxEdits == 0) return matches;
+        for (Map.Entry<String, PostingList> entry : terms.entrySet()) {
+            if (entry.getKey().length() >= word.length() - maxEdits && prefixDistance(word, entry.getKey(), maxEdits) <= maxEdits) {
+                entry.getValue().addTo(matches);
+            }
+        }
+        return matches;
+    }
+
+    // Short words get no fuzzy matching, since almost every short term is one edit from them.
+    static int maxEdits(String word) {
+        if (word.length() < 4) return 0;
+        return word.length() < 7 ? 1 : 2;
+    }
+
+    // Edit distance between word and the closest prefix of term, or limit + 1 once it exceeds limit.
+    static int prefixDistance(String word, String term, int limit) {
+        int n = Math.min(term.length(), word.length() + limit);
+        int[] previous = new int[n + 1];
+        int[] current = new int[n + 1];
+        for (int j = 0; j <= n; j++) previous[j] = j;
+        for (int i = 1; i <= word.length(); i++) {
+            current[0] = i;
+            int rowMin = i;
+            char c = word.charAt(i - 1);
+            for (int j = 1; j <= n; j++) {
+                int substitute = previous[j - 1] + (c == term.charAt(j - 1) ? 0 : 1);
+                current[j] = Math.min(substitute, Math.min(previous[j], current[j - 1]) + 1);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > limit) return limit + 1;
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        int best = limit + 1;
+        for (int j = 0; j <= n; j++) best = Math.min(best, previous[j]);
+        return best;
+    }
+
+    private static void forEachTerm(Expense exp, Consumer<String> action) {
+        for (String term : tokenize(exp.getDescription())) action.accept(term);
+        for (String term : tokenize(exp.getDetails())) action.accept(term);
+    }
+
+    // Distinct terms in order of first appearance.
+    static String[] tokenize(String text) {
+        if (text == null || text.isEmpty()) return new String[0];
+        List<String> words = new ArrayList<>(4);
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                word.append(Character.toLowerCase(c));
+            } else if (word.length() > 0) {
+                String term = word.toString();
+                if (!words.contains(term)) words.add(term);
+                word.setLength(0);
+            }
+        }
+        return words.toArray(new String[0]);
+    }
+
+    // Sorted, duplicate-free ids. New expenses get the highest id so far, so adds are usually appends.
+    private static final class PostingList {
+        private int[] ids = new int[4];
+        private int size;
+
+        void add(int id) {
+            int i = size == 0 || ids[size - 1] < id ? -size - 1 : Arrays.binarySearch(ids, 0, size, id);
+            if (i >= 0) return;
+            i = -i - 1;
+            if (size == ids.length) ids = Arrays.copyOf(ids, size * 2);
+            System.arraycopy(ids, i, ids, i + 1, size - i);
+            ids[i] = id;
+            size++;
+        }
+
+        boolean remove(int id) {
+            int i = Arrays.binarySearch(ids, 0, size, id);
+            if (i < 0) return false;
+            System.arraycopy(ids, i + 1, ids, i, size - i - 1);
+            size--;
+            return true;
+        }
+
+        void addTo(BitSet bits) {
+            for (int i = 0; i < size; i++) bits.set(ids[i]);
+        }
+    }
+}
@@ -0,0 +1,604 @@
+package expensetracker;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.SQLException;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Headless HTTP front end over ExpenseManager, for scripts and other frontends. Every request runs
+// on its own virtual thread when the runtime has them, so a request blocked on the database costs
+// no platform thread. Requests act as the user in the X-User-Id header (default expense.user.id),
+// each user with its own ExpenseManager from ExpenseManagers.
+//
+//   GET    /expenses?sort=&order=&offset=&limit=&after=&q=&format=   list, streamed as it is read
+//   GET    /expenses/{id}
+//   POST   /expenses                                                 one JSON object, as in imports
+//   PUT    /expenses/{id}
+//   DELETE /expenses/{id}
+//   POST   /expenses/import        CSV, JSON or JSON Lines body, chosen by Content-Type
+//   GET    /aggregates             totals by type and month, with an ETag for conditional GETs
+//   GET    /metrics                everything in Metrics, including per-route latency
+class ExpenseServer implements AutoCloseable {
+    private static final int STREAM_PAGE_SIZE = 1000;
+    private static final int MAX_BODY_BYTES = 64 * 1024;
+    private static final int RESPONSE_BUFFER = 64 * 1024;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final ExpenseManagers managers;
+    private final int defaultUserId = ExpenseScope.defaultScope().getUserId();
+    // Last /aggregates body per user, valid while the manager's change count is unchanged. Change
+    // counts restart with the process, so ETags also carry the time it started.
+    private final Map<Integer, CachedBody> aggregateBodies = new ConcurrentHashMap<>();
+    private final String etagPrefix = Long.toString(System.currentTimeMillis(), 36);
+
+    public ExpenseServer(InetSocketAddress address, ExpenseManagers managers) throws IOException {
+        this.managers = managers;
+        this.server = HttpServer.create(address, Integer.getInteger("expense.server.backlog", 1024));
+        this.executor = requestExecutor();
+        server.setExecutor(executor);
+        server.createContext("/expenses", exchange -> handle(exchange, this::expenses));
+        server.createContext("/aggregates", exchange -> handle(exchange, this::aggregates));
+        server.createContext("/metrics", exchange -> handle(exchange, this::metrics));
+    }
+
+    public static void main(String[] args) throws IOException {
+        String host = System.getProperty("expense.server.host", "127.0.0.1");
+        int port = Integer.getInteger("expense.server.port", 8080);
+        Metrics.startDefault();
+        ExpenseManagers managers = new ExpenseManagers();
+        ExpenseServer server = new ExpenseServer(new InetSocketAddress(host, port), managers);
+        ExpenseSync sync = null;
+        if (DatabaseConnection.isSyncEnabled()) {
+            try {
+                sync = ExpenseSync.startDefault(managers::invalidateAll);
+            } catch (SQLException ex) {
+                System.err.println("Sync with the server is unavailable: " + ex.getMessage());
+            }
+        }
+        ExpenseSync started = sync;
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.close();
+            if (started != null) started.close();
+            managers.close();
+        }, "expense-server-stop"));
+        server.start();
+        System.err.println("Expense server listening on http://" + host + ":" + server.getPort());
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(1);
+        executor.shutdown();
+    }
+
+    // Virtual threads need JDK 21 while the build targets 17, so the factory is looked up at run
+    // time; older runtimes get a fixed pool of expense.server.threads platform threads instead.
+    private static ExecutorService requestExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException ex) {
+            AtomicInteger counter = new AtomicInteger();
+            return Executors.newFixedThreadPool(Integer.getInteger("expense.server.threads", 64), r -> {
+                Thread t = new Thread(r, "expense-http-" + counter.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    private interface Handler {
+        // Returns the route name latencies are recorded under.
+        String handle(Request request) throws IOException, SQLException, RequestException;
+    }
+
+    private void handle(HttpExchange exchange, Handler handler) {
+        long start = System.nanoTime();
+        String route = exchange.getRequestMethod() + " " + exchange.getHttpContext().getPath();
+        try (Request request = new Request(exchange)) {
+            try {
+                route = handler.handle(request);
+            } catch (RequestException ex) {
+                sendError(exchange, ex.status, ex.getMessage());
+            } catch (SQLException ex) {
+                sendError(exchange, 500, ex.getMessage());
+            } catch (UncheckedSQLException ex) {
+                sendError(exchange, 500, ex.getCause().getMessage());
+            } catch (UncheckedIOException ex) {
+                throw ex.getCause();
+            } catch (AbortedResponse ex) {
+                // Left open: closing the exchange would end the body as if it were complete, while
+                // HttpServer drops the connection when the handler throws, so the client sees a
+                // truncated response.
+                System.err.println("Aborted " + route + " mid-response: " + ex.getCause().getMessage());
+                Metrics.histogram("http." + route + " (aborted)").record(System.nanoTime() - start);
+                throw ex;
+            } catch (RuntimeException ex) {
+                sendError(exchange, 500, String.valueOf(ex));
+            }
+            exchange.close();
+        } catch (IOException ex) {
+            // The client went away; nothing left to tell it.
+            exchange.close();
+        }
+        Metrics.histogram("http." + route).record(System.nanoTime() - start);
+    }
+
+    private String expenses(Request request) throws IOException, SQLException, RequestException {
+        String[] path = request.path();
+        String method = request.method();
+        if (path.length == 1) {
+            if (method.equals("GET")) return list(request);
+            if (method.equals("POST")) return create(request);
+        } else if (path.length == 2 && path[1].equals("import")) {
+            if (method.equals("POST")) return importBody(request);
+        } else if (path.length == 2) {
+            int id = parseInt(path[1], "expense id");
+            if (method.equals("GET")) return get(request, id);
+            if (method.equals("PUT")) return replace(request, id);
+            if (method.equals("DELETE")) return delete(request, id);
+        } else {
+            throw new RequestException(404, "No such resource.");
+        }
+        throw new RequestException(405, method + " is not supported here.");
+    }
+
+    // Without a limit the whole list is streamed a page at a time, so the response never has to fit
+    // in memory; sorting and keyset paging come from ExpenseManager as in the table view.
+    private String list(Request request) throws IOException, SQLException, RequestException {
+        ExpenseManager manager = request.manager();
+        ExpenseSort sort = request.sort();
+        ExpenseFormat format = request.format();
+        Integer limit = request.intParam("limit");
+        Integer offset = request.intParam("offset");
+        Integer after = request.intParam("after");
+        String query = request.param("q");
+        if (limit != null && limit <= 0) throw new RequestException(400, "limit must be positive.");
+        Iterator<Expense> rows;
+        if (query != null) {
+            List<Expense> matches = manager.search(query, sort);
+            int from = Math.min(matches.size(), offset == null ? 0 : offset);
+            int to = limit == null ? matches.size() : (int) Math.min(matches.size(), (long) from + limit);
+            rows = matches.subList(from, to).iterator();
+        } else if (offset != null) {
+            rows = limit == null ? new PagedRows(manager, sort, manager.getExpensesAt(sort, offset, STREAM_PAGE_SIZE))
+                    : manager.getExpensesAt(sort, offset, limit).iterator();
+        } else {
+            Expense start = null;
+            if (after != null && (start = manager.getExpense(after)) == null) {
+                throw new RequestException(404, "Expense " + after + " does not exist.");
+            }
+            rows = limit == null ? new PagedRows(manager, sort, manager.getExpensesPage(sort, start, STREAM_PAGE_SIZE))
+                    : manager.getExpensesPage(sort, start, limit).iterator();
+        }
+        Headers headers = request.exchange.getResponseHeaders();
+        headers.set("Content-Type", contentType(format));
+        request.exchange.sendResponseHeaders(200, 0);
+        try {
+            new ExpenseExporter(format, true, RESPONSE_BUFFER).write(Channels.newChannel(request.exchange.getResponseBody()), rows, null);
+        } catch (UncheckedSQLException ex) {
+            // A later page failed after the 200 went out, so an error body would read as more rows.
+            throw new AbortedResponse(ex.getCause());
+        }
+        return "GET /expenses";
+    }
+
+    private String get(Request request, int id) throws IOException, SQLException, RequestException {
+        sendExpense(request.exchange, 200, require(request.manager(), id));
+        return "GET /expenses/{id}";
+    }
+
+    private String create(Request request) throws IOException, SQLException, RequestException {
+        ExpenseManager manager = request.manager();
+        Expense exp = request.expense(manager);
+        manager.addExpense(exp);
+        request.exchange.getResponseHeaders().set("Location", "/expenses/" + exp.getId());
+        sendExpense(request.exchange, 201, exp);
+        return "POST /expenses";
+    }
+
+    private String replace(Request request, int id) throws IOException, SQLException, RequestException {
+        ExpenseManager manager = request.manager();
+        require(manager, id);
+        Expense exp = request.expense(manager);
+        exp.setId(id);
+        manager.updateExpense(exp);
+        sendExpense(request.exchange, 200, exp);
+        return "PUT /expenses/{id}";
+    }
+
+    private String delete(Request request, int id) throws IOException, SQLException, RequestException {
+        ExpenseManager manager = request.manager();
+        require(manager, id);
+        manager.deleteExpense(id);
+        request.exchange.sendResponseHeaders(204, -1);
+        return "DELETE /expenses/{id}";
+    }
+
+    // The body is spooled to a temporary file so ExpenseImporter can read it in parallel chunks,
+    // exactly as it reads a file picked in the desktop app.
+    private String importBody(Request request) throws IOException, SQLException, RequestException {
+        ExpenseFormat format = formatOf(request.exchange.getRequestHeaders().getFirst("Content-Type"));
+        Path spool = Files.createTempFile("expense-import", ".tmp");
+        try {
+            try (InputStream body = request.exchange.getRequestBody()) {
+                Files.copy(body, spool, StandardCopyOption.REPLACE_EXISTING);
+            }
+            ExpenseImporter importer = new ExpenseImporter(spool, format,
+                    Integer.getInteger("expense.import.threads", Runtime.getRuntime().availableProcessors()),
+                    Integer.getInteger("expense.import.chunkBytes", 4 << 20));
+            ImportResult result = importer.run(request.manager(), null);
+            StringBuilder json = new StringBuilder("{\"rows\":").append(result.getRows())
+                    .append(",\"rejected\":").append(importer.getRejected())
+                    .append(",\"millis\":").append(result.getElapsedMillis())
+                    .append(",\"errors\":[");
+            List<String> errors = importer.getErrors();
+            for (int i = 0; i < errors.size(); i++) {
+                if (i > 0) json.append(',');
+                jsonString(json, errors.get(i));
+            }
+            sendJson(request.exchange, 200, json.append("]}\n").toString());
+        } finally {
+            Files.deleteIfExists(spool);
+        }
+        return "POST /expenses/import";
+    }
+
+    // Rebuilt only after the user's expenses changed; until then clients revalidating with
+    // If-None-Match get a 304 without the aggregates being read at all.
+    private String aggregates(Request request) throws IOException, SQLException, RequestException {
+        if (!request.method().equals("GET")) throw new RequestException(405, request.method() + " is not supported here.");
+        ExpenseManager manager = request.manager();
+        int userId = manager.getScope().getUserId();
+        long version = manager.getChangeCount();
+        CachedBody cached = aggregateBodies.get(userId);
+        if (cached == null || cached.version != version) {
+            cached = new CachedBody(version, "\"" + etagPrefix + "-" + userId + "-" + version + "\"",
+                    aggregatesJson(manager.getAggregates()).getBytes(StandardCharsets.UTF_8));
+            aggregateBodies.put(userId, cached);
+        }
+        Headers headers = request.exchange.getResponseHeaders();
+        headers.set("ETag", cached.etag);
+        headers.set("Cache-Control", "no-cache");
+        String match = request.exchange.getRequestHeaders().getFirst("If-None-Match");
+        if (match != null && (match.equals("*") || Arrays.asList(match.split("\\s*,\\s*")).contains(cached.etag))) {
+            request.exchange.sendResponseHeaders(304, -1);
+            return "GET /aggregates (304)";
+        }
+        headers.set("Content-Type", "application/json; charset=utf-8");
+        request.exchange.sendResponseHeaders(200, cached.body.length);
+        try (OutputStream out = request.exchange.getResponseBody()) {
+            out.write(cached.body);
+        }
+        return "GET /aggregates";
+    }
+
+    private static String aggregatesJson(ExpenseAggregates aggregates) {
+        StringBuilder json = new StringBuilder("{\"total\":");
+        bucketJson(json, aggregates.getTotal());
+        json.append(",\"byType\":{");
+        boolean first = true;
+        for (Map.Entry<String, AggregateBucket> e : aggregates.getTypeTotals().entrySet()) {
+            if (!first) json.append(',');
+            first = false;
+            jsonString(json, e.getKey());
+            json.append(':');
+            bucketJson(json, e.getValue());
+        }
+        json.append("},\"byMonth\":{");
+        first = true;
+        for (Map.Entry<YearMonth, AggregateBucket> e : aggregates.getMonthTotals().entrySet()) {
+            if (!first) json.append(',');
+            first = false;
+            jsonString(json, e.getKey().toString());
+            json.append(':');
+            bucketJson(json, e.getValue());
+        }
+        return json.append("}}\n").toString();
+    }
+
+    private static void bucketJson(StringBuilder json, AggregateBucket b) {
+        json.append("{\"count\":").append(b.getCount()).append(",\"sum\":");
+        cents(json, b.getSumCents());
+        json.append(",\"min\":");
+        cents(json, b.getMinCents());
+        json.append(",\"max\":");
+        cents(json, b.getMaxCents());
+        json.append('}');
+    }
+
+    private String metrics(Request request) throws IOException, RequestException {
+        if (!request.method().equals("GET")) throw new RequestException(405, request.method() + " is not supported here.");
+        byte[] body = Metrics.dump().getBytes(StandardCharsets.UTF_8);
+        request.exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        request.exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = request.exchange.getResponseBody()) {
+            out.write(body);
+        }
+        return "GET /metrics";
+    }
+
+    private static Expense require(ExpenseManager manager, int id) throws SQLException, RequestException {
+        Expense exp = manager.getExpense(id);
+        if (exp == null) throw new RequestException(404, "Expense " + id + " does not exist.");
+        return exp;
+    }
+
+    // Sent with a Content-Length: a chunked reply costs small extra writes on every request.
+    private static void sendExpense(HttpExchange exchange, int status, Expense exp) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream(256);
+        new ExpenseExporter(ExpenseFormat.JSON_LINES, true, 1024).write(Channels.newChannel(body), List.of(exp).iterator(), null);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.size());
+        try (OutputStream out = exchange.getResponseBody()) {
+            body.writeTo(out);
+        }
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        StringBuilder json = new StringBuilder("{\"error\":");
+        jsonString(json, message == null ? "Request failed." : message);
+        sendJson(exchange, status, json.append("}\n").toString());
+    }
+
+    private static void sendJson(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static void jsonString(StringBuilder json, String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': json.append("\\\""); break;
+                case '\\': json.append("\\\\"); break;
+                case '\n': json.append("\\n"); break;
+                case '\r': json.append("\\r"); break;
+                case '\t': json.append("\\t"); break;
+                default:
+                    if (c < 0x20) json.append(String.format("\\u%04x", (int) c));
+                    else json.append(c);
+            }
+        }
+        json.append('"');
+    }
+
+    private static void cents(StringBuilder json, long cents) {
+        if (cents < 0) {
+            json.append('-');
+            cents = -cents;
+        }
+        json.append(cents / 100).append('.').append(cents % 100 / 10).append(cents % 10);
+    }
+
+    private static String contentType(ExpenseFormat format) {
+        switch (format) {
+            case CSV: return "text/csv; charset=utf-8";
+            case JSON_LINES: return "application/x-ndjson; charset=utf-8";
+            default: return "application/json; charset=utf-8";
+        }
+    }
+
+    private static ExpenseFormat formatOf(String contentType) throws RequestException {
+        String type = contentType == null ? "application/json" : contentType.toLowerCase(Locale.ROOT);
+        if (type.startsWith("text/csv")) return ExpenseFormat.CSV;
+        if (type.startsWith("application/x-ndjson") || type.startsWith("application/jsonl")) return ExpenseFormat.JSON_LINES;
+        if (type.startsWith("application/json")) return ExpenseFormat.JSON;
+        throw new RequestException(415, "Unsupported Content-Type " + contentType + " (expected text/csv, application/json or application/x-ndjson).");
+    }
+
+    private static int parseInt(String value, String what) throws RequestException {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException ex) {
+            throw new RequestException(400, "Invalid " + what + ": " + value);
+        }
+    }
+
+    private final class Request implements AutoCloseable {
+        final HttpExchange exchange;
+        private Map<String, String> params;
+        private ExpenseManagers.Lease lease;
+
+        Request(HttpExchange exchange) {
+            this.exchange = exchange;
+        }
+
+        String method() {
+            return exchange.getRequestMethod();
+        }
+
+        // Path segments, e.g. ["expenses", "42"].
+        String[] path() {
+            String p = exchange.getRequestURI().getPath();
+            while (p.endsWith("/") && p.length() > 1) p = p.substring(0, p.length() - 1);
+            return p.substring(1).split("/");
+        }
+
+        // Held until the response is complete, so an eviction meanwhile cannot close the manager.
+        ExpenseManager manager() throws RequestException {
+            if (lease == null) {
+                String header = exchange.getRequestHeaders().getFirst("X-User-Id");
+                int userId = header == null ? defaultUserId : parseInt(header.trim(), "X-User-Id");
+                lease = managers.forUser(userId);
+            }
+            return lease.manager();
+        }
+
+        @Override
+        public void close() {
+            if (lease != null) lease.close();
+        }
+
+        String param(String name) {
+            if (params == null) {
+                params = new HashMap<>();
+                String query = exchange.getRequestURI().getRawQuery();
+                if (query != null) {
+                    for (String pair : query.split("&")) {
+                        int eq = pair.indexOf('=');
+                        String key = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), StandardCharsets.UTF_8);
+                        String value = eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+                        params.put(key, value);
+                    }
+                }
+            }
+            String value = params.get(name);
+            return value == null || value.isEmpty() ? null : value;
+        }
+
+        Integer intParam(String name) throws RequestException {
+            String value = param(name);
+            if (value == null) return null;
+            int parsed = parseInt(value, name);
+            if (parsed < 0) throw new RequestException(400, name + " must not be negative.");
+            return parsed;
+        }
+
+        ExpenseSort sort() throws RequestException {
+            String column = param("sort");
+            String order = param("order");
+            if (column == null && order == null) return ExpenseSort.DEFAULT;
+            ExpenseSort.Column c;
+            try {
+                c = column == null ? ExpenseSort.DEFAULT.getColumn() : ExpenseSort.Column.valueOf(column.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException ex) {
+                throw new RequestException(400, "Unknown sort column: " + column);
+            }
+            if (order != null && !order.equalsIgnoreCase("asc") && !order.equalsIgnoreCase("desc")) {
+                throw new RequestException(400, "order must be asc or desc.");
+            }
+            boolean ascending = order == null ? c != ExpenseSort.Column.DATE : order.equalsIgnoreCase("asc");
+            return c == ExpenseSort.DEFAULT.getColumn() && ascending == ExpenseSort.DEFAULT.isAscending()
+                    ? ExpenseSort.DEFAULT : new ExpenseSort(c, ascending);
+        }
+
+        ExpenseFormat format() throws RequestException {
+            String format = param("format");
+            if (format == null || format.equalsIgnoreCase("json")) return ExpenseFormat.JSON;
+            if (format.equalsIgnoreCase("jsonl") || format.equalsIgnoreCase("ndjson")) return ExpenseFormat.JSON_LINES;
+            if (format.equalsIgnoreCase("csv")) return ExpenseFormat.CSV;
+            throw new RequestException(400, "format must be json, jsonl or csv.");
+        }
+
+        // One object in the import format, validated the same way. The DAO would also refuse another
+        // user's account, but only as a server error.
+        Expense expense(ExpenseManager manager) throws IOException, SQLException, RequestException {
+            byte[] body;
+            try (InputStream in = exchange.getRequestBody()) {
+                body = in.readNBytes(MAX_BODY_BYTES + 1);
+            }
+            if (body.length > MAX_BODY_BYTES) throw new RequestException(413, "Request body is too large.");
+            JsonRecords json = new JsonRecords(body, 0, body.length);
+            RawRecord record = new RawRecord(body);
+            if (!json.next(record)) throw new RequestException(400, "Expected a JSON object.");
+            Expense exp;
+            try {
+                exp = record.toExpense();
+            } catch (InvalidExpenseException ex) {
+                throw new RequestException(400, ex.getMessage());
+            }
+            if (exp.getAccountId() != null && manager.accounts().findAccount(exp.getAccountId()) == null) {
+                throw new RequestException(400, "Account " + exp.getAccountId() + " does not exist.");
+            }
+            return exp;
+        }
+    }
+
+    // Continues a listing with keyset pages once the rows fetched so far run out.
+    private static final class PagedRows implements Iterator<Expense> {
+        private final ExpenseManager manager;
+        private final ExpenseSort sort;
+        private List<Expense> page;
+        private int next;
+
+        PagedRows(ExpenseManager manager, ExpenseSort sort, List<Expense> first) {
+            this.manager = manager;
+            this.sort = sort;
+            this.page = first;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next < page.size()) return true;
+            if (page.size() < STREAM_PAGE_SIZE) return false;
+            try {
+                page = manager.getExpensesPage(sort, page.get(page.size() - 1), STREAM_PAGE_SIZE);
+            } catch (SQLException ex) {
+                throw new UncheckedSQLException(ex);
+            }
+            next = 0;
+            return !page.isEmpty();
+        }
+
+        @Override
+        public Expense next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            return page.get(next++);
+        }
+    }
+
+    private static final class CachedBody {
+        final long version;
+        final String etag;
+        final byte[] body;
+
+        CachedBody(long version, String etag, byte[] body) {
+            this.version = version;
+            this.etag = etag;
+            this.body = body;
+        }
+    }
+
+    // Thrown once the status line is sent and the response cannot be finished; see handle().
+    private static final class AbortedResponse extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        AbortedResponse(Throwable cause) {
+            super(cause);
+        }
+    }
+
+    private static final class RequestException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        final int status;
+
+        RequestException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package expensetracker;
+
+import java.sql.*;
+import java.util.*;
+
+class ExpenseSort {
+    enum Column {
+        TYPE("type"),
+        AMOUNT("amount"),
+        DATE("date"),
+        DESCRIPTION("COALESCE(description, '')"),
+        DETAILS("COALESCE(details, '')");
+
+        private final String expression;
+
+        Column(String expression) {
+            this.expression = expression;
+        }
+    }
+
+    public static final ExpenseSort DEFAULT = new ExpenseSort(Column.DATE, false);
+
+    private final Column column;
+    private final boolean ascending;
+
+    public ExpenseSort(Column column, boolean ascending) {
+        this.column = column;
+        this.ascending = ascending;
+    }
+
+    public Column getColumn() { return column; }
+    public boolean isAscending() { return ascending; }
+
+    // id breaks ties so that every row has a unique, stable position.
+    public String orderBy() {
+        String direction = ascending ? "ASC" : "DESC";
+        return column.expression + " " + direction + ", id " + direction;
+    }
+
+    public String afterPredicate() {
+        return predicate(ascending ? ">" : "<");
+    }
+
+    public String beforePredicate() {
+        return predicate(ascending ? "<" : ">");
+    }
+
+    // Binds the sort key of exp for afterPredicate()/beforePredicate() and returns the next parameter index.
+    public int bindKey(PreparedStatement pstmt, int index, Expense exp) throws SQLException {
+        for (int i = 0; i < 2; i++) {
+            switch (column) {
+                case TYPE: pstmt.setString(index++, exp.getType()); break;
+                case AMOUNT: pstmt.setDouble(index++, exp.getAmount()); break;
+                case DATE: pstmt.setDate(index++, exp.getDate()); break;
+                default: pstmt.setString(index++, (String) keyOf(exp));
+            }
+        }
+        pstmt.setInt(index++, exp.getId());
+        return index;
+    }
+
+    interface RowComparator {
+        int compare(int a, int b);
+    }
+
+    // The same order as orderBy(), for rows sorted in memory, e.g. search results. Each row's key is
+    // read once into a primitive array (cents or epoch day for amount and date) and a permutation of
+    // row positions is merge-sorted against those arrays, so comparisons never touch an Expense.
+    public List<Expense> sort(List<Expense> rows) {
+        int n = rows.size();
+        int[] ids = new int[n];
+        long[] numbers = column == Column.AMOUNT || column == Column.DATE ? new long[n] : null;
+        String[] text = numbers == null ? new String[n] : null;
+        for (int i = 0; i < n; i++) {
+            Expense exp = rows.get(i);
+            ids[i] = exp.getId();
+            if (column == Column.AMOUNT) {
+                numbers[i] = ExpenseAggregates.toCents(exp.getAmount());
+            } else if (column == Column.DATE) {
+                numbers[i] = exp.getDate().toLocalDate().toEpochDay();
+            } else {
+                text[i] = (String) keyOf(exp);
+            }
+        }
+        int sign = ascending ? 1 : -1;
+        RowComparator order = numbers != null
+                ? (a, b) -> {
+                    int c = Long.compare(numbers[a], numbers[b]);
+                    return sign * (c != 0 ? c : Integer.compare(ids[a], ids[b]));
+                }
+                : (a, b) -> {
+                    int c = text[a].compareTo(text[b]);
+                    return sign * (c != 0 ? c : Integer.compare(ids[a], ids[b]));
+                };
+        int[] positions = new int[n];
+        for (int i = 0; i < n; i++) positions[i] = i;
+        mergeSort(positions, positions.clone(), 0, n, order);
+        List<Expense> sorted = new ArrayList<>(n);
+        for (int position : positions) sorted.add(rows.get(position));
+        return sorted;
+    }
+
+    // Sorts a[from, to) using b, which holds the same values, as scratch space.
+    private static void mergeSort(int[] a, int[] b, int from, int to, RowComparator order) {
+        if (to - from <= 16) {
+            for (int i = from + 1; i < to; i++) {
+                int value = a[i];
+                int j = i;
+                while (j > from && order.compare(a[j - 1], value) > 0) {
+                    a[j] = a[j - 1];
+                    j--;
+                }
+                a[j] = value;
+            }
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        // Sort each half of b into place, then merge the halves back into a.
+        mergeSort(b, a, from, mid, order);
+        mergeSort(b, a, mid, to, order);
+        if (order.compare(b[mid - 1], b[mid]) <= 0) {
+            System.arraycopy(b, from, a, from, to - from);
+            return;
+        }
+        for (int i = from, l = from, r = mid; i < to; i++) {
+            a[i] = r >= to || (l < mid && order.compare(b[l], b[r]) <= 0) ? b[l++] : b[r++];
+        }
+    }
+
+    // The order of sort() for two rows, for placing a single row without sorting.
+    public int compare(Expense a, Expense b) {
+        int c;
+        if (column == Column.AMOUNT) {
+            c = Long.compare(ExpenseAggregates.toCents(a.getAmount()), ExpenseAggregates.toCents(b.getAmount()));
+        } else if (column == Column.DATE) {
+            c = Long.compare(a.getDate().toLocalDate().toEpochDay(), b.getDate().toLocalDate().toEpochDay());
+        } else {
+            c = ((String) keyOf(a)).compareTo((String) keyOf(b));
+        }
+        if (c == 0) c = Integer.compare(a.getId(), b.getId());
+        return ascending ? c : -c;
+    }
+
+    public boolean sameKey(Expense a, Expense b) {
+        return Objects.equals(keyOf(a), keyOf(b));
+    }
+
+    private Object keyOf(Expense exp) {
+        switch (column) {
+            case TYPE: return exp.getType();
+            case AMOUNT: return exp.getAmount();
+            case DATE: return exp.getDate();
+            case DESCRIPTION: return exp.getDescription() == null ? "" : exp.getDescription();
+            default: return exp.getDetails() == null ? "" : exp.getDetails();
+        }
+    }
+
+    private String predicate(String op) {
+        return "(" + column.expression + " " + op + " ? OR (" + column.expression + " = ? AND id " + op + " ?))";
+    }
+}
@@ -0,0 +1,684 @@
+package expensetracker;
+
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Mirrors the local embedded store to the upstream database in the background.
+// Local writes queue their row id in sync_outbox (see ExpenseDAO). Each round pushes the queued rows
+// upstream in batches, then pulls the rows changed upstream since the last round: every write to the
+// upstream database logs the expense id in sync_changes under a sequence number (see recordChanges),
+// deletes included, and the local store keeps the highest number it has applied. sync_link pairs a
+// local id with its upstream id and the upstream version last seen. Updates and deletes are pushed
+// with "WHERE id = ? AND version = ?", so a row edited on both sides is a conflict: the link's
+// version becomes unknown and the pull replaces the local row with the upstream copy.
+// Account balances are not copied: each side applies the balance effect of every expense row it
+// writes, so balances agree once the rows do. Accounts missing locally are copied down once.
+class ExpenseSync implements AutoCloseable {
+    interface ConnectionSource {
+        Connection getConnection() throws SQLException;
+    }
+
+    private static final long INTERVAL_MS = Long.getLong("expense.sync.intervalMs", 10000L);
+    private static final int BATCH_SIZE = 500;
+    private static final long CLOSE_WAIT_MS = 5000;
+
+    private static final String MARK_SQL =
+            "MERGE INTO sync_outbox (expense_id, seq) KEY (expense_id) VALUES (?, NEXT VALUE FOR sync_outbox_seq)";
+    private static final String PUSH_INSERT_SQL = "INSERT INTO expenses (amount, date, description, type, details, "
+            + "restaurant, destination, transport_mode, utility_type, user_id, account_id, origin) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String UPDATE_SQL = "UPDATE expenses SET amount=?, date=?, description=?, type=?, details=?, "
+            + "restaurant=?, destination=?, transport_mode=?, utility_type=?, user_id=?, account_id=?";
+    // Padded IN lists; see ExpenseDAO.inList.
+    private static final String PULL_SQL = "SELECT " + ExpenseDAO.COLUMNS + ", version FROM expenses WHERE id IN ";
+    private static final String CHARGE_SQL = "SELECT user_id, account_id, amount FROM expenses WHERE id=?";
+    private static final String CHANGES_SQL = "SELECT c.expense_id, c.seq, c.deleted, e.version FROM sync_changes c "
+            + "LEFT JOIN expenses e ON e.id = c.expense_id WHERE c.seq > ? ORDER BY c.seq, c.expense_id";
+
+    private final ConnectionSource local;
+    private final ConnectionPool upstream;
+    private final boolean migrateUpstream;
+    private final Runnable onRemoteChange;
+    private final ScheduledExecutorService worker;
+
+    private final AtomicLong rounds = new AtomicLong();
+    private final AtomicLong pushed = new AtomicLong();
+    private final AtomicLong pulled = new AtomicLong();
+    private final AtomicLong conflicts = new AtomicLong();
+    private volatile long lastSuccessMillis;
+    private volatile String lastError;
+
+    // Guarded by this.
+    private boolean upstreamReady;
+    private String storeId;
+
+    // The upstream pool is owned by this instance and closed with it. onRemoteChange runs on the sync
+    // thread after a pull changed local rows.
+    public ExpenseSync(ConnectionSource local, ConnectionPool upstream, boolean migrateUpstream, Runnable onRemoteChange) {
+        this.local = local;
+        this.upstream = upstream;
+        this.migrateUpstream = migrateUpstream;
+        this.onRemoteChange = onRemoteChange;
+        this.worker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "expense-sync");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    // Syncs the pooled local store with the configured upstream database every expense.sync.intervalMs.
+    public static ExpenseSync startDefault(Runnable onRemoteChange) throws SQLException {
+        ExpenseSync sync = new ExpenseSync(DatabaseConnection::getConnection, DatabaseConnection.openUpstream(),
+                DatabaseConnection.isMigrateEnabled(), onRemoteChange);
+        sync.start(INTERVAL_MS);
+        return sync;
+    }
+
+    // Creates the bookkeeping tables in the local store; safe to call on every start.
+    static void createLocalTables(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS sync_outbox (expense_id INT PRIMARY KEY, seq BIGINT NOT NULL)");
+            stmt.execute("CREATE SEQUENCE IF NOT EXISTS sync_outbox_seq");
+            stmt.execute("CREATE TABLE IF NOT EXISTS sync_link ("
+                    + "local_id INT PRIMARY KEY, "
+                    + "remote_id INT NOT NULL, "
+                    + "remote_version INT NOT NULL)");
+            stmt.execute("CREATE UNIQUE INDEX IF NOT EXISTS idx_sync_link_remote ON sync_link (remote_id)");
+            // Finds the links a conflict left with an unknown version (-1) without reading the others.
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_sync_link_version ON sync_link (remote_version)");
+            stmt.execute("CREATE TABLE IF NOT EXISTS sync_meta (name VARCHAR(50) PRIMARY KEY, val VARCHAR(100) NOT NULL)");
+        }
+    }
+
+    // Queues local rows for the next push. Call inside the transaction that changed them.
+    static void markChangedIds(Connection conn, Collection<Integer> expenseIds) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(MARK_SQL)) {
+            for (int id : expenseIds) {
+                pstmt.setInt(1, id);
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+    }
+
+    // Logs changes to rows of the upstream database for the local stores that pull from it. Call last
+    // in the transaction that made them: the sync_clock row stays locked until the commit, so changes
+    // commit in seq order and a pull that has seen seq n has also seen every change before it.
+    static void recordChanges(Connection conn, Collection<Integer> expenseIds, Collection<Integer> deletedIds) throws SQLException {
+        if (expenseIds.isEmpty()) return;
+        long seq;
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("UPDATE sync_clock SET seq = seq + 1 WHERE id = 1");
+            try (ResultSet rs = stmt.executeQuery("SELECT seq FROM sync_clock WHERE id = 1")) {
+                if (!rs.next()) throw new SQLException("sync_clock is empty; the schema is older than migration 8.");
+                seq = rs.getLong(1);
+            }
+        }
+        try (PreparedStatement delete = conn.prepareStatement("DELETE FROM sync_changes WHERE expense_id=?");
+             PreparedStatement insert = conn.prepareStatement(
+                     "INSERT INTO sync_changes (expense_id, seq, deleted) VALUES (?, ?, ?)")) {
+            for (int id : expenseIds) {
+                delete.setInt(1, id);
+                delete.addBatch();
+                insert.setInt(1, id);
+                insert.setLong(2, seq);
+                insert.setBoolean(3, deletedIds.contains(id));
+                insert.addBatch();
+            }
+            delete.executeBatch();
+            insert.executeBatch();
+        }
+    }
+
+    public void start(long intervalMillis) {
+        worker.scheduleWithFixedDelay(this::syncQuietly, 0, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // Runs one push/pull round now. Fails if the upstream database is unreachable; nothing is lost,
+    // queued rows stay in the outbox for the next round.
+    public void syncOnce() throws SQLException {
+        boolean changed;
+        synchronized (this) {
+            try (Connection remote = upstream.getConnection()) {
+                if (!upstreamReady) {
+                    if (migrateUpstream) new SchemaMigrator().migrate(remote);
+                    upstreamReady = true;
+                }
+                push(remote);
+                changed = pull(remote);
+            }
+            rounds.incrementAndGet();
+            lastSuccessMillis = System.currentTimeMillis();
+            lastError = null;
+        }
+        if (changed) onRemoteChange.run();
+    }
+
+    public SyncStats getStats() {
+        int pending;
+        try (Connection conn = local.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM sync_outbox")) {
+            pending = rs.next() ? rs.getInt(1) : 0;
+        } catch (SQLException ex) {
+            pending = -1;
+        }
+        return new SyncStats(rounds.get(), pushed.get(), pulled.get(), conflicts.get(), pending,
+                lastSuccessMillis, lastError);
+    }
+
+    // Lets a round already running finish, so closing on exit does not cut a push off between the
+    // upstream commit and clearing the outbox; gives up after CLOSE_WAIT_MS if the upstream hangs.
+    @Override
+    public void close() {
+        worker.shutdown();
+        try {
+            if (!worker.awaitTermination(CLOSE_WAIT_MS, TimeUnit.MILLISECONDS)) worker.shutdownNow();
+        } catch (InterruptedException ex) {
+            worker.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        upstream.close();
+    }
+
+    // Upstream outages are expected while offline, so each new error is reported once rather than every round.
+    private void syncQuietly() {
+        try {
+            syncOnce();
+        } catch (SQLException | RuntimeException ex) {
+            String message = ex.getMessage();
+            if (!Objects.equals(message, lastError)) System.err.println("Expense sync failed: " + message);
+            lastError = message;
+        }
+    }
+
+    private void push(Connection remote) throws SQLException {
+        String origin = storeId() + ":";
+        long afterSeq = Long.MIN_VALUE;
+        List<OutboxEntry> batch;
+        while (!(batch = readOutbox(afterSeq)).isEmpty()) {
+            remote.setAutoCommit(false);
+            List<Integer> written = new ArrayList<>(batch.size());
+            Set<Integer> deleted = new HashSet<>();
+            for (OutboxEntry entry : batch) {
+                Integer remoteId = pushOne(remote, entry, origin + entry.localId);
+                if (remoteId != null) {
+                    written.add(remoteId);
+                    if (entry.expense == null) deleted.add(remoteId);
+                }
+            }
+            recordChanges(remote, written, deleted);
+            remote.commit();
+            remote.setAutoCommit(true);
+            // If this fails after the upstream commit, the rows are pushed again: inserts are
+            // matched by origin and updates turn into conflicts that the upstream copy wins.
+            try (Connection conn = local.getConnection()) {
+                conn.setAutoCommit(false);
+                for (OutboxEntry entry : batch) {
+                    recordPushed(conn, entry);
+                }
+                conn.commit();
+            }
+            pushed.addAndGet(batch.size());
+            afterSeq = batch.get(batch.size() - 1).seq;
+        }
+    }
+
+    private List<OutboxEntry> readOutbox(long afterSeq) throws SQLException {
+        String sql = "SELECT o.expense_id, o.seq, l.remote_id, l.remote_version, e.* FROM sync_outbox o "
+                + "LEFT JOIN sync_link l ON l.local_id = o.expense_id "
+                + "LEFT JOIN expenses e ON e.id = o.expense_id "
+                + "WHERE o.seq > ? ORDER BY o.seq LIMIT ?";
+        List<OutboxEntry> entries = new ArrayList<>();
+        try (Connection conn = local.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setLong(1, afterSeq);
+            pstmt.setInt(2, BATCH_SIZE);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                ExpenseRowMapper mapper = new ExpenseRowMapper(rs);
+                int idColumn = rs.findColumn("id");
+                while (rs.next()) {
+                    OutboxEntry entry = new OutboxEntry(rs.getInt(1), rs.getLong(2));
+                    int remoteId = rs.getInt(3);
+                    if (!rs.wasNull()) {
+                        entry.remoteId = remoteId;
+                        entry.remoteVersion = rs.getInt(4);
+                    }
+                    rs.getInt(idColumn);
+                    if (!rs.wasNull()) entry.expense = mapper.map(rs);
+                    entries.add(entry);
+                }
+            }
+        }
+        return entries;
+    }
+
+    // Applies one queued change upstream and records in the entry what the link should become.
+    // Returns the upstream id it wrote, or null if it wrote nothing.
+    private Integer pushOne(Connection remote, OutboxEntry entry, String origin) throws SQLException {
+        if (entry.expense == null) {
+            if (entry.remoteId == null) return null;
+            int remoteId = entry.remoteId;
+            Charge previous = Charge.load(remote, remoteId);
+            try (PreparedStatement pstmt = remote.prepareStatement("DELETE FROM expenses WHERE id=? AND version=?")) {
+                pstmt.setInt(1, remoteId);
+                pstmt.setInt(2, entry.remoteVersion);
+                if (pstmt.executeUpdate() == 0) {
+                    // Changed upstream since the last pull: keep the link, with an unknown version, so
+                    // the pull brings the upstream copy back.
+                    conflicts.incrementAndGet();
+                    entry.remoteVersion = -1;
+                    return null;
+                }
+                previous.moveTo(remote, null);
+            }
+            entry.remoteId = null;
+            return remoteId;
+        }
+        if (entry.remoteId == null && !findByOrigin(remote, entry, origin)) {
+            try (PreparedStatement pstmt = remote.prepareStatement(PUSH_INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+                ExpenseDAO.bindExpense(pstmt, entry.expense);
+                pstmt.setString(12, origin);
+                pstmt.executeUpdate();
+                try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                    if (!keys.next()) throw new SQLException("Upstream insert returned no key for expense " + entry.localId + ".");
+                    entry.remoteId = keys.getInt(1);
+                }
+            }
+            Charge.NONE.moveTo(remote, entry.expense);
+            entry.remoteVersion = 1;
+            return entry.remoteId;
+        }
+        Charge previous = Charge.load(remote, entry.remoteId);
+        try (PreparedStatement pstmt = remote.prepareStatement(UPDATE_SQL + ", version=version+1 WHERE id=? AND version=?")) {
+            ExpenseDAO.bindExpense(pstmt, entry.expense);
+            pstmt.setInt(12, entry.remoteId);
+            pstmt.setInt(13, entry.remoteVersion);
+            if (pstmt.executeUpdate() == 1) {
+                previous.moveTo(remote, entry.expense);
+                entry.remoteVersion++;
+                return entry.remoteId;
+            }
+            // Changed or deleted upstream since the last pull; an unknown version makes the pull refetch it.
+            conflicts.incrementAndGet();
+            entry.remoteVersion = -1;
+            return null;
+        }
+    }
+
+    // A retried push finds the row its earlier attempt inserted instead of inserting it again.
+    private static boolean findByOrigin(Connection remote, OutboxEntry entry, String origin) throws SQLException {
+        try (PreparedStatement pstmt = remote.prepareStatement("SELECT id, version FROM expenses WHERE origin=?")) {
+            pstmt.setString(1, origin);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (!rs.next()) return false;
+                entry.remoteId = rs.getInt(1);
+                entry.remoteVersion = rs.getInt(2);
+                return true;
+            }
+        }
+    }
+
+    // The outbox row is only cleared if it was not queued again while the push was running.
+    private static void recordPushed(Connection conn, OutboxEntry entry) throws SQLException {
+        if (entry.remoteId == null) {
+            deleteLink(conn, entry.localId);
+        } else {
+            saveLink(conn, entry.localId, entry.remoteId, entry.remoteVersion);
+        }
+        try (PreparedStatement pstmt = conn.prepareStatement("DELETE FROM sync_outbox WHERE expense_id=? AND seq=?")) {
+            pstmt.setInt(1, entry.localId);
+            pstmt.setLong(2, entry.seq);
+            pstmt.executeUpdate();
+        }
+    }
+
+    // Applies the changes logged upstream since the last round. A store that has not pulled before
+    // walks the whole table once instead (see pullAll), which also covers deletes made before the log
+    // existed. Rows still queued locally are left to the next push, which detects the conflict.
+    private boolean pull(Connection remote) throws SQLException {
+        pullAccounts(remote);
+        Set<Integer> changed = new LinkedHashSet<>();
+        List<Integer> gone = new ArrayList<>();
+        Long mark = readMark();
+        long next;
+        try (Connection conn = local.getConnection()) {
+            Set<Integer> queued = new HashSet<>();
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT expense_id FROM sync_outbox")) {
+                while (rs.next()) queued.add(rs.getInt(1));
+            }
+            next = mark == null ? pullAll(conn, remote, queued, changed, gone)
+                    : pullSince(conn, remote, mark, queued, changed, gone);
+            // Rows a push found changed upstream, whose change may be older than the mark.
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT local_id, remote_id FROM sync_link WHERE remote_version < 0")) {
+                while (rs.next()) {
+                    if (!queued.contains(rs.getInt(1))) changed.add(rs.getInt(2));
+                }
+            }
+        }
+        List<Integer> remoteIds = new ArrayList<>(changed);
+        for (int from = 0; from < remoteIds.size(); from += BATCH_SIZE) {
+            gone.addAll(applyRemoteRows(remote, remoteIds.subList(from, Math.min(remoteIds.size(), from + BATCH_SIZE))));
+        }
+        if (!gone.isEmpty()) applyRemoteDeletes(gone);
+        if (mark == null || next > mark) saveMark(next);
+        pulled.addAndGet(changed.size() + gone.size());
+        return !changed.isEmpty() || !gone.isEmpty();
+    }
+
+    // Reads sync_changes past the mark in seq order and returns the last seq read. Only the rows
+    // that differ from their link are collected, so memory use is bounded by the differences.
+    private static long pullSince(Connection conn, Connection remote, long mark, Set<Integer> queued,
+                                  Set<Integer> changed, List<Integer> gone) throws SQLException {
+        long next = mark;
+        try (PreparedStatement changes = remote.prepareStatement(CHANGES_SQL, ResultSet.TYPE_FORWARD_ONLY,
+                     ResultSet.CONCUR_READ_ONLY);
+             PreparedStatement findLink = conn.prepareStatement(
+                     "SELECT local_id, remote_version FROM sync_link WHERE remote_id=?")) {
+            changes.setFetchSize(ExpenseDAO.STREAM_FETCH_SIZE);
+            changes.setLong(1, mark);
+            try (ResultSet rs = changes.executeQuery()) {
+                while (rs.next()) {
+                    int remoteId = rs.getInt(1);
+                    next = rs.getLong(2);
+                    boolean deleted = rs.getBoolean(3);
+                    int version = rs.getInt(4);
+                    deleted |= rs.wasNull();
+                    findLink.setInt(1, remoteId);
+                    Integer localId = null;
+                    int linkVersion = 0;
+                    try (ResultSet link = findLink.executeQuery()) {
+                        if (link.next()) {
+                            localId = link.getInt(1);
+                            linkVersion = link.getInt(2);
+                        }
+                    }
+                    if (localId != null && queued.contains(localId)) continue;
+                    if (deleted) {
+                        if (localId != null) gone.add(localId);
+                    } else if (localId == null || linkVersion != version) {
+                        changed.add(remoteId);
+                    }
+                }
+            }
+        }
+        return next;
+    }
+
+    // Walks upstream (id, version) and sync_link in id order side by side, so memory use is bounded
+    // by the number of differences rather than by the table size. Returns the upstream seq read
+    // before the walk, so changes committed while it runs are read again by the next pullSince.
+    private static long pullAll(Connection conn, Connection remote, Set<Integer> queued, Set<Integer> changed,
+                                List<Integer> gone) throws SQLException {
+        long next;
+        try (Statement localStmt = conn.createStatement();
+             Statement remoteStmt = remote.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            try (ResultSet rs = remoteStmt.executeQuery("SELECT seq FROM sync_clock WHERE id = 1")) {
+                if (!rs.next()) throw new SQLException("Upstream sync_clock is empty; the schema is older than migration 8.");
+                next = rs.getLong(1);
+            }
+            remoteStmt.setFetchSize(ExpenseDAO.STREAM_FETCH_SIZE);
+            try (ResultSet links = localStmt.executeQuery(
+                         "SELECT remote_id, local_id, remote_version FROM sync_link ORDER BY remote_id");
+                 ResultSet rows = remoteStmt.executeQuery("SELECT id, version FROM expenses ORDER BY id")) {
+                boolean hasLink = links.next();
+                boolean hasRow = rows.next();
+                while (hasLink || hasRow) {
+                    int linkId = hasLink ? links.getInt(1) : Integer.MAX_VALUE;
+                    int rowId = hasRow ? rows.getInt(1) : Integer.MAX_VALUE;
+                    if (hasRow && (!hasLink || rowId < linkId)) {
+                        changed.add(rowId);
+                        hasRow = rows.next();
+                    } else if (hasLink && (!hasRow || linkId < rowId)) {
+                        if (!queued.contains(links.getInt(2))) gone.add(links.getInt(2));
+                        hasLink = links.next();
+                    } else {
+                        if (links.getInt(3) != rows.getInt(2) && !queued.contains(links.getInt(2))) changed.add(rowId);
+                        hasLink = links.next();
+                        hasRow = rows.next();
+                    }
+                }
+            }
+        }
+        return next;
+    }
+
+    // Fetches and applies the given upstream rows. Returns the local ids of linked rows that no longer
+    // exist upstream, for applyRemoteDeletes.
+    private List<Integer> applyRemoteRows(Connection remote, List<Integer> remoteIds) throws SQLException {
+        int[] ids = remoteIds.stream().mapToInt(Integer::intValue).toArray();
+        List<Expense> rows = new ArrayList<>(ids.length);
+        List<Integer> versions = new ArrayList<>(ids.length);
+        Set<Integer> missing = new HashSet<>(remoteIds);
+        List<Integer> gone = new ArrayList<>();
+        for (int from = 0; from < ids.length; from += ExpenseDAO.MAX_IN_LIST) {
+            int to = Math.min(ids.length, from + ExpenseDAO.MAX_IN_LIST);
+            try (PreparedStatement pstmt = remote.prepareStatement(PULL_SQL + ExpenseDAO.inList(to - from))) {
+                ExpenseDAO.bindInList(pstmt, 1, ids, from, to);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    ExpenseRowMapper mapper = new ExpenseRowMapper(rs);
+                    int versionColumn = rs.findColumn("version");
+                    while (rs.next()) {
+                        Expense row = mapper.map(rs);
+                        rows.add(row);
+                        versions.add(rs.getInt(versionColumn));
+                        missing.remove(row.getId());
+                    }
+                }
+            }
+        }
+        try (Connection conn = local.getConnection();
+             PreparedStatement findLink = conn.prepareStatement("SELECT local_id FROM sync_link WHERE remote_id=?");
+             PreparedStatement findQueued = conn.prepareStatement("SELECT 1 FROM sync_outbox WHERE expense_id=?");
+             PreparedStatement update = conn.prepareStatement(UPDATE_SQL
+                     + " WHERE id=? AND NOT EXISTS (SELECT 1 FROM sync_outbox WHERE expense_id=?)");
+             PreparedStatement insert = conn.prepareStatement(ExpenseDAO.INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+            conn.setAutoCommit(false);
+            for (int remoteId : missing) {
+                findLink.setInt(1, remoteId);
+                try (ResultSet rs = findLink.executeQuery()) {
+                    if (rs.next()) gone.add(rs.getInt(1));
+                }
+            }
+            for (int i = 0; i < rows.size(); i++) {
+                Expense row = rows.get(i);
+                int remoteId = row.getId();
+                findLink.setInt(1, remoteId);
+                Integer localId = null;
+                try (ResultSet rs = findLink.executeQuery()) {
+                    if (rs.next()) localId = rs.getInt(1);
+                }
+                Charge previous = localId == null ? Charge.NONE : Charge.load(conn, localId);
+                if (previous != Charge.NONE) {
+                    ExpenseDAO.bindExpense(update, row);
+                    update.setInt(12, localId);
+                    update.setInt(13, localId);
+                    // Edited locally since the pull read it: keep the local edit for the push to resolve.
+                    if (update.executeUpdate() == 0) continue;
+                    previous.moveTo(conn, row);
+                } else {
+                    // A link without a local row is left by a local delete that lost a conflict, and
+                    // the upstream copy comes back as a new row, unless the delete is not pushed yet.
+                    if (localId != null) {
+                        findQueued.setInt(1, localId);
+                        try (ResultSet rs = findQueued.executeQuery()) {
+                            if (rs.next()) continue;
+                        }
+                    }
+                    ExpenseDAO.bindExpense(insert, row);
+                    insert.executeUpdate();
+                    try (ResultSet keys = insert.getGeneratedKeys()) {
+                        if (!keys.next()) throw new SQLException("Local insert returned no key for upstream expense " + remoteId + ".");
+                        localId = keys.getInt(1);
+                    }
+                    Charge.NONE.moveTo(conn, row);
+                }
+                saveLink(conn, localId, remoteId, versions.get(i));
+            }
+            conn.commit();
+        }
+        return gone;
+    }
+
+    private void applyRemoteDeletes(List<Integer> localIds) throws SQLException {
+        try (Connection conn = local.getConnection();
+             PreparedStatement delete = conn.prepareStatement(
+                     "DELETE FROM expenses WHERE id=? AND NOT EXISTS (SELECT 1 FROM sync_outbox WHERE expense_id=?)")) {
+            conn.setAutoCommit(false);
+            for (int localId : localIds) {
+                Charge previous = Charge.load(conn, localId);
+                delete.setInt(1, localId);
+                delete.setInt(2, localId);
+                if (delete.executeUpdate() == 1) {
+                    previous.moveTo(conn, null);
+                } else if (previous != Charge.NONE) {
+                    // Edited locally since the pull read it: keep the local edit for the push to resolve.
+                    continue;
+                }
+                deleteLink(conn, localId);
+            }
+            conn.commit();
+        }
+    }
+
+    // Copies accounts that exist upstream but not locally, so local writes can charge them.
+    private void pullAccounts(Connection remote) throws SQLException {
+        Set<Integer> known = new HashSet<>();
+        try (Connection conn = local.getConnection()) {
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT AccountID FROM Accounts")) {
+                while (rs.next()) known.add(rs.getInt(1));
+            }
+            try (Statement remoteStmt = remote.createStatement();
+                 ResultSet rs = remoteStmt.executeQuery("SELECT AccountID, UserID, AccountName, Balance FROM Accounts");
+                 PreparedStatement insert = conn.prepareStatement(
+                         "INSERT INTO Accounts (AccountID, UserID, AccountName, Balance) VALUES (?, ?, ?, ?)")) {
+                while (rs.next()) {
+                    if (known.contains(rs.getInt(1))) continue;
+                    insert.setInt(1, rs.getInt(1));
+                    insert.setInt(2, rs.getInt(2));
+                    insert.setString(3, rs.getString(3));
+                    insert.setBigDecimal(4, rs.getBigDecimal(4));
+                    insert.executeUpdate();
+                }
+            }
+        }
+    }
+
+    private static void saveLink(Connection conn, int localId, int remoteId, int remoteVersion) throws SQLException {
+        // The upstream id may still be linked to a local row that was deleted and re-pulled.
+        try (PreparedStatement pstmt = conn.prepareStatement("DELETE FROM sync_link WHERE remote_id=? AND local_id<>?")) {
+            pstmt.setInt(1, remoteId);
+            pstmt.setInt(2, localId);
+            pstmt.executeUpdate();
+        }
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "MERGE INTO sync_link (local_id, remote_id, remote_version) KEY (local_id) VALUES (?, ?, ?)")) {
+            pstmt.setInt(1, localId);
+            pstmt.setInt(2, remoteId);
+            pstmt.setInt(3, remoteVersion);
+            pstmt.executeUpdate();
+        }
+    }
+
+    private static void deleteLink(Connection conn, int localId) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("DELETE FROM sync_link WHERE local_id=?")) {
+            pstmt.setInt(1, localId);
+            pstmt.executeUpdate();
+        }
+    }
+
+    // The highest upstream seq this store has applied, or null before its first pull.
+    private Long readMark() throws SQLException {
+        try (Connection conn = local.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT val FROM sync_meta WHERE name='pull_seq'")) {
+            return rs.next() ? Long.valueOf(rs.getString(1)) : null;
+        }
+    }
+
+    private void saveMark(long seq) throws SQLException {
+        try (Connection conn = local.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(
+                     "MERGE INTO sync_meta (name, val) KEY (name) VALUES ('pull_seq', ?)")) {
+            pstmt.setString(1, Long.toString(seq));
+            pstmt.executeUpdate();
+        }
+    }
+
+    // A random id per local store, prefixed to local row ids to form the upstream origin column.
+    private String storeId() throws SQLException {
+        if (storeId != null) return storeId;
+        try (Connection conn = local.getConnection()) {
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT val FROM sync_meta WHERE name='store_id'")) {
+                if (rs.next()) return storeId = rs.getString(1);
+            }
+            String id = UUID.randomUUID().toString();
+            try (PreparedStatement pstmt = conn.prepareStatement("INSERT INTO sync_meta (name, val) VALUES ('store_id', ?)")) {
+                pstmt.setString(1, id);
+                pstmt.executeUpdate();
+            }
+            return storeId = id;
+        }
+    }
+
+    // What a stored row charges to which account, read before the row is overwritten or deleted.
+    // Accounts that do not exist on this side are skipped rather than failing the round.
+    private static final class Charge {
+        static final Charge NONE = new Charge(0, null, 0);
+
+        final int userId;
+        final Integer accountId;
+        final double amount;
+
+        Charge(int userId, Integer accountId, double amount) {
+            this.userId = userId;
+            this.accountId = accountId;
+            this.amount = amount;
+        }
+
+        static Charge load(Connection conn, int expenseId) throws SQLException {
+            try (PreparedStatement pstmt = conn.prepareStatement(CHARGE_SQL)) {
+                pstmt.setInt(1, expenseId);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    if (!rs.next()) return NONE;
+                    int accountId = rs.getInt(2);
+                    return new Charge(rs.getInt(1), rs.wasNull() ? null : accountId, rs.getDouble(3));
+                }
+            }
+        }
+
+        // A row moving between users takes its charge off the old user's account first.
+        void moveTo(Connection conn, Expense next) throws SQLException {
+            Integer nextAccount = next == null ? null : next.getAccountId();
+            double nextAmount = next == null ? 0 : next.getAmount();
+            if (next != null && next.getUserId() != userId && accountId != null) {
+                AccountDAO.applyExpenseChange(conn, userId, accountId, amount, null, 0, false);
+                AccountDAO.applyExpenseChange(conn, next.getUserId(), null, 0, nextAccount, nextAmount, false);
+                return;
+            }
+            AccountDAO.applyExpenseChange(conn, next == null ? userId : next.getUserId(), accountId, amount,
+                    nextAccount, nextAmount, false);
+        }
+    }
+
+    private static final class OutboxEntry {
+        final int localId;
+        final long seq;
+        Integer remoteId;
+        int remoteVersion;
+        Expense expense;
+
+        OutboxEntry(int localId, long seq) {
+            this.localId = localId;
+            this.seq = seq;
+        }
+    }
+}
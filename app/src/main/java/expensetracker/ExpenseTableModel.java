@@ -0,0 +1,435 @@
+package expensetracker;
+
+import javax.swing.JTable;
+import javax.swing.SwingUtilities;
+import javax.swing.table.AbstractTableModel;
+import javax.swing.table.DefaultTableCellRenderer;
+import java.sql.SQLException;
+import java.text.SimpleDateFormat;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+// Table model that pulls rows from the database one page at a time as they are painted.
+// Only the most recently used pages are kept, and sorting is done by the database.
+// While a search filter is set, the model instead holds the matching rows, already sorted.
+// All state is confined to the EDT; pages are fetched in the background and rows show a
+// placeholder until they arrive. At startup a ViewSnapshot can stand in for the first page until
+// the database has answered, so the window is not empty while the store opens.
+class ExpenseTableModel extends AbstractTableModel {
+    private static final long serialVersionUID = 1L;
+    static final int PAGE_SIZE = 200;
+    private static final int MAX_CACHED_PAGES = 16;
+    // From asking for a reload or search until the table is told about the new rows.
+    private static final LatencyHistogram REFRESH = Metrics.histogram("ui.refreshTable");
+    private static final LatencyHistogram SEARCH = Metrics.histogram("ui.search");
+
+    private static final String[] COLUMNS = {"Type", "Amount", "Date", "Description", "Details"};
+    private static final ExpenseSort.Column[] SORT_COLUMNS = {
+            ExpenseSort.Column.TYPE, ExpenseSort.Column.AMOUNT, ExpenseSort.Column.DATE,
+            ExpenseSort.Column.DESCRIPTION, ExpenseSort.Column.DETAILS
+    };
+
+    private final AsyncExpenseManager async;
+    private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
+    private final Map<Integer, List<Expense>> pages = new LinkedHashMap<Integer, List<Expense>>(32, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, List<Expense>> eldest) {
+            return size() > MAX_CACHED_PAGES;
+        }
+    };
+    private final Map<Integer, CompletableFuture<List<Expense>>> loading = new HashMap<>();
+    // Loaded pages that deletes left with fewer rows than they hold; each is fetched again once.
+    private final Set<Integer> shortPages = new HashSet<>();
+
+    private ExpenseSort sort = ExpenseSort.DEFAULT;
+    private int rowCount;
+    private boolean loadFailed;
+    private boolean reloadQueued;
+    private CompletableFuture<Integer> pendingReload;
+    private String filter;
+    private List<Expense> filtered;
+    private CompletableFuture<List<Expense>> pendingSearch;
+    private Consumer<SQLException> errorHandler = ex -> {};
+    // Stale first page from the last run, shown until page 0 is fetched or the view changes.
+    private List<Expense> snapshotRows;
+
+    public ExpenseTableModel(AsyncExpenseManager async) {
+        this.async = async;
+    }
+
+    public void setErrorHandler(Consumer<SQLException> errorHandler) {
+        this.errorHandler = errorHandler;
+    }
+
+    // Bursts of reload requests within one EDT cycle collapse into a single query,
+    // and a newer reload cancels any older one still in flight.
+    public void reload() {
+        if (reloadQueued) return;
+        reloadQueued = true;
+        SwingUtilities.invokeLater(() -> {
+            reloadQueued = false;
+            startReload(false);
+        });
+    }
+
+    // Call before the first reload; the count is corrected once the reload's count arrives.
+    public void showSnapshot(ViewSnapshot snapshot) {
+        if (snapshot == null || rowCount != 0 || filter != null || sort != ExpenseSort.DEFAULT) return;
+        snapshotRows = snapshot.getRows();
+        rowCount = snapshot.getRowCount();
+        fireTableDataChanged();
+    }
+
+    // What the table shows now, for the next start: page 0 and the row count. Null unless the view
+    // is the unfiltered default order with page 0 loaded.
+    public ViewSnapshot snapshot(long totalCents) {
+        if (filter != null || sort.getColumn() != ExpenseSort.DEFAULT.getColumn()
+                || sort.isAscending() != ExpenseSort.DEFAULT.isAscending()) {
+            return null;
+        }
+        List<Expense> first = pages.get(0);
+        if (first == null) return null;
+        return new ViewSnapshot(first.subList(0, Math.min(first.size(), Math.min(rowCount, PAGE_SIZE))),
+                rowCount, totalCents);
+    }
+
+    public ExpenseSort getSort() { return sort; }
+
+    public String getFilter() { return filter; }
+    public boolean isFiltered() { return filter != null; }
+
+    // Shows only the rows matching the query; a blank query shows every row again.
+    public void setFilter(String query) {
+        String next = query == null || query.trim().isEmpty() ? null : query.trim();
+        if (Objects.equals(next, filter)) return;
+        filter = next;
+        startReload(false);
+    }
+
+    // Clicking the sorted column flips its direction; a new column starts ascending, except Date.
+    public void sortBy(int column) {
+        ExpenseSort.Column target = SORT_COLUMNS[column];
+        boolean ascending = target == sort.getColumn() ? !sort.isAscending() : target != ExpenseSort.Column.DATE;
+        sort = new ExpenseSort(target, ascending);
+        if (filtered != null && pendingSearch == null) {
+            // The matches are already in memory, so only their order has to be recomputed.
+            List<Expense> rows = filtered;
+            ExpenseSort order = sort;
+            applyFiltered(async.submit(() -> order.sort(rows)), true);
+            return;
+        }
+        startReload(true);
+    }
+
+    // Returns null while the row's page is still being fetched. A page that edits left short keeps
+    // showing its rows, and is only fetched again once a row past its end is painted.
+    public Expense getExpenseAt(int row) {
+        if (row < 0 || row >= rowCount) return null;
+        if (filtered != null) return filtered.get(row);
+        int index = row / PAGE_SIZE;
+        int offset = row % PAGE_SIZE;
+        List<Expense> page = pages.get(index);
+        if (page == null || (offset >= page.size() && shortPages.remove(index))) {
+            loadPage(index);
+            if (page == null && row < PAGE_SIZE) page = snapshotRows;
+        }
+        return page != null && offset < page.size() ? page.get(offset) : null;
+    }
+
+    // Where exp belongs in the current order, from a loaded page whose rows surround it, or -1 if no
+    // loaded page can tell; callers then ask the manager. A row with exp's id, i.e. its old version
+    // at oldRow on an update, is left out as the database would. Pass -1 as oldRow for a new row.
+    public int positionOf(Expense exp, int oldRow) {
+        if (filter != null) return -1;
+        for (Map.Entry<Integer, List<Expense>> e : pages.entrySet()) {
+            int first = e.getKey() * PAGE_SIZE;
+            List<Expense> page = e.getValue();
+            int before = 0;
+            boolean after = first + page.size() >= rowCount;
+            for (Expense row : page) {
+                if (row.getId() == exp.getId()) continue;
+                if (sort.compare(row, exp) < 0) {
+                    before++;
+                } else {
+                    after = true;
+                    break;
+                }
+            }
+            if ((before > 0 || first == 0) && after) {
+                return first - (oldRow >= 0 && oldRow < first ? 1 : 0) + before;
+            }
+        }
+        return -1;
+    }
+
+    // Single-row changes are made in the loaded pages, shifting rows between consecutive pages, so the
+    // rows on screen stay without a query; pages past a gap shift unseen and are dropped.
+    // The row position must have been computed with the given sort; if the order changed meanwhile we reload.
+    // Positions are computed against the whole table, so a filtered view re-runs its search instead.
+    public void expenseAdded(Expense exp, int row, ExpenseSort computedFor) {
+        if (computedFor != sort || filter != null) {
+            reload();
+            return;
+        }
+        insertRow(row, exp);
+        fireTableRowsInserted(row, row);
+    }
+
+    public void expenseUpdated(int row, Expense exp, int newRow, ExpenseSort computedFor) {
+        if (filter != null) {
+            reload();
+            return;
+        }
+        List<Expense> page = pages.get(row / PAGE_SIZE);
+        if (computedFor == sort && row == newRow && page != null && row % PAGE_SIZE < page.size()) {
+            page.set(row % PAGE_SIZE, exp);
+            fireTableRowsUpdated(row, row);
+        } else {
+            expenseDeleted(row);
+            expenseAdded(exp, newRow, computedFor);
+        }
+    }
+
+    public void expenseDeleted(int row) {
+        if (filter != null) {
+            reload();
+            return;
+        }
+        removeRow(row);
+        fireTableRowsDeleted(row, row);
+    }
+
+    @Override
+    public int getRowCount() { return rowCount; }
+
+    @Override
+    public int getColumnCount() { return COLUMNS.length; }
+
+    @Override
+    public String getColumnName(int column) {
+        if (SORT_COLUMNS[column] != sort.getColumn()) return COLUMNS[column];
+        return COLUMNS[column] + (sort.isAscending() ? " \u25B2" : " \u25BC");
+    }
+
+    // Amount and date cells hold the raw values; installRenderers() formats them for display.
+    @Override
+    public Class<?> getColumnClass(int column) {
+        switch (column) {
+            case 1: return Double.class;
+            case 2: return java.util.Date.class;
+            default: return String.class;
+        }
+    }
+
+    @Override
+    public boolean isCellEditable(int row, int column) { return false; }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        Expense exp = getExpenseAt(row);
+        if (exp == null) return column == 0 ? "..." : null;
+        switch (column) {
+            case 0: return exp.getType();
+            case 1: return exp.getAmount();
+            case 2: return exp.getDate();
+            case 3: return exp.getDescription() == null || exp.getDescription().isEmpty() ? "-" : exp.getDescription();
+            default: return exp.getDetails();
+        }
+    }
+
+    private void startReload(boolean structureChanged) {
+        resetPages();
+        // A reload in the same order keeps the snapshot up until the fresh page 0 replaces it.
+        if (structureChanged || filter != null) snapshotRows = null;
+        if (pendingReload != null) pendingReload.cancel(true);
+        if (pendingSearch != null) pendingSearch.cancel(true);
+        pendingReload = null;
+        pendingSearch = null;
+        if (filter != null) {
+            startSearch(structureChanged);
+            return;
+        }
+        filtered = null;
+        long start = System.nanoTime();
+        CompletableFuture<Integer> request = async.countExpenses();
+        pendingReload = request;
+        request.whenCompleteAsync((count, error) -> {
+            if (pendingReload != request) return;
+            pendingReload = null;
+            if (error != null) {
+                reportFailure(error);
+                return;
+            }
+            rowCount = count;
+            if (structureChanged) {
+                fireTableStructureChanged();
+            } else {
+                fireTableDataChanged();
+            }
+            REFRESH.record(System.nanoTime() - start);
+        }, AsyncExpenseManager.EDT);
+    }
+
+    public void installRenderers(JTable table) {
+        table.setDefaultRenderer(Double.class, new DefaultTableCellRenderer() {
+            {
+                setHorizontalAlignment(RIGHT);
+            }
+
+            @Override
+            protected void setValue(Object value) {
+                setText(value == null ? "" : String.format("%.2f", (Double) value));
+            }
+        });
+        table.setDefaultRenderer(java.util.Date.class, new DefaultTableCellRenderer() {
+            @Override
+            protected void setValue(Object value) {
+                setText(value == null ? "" : dateFormat.format((java.util.Date) value));
+            }
+        });
+    }
+
+    private void startSearch(boolean structureChanged) {
+        long start = System.nanoTime();
+        applyFiltered(async.search(filter, sort).whenComplete((rows, error) -> SEARCH.record(System.nanoTime() - start)),
+                structureChanged);
+    }
+
+    // The previous rows stay on screen until the new ones arrive, and are then swapped in whole.
+    private void applyFiltered(CompletableFuture<List<Expense>> request, boolean structureChanged) {
+        if (pendingSearch != null) pendingSearch.cancel(true);
+        pendingSearch = request;
+        request.whenCompleteAsync((rows, error) -> {
+            if (pendingSearch != request) return;
+            pendingSearch = null;
+            if (error != null) {
+                reportFailure(error);
+                return;
+            }
+            filtered = rows;
+            rowCount = rows.size();
+            if (structureChanged) {
+                fireTableStructureChanged();
+            } else {
+                fireTableDataChanged();
+            }
+        }, AsyncExpenseManager.EDT);
+    }
+
+    // Fetches the page unless it is already on its way; a page that is loaded but short is replaced.
+    private void loadPage(int index) {
+        if (loadFailed || loading.containsKey(index)) return;
+        List<Expense> previous = index > 0 ? pages.get(index - 1) : null;
+        CompletableFuture<List<Expense>> request;
+        if (index == 0) {
+            request = async.getExpensesPage(sort, null, PAGE_SIZE);
+        } else if (previous != null && previous.size() == PAGE_SIZE) {
+            request = async.getExpensesPage(sort, previous.get(PAGE_SIZE - 1), PAGE_SIZE);
+        } else {
+            request = async.getExpensesAt(sort, index * PAGE_SIZE, PAGE_SIZE);
+        }
+        loading.put(index, request);
+        request.whenCompleteAsync((result, error) -> {
+            // A reload or a mutation may have superseded this request while it was running.
+            if (loading.get(index) != request) return;
+            loading.remove(index);
+            if (error != null) {
+                reportFailure(error);
+                return;
+            }
+            pages.put(index, result);
+            if (index == 0) snapshotRows = null;
+            int first = index * PAGE_SIZE;
+            int last = Math.min(rowCount, first + PAGE_SIZE) - 1;
+            if (last >= first) fireTableRowsUpdated(first, last);
+        }, AsyncExpenseManager.EDT);
+    }
+
+    // Stop retrying on every repaint until the next reload().
+    private void reportFailure(Throwable error) {
+        Throwable cause = AsyncExpenseManager.unwrap(error);
+        if (cause instanceof CancellationException || loadFailed) return;
+        loadFailed = true;
+        errorHandler.accept(cause instanceof SQLException ? (SQLException) cause : new SQLException(cause));
+    }
+
+    private void resetPages() {
+        loading.values().forEach(f -> f.cancel(true));
+        loading.clear();
+        pages.clear();
+        shortPages.clear();
+        loadFailed = false;
+    }
+
+    // A full page pushes its last row to the front of the next one, as long as that one is loaded.
+    private void insertRow(int row, Expense exp) {
+        rowCount++;
+        int index = row / PAGE_SIZE;
+        List<Expense> page = pages.get(index);
+        if (page == null || row % PAGE_SIZE > page.size()) {
+            dropPagesAfter(index - 1);
+            return;
+        }
+        cancelLoadsFrom(index);
+        page.add(row % PAGE_SIZE, exp);
+        while (page.size() > PAGE_SIZE) {
+            Expense carried = page.remove(PAGE_SIZE);
+            List<Expense> next = pages.get(index + 1);
+            if (next == null) break;
+            next.add(0, carried);
+            page = next;
+            index++;
+        }
+        markIfShort(index, page);
+        dropPagesAfter(index);
+    }
+
+    // A page that was full takes the first row of the next one, as long as that one is loaded;
+    // otherwise it is left short.
+    private void removeRow(int row) {
+        rowCount--;
+        int index = row / PAGE_SIZE;
+        List<Expense> page = pages.get(index);
+        if (page == null || row % PAGE_SIZE >= page.size()) {
+            dropPagesAfter(index - 1);
+            return;
+        }
+        cancelLoadsFrom(index);
+        page.remove(row % PAGE_SIZE);
+        List<Expense> next;
+        while (page.size() == PAGE_SIZE - 1 && (next = pages.get(index + 1)) != null && !next.isEmpty()) {
+            page.add(next.remove(0));
+            page = next;
+            index++;
+        }
+        markIfShort(index, page);
+        dropPagesAfter(index);
+    }
+
+    private void markIfShort(int index, List<Expense> page) {
+        if (page.size() < PAGE_SIZE && index * PAGE_SIZE + page.size() < rowCount) shortPages.add(index);
+    }
+
+    private void dropPagesAfter(int index) {
+        if (index < 0) snapshotRows = null;
+        pages.keySet().removeIf(p -> p > index);
+        shortPages.removeIf(p -> p > index);
+        cancelLoadsFrom(index + 1);
+    }
+
+    private void cancelLoadsFrom(int index) {
+        loading.entrySet().removeIf(e -> {
+            if (e.getKey() < index) return false;
+            e.getValue().cancel(true);
+            return true;
+        });
+    }
+}
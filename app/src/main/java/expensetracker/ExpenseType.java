@@ -0,0 +1,17 @@
+package expensetracker;
+
+class ExpenseType {
+    private final String name;
+    private final ExpenseFactory factory;
+
+    public ExpenseType(String name, ExpenseFactory factory) {
+        this.name = name;
+        this.factory = factory;
+    }
+
+    public String getName() { return name; }
+
+    public Expense create(int id, double amount, java.sql.Date date, String description, String details) {
+        return factory.create(id, amount, date, description, details);
+    }
+}
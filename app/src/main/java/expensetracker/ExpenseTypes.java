@@ -0,0 +1,40 @@
+package expensetracker;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Registry of expense kinds by the name stored in the `type` column. New kinds register here
+// instead of adding cases to the DAO.
+final class ExpenseTypes {
+    private static final Map<String, ExpenseType> TYPES = new ConcurrentHashMap<>();
+    private static final List<String> NAMES = new ArrayList<>();
+
+    static {
+        register(new ExpenseType("Food", FoodExpense::new));
+        register(new ExpenseType("Travel", (id, amount, date, description, details) -> {
+            TravelExpense exp = new TravelExpense(id, amount, date, description, "", "");
+            exp.setDetailsFromString(details);
+            return exp;
+        }));
+        register(new ExpenseType("Utility", UtilityExpense::new));
+    }
+
+    private ExpenseTypes() {}
+
+    public static synchronized void register(ExpenseType type) {
+        if (TYPES.putIfAbsent(type.getName(), type) != null) {
+            throw new IllegalArgumentException("Expense type already registered: " + type.getName());
+        }
+        NAMES.add(type.getName());
+    }
+
+    public static ExpenseType get(String name) {
+        return TYPES.get(name);
+    }
+
+    public static synchronized List<String> names() {
+        return new ArrayList<>(NAMES);
+    }
+}
@@ -0,0 +1,122 @@
+package expensetracker;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+
+// Rules an expense must satisfy before it is stored, shared by the entry form and the importers.
+// Inputs may carry surrounding whitespace; failures name the field they are about.
+final class ExpenseValidator {
+    // Every power of ten up to 1e22 is an exact double, so digits / 10^n is correctly rounded.
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+    private ExpenseValidator() {}
+
+    public static double parseAmount(CharSequence text) throws InvalidExpenseException {
+        int start = trimStart(text);
+        int end = trimEnd(text, start);
+        if (start == end) throw new InvalidExpenseException(InvalidExpenseException.Field.AMOUNT, "Amount is required.");
+        double amount = parseDecimal(text, start, end);
+        if (!(amount > 0) || Double.isInfinite(amount)) {
+            throw new InvalidExpenseException(InvalidExpenseException.Field.AMOUNT, "Amount must be a positive number.");
+        }
+        return amount;
+    }
+
+    // Strictly yyyy-MM-dd, and a date that exists.
+    public static java.sql.Date parseDate(CharSequence text) throws InvalidExpenseException {
+        int start = trimStart(text);
+        int end = trimEnd(text, start);
+        if (end - start == 10 && text.charAt(start + 4) == '-' && text.charAt(start + 7) == '-') {
+            int year = digits(text, start, start + 4);
+            int month = digits(text, start + 5, start + 7);
+            int day = digits(text, start + 8, start + 10);
+            if (year >= 0 && month >= 0 && day >= 0) {
+                try {
+                    return java.sql.Date.valueOf(LocalDate.of(year, month, day));
+                } catch (DateTimeException ignored) {
+                    // falls through to the format error
+                }
+            }
+        }
+        throw new InvalidExpenseException(InvalidExpenseException.Field.DATE, "Date must be in yyyy-MM-dd format.");
+    }
+
+    // Checks the details each kind requires; detail arguments that do not apply to the type are ignored.
+    public static Expense create(String type, double amount, java.sql.Date date, String description, String restaurant,
+                                 String destination, String transportMode, String utilityType) throws InvalidExpenseException {
+        if (type == null) type = "";
+        switch (type) {
+            case "Food":
+                return new FoodExpense(amount, date, description,
+                        required(restaurant, InvalidExpenseException.Field.RESTAURANT, "Restaurant is required for Food expenses."));
+            case "Travel":
+                String dest = required(destination, InvalidExpenseException.Field.DESTINATION, "Destination is required for Travel expenses.");
+                String mode = required(transportMode, InvalidExpenseException.Field.TRANSPORT_MODE, "Transport Mode is required for Travel expenses.");
+                return new TravelExpense(amount, date, description, dest, mode);
+            case "Utility":
+                return new UtilityExpense(amount, date, description,
+                        required(utilityType, InvalidExpenseException.Field.UTILITY_TYPE, "Utility Type is required for Utility expenses."));
+            default:
+                throw new InvalidExpenseException(InvalidExpenseException.Field.TYPE, "Unknown expense type.");
+        }
+    }
+
+    private static String required(String value, InvalidExpenseException.Field field, String message) throws InvalidExpenseException {
+        String trimmed = value == null ? "" : value.trim();
+        if (trimmed.isEmpty()) throw new InvalidExpenseException(field, message);
+        return trimmed;
+    }
+
+    // Plain decimals ("12", "12.50") are parsed in place; anything else goes through Double.parseDouble,
+    // so the accepted syntax is the same as before.
+    private static double parseDecimal(CharSequence text, int start, int end) throws InvalidExpenseException {
+        long mantissa = 0;
+        int digits = 0;
+        int fractionDigits = -1;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                mantissa = mantissa * 10 + (c - '0');
+                digits++;
+                if (fractionDigits >= 0) fractionDigits++;
+            } else if (c == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+            } else {
+                digits = -1;
+                break;
+            }
+        }
+        if (digits > 0 && digits <= 15) {
+            return fractionDigits <= 0 ? mantissa : mantissa / POWERS_OF_TEN[fractionDigits];
+        }
+        try {
+            return Double.parseDouble(text.subSequence(start, end).toString());
+        } catch (NumberFormatException ex) {
+            throw new InvalidExpenseException(InvalidExpenseException.Field.AMOUNT, "Amount must be a positive number.");
+        }
+    }
+
+    private static int digits(CharSequence text, int start, int end) {
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static int trimStart(CharSequence text) {
+        int i = 0;
+        while (i < text.length() && text.charAt(i) <= ' ') i++;
+        return i;
+    }
+
+    private static int trimEnd(CharSequence text, int start) {
+        int i = text.length();
+        while (i > start && text.charAt(i - 1) <= ' ') i--;
+        return i;
+    }
+}
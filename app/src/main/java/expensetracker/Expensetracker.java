@@ -0,0 +1,813 @@
+package expensetracker;
+
+import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.event.ListSelectionEvent;
+import javax.swing.filechooser.FileNameExtensionFilter;
+import java.awt.*;
+import java.awt.event.*;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.sql.*;
+import java.text.*;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+public class Expensetracker extends JFrame {
+    private static final long serialVersionUID = 1L;
+
+    // Completed off the EDT once the window has painted; see openManager().
+    private final CompletableFuture<ExpenseManager> opening = new CompletableFuture<>();
+    private final AsyncExpenseManager async;
+    // Started by openManager() once the store is open; null while sync is off or unavailable.
+    private volatile ExpenseSync sync;
+
+    private JComboBox<String> expenseTypeCombo;
+    // "No account" followed by the user's Account rows.
+    private JComboBox<Object> accountCombo;
+    // Editable: "Does not repeat", the usual schedules, or any RecurrenceRule typed in.
+    private JComboBox<String> repeatCombo;
+    private JTextField amountField, descriptionField, dateField;
+    private JTextField restaurantField, destinationField, transportField, utilityTypeField;
+    private JButton addButton, updateButton, deleteButton, clearButton;
+    private JButton importButton, exportButton;
+    private JTextField searchField;
+    private javax.swing.Timer searchDebounce;
+
+    private JTable expenseTable;
+    private ExpenseTableModel tableModel;
+
+    private JLabel totalLabel;
+    private JLabel budgetLabel;
+    private JProgressBar progressBar;
+
+    private int selectedRow = -1;
+    private CompletableFuture<Double> pendingTotal;
+    private CompletableFuture<List<Account>> pendingAccounts;
+    private CompletableFuture<List<BudgetAlert>> pendingAlerts;
+    // Set once a total was read this run; shownTotal is the total the label shows.
+    private boolean viewLoaded;
+    private double shownTotal;
+
+    private static final LatencyHistogram FIRST_PAINT = Metrics.histogram("ui.firstPaint");
+
+    private static final String NO_ACCOUNT = "No account";
+    private static final String NO_REPEAT = "Does not repeat";
+
+    private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
+
+    public Expensetracker() {
+        async = new AsyncExpenseManager(opening);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            ExpenseSync started = sync;
+            if (started != null) started.close();
+            ExpenseManager manager = async.getManagerNow();
+            if (manager != null) manager.close();
+        }, "expense-manager-close"));
+        setTitle("Expense Tracker");
+        setDefaultCloseOperation(EXIT_ON_CLOSE);
+        setSize(950, 650);
+        setLocationRelativeTo(null);
+        setLayout(new BorderLayout(15, 15));
+        initComponents();
+        layoutComponents();
+        registerListeners();
+        showViewSnapshot();
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowOpened(WindowEvent e) {
+                // Queued behind the first paint of the snapshot.
+                SwingUtilities.invokeLater(Expensetracker.this::openManager);
+            }
+
+            @Override
+            public void windowClosing(WindowEvent e) {
+                saveViewSnapshot();
+            }
+        });
+        // Queued now and run on worker threads once the manager is built.
+        loadExpenses();
+    }
+
+    private void initComponents() {
+        expenseTypeCombo = new JComboBox<>(new String[]{"Food", "Travel", "Utility"});
+        amountField = new JTextField();
+        descriptionField = new JTextField();
+        dateField = new JTextField(dateFormat.format(new java.sql.Date(System.currentTimeMillis())));
+        dateField.setToolTipText("Date format: yyyy-MM-dd");
+
+        restaurantField = new JTextField();
+        destinationField = new JTextField();
+        transportField = new JTextField();
+        utilityTypeField = new JTextField();
+        accountCombo = new JComboBox<>(new Object[]{NO_ACCOUNT});
+        repeatCombo = new JComboBox<>(new String[]{NO_REPEAT, "daily", "weekly", "monthly"});
+        repeatCombo.setEditable(true);
+        repeatCombo.setToolTipText("<html>Adds the expense on every due day from its date on, including days already past.<br>"
+                + "Also weekly/2, monthly/3, or cron &lt;day&gt; &lt;month&gt; &lt;weekday&gt;, e.g. cron 1,15 * * or cron * * MON-FRI</html>");
+
+        addButton = new JButton("Add Expense");
+        updateButton = new JButton("Update Expense");
+        updateButton.setEnabled(false);
+        deleteButton = new JButton("Delete Expense");
+        deleteButton.setEnabled(false);
+        clearButton = new JButton("Clear Fields");
+        importButton = new JButton("Import...");
+        exportButton = new JButton("Export...");
+
+        searchField = new JTextField(30);
+        searchField.setToolTipText("Words from the description, restaurant, destination, transport mode or utility type");
+        // Keystrokes only restart the timer; the search runs once typing pauses.
+        searchDebounce = new javax.swing.Timer(Integer.getInteger("expense.search.debounceMs", 150), e -> {
+            clearSelection();
+            tableModel.setFilter(searchField.getText());
+        });
+        searchDebounce.setRepeats(false);
+
+        tableModel = new ExpenseTableModel(async);
+        tableModel.setErrorHandler(ex -> showError("Failed to load expenses from database: " + ex.getMessage()));
+        expenseTable = new JTable(tableModel);
+        tableModel.installRenderers(expenseTable);
+        expenseTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        expenseTable.getTableHeader().setReorderingAllowed(false);
+
+        totalLabel = new JLabel("Total Expenses: $0.00");
+        totalLabel.setFont(new Font("Segoe UI", Font.BOLD, 16));
+        budgetLabel = new JLabel();
+        budgetLabel.setFont(new Font("Segoe UI", Font.BOLD, 14));
+        budgetLabel.setVisible(false);
+
+        progressBar = new JProgressBar();
+        progressBar.setIndeterminate(true);
+        progressBar.setStringPainted(true);
+        progressBar.setString("Loading...");
+        progressBar.setVisible(false);
+        async.setBusyListener(pending -> progressBar.setVisible(pending > 0));
+    }
+
+    private void layoutComponents() {
+        JPanel formPanel = new JPanel();
+        formPanel.setBorder(BorderFactory.createTitledBorder("Add / Edit Expense"));
+        formPanel.setLayout(new GridBagLayout());
+        GridBagConstraints gbc = new GridBagConstraints();
+        gbc.insets = new Insets(8, 8, 8, 8);
+        gbc.anchor = GridBagConstraints.WEST;
+
+        gbc.gridx = 0; gbc.gridy = 0;
+        formPanel.add(new JLabel("Expense Type:"), gbc);
+        gbc.gridx = 1;
+        expenseTypeCombo.setToolTipText("Select the type of expense");
+        expenseTypeCombo.setPreferredSize(new Dimension(150, 24));
+        formPanel.add(expenseTypeCombo, gbc);
+
+        gbc.gridx = 2;
+        formPanel.add(new JLabel("Amount:"), gbc);
+        gbc.gridx = 3;
+        formPanel.add(amountField, gbc);
+
+        gbc.gridx = 4;
+        formPanel.add(new JLabel("Date (YYYY-MM-DD):"), gbc);
+        gbc.gridx = 5;
+        formPanel.add(dateField, gbc);
+
+        gbc.gridx = 0; gbc.gridy = 1;
+        formPanel.add(new JLabel("Description:"), gbc);
+        gbc.gridx = 1; gbc.gridwidth = 3;
+        formPanel.add(descriptionField, gbc);
+        gbc.gridwidth = 1;
+
+        gbc.gridx = 4;
+        formPanel.add(new JLabel("Account:"), gbc);
+        gbc.gridx = 5;
+        accountCombo.setToolTipText("Account the expense is paid from; its balance is adjusted");
+        formPanel.add(accountCombo, gbc);
+
+        gbc.gridx = 0; gbc.gridy = 2;
+        formPanel.add(new JLabel("Repeat:"), gbc);
+        gbc.gridx = 1;
+        repeatCombo.setPreferredSize(new Dimension(150, 24));
+        formPanel.add(repeatCombo, gbc);
+
+        gbc.gridx = 0; gbc.gridy = 3; gbc.gridwidth = 6;
+        formPanel.add(createDynamicDetailsPanel(), gbc);
+        gbc.gridwidth = 1;
+
+        gbc.gridx = 0; gbc.gridy = 4; gbc.gridwidth = 6;
+        formPanel.add(createButtonPanel(), gbc);
+        gbc.gridwidth = 1;
+
+        JPanel tablePanel = new JPanel(new BorderLayout());
+        tablePanel.setBorder(BorderFactory.createTitledBorder("Expenses"));
+        JPanel searchPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        searchPanel.add(new JLabel("Search:"));
+        searchPanel.add(searchField);
+        tablePanel.add(searchPanel, BorderLayout.NORTH);
+        tablePanel.add(new JScrollPane(expenseTable), BorderLayout.CENTER);
+
+        JPanel bottomPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        bottomPanel.add(totalLabel);
+        bottomPanel.add(Box.createHorizontalStrut(20));
+        bottomPanel.add(budgetLabel);
+        bottomPanel.add(Box.createHorizontalStrut(20));
+        bottomPanel.add(progressBar);
+
+        add(formPanel, BorderLayout.NORTH);
+        add(tablePanel, BorderLayout.CENTER);
+        add(bottomPanel, BorderLayout.SOUTH);
+
+        ((JComponent) getContentPane()).setBorder(BorderFactory.createEmptyBorder(15, 15, 15, 15));
+    }
+
+    private JPanel createDynamicDetailsPanel() {
+        CardLayout cardLayout = new CardLayout();
+        JPanel detailPanel = new JPanel(cardLayout);
+        detailPanel.setName("DynamicDetailsPanel");
+
+        JPanel foodPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        foodPanel.add(new JLabel("Restaurant:"));
+        restaurantField.setPreferredSize(new Dimension(200, 24));
+        foodPanel.add(restaurantField);
+
+        JPanel travelPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        travelPanel.add(new JLabel("Destination:"));
+        destinationField.setPreferredSize(new Dimension(130, 24));
+        travelPanel.add(destinationField);
+        travelPanel.add(Box.createHorizontalStrut(10));
+        travelPanel.add(new JLabel("Transport Mode:"));
+        transportField.setPreferredSize(new Dimension(130, 24));
+        travelPanel.add(transportField);
+
+        JPanel utilityPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        utilityPanel.add(new JLabel("Utility Type:"));
+        utilityTypeField.setPreferredSize(new Dimension(300, 24));
+        utilityPanel.add(utilityTypeField);
+
+        detailPanel.add(foodPanel, "Food");
+        detailPanel.add(travelPanel, "Travel");
+        detailPanel.add(utilityPanel, "Utility");
+
+        expenseTypeCombo.addActionListener(e -> {
+            cardLayout.show(detailPanel, (String) expenseTypeCombo.getSelectedItem());
+        });
+
+        return detailPanel;
+    }
+
+    private JPanel createButtonPanel() {
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 15, 0));
+        buttonPanel.add(addButton);
+        buttonPanel.add(updateButton);
+        buttonPanel.add(deleteButton);
+        buttonPanel.add(clearButton);
+        buttonPanel.add(importButton);
+        buttonPanel.add(exportButton);
+        return buttonPanel;
+    }
+
+    private void registerListeners() {
+        addButton.addActionListener(e -> onAddExpense());
+        updateButton.addActionListener(e -> onUpdateExpense());
+        deleteButton.addActionListener(e -> onDeleteExpense());
+        clearButton.addActionListener(e -> clearAllFields());
+        importButton.addActionListener(e -> onImport());
+        exportButton.addActionListener(e -> onExport());
+
+        expenseTable.getSelectionModel().addListSelectionListener(e -> onTableSelectionChanged(e));
+        searchField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override public void insertUpdate(DocumentEvent e) { onSearchChanged(); }
+            @Override public void removeUpdate(DocumentEvent e) { onSearchChanged(); }
+            @Override public void changedUpdate(DocumentEvent e) { onSearchChanged(); }
+        });
+        expenseTable.getTableHeader().addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int column = expenseTable.columnAtPoint(e.getPoint());
+                if (column >= 0) onSortColumn(expenseTable.convertColumnIndexToModel(column));
+            }
+        });
+    }
+
+    // Paints what the last run showed; loadExpenses() then replaces it from the database.
+    private void showViewSnapshot() {
+        ViewSnapshot snapshot = ViewSnapshot.load(ViewSnapshot.defaultFile());
+        if (snapshot == null) return;
+        tableModel.showSnapshot(snapshot);
+        totalLabel.setText(String.format("Total Expenses: $%,.2f", snapshot.getTotal()));
+    }
+
+    // Opening the store, replaying its journal, starting the recurring scheduler and then sync happen
+    // on their own thread, so the EDT never waits for them.
+    private void openManager() {
+        Thread opener = new Thread(() -> {
+            try {
+                ExpenseManager manager = new ExpenseManager();
+                manager.setBudgetListener(() -> AsyncExpenseManager.EDT.execute(this::updateBudgetLabel));
+                manager.setRecurringListener(() -> SwingUtilities.invokeLater(() -> {
+                    clearSelection();
+                    refreshTable();
+                    refreshAccounts();
+                }));
+                opening.complete(manager);
+            } catch (RuntimeException | Error ex) {
+                opening.completeExceptionally(ex);
+                throw ex;
+            }
+            if (DatabaseConnection.isSyncEnabled()) startSync();
+        }, "expense-manager-open");
+        opener.setDaemon(true);
+        opener.start();
+    }
+
+    // Runs on the EDT as the window closes and takes what the window shows, so exiting never waits
+    // on the database. Skipped until a total was read this run, and while the table is sorted or
+    // filtered, since the snapshot holds the default view.
+    private void saveViewSnapshot() {
+        Path file = ViewSnapshot.defaultFile();
+        if (file == null || !viewLoaded) return;
+        ViewSnapshot snapshot = tableModel.snapshot(ExpenseAggregates.toCents(shownTotal));
+        if (snapshot == null) return;
+        try {
+            snapshot.save(file);
+        } catch (IOException ex) {
+            System.err.println("View snapshot not saved: " + ex.getMessage());
+        }
+    }
+
+    // Waits for the manager if it is still being built; only for worker threads.
+    private ExpenseManager manager() {
+        return async.getManager();
+    }
+
+    private void loadExpenses() {
+        refreshTable();
+        refreshAccounts();
+        async.submit(() -> manager().warmCache());
+    }
+
+    // Balances change with every expense charged to an account, so the list is re-read after each write.
+    private void refreshAccounts() {
+        if (pendingAccounts != null) pendingAccounts.cancel(true);
+        CompletableFuture<List<Account>> request = async.getAccounts();
+        pendingAccounts = request;
+        request.whenCompleteAsync((accounts, error) -> {
+            if (pendingAccounts != request) return;
+            pendingAccounts = null;
+            if (error != null) {
+                System.err.println("Failed to load accounts: " + messageOf(error));
+                return;
+            }
+            Integer selected = selectedAccountId();
+            accountCombo.removeAllItems();
+            accountCombo.addItem(NO_ACCOUNT);
+            accounts.forEach(accountCombo::addItem);
+            selectAccount(selected);
+        }, AsyncExpenseManager.EDT);
+    }
+
+    private Integer selectedAccountId() {
+        Object item = accountCombo.getSelectedItem();
+        return item instanceof Account ? ((Account) item).getId() : null;
+    }
+
+    private void selectAccount(Integer accountId) {
+        for (int i = 1; i < accountCombo.getItemCount(); i++) {
+            if (accountId != null && ((Account) accountCombo.getItemAt(i)).getId() == accountId) {
+                accountCombo.setSelectedIndex(i);
+                return;
+            }
+        }
+        accountCombo.setSelectedIndex(0);
+    }
+
+    // Called on the opener thread. Rows pulled from the upstream database arrive on the sync thread.
+    private void startSync() {
+        try {
+            sync = ExpenseSync.startDefault(() -> {
+                manager().invalidate();
+                SwingUtilities.invokeLater(() -> {
+                    clearSelection();
+                    loadExpenses();
+                });
+            });
+        } catch (SQLException ex) {
+            SwingUtilities.invokeLater(() -> showError("Sync with the server is unavailable: " + ex.getMessage()));
+        }
+    }
+
+    private void refreshTable() {
+        tableModel.reload();
+        updateTotalLabel();
+    }
+
+    private void onSearchChanged() {
+        searchDebounce.restart();
+    }
+
+    private void onSortColumn(int column) {
+        clearSelection();
+        tableModel.sortBy(column);
+    }
+
+    // Only the latest request updates the label; an older one still in flight is cancelled.
+    private void updateTotalLabel() {
+        if (pendingTotal != null) pendingTotal.cancel(true);
+        CompletableFuture<Double> request = async.getTotalExpenses();
+        pendingTotal = request;
+        request.whenCompleteAsync((total, error) -> {
+            if (pendingTotal != request) return;
+            pendingTotal = null;
+            if (error != null) {
+                totalLabel.setText("Total Expenses: unavailable");
+            } else {
+                totalLabel.setText(String.format("Total Expenses: $%,.2f", total));
+                shownTotal = total;
+                viewLoaded = true;
+            }
+        }, AsyncExpenseManager.EDT);
+    }
+
+    // Requested when the manager reports that alerts changed; the alerts arrive here already
+    // computed, so the EDT only formats them.
+    private void updateBudgetLabel() {
+        if (pendingAlerts != null) pendingAlerts.cancel(true);
+        CompletableFuture<List<BudgetAlert>> request = async.getBudgetAlerts();
+        pendingAlerts = request;
+        request.whenCompleteAsync((alerts, error) -> {
+            if (pendingAlerts != request) return;
+            pendingAlerts = null;
+            if (error != null) {
+                System.err.println("Failed to check budgets: " + messageOf(error));
+                return;
+            }
+            budgetLabel.setVisible(!alerts.isEmpty());
+            if (alerts.isEmpty()) return;
+            BudgetAlert first = alerts.get(0);
+            budgetLabel.setForeground(first.isExceeded() ? new Color(0xC62828) : new Color(0xE65100));
+            budgetLabel.setText(alerts.size() == 1 ? first.toString()
+                    : String.format("%s (+%d more)", first, alerts.size() - 1));
+            StringBuilder tip = new StringBuilder("<html>");
+            alerts.stream().limit(12).forEach(a -> tip.append(a).append("<br>"));
+            if (alerts.size() > 12) tip.append(String.format("and %,d more", alerts.size() - 12));
+            budgetLabel.setToolTipText(tip.append("</html>").toString());
+        }, AsyncExpenseManager.EDT);
+    }
+
+    // A repeating expense is stored as a rule; the recurring listener reloads the table once its
+    // occurrences have been written.
+    private void onAddExpense() {
+        Expense newExpense = createExpenseFromForm();
+        if(newExpense == null) return;
+        String repeat = selectedSchedule();
+        if (repeat != null) {
+            try {
+                RecurrenceRule.parse(repeat);
+            } catch (IllegalArgumentException ex) {
+                showError(ex.getMessage());
+                repeatCombo.requestFocus();
+                return;
+            }
+        }
+        ExpenseSort sort = tableModel.getSort();
+        setActionsEnabled(false);
+        async.submit(() -> {
+            if (repeat != null) {
+                manager().addRecurring(newExpense, repeat, newExpense.getDate().toLocalDate(), null);
+            } else {
+                manager().addExpense(newExpense);
+            }
+            return null;
+        }).thenComposeAsync(ignored -> repeat != null ? CompletableFuture.completedFuture(-1) : newRow(newExpense, -1, sort),
+                AsyncExpenseManager.EDT).whenCompleteAsync((row, error) -> {
+            if (error != null) {
+                setActionsEnabled(true);
+                showError("Failed to add expense: " + messageOf(error));
+                return;
+            }
+            if (repeat == null) {
+                tableModel.expenseAdded(newExpense, row, sort);
+                updateTotalLabel();
+                refreshAccounts();
+            }
+            clearAllFields();
+            showMessage(repeat == null ? "Expense added successfully." : "Repeating expense added (" + repeat + ").");
+        }, AsyncExpenseManager.EDT);
+    }
+
+    // Where a written row now sits. The loaded pages usually know; if they do not, the manager counts
+    // in its cache, so that placing the row does not write out queued changes.
+    private CompletableFuture<Integer> newRow(Expense exp, int oldRow, ExpenseSort sort) {
+        int row = tableModel.getSort() == sort ? tableModel.positionOf(exp, oldRow) : -1;
+        if (row >= 0) return CompletableFuture.completedFuture(row);
+        return async.submit(() -> manager().countExpensesBefore(sort, exp));
+    }
+
+    private String selectedSchedule() {
+        Object item = repeatCombo.getSelectedItem();
+        String text = item == null ? "" : item.toString().trim();
+        return text.isEmpty() || text.equals(NO_REPEAT) ? null : text;
+    }
+
+    private void onUpdateExpense() {
+        if (selectedRow < 0) {
+            showError("Select an expense from the table to update.");
+            return;
+        }
+        Expense original = tableModel.getExpenseAt(selectedRow);
+        if (original == null) {
+            showError("The selected expense is still loading.");
+            return;
+        }
+        Expense updatedExpense = createExpenseFromForm();
+        if(updatedExpense == null) return;
+        updatedExpense.setId(original.getId());
+        int row = selectedRow;
+        ExpenseSort sort = tableModel.getSort();
+        setActionsEnabled(false);
+        async.submit(() -> {
+            manager().updateExpense(updatedExpense);
+            return null;
+        }).thenComposeAsync(ignored -> newRow(updatedExpense, row, sort), AsyncExpenseManager.EDT).whenCompleteAsync((newRow, error) -> {
+            if (error != null) {
+                setActionsEnabled(true);
+                showError("Failed to update expense: " + messageOf(error));
+                return;
+            }
+            tableModel.expenseUpdated(row, updatedExpense, newRow, sort);
+            updateTotalLabel();
+            refreshAccounts();
+            clearSelection();
+            clearAllFields();
+            showMessage("Expense updated successfully.");
+        }, AsyncExpenseManager.EDT);
+    }
+
+    private void onDeleteExpense() {
+        if (selectedRow < 0) {
+            showError("Select an expense from the table to delete.");
+            return;
+        }
+        Expense toDelete = tableModel.getExpenseAt(selectedRow);
+        if (toDelete == null) {
+            showError("The selected expense is still loading.");
+            return;
+        }
+        int confirm = JOptionPane.showConfirmDialog(
+                this,
+                "Are you sure you want to delete the selected expense?",
+                "Confirm Delete",
+                JOptionPane.YES_NO_OPTION);
+        if (confirm == JOptionPane.YES_OPTION) {
+            int row = selectedRow;
+            setActionsEnabled(false);
+            async.deleteExpense(toDelete.getId()).whenCompleteAsync((ignored, error) -> {
+                if (error != null) {
+                    setActionsEnabled(true);
+                    showError("Failed to delete expense: " + messageOf(error));
+                    return;
+                }
+                tableModel.expenseDeleted(row);
+                updateTotalLabel();
+                refreshAccounts();
+                clearSelection();
+                clearAllFields();
+                showMessage("Expense deleted successfully.");
+            }, AsyncExpenseManager.EDT);
+        }
+    }
+
+    private void onImport() {
+        JFileChooser chooser = newTransferChooser();
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) return;
+        ExpenseImporter importer;
+        try {
+            importer = new ExpenseImporter(chooser.getSelectedFile().toPath());
+        } catch (IOException ex) {
+            showError(ex.getMessage());
+            return;
+        }
+        setTransferEnabled(false);
+        async.submit(() -> {
+            try {
+                return importer.run(manager(), result -> showProgress("Imported " + result));
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }).whenCompleteAsync((result, error) -> {
+            setTransferEnabled(true);
+            progressBar.setString("Loading...");
+            clearSelection();
+            loadExpenses();
+            if (error != null) {
+                showError("Import failed: " + messageOf(error));
+                return;
+            }
+            StringBuilder message = new StringBuilder("Imported " + result + ".");
+            if (importer.getRejected() > 0) {
+                message.append(String.format("%n%,d rows were skipped:", importer.getRejected()));
+                importer.getErrors().stream().limit(10).forEach(e -> message.append("\n").append(e));
+            }
+            showMessage(message.toString());
+        }, AsyncExpenseManager.EDT);
+    }
+
+    private void onExport() {
+        JFileChooser chooser = newTransferChooser();
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) return;
+        ExpenseExporter exporter;
+        try {
+            exporter = new ExpenseExporter(chooser.getSelectedFile().toPath());
+        } catch (IOException ex) {
+            showError(ex.getMessage());
+            return;
+        }
+        setTransferEnabled(false);
+        async.submit(() -> {
+            try {
+                return exporter.run(manager(), result -> showProgress("Exported " + result));
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }).whenCompleteAsync((result, error) -> {
+            setTransferEnabled(true);
+            progressBar.setString("Loading...");
+            if (error != null) {
+                showError("Export failed: " + messageOf(error));
+            } else {
+                showMessage("Exported " + result + ".");
+            }
+        }, AsyncExpenseManager.EDT);
+    }
+
+    private JFileChooser newTransferChooser() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setFileFilter(new FileNameExtensionFilter("CSV or JSON (*.csv, *.json, *.jsonl)", "csv", "json", "jsonl", "ndjson"));
+        return chooser;
+    }
+
+    // Progress arrives on the import/export thread.
+    private void showProgress(String text) {
+        AsyncExpenseManager.EDT.execute(() -> progressBar.setString(text));
+    }
+
+    private void setTransferEnabled(boolean enabled) {
+        importButton.setEnabled(enabled);
+        exportButton.setEnabled(enabled);
+    }
+
+    private void setActionsEnabled(boolean enabled) {
+        boolean editing = selectedRow >= 0;
+        addButton.setEnabled(enabled && !editing);
+        updateButton.setEnabled(enabled && editing);
+        deleteButton.setEnabled(enabled && editing);
+    }
+
+    private void onTableSelectionChanged(ListSelectionEvent e) {
+        if (!e.getValueIsAdjusting()) {
+            selectedRow = expenseTable.getSelectedRow();
+            if (selectedRow >= 0) {
+                selectedRow = expenseTable.convertRowIndexToModel(selectedRow);
+                Expense expense = tableModel.getExpenseAt(selectedRow);
+                if (expense != null) fillFormWithExpense(expense);
+                addButton.setEnabled(false);
+                updateButton.setEnabled(true);
+                deleteButton.setEnabled(true);
+            } else {
+                clearSelection();
+                clearAllFields();
+            }
+        }
+    }
+
+    private void clearSelection() {
+        expenseTable.clearSelection();
+        selectedRow = -1;
+        addButton.setEnabled(true);
+        updateButton.setEnabled(false);
+        deleteButton.setEnabled(false);
+    }
+
+    private void clearAllFields() {
+        amountField.setText("");
+        descriptionField.setText("");
+        dateField.setText(dateFormat.format(new java.sql.Date(System.currentTimeMillis())));
+        restaurantField.setText("");
+        destinationField.setText("");
+        transportField.setText("");
+        utilityTypeField.setText("");
+        expenseTypeCombo.setSelectedIndex(0);
+        accountCombo.setSelectedIndex(0);
+        repeatCombo.setSelectedIndex(0);
+        clearSelection();
+    }
+
+    private Expense createExpenseFromForm() {
+        try {
+            String type = (String) expenseTypeCombo.getSelectedItem();
+            double amount = ExpenseValidator.parseAmount(amountField.getText());
+            java.sql.Date date = ExpenseValidator.parseDate(dateField.getText());
+            Expense exp = ExpenseValidator.create(type, amount, date, descriptionField.getText().trim(), restaurantField.getText(),
+                    destinationField.getText(), transportField.getText(), utilityTypeField.getText());
+            exp.setAccountId(selectedAccountId());
+            return exp;
+        } catch (InvalidExpenseException ex) {
+            showError(ex.getMessage());
+            JTextField field = fieldFor(ex.getField());
+            if (field != null) field.requestFocus();
+            return null;
+        }
+    }
+
+    private JTextField fieldFor(InvalidExpenseException.Field field) {
+        switch (field) {
+            case AMOUNT: return amountField;
+            case DATE: return dateField;
+            case RESTAURANT: return restaurantField;
+            case DESTINATION: return destinationField;
+            case TRANSPORT_MODE: return transportField;
+            case UTILITY_TYPE: return utilityTypeField;
+            default: return null;
+        }
+    }
+
+    private void fillFormWithExpense(Expense exp) {
+        amountField.setText(String.valueOf(exp.getAmount()));
+        descriptionField.setText(exp.getDescription() != null ? exp.getDescription() : "");
+        dateField.setText(dateFormat.format(exp.getDate()));
+        expenseTypeCombo.setSelectedItem(exp.getType());
+        selectAccount(exp.getAccountId());
+
+        if (exp instanceof FoodExpense) {
+            restaurantField.setText(((FoodExpense) exp).getRestaurant());
+        } else {
+            restaurantField.setText("");
+        }
+
+        if (exp instanceof TravelExpense) {
+            destinationField.setText(((TravelExpense) exp).getDestination());
+            transportField.setText(((TravelExpense) exp).getTransportMode());
+        } else {
+            destinationField.setText("");
+            transportField.setText("");
+        }
+
+        if (exp instanceof UtilityExpense) {
+            utilityTypeField.setText(((UtilityExpense) exp).getUtilityType());
+        } else {
+            utilityTypeField.setText("");
+        }
+    }
+
+    private static String messageOf(Throwable error) {
+        return AsyncExpenseManager.unwrap(error).getMessage();
+    }
+
+    private void showError(String message) {
+        JOptionPane.showMessageDialog(this, message, "Error", JOptionPane.ERROR_MESSAGE);
+    }
+
+    private void showMessage(String message) {
+        JOptionPane.showMessageDialog(this, message, "Information", JOptionPane.INFORMATION_MESSAGE);
+    }
+
+    // From process start, so JVM startup and class loading count too.
+    private static void recordFirstPaint() {
+        ProcessHandle.current().info().startInstant().ifPresent(start ->
+                FIRST_PAINT.record(Duration.between(start, Instant.now()).toNanos()));
+    }
+
+    // --server runs the headless HTTP service (ExpenseServer) instead of the window.
+    public static void main(String[] args) throws IOException {
+        if (args.length > 0 && args[0].equals("--server")) {
+            ExpenseServer.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        // Registering the MBean loads most of java.management; the window does not need to wait for it.
+        Thread metrics = new Thread(Metrics::startDefault, "expense-metrics-start");
+        metrics.setDaemon(true);
+        metrics.start();
+        try {
+            for (UIManager.LookAndFeelInfo info : UIManager.getInstalledLookAndFeels()) {
+                if ("Nimbus".equals(info.getName())) {
+                    UIManager.setLookAndFeel(info.getClassName());
+                    break;
+                }
+            }
+        } catch (Exception ignored) {}
+        EdtLatencyProbe.startDefault();
+        SwingUtilities.invokeLater(() -> {
+            Expensetracker tracker = new Expensetracker();
+            tracker.addWindowListener(new WindowAdapter() {
+                @Override
+                public void windowOpened(WindowEvent e) {
+                    recordFirstPaint();
+                }
+            });
+            tracker.setVisible(true);
+        });
+    }
+}
@@ -0,0 +1,29 @@
+package expensetracker;
+
+class FoodExpense extends Expense {
+    private String restaurant;
+
+    public FoodExpense(int id, double amount, java.sql.Date date, String description, String restaurant) {
+        super(id, amount, date, description);
+        this.restaurant = restaurant;
+    }
+
+    public FoodExpense(double amount, java.sql.Date date, String description, String restaurant) {
+        super(amount, date, description);
+        this.restaurant = restaurant;
+    }
+
+    @Override
+    public String getType() { return "Food"; }
+
+    public String getRestaurant() { return restaurant; }
+    public void setRestaurant(String restaurant) { this.restaurant = restaurant; }
+
+    @Override
+    public String getDetails() { return restaurant; }
+
+    @Override
+    public void setDetailsFromString(String details) {
+        setRestaurant(details);
+    }
+}
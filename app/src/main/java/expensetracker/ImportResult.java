@@ -0,0 +1,23 @@
+package expensetracker;
+
+class ImportResult {
+    private final long rows;
+    private final long elapsedNanos;
+
+    public ImportResult(long rows, long elapsedNanos) {
+        this.rows = rows;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public long getRows() { return rows; }
+    public long getElapsedMillis() { return elapsedNanos / 1_000_000; }
+
+    public double getRowsPerSecond() {
+        return elapsedNanos == 0 ? 0 : rows * 1_000_000_000.0 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%,d rows in %,d ms (%,.0f rows/s)", rows, getElapsedMillis(), getRowsPerSecond());
+    }
+}
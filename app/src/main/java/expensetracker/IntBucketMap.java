@@ -0,0 +1,97 @@
+package expensetracker;
+
+import java.util.*;
+
+// Open-addressing map from int code to count/sum/min/max, used as a per-leaf accumulator.
+final class IntBucketMap {
+    interface BucketConsumer {
+        void accept(int key, AggregateBucket bucket);
+    }
+
+    private static final int EMPTY = Integer.MIN_VALUE;
+
+    private int[] keys;
+    private long[] count;
+    private long[] sum;
+    private long[] min;
+    private long[] max;
+    private int size;
+
+    IntBucketMap(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(16, expected * 2) - 1) << 1;
+        allocate(capacity);
+    }
+
+    void add(int key, long cents) {
+        int i = slot(key);
+        count[i]++;
+        sum[i] += cents;
+        if (cents < min[i]) min[i] = cents;
+        if (cents > max[i]) max[i] = cents;
+    }
+
+    IntBucketMap combine(IntBucketMap other) {
+        for (int j = 0; j < other.keys.length; j++) {
+            if (other.keys[j] == EMPTY) continue;
+            int i = slot(other.keys[j]);
+            count[i] += other.count[j];
+            sum[i] += other.sum[j];
+            min[i] = Math.min(min[i], other.min[j]);
+            max[i] = Math.max(max[i], other.max[j]);
+        }
+        return this;
+    }
+
+    void forEach(BucketConsumer consumer) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] == EMPTY) continue;
+            AggregateBucket b = new AggregateBucket();
+            b.merge(count[i], sum[i], min[i], max[i]);
+            consumer.accept(keys[i], b);
+        }
+    }
+
+    private int slot(int key) {
+        int mask = keys.length - 1;
+        int i = (key * 0x9E3779B9) >>> 1 & mask;
+        while (keys[i] != key) {
+            if (keys[i] == EMPTY) {
+                if (size * 2 >= keys.length) {
+                    rehash();
+                    return slot(key);
+                }
+                keys[i] = key;
+                size++;
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    private void rehash() {
+        int[] oldKeys = keys;
+        long[] oldCount = count, oldSum = sum, oldMin = min, oldMax = max;
+        allocate(oldKeys.length * 2);
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldKeys[j] == EMPTY) continue;
+            int i = slot(oldKeys[j]);
+            count[i] = oldCount[j];
+            sum[i] = oldSum[j];
+            min[i] = oldMin[j];
+            max[i] = oldMax[j];
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        Arrays.fill(keys, EMPTY);
+        count = new long[capacity];
+        sum = new long[capacity];
+        min = new long[capacity];
+        max = new long[capacity];
+        Arrays.fill(min, Long.MAX_VALUE);
+        Arrays.fill(max, Long.MIN_VALUE);
+        size = 0;
+    }
+}
@@ -0,0 +1,16 @@
+package expensetracker;
+
+class InvalidExpenseException extends Exception {
+    private static final long serialVersionUID = 1L;
+
+    enum Field { TYPE, AMOUNT, DATE, RESTAURANT, DESTINATION, TRANSPORT_MODE, UTILITY_TYPE, ACCOUNT }
+
+    private final Field field;
+
+    public InvalidExpenseException(Field field, String message) {
+        super(message);
+        this.field = field;
+    }
+
+    public Field getField() { return field; }
+}
@@ -0,0 +1,111 @@
+package expensetracker;
+
+import java.nio.charset.StandardCharsets;
+
+// Walks the flat objects in a slice of a JSON array or JSON Lines file. Separating commas and
+// brackets between objects are skipped; nested values are not part of the format.
+final class JsonRecords {
+    private final byte[] buf;
+    private final int to;
+    private int pos;
+
+    JsonRecords(byte[] buf, int from, int to) {
+        this.buf = buf;
+        this.pos = from;
+        this.to = to;
+    }
+
+    boolean next(RawRecord record) {
+        while (pos < to && buf[pos] != '{') pos++;
+        if (pos >= to) return false;
+        pos++;
+        record.clear();
+        while (true) {
+            skipSpace();
+            if (pos >= to) return true;
+            if (buf[pos] == '}') {
+                pos++;
+                return true;
+            }
+            if (buf[pos] == ',') {
+                pos++;
+                continue;
+            }
+            if (buf[pos] != '"') {
+                skipToObjectEnd();
+                return true;
+            }
+            int keyStart = ++pos;
+            boolean keyEscaped = skipString();
+            TransferField field = keyEscaped ? null : TransferField.match(buf, keyStart, pos - 1);
+            skipSpace();
+            if (pos < to && buf[pos] == ':') pos++;
+            skipSpace();
+            if (pos < to && buf[pos] == '"') {
+                int start = ++pos;
+                boolean hasEscapes = skipString();
+                if (field != null) record.set(field, start, pos - 1, hasEscapes, true);
+            } else {
+                int start = pos;
+                while (pos < to && buf[pos] != ',' && buf[pos] != '}' && buf[pos] > ' ') pos++;
+                boolean isNull = pos - start == 4 && buf[start] == 'n' && buf[start + 1] == 'u' && buf[start + 2] == 'l' && buf[start + 3] == 'l';
+                if (field != null && !isNull) record.set(field, start, pos, false, true);
+            }
+        }
+    }
+
+    // Leaves pos after the closing quote and reports whether the string contained escapes.
+    private boolean skipString() {
+        boolean escapes = false;
+        while (pos < to) {
+            byte b = buf[pos++];
+            if (b == '\\') {
+                escapes = true;
+                pos++;
+            } else if (b == '"') {
+                break;
+            }
+        }
+        return escapes;
+    }
+
+    private void skipToObjectEnd() {
+        while (pos < to) {
+            byte b = buf[pos++];
+            if (b == '"') skipString();
+            else if (b == '}') return;
+        }
+    }
+
+    private void skipSpace() {
+        while (pos < to && buf[pos] <= ' ') pos++;
+    }
+
+    static String unescape(byte[] buf, int start, int end) {
+        String raw = new String(buf, start, end - start, StandardCharsets.UTF_8);
+        StringBuilder sb = new StringBuilder(raw.length());
+        for (int i = 0; i < raw.length(); i++) {
+            char c = raw.charAt(i);
+            if (c != '\\' || i + 1 >= raw.length()) {
+                sb.append(c);
+                continue;
+            }
+            char e = raw.charAt(++i);
+            switch (e) {
+                case 'n': sb.append('\n'); break;
+                case 'r': sb.append('\r'); break;
+                case 't': sb.append('\t'); break;
+                case 'b': sb.append('\b'); break;
+                case 'f': sb.append('\f'); break;
+                case 'u':
+                    if (i + 4 < raw.length()) {
+                        sb.append((char) Integer.parseInt(raw.substring(i + 1, i + 5), 16));
+                        i += 4;
+                    }
+                    break;
+                default: sb.append(e);
+            }
+        }
+        return sb.toString();
+    }
+}
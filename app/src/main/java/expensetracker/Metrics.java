@@ -0,0 +1,93 @@
+package expensetracker;
+
+import javax.management.*;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+// Process-wide counters, gauges and latency histograms. Recording never takes a lock, so the DAO,
+// the cache and the EDT can record on every call. Names are dotted, e.g. dao.getExpensesPage,
+// db.acquire, ui.refreshTable, edt.latency, http.GET /expenses.
+//
+// startDefault() publishes everything as one JMX MBean (expensetracker:type=Metrics) and, with
+// expense.metrics.dumpSeconds, prints a text dump to stderr periodically. DAO calls slower than
+// expense.metrics.slowQueryMs are logged to stderr with their SQL.
+final class Metrics {
+    static final long SLOW_QUERY_NANOS = TimeUnit.MILLISECONDS.toNanos(Long.getLong("expense.metrics.slowQueryMs", 0L));
+
+    private static final Map<String, Counter> COUNTERS = new ConcurrentHashMap<>();
+    private static final Map<String, LatencyHistogram> HISTOGRAMS = new ConcurrentHashMap<>();
+    private static final Map<String, LongSupplier> GAUGES = new ConcurrentHashMap<>();
+    private static boolean started;
+
+    private Metrics() {}
+
+    static Counter counter(String name) {
+        Counter c = COUNTERS.get(name);
+        return c != null ? c : COUNTERS.computeIfAbsent(name, n -> new Counter());
+    }
+
+    static LatencyHistogram histogram(String name) {
+        LatencyHistogram h = HISTOGRAMS.get(name);
+        return h != null ? h : HISTOGRAMS.computeIfAbsent(name, n -> new LatencyHistogram());
+    }
+
+    // Read when the metrics are dumped or queried; replaces an earlier gauge of the same name.
+    static void gauge(String name, LongSupplier value) {
+        GAUGES.put(name, value);
+    }
+
+    static DaoCall dao(String op) {
+        return new DaoCall(op, null);
+    }
+
+    static DaoCall dao(String op, CharSequence sql) {
+        return new DaoCall(op, sql);
+    }
+
+    // One line per metric, sorted by name.
+    static String dump() {
+        StringBuilder text = new StringBuilder();
+        new TreeMap<>(COUNTERS).forEach((name, c) -> text.append(name).append(' ').append(c.get()).append('\n'));
+        new TreeMap<>(GAUGES).forEach((name, g) -> text.append(name).append(' ').append(g.getAsLong()).append('\n'));
+        new TreeMap<>(HISTOGRAMS).forEach((name, h) -> text.append(name).append(' ').append(h).append('\n'));
+        return text.toString();
+    }
+
+    // Safe to call more than once; later calls do nothing.
+    static synchronized void startDefault() {
+        if (started) return;
+        started = true;
+        if (Boolean.parseBoolean(System.getProperty("expense.metrics.jmx", "true"))) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(new MetricsMBean(), new ObjectName("expensetracker:type=Metrics"));
+            } catch (JMException ex) {
+                System.err.println("Metrics MBean unavailable: " + ex.getMessage());
+            }
+        }
+        long dumpSeconds = Long.getLong("expense.metrics.dumpSeconds", 0L);
+        if (dumpSeconds > 0) {
+            Thread dumper = new Thread(() -> {
+                while (true) {
+                    try {
+                        Thread.sleep(TimeUnit.SECONDS.toMillis(dumpSeconds));
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    System.err.print("--- metrics ---\n" + dump());
+                }
+            }, "expense-metrics-dump");
+            dumper.setDaemon(true);
+            dumper.start();
+        }
+    }
+
+    static Set<String> counterNames() { return new TreeSet<>(COUNTERS.keySet()); }
+    static Set<String> gaugeNames() { return new TreeSet<>(GAUGES.keySet()); }
+    static Set<String> histogramNames() { return new TreeSet<>(HISTOGRAMS.keySet()); }
+    static Counter findCounter(String name) { return COUNTERS.get(name); }
+    static LongSupplier findGauge(String name) { return GAUGES.get(name); }
+    static LatencyHistogram findHistogram(String name) { return HISTOGRAMS.get(name); }
+}
@@ -0,0 +1,80 @@
+package expensetracker;
+
+import javax.management.*;
+import java.util.*;
+import java.util.function.LongSupplier;
+
+// Every counter and gauge is a Long attribute under its own name; each histogram contributes
+// <name>.count, .meanMicros, .p50Micros, .p99Micros and .maxMicros. Metrics created after
+// registration show up the next time a JMX client reads the MBean info.
+final class MetricsMBean implements DynamicMBean {
+    private static final String[] HISTOGRAM_FIELDS = {"count", "meanMicros", "p50Micros", "p99Micros", "maxMicros"};
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        Counter c = Metrics.findCounter(attribute);
+        if (c != null) return c.get();
+        LongSupplier g = Metrics.findGauge(attribute);
+        if (g != null) return g.getAsLong();
+        int dot = attribute.lastIndexOf('.');
+        LatencyHistogram h = dot < 0 ? null : Metrics.findHistogram(attribute.substring(0, dot));
+        if (h != null) {
+            switch (attribute.substring(dot + 1)) {
+                case "count": return h.getCount();
+                case "meanMicros": return h.getMeanMicros();
+                case "p50Micros": return h.percentileMicros(50);
+                case "p99Micros": return h.percentileMicros(99);
+                case "maxMicros": return h.getMaxMicros();
+                default: break;
+            }
+        }
+        throw new AttributeNotFoundException(attribute);
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException("Metrics are read-only: " + attribute.getName());
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] attributes) {
+        AttributeList list = new AttributeList();
+        for (String name : attributes) {
+            try {
+                list.add(new Attribute(name, getAttribute(name)));
+            } catch (AttributeNotFoundException ignored) {}
+        }
+        return list;
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+        if (actionName.equals("dump")) return Metrics.dump();
+        throw new ReflectionException(new NoSuchMethodException(actionName));
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        List<MBeanAttributeInfo> attributes = new ArrayList<>();
+        for (String name : Metrics.counterNames()) attributes.add(attribute(name, "long", "counter"));
+        for (String name : Metrics.gaugeNames()) attributes.add(attribute(name, "long", "gauge"));
+        for (String name : Metrics.histogramNames()) {
+            for (String field : HISTOGRAM_FIELDS) {
+                attributes.add(attribute(name + "." + field, field.equals("meanMicros") ? "double" : "long", "latency"));
+            }
+        }
+        MBeanOperationInfo dump = new MBeanOperationInfo("dump", "All metrics as text", new MBeanParameterInfo[0],
+                "java.lang.String", MBeanOperationInfo.INFO);
+        return new MBeanInfo(getClass().getName(), "Expense tracker metrics", attributes.toArray(new MBeanAttributeInfo[0]),
+                null, new MBeanOperationInfo[]{dump}, null);
+    }
+
+    private static MBeanAttributeInfo attribute(String name, String type, String description) {
+        return new MBeanAttributeInfo(name, type, description, true, false, false);
+    }
+}
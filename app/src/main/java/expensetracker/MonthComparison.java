@@ -0,0 +1,29 @@
+package expensetracker;
+
+import java.time.YearMonth;
+
+class MonthComparison {
+    private final YearMonth month;
+    private final long currentCents;
+    private final long previousCents;
+
+    public MonthComparison(YearMonth month, long currentCents, long previousCents) {
+        this.month = month;
+        this.currentCents = currentCents;
+        this.previousCents = previousCents;
+    }
+
+    public YearMonth getMonth() { return month; }
+    public long getCurrentCents() { return currentCents; }
+    public long getPreviousCents() { return previousCents; }
+
+    // Relative change against the same month a year earlier, or NaN when that month had no spend.
+    public double getChange() {
+        return previousCents == 0 ? Double.NaN : (currentCents - previousCents) / (double) previousCents;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s %.2f vs %.2f (%+.1f%%)", month, currentCents / 100.0, previousCents / 100.0, getChange() * 100);
+    }
+}
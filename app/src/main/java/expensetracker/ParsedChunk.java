@@ -0,0 +1,28 @@
+package expensetracker;
+
+import java.util.*;
+
+// Validated output of one chunk; row numbers are 1-based within the chunk.
+final class ParsedChunk {
+    static final int MAX_ERRORS = 100;
+    static final ParsedChunk END = new ParsedChunk();
+
+    final List<Expense> expenses = new ArrayList<>();
+    final List<Long> errorRows = new ArrayList<>();
+    final List<String> errorMessages = new ArrayList<>();
+    long rows;
+    long rejected;
+
+    void accept(RawRecord record) {
+        rows++;
+        try {
+            expenses.add(record.toExpense());
+        } catch (InvalidExpenseException ex) {
+            rejected++;
+            if (errorRows.size() < MAX_ERRORS) {
+                errorRows.add(rows);
+                errorMessages.add(ex.getMessage());
+            }
+        }
+    }
+}
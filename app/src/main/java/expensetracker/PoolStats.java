@@ -0,0 +1,42 @@
+package expensetracker;
+
+class PoolStats {
+    private final int active;
+    private final int idle;
+    private final int maxSize;
+    private final long created;
+    private final long acquired;
+    private final long totalWaitMillis;
+    private final long timeouts;
+    private final long statementHits;
+    private final long statementMisses;
+
+    public PoolStats(int active, int idle, int maxSize, long created, long acquired, long totalWaitMillis, long timeouts,
+                     long statementHits, long statementMisses) {
+        this.active = active;
+        this.idle = idle;
+        this.maxSize = maxSize;
+        this.created = created;
+        this.acquired = acquired;
+        this.totalWaitMillis = totalWaitMillis;
+        this.timeouts = timeouts;
+        this.statementHits = statementHits;
+        this.statementMisses = statementMisses;
+    }
+
+    public int getActive() { return active; }
+    public int getIdle() { return idle; }
+    public int getMaxSize() { return maxSize; }
+    public long getCreated() { return created; }
+    public long getAcquired() { return acquired; }
+    public long getTotalWaitMillis() { return totalWaitMillis; }
+    public long getTimeouts() { return timeouts; }
+    public long getStatementHits() { return statementHits; }
+    public long getStatementMisses() { return statementMisses; }
+
+    @Override
+    public String toString() {
+        return String.format("active=%d idle=%d max=%d created=%d acquired=%d wait=%dms timeouts=%d statements=%d/%d hit",
+                active, idle, maxSize, created, acquired, totalWaitMillis, timeouts, statementHits, statementHits + statementMisses);
+    }
+}
@@ -0,0 +1,146 @@
+package expensetracker;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+// One record as byte ranges into the chunk. Values are only turned into Strings when the expense
+// keeps them; amount and date are validated through a reusable CharSequence view of the bytes.
+final class RawRecord {
+    private static final int FIELDS = TransferField.values().length;
+
+    private final byte[] buf;
+    private final int[] starts = new int[FIELDS];
+    private final int[] ends = new int[FIELDS];
+    // Set when the raw bytes contain escapes ("" in CSV, backslashes in JSON) that must be decoded.
+    private final boolean[] escaped = new boolean[FIELDS];
+    private final boolean[] present = new boolean[FIELDS];
+    private final boolean[] json = new boolean[FIELDS];
+    private final AsciiView view = new AsciiView();
+
+    RawRecord(byte[] buf) {
+        this.buf = buf;
+    }
+
+    void clear() {
+        Arrays.fill(present, false);
+    }
+
+    void set(TransferField field, int start, int end, boolean hasEscapes, boolean isJson) {
+        int i = field.ordinal();
+        starts[i] = start;
+        ends[i] = end;
+        escaped[i] = hasEscapes;
+        json[i] = isJson;
+        present[i] = true;
+    }
+
+    boolean isBlank() {
+        for (int i = 0; i < FIELDS; i++) {
+            if (present[i] && ends[i] > starts[i]) return false;
+        }
+        return true;
+    }
+
+    Expense toExpense() throws InvalidExpenseException {
+        double amount = ExpenseValidator.parseAmount(chars(TransferField.AMOUNT));
+        java.sql.Date date = ExpenseValidator.parseDate(chars(TransferField.DATE));
+        String type = typeName();
+        String restaurant = string(TransferField.RESTAURANT);
+        String destination = string(TransferField.DESTINATION);
+        String transportMode = string(TransferField.TRANSPORT_MODE);
+        String utilityType = string(TransferField.UTILITY_TYPE);
+        String details = string(TransferField.DETAILS);
+        if (details != null) {
+            if ("Food".equals(type) && restaurant == null) restaurant = details;
+            if ("Utility".equals(type) && utilityType == null) utilityType = details;
+            if ("Travel".equals(type) && destination == null && transportMode == null) {
+                TravelExpense split = new TravelExpense(0, 0, null, null, "", "");
+                split.setDetailsFromString(details);
+                destination = split.getDestination();
+                transportMode = split.getTransportMode();
+            }
+        }
+        String description = string(TransferField.DESCRIPTION);
+        Expense exp = ExpenseValidator.create(type, amount, date, description == null ? "" : description.trim(),
+                restaurant, destination, transportMode, utilityType);
+        exp.setAccountId(accountId());
+        return exp;
+    }
+
+    // Blank means no account; the DAO checks that the account belongs to the importing user.
+    private Integer accountId() throws InvalidExpenseException {
+        CharSequence value = chars(TransferField.ACCOUNT_ID);
+        int start = 0;
+        int end = value.length();
+        while (start < end && value.charAt(start) <= ' ') start++;
+        while (end > start && value.charAt(end - 1) <= ' ') end--;
+        if (start == end) return null;
+        long id = 0;
+        for (int i = start; i < end; i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9' || (id = id * 10 + (c - '0')) > Integer.MAX_VALUE) {
+                throw new InvalidExpenseException(InvalidExpenseException.Field.ACCOUNT, "Account must be a positive whole number.");
+            }
+        }
+        if (id == 0) throw new InvalidExpenseException(InvalidExpenseException.Field.ACCOUNT, "Account must be a positive whole number.");
+        return (int) id;
+    }
+
+    // Matched against the registered names without allocating, ignoring case.
+    private String typeName() {
+        int i = TransferField.TYPE.ordinal();
+        if (!present[i]) return null;
+        int start = starts[i];
+        int end = ends[i];
+        while (start < end && buf[start] <= ' ') start++;
+        while (end > start && buf[end - 1] <= ' ') end--;
+        for (String name : ExpenseTypes.names()) {
+            if (name.length() != end - start) continue;
+            int k = 0;
+            while (k < name.length() && Character.toLowerCase((char) buf[start + k]) == Character.toLowerCase(name.charAt(k))) k++;
+            if (k == name.length()) return name;
+        }
+        return new String(buf, start, end - start, StandardCharsets.UTF_8);
+    }
+
+    private CharSequence chars(TransferField field) {
+        int i = field.ordinal();
+        if (!present[i]) return "";
+        if (escaped[i]) return string(field);
+        return view.of(buf, starts[i], ends[i]);
+    }
+
+    private String string(TransferField field) {
+        int i = field.ordinal();
+        if (!present[i]) return null;
+        if (!escaped[i]) return new String(buf, starts[i], ends[i] - starts[i], StandardCharsets.UTF_8);
+        return json[i] ? JsonRecords.unescape(buf, starts[i], ends[i]) : CsvColumns.unescape(buf, starts[i], ends[i]);
+    }
+
+    // Only used for amounts and dates, where any non-ASCII byte already means the value is invalid.
+    private static final class AsciiView implements CharSequence {
+        private byte[] bytes;
+        private int start;
+        private int length;
+
+        AsciiView of(byte[] bytes, int start, int end) {
+            this.bytes = bytes;
+            this.start = start;
+            this.length = end - start;
+            return this;
+        }
+
+        @Override public int length() { return length; }
+        @Override public char charAt(int index) { return (char) (bytes[start + index] & 0xFF); }
+
+        @Override
+        public CharSequence subSequence(int from, int to) {
+            return new String(bytes, start + from, to - from, StandardCharsets.ISO_8859_1);
+        }
+
+        @Override
+        public String toString() {
+            return new String(bytes, start, length, StandardCharsets.ISO_8859_1);
+        }
+    }
+}
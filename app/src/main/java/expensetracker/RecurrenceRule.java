@@ -0,0 +1,149 @@
+package expensetracker;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+
+// When a recurring expense falls due, as stored in recurring_expenses.schedule:
+//   daily, weekly, monthly  every day; every week on the start's weekday; every month on the
+//                           start's day of month, or the month's last day when it is shorter.
+//                           A "/N" suffix repeats every N periods instead, e.g. weekly/2.
+//   cron <day> <month> <weekday>
+//                           the date fields of a crontab line, with *, lists, ranges, /steps and
+//                           the names JAN..DEC and SUN..SAT (0 and 7 are Sunday). As in cron, a
+//                           day matching either day field is due when both are restricted.
+final class RecurrenceRule {
+    private static final String[] MONTH_NAMES = {"jan", "feb", "mar", "apr", "may", "jun", "jul", "aug", "sep", "oct", "nov", "dec"};
+    private static final String[] WEEKDAY_NAMES = {"sun", "mon", "tue", "wed", "thu", "fri", "sat"};
+    // Long enough for any satisfiable cron rule, e.g. "cron 29 2 *" across a skipped leap year.
+    private static final int MAX_SCAN_YEARS = 10;
+
+    private final String spec;
+    // DAYS, WEEKS or MONTHS, or null for a cron rule.
+    private final ChronoUnit unit;
+    private final int interval;
+    private final BitSet days;
+    private final BitSet months;
+    private final BitSet weekdays;
+    private final boolean anyDay;
+    private final boolean anyWeekday;
+
+    private RecurrenceRule(String spec, ChronoUnit unit, int interval, String[] cron) {
+        this.spec = spec;
+        this.unit = unit;
+        this.interval = interval;
+        if (cron == null) {
+            days = months = weekdays = null;
+            anyDay = anyWeekday = true;
+            return;
+        }
+        days = field(cron[0], 1, 31, null, "day of month");
+        months = field(cron[1], 1, 12, MONTH_NAMES, "month");
+        weekdays = field(cron[2], 0, 7, WEEKDAY_NAMES, "day of week");
+        if (weekdays.get(7)) weekdays.set(0);
+        anyDay = cron[0].startsWith("*");
+        anyWeekday = cron[2].startsWith("*");
+    }
+
+    static RecurrenceRule parse(String spec) {
+        String text = spec == null ? "" : spec.trim().toLowerCase(Locale.ROOT).replaceAll("\\s+", " ");
+        if (text.startsWith("cron ")) {
+            String[] fields = text.substring(5).split(" ");
+            if (fields.length != 3) throw new IllegalArgumentException("A cron schedule needs a day, a month and a weekday field.");
+            return new RecurrenceRule(text, null, 1, fields);
+        }
+        int slash = text.indexOf('/');
+        int interval = slash < 0 ? 1 : number(text.substring(slash + 1), 1, 1000, null, "interval");
+        switch (slash < 0 ? text : text.substring(0, slash)) {
+            case "daily": return new RecurrenceRule(text, ChronoUnit.DAYS, interval, null);
+            case "weekly": return new RecurrenceRule(text, ChronoUnit.WEEKS, interval, null);
+            case "monthly": return new RecurrenceRule(text, ChronoUnit.MONTHS, interval, null);
+            default:
+                throw new IllegalArgumentException("Unknown schedule \"" + (spec == null ? "" : spec.trim())
+                        + "\"; use daily, weekly, monthly or cron <day> <month> <weekday>.");
+        }
+    }
+
+    // The first due day on or after from, for a series that started on start; null if there is none.
+    LocalDate next(LocalDate start, LocalDate from) {
+        if (from.isBefore(start)) from = start;
+        if (unit == ChronoUnit.MONTHS) {
+            long elapsed = ChronoUnit.MONTHS.between(YearMonth.from(start), YearMonth.from(from));
+            long periods = ceilDiv(elapsed, interval);
+            LocalDate day = start.plusMonths(periods * interval);
+            return day.isBefore(from) ? start.plusMonths((periods + 1) * interval) : day;
+        }
+        if (unit != null) {
+            long step = unit == ChronoUnit.WEEKS ? 7L * interval : interval;
+            return start.plusDays(ceilDiv(ChronoUnit.DAYS.between(start, from), step) * step);
+        }
+        LocalDate limit = from.plusYears(MAX_SCAN_YEARS);
+        for (LocalDate day = from; day.isBefore(limit); ) {
+            if (!months.get(day.getMonthValue())) {
+                day = day.withDayOfMonth(1).plusMonths(1);
+            } else if (matchesDay(day)) {
+                return day;
+            } else {
+                day = day.plusDays(1);
+            }
+        }
+        return null;
+    }
+
+    private boolean matchesDay(LocalDate day) {
+        boolean dayMatches = days.get(day.getDayOfMonth());
+        boolean weekdayMatches = weekdays.get(day.getDayOfWeek().getValue() % 7);
+        return anyDay || anyWeekday ? dayMatches && weekdayMatches : dayMatches || weekdayMatches;
+    }
+
+    private static long ceilDiv(long a, long b) {
+        return -Math.floorDiv(-a, b);
+    }
+
+    private static BitSet field(String text, int min, int max, String[] names, String what) {
+        BitSet values = new BitSet(max + 1);
+        for (String part : text.split(",")) {
+            int step = 1;
+            int slash = part.indexOf('/');
+            if (slash >= 0) {
+                step = number(part.substring(slash + 1), 1, max, null, what + " step");
+                part = part.substring(0, slash);
+            }
+            int from;
+            int to;
+            if (part.equals("*")) {
+                from = min;
+                to = max;
+            } else {
+                int dash = part.indexOf('-');
+                from = number(dash < 0 ? part : part.substring(0, dash), min, max, names, what);
+                to = dash >= 0 ? number(part.substring(dash + 1), min, max, names, what) : slash >= 0 ? max : from;
+                if (to < from) throw new IllegalArgumentException("Empty " + what + " range \"" + part + "\".");
+            }
+            for (int v = from; v <= to; v += step) values.set(v);
+        }
+        return values;
+    }
+
+    // names[i] stands for min + i.
+    private static int number(String text, int min, int max, String[] names, String what) {
+        if (names != null) {
+            for (int i = 0; i < names.length; i++) {
+                if (names[i].equals(text)) return min + i;
+            }
+        }
+        try {
+            int value = Integer.parseInt(text);
+            if (value >= min && value <= max) return value;
+        } catch (NumberFormatException ignored) {
+            // reported below
+        }
+        throw new IllegalArgumentException("Invalid " + what + " \"" + text + "\"; expected " + min + " to " + max + ".");
+    }
+
+    @Override
+    public String toString() {
+        return spec;
+    }
+}
@@ -0,0 +1,59 @@
+package expensetracker;
+
+import java.time.LocalDate;
+
+// One row of recurring_expenses: what to write (the template's type, amount, description, details
+// and account), when (schedule, from startDate through endDate if set), and nextDate, the first
+// occurrence not yet written, or null once the rule has run out.
+class RecurringExpense {
+    private int id = -1;
+    private final Expense template;
+    private final RecurrenceRule schedule;
+    private final LocalDate startDate;
+    private final LocalDate endDate;
+    private LocalDate nextDate;
+
+    RecurringExpense(Expense template, RecurrenceRule schedule, LocalDate startDate, LocalDate endDate, LocalDate nextDate) {
+        this.template = template;
+        this.schedule = schedule;
+        this.startDate = startDate;
+        this.endDate = endDate;
+        this.nextDate = nextDate;
+    }
+
+    // A new rule, due first on the schedule's first day on or after startDate.
+    static RecurringExpense of(Expense template, String schedule, LocalDate startDate, LocalDate endDate) {
+        RecurrenceRule rule = RecurrenceRule.parse(schedule);
+        LocalDate first = rule.next(startDate, startDate);
+        if (first == null) throw new IllegalArgumentException("The schedule \"" + rule + "\" never falls on a date.");
+        if (endDate != null && endDate.isBefore(startDate)) throw new IllegalArgumentException("The end date is before the start date.");
+        return new RecurringExpense(template, rule, startDate, endDate, endDate != null && first.isAfter(endDate) ? null : first);
+    }
+
+    public int getId() { return id; }
+    void setId(int id) { this.id = id; }
+    public Expense getTemplate() { return template; }
+    public RecurrenceRule getSchedule() { return schedule; }
+    public LocalDate getStartDate() { return startDate; }
+    public LocalDate getEndDate() { return endDate; }
+    public LocalDate getNextDate() { return nextDate; }
+
+    // The due day after day, or null when the rule has ended.
+    LocalDate following(LocalDate day) {
+        LocalDate next = schedule.next(startDate, day.plusDays(1));
+        return next == null || (endDate != null && next.isAfter(endDate)) ? null : next;
+    }
+
+    Expense occurrence(LocalDate day) {
+        Expense exp = ExpenseTypes.get(template.getType()).create(-1, template.getAmount(), java.sql.Date.valueOf(day),
+                template.getDescription(), template.getDetails());
+        exp.setAccountId(template.getAccountId());
+        return exp;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s $%.2f %s from %s%s", template.getType(), template.getAmount(), schedule, startDate,
+                endDate == null ? "" : " to " + endDate);
+    }
+}
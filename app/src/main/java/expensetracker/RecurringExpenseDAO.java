@@ -0,0 +1,216 @@
+package expensetracker;
+
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.Consumer;
+
+// Reads and writes recurring_expenses for one scope, and writes their due occurrences into
+// expenses through ExpenseDAO. Each rule is advanced in its own transaction: the rule row is
+// locked, up to one batch of occurrences is inserted, and next_date moves past them, so an
+// interrupted run or a second process never writes a day twice. Days that already have an
+// occurrence of the rule are skipped. A backlog of years over thousands of rules is worked off one
+// page of rule ids and one batch of expenses at a time.
+class RecurringExpenseDAO {
+    private static final int RULE_PAGE_SIZE = 200;
+    private static final String COLUMNS = "id, account_id, amount, description, type, details, schedule, start_date, end_date, next_date";
+    private static final String INSERT_SQL = "INSERT INTO recurring_expenses (user_id, account_id, amount, description, "
+            + "type, details, schedule, start_date, end_date, next_date) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final ExpenseDAO expenseDAO;
+    private final ExpenseScope scope;
+
+    RecurringExpenseDAO(ExpenseDAO expenseDAO) {
+        this.expenseDAO = expenseDAO;
+        this.scope = expenseDAO.getScope();
+    }
+
+    public List<RecurringExpense> getRules() throws SQLException {
+        String sql = "SELECT " + COLUMNS + " FROM recurring_expenses WHERE " + scope.where() + " ORDER BY id";
+        try (DaoCall call = Metrics.dao("getRecurringExpenses", sql);
+             Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            scope.bind(pstmt, 1);
+            List<RecurringExpense> rules = new ArrayList<>();
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) rules.add(map(rs));
+            }
+            call.rows(rules.size());
+            return rules;
+        }
+    }
+
+    public void addRule(RecurringExpense rule) throws SQLException {
+        Expense template = rule.getTemplate();
+        expenseDAO.assignScope(template);
+        Integer account = template.getAccountId();
+        if (account != null && new AccountDAO(template.getUserId()).findAccount(account) == null) {
+            throw new SQLException("Account " + account + " does not exist for user " + template.getUserId() + ".");
+        }
+        try (DaoCall call = Metrics.dao("addRecurringExpense", INSERT_SQL);
+             Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+            pstmt.setInt(1, template.getUserId());
+            pstmt.setObject(2, account, Types.INTEGER);
+            pstmt.setDouble(3, template.getAmount());
+            pstmt.setString(4, template.getDescription());
+            pstmt.setString(5, template.getType());
+            pstmt.setString(6, template.getDetails());
+            pstmt.setString(7, rule.getSchedule().toString());
+            pstmt.setDate(8, java.sql.Date.valueOf(rule.getStartDate()));
+            pstmt.setDate(9, rule.getEndDate() == null ? null : java.sql.Date.valueOf(rule.getEndDate()));
+            pstmt.setDate(10, rule.getNextDate() == null ? null : java.sql.Date.valueOf(rule.getNextDate()));
+            call.rows(pstmt.executeUpdate());
+            try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                if (keys.next()) rule.setId(keys.getInt(1));
+            }
+        }
+    }
+
+    // Occurrences already written are kept.
+    public boolean deleteRule(int id) throws SQLException {
+        String sql = "DELETE FROM recurring_expenses WHERE id=? AND " + scope.where();
+        try (DaoCall call = Metrics.dao("deleteRecurringExpense", sql);
+             Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, id);
+            scope.bind(pstmt, 2);
+            int deleted = pstmt.executeUpdate();
+            call.rows(deleted);
+            return deleted > 0;
+        }
+    }
+
+    // Writes occurrences due up to and including through, stopping once limit due days have been
+    // handled; written gets each committed batch. Returns the number of due days handled, which is
+    // less than limit only when nothing else is due.
+    public int materializeDue(LocalDate through, int limit, Consumer<List<Expense>> written) throws SQLException {
+        int handled = 0;
+        while (handled < limit) {
+            List<Integer> due = dueRules(through);
+            if (due.isEmpty()) break;
+            for (int id : due) {
+                handled += advance(id, through, Math.min(expenseDAO.getBatchSize(), limit - handled), written);
+                if (handled >= limit) break;
+            }
+        }
+        return handled;
+    }
+
+    private List<Integer> dueRules(LocalDate through) throws SQLException {
+        String sql = "SELECT id FROM recurring_expenses WHERE " + scope.where() + " AND next_date <= ? ORDER BY next_date, id LIMIT ?";
+        try (DaoCall call = Metrics.dao("dueRecurringExpenses", sql);
+             Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            int index = scope.bind(pstmt, 1);
+            pstmt.setDate(index++, java.sql.Date.valueOf(through));
+            pstmt.setInt(index, RULE_PAGE_SIZE);
+            List<Integer> ids = new ArrayList<>();
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) ids.add(rs.getInt(1));
+            }
+            call.rows(ids.size());
+            return ids;
+        }
+    }
+
+    // One transaction: up to max due days of one rule. Returns the number of days handled.
+    private int advance(int id, LocalDate through, int max, Consumer<List<Expense>> written) throws SQLException {
+        List<Expense> occurrences;
+        int handled;
+        try (DaoCall call = Metrics.dao("materializeRecurring");
+             Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                RecurringExpense rule;
+                try {
+                    rule = lockRule(conn, id);
+                } catch (SQLDataException | IllegalArgumentException ex) {
+                    System.err.println("Recurring expense " + id + " is disabled: " + ex.getMessage());
+                    setNextDate(conn, id, null);
+                    conn.commit();
+                    return 1;
+                }
+                LocalDate day = rule == null ? null : rule.getNextDate();
+                if (day == null || day.isAfter(through)) {
+                    conn.rollback();
+                    return 0;
+                }
+                List<LocalDate> days = new ArrayList<>();
+                for (; day != null && !day.isAfter(through) && days.size() < max; day = rule.following(day)) {
+                    if (rule.getEndDate() != null && day.isAfter(rule.getEndDate())) {
+                        day = null;
+                        break;
+                    }
+                    days.add(day);
+                }
+                occurrences = new ArrayList<>(days.size());
+                if (!days.isEmpty()) {
+                    Set<LocalDate> existing = writtenDays(conn, id, days.get(0), days.get(days.size() - 1));
+                    for (LocalDate d : days) {
+                        if (!existing.contains(d)) occurrences.add(rule.occurrence(d));
+                    }
+                }
+                if (!occurrences.isEmpty()) expenseDAO.insertOccurrences(conn, id, occurrences);
+                setNextDate(conn, id, day);
+                conn.commit();
+                call.rows(occurrences.size());
+                handled = Math.max(1, days.size());
+            } catch (SQLException ex) {
+                conn.rollback();
+                throw ex;
+            }
+        }
+        if (!occurrences.isEmpty()) written.accept(occurrences);
+        return handled;
+    }
+
+    private RecurringExpense lockRule(Connection conn, int id) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "SELECT " + COLUMNS + " FROM recurring_expenses WHERE id=? AND " + scope.where() + " FOR UPDATE")) {
+            pstmt.setInt(1, id);
+            scope.bind(pstmt, 2);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? map(rs) : null;
+            }
+        }
+    }
+
+    private static Set<LocalDate> writtenDays(Connection conn, int id, LocalDate from, LocalDate to) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "SELECT date FROM expenses WHERE recurrence_id=? AND date >= ? AND date <= ?")) {
+            pstmt.setInt(1, id);
+            pstmt.setDate(2, java.sql.Date.valueOf(from));
+            pstmt.setDate(3, java.sql.Date.valueOf(to));
+            Set<LocalDate> days = new HashSet<>();
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) days.add(rs.getDate(1).toLocalDate());
+            }
+            return days;
+        }
+    }
+
+    private static void setNextDate(Connection conn, int id, LocalDate next) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("UPDATE recurring_expenses SET next_date=? WHERE id=?")) {
+            pstmt.setDate(1, next == null ? null : java.sql.Date.valueOf(next));
+            pstmt.setInt(2, id);
+            pstmt.executeUpdate();
+        }
+    }
+
+    private static RecurringExpense map(ResultSet rs) throws SQLException {
+        int id = rs.getInt("id");
+        String typeName = rs.getString("type");
+        ExpenseType type = ExpenseTypes.get(typeName);
+        if (type == null) throw new SQLDataException("Unknown expense type '" + typeName + "' for recurring expense " + id + ".");
+        Expense template = type.create(-1, rs.getDouble("amount"), rs.getDate("start_date"), rs.getString("description"),
+                rs.getString("details"));
+        template.setAccountId(rs.getObject("account_id", Integer.class));
+        java.sql.Date end = rs.getDate("end_date");
+        java.sql.Date next = rs.getDate("next_date");
+        RecurringExpense rule = new RecurringExpense(template, RecurrenceRule.parse(rs.getString("schedule")),
+                rs.getDate("start_date").toLocalDate(), end == null ? null : end.toLocalDate(), next == null ? null : next.toLocalDate());
+        rule.setId(id);
+        return rule;
+    }
+}
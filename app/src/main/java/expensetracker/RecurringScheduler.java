@@ -0,0 +1,51 @@
+package expensetracker;
+
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+// Writes due occurrences for one ExpenseManager on a shared daemon thread: right away, to catch up
+// on whatever fell due while the app was not running, and then every expense.recurring.intervalMs.
+// A run handles at most expense.recurring.maxPerRun due days; one that hits the cap is followed
+// at once by another, so a long backlog is worked off in bounded steps.
+final class RecurringScheduler implements AutoCloseable {
+    private static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "expense-recurring");
+        t.setDaemon(true);
+        return t;
+    });
+    static final int MAX_PER_RUN = Integer.getInteger("expense.recurring.maxPerRun", 10_000);
+
+    private final ExpenseManager manager;
+    private final ScheduledFuture<?> ticker;
+    private volatile boolean closed;
+
+    private RecurringScheduler(ExpenseManager manager, long intervalMillis) {
+        this.manager = manager;
+        ticker = TIMER.scheduleWithFixedDelay(this::run, 0, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // Null when expense.recurring.enabled is false; rules then only write what is due when added.
+    static RecurringScheduler startDefault(ExpenseManager manager) {
+        if (!Boolean.parseBoolean(System.getProperty("expense.recurring.enabled", "true"))) return null;
+        return new RecurringScheduler(manager, Long.getLong("expense.recurring.intervalMs", 60_000L));
+    }
+
+    private void run() {
+        if (closed) return;
+        try {
+            if (manager.materializeRecurring(LocalDate.now(), MAX_PER_RUN) >= MAX_PER_RUN) TIMER.execute(this::run);
+        } catch (SQLException | RuntimeException ex) {
+            System.err.println("Recurring expenses could not be written: " + ex.getMessage());
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        ticker.cancel(false);
+    }
+}
@@ -0,0 +1,156 @@
+package expensetracker;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+// Brings the database schema up to date on startup. Each migration runs once, in version order,
+// and is recorded in schema_version. Statements stick to SQL understood by both MySQL and H2.
+class SchemaMigrator {
+    static final class Migration {
+        final int version;
+        final String description;
+        final String[] statements;
+
+        Migration(int version, String description, String... statements) {
+            this.version = version;
+            this.description = description;
+            this.statements = statements;
+        }
+    }
+
+    private static final List<Migration> MIGRATIONS = List.of(
+            new Migration(1, "create expenses",
+                    "CREATE TABLE IF NOT EXISTS expenses ("
+                            + "id INT AUTO_INCREMENT PRIMARY KEY, "
+                            + "amount DECIMAL(12, 2) NOT NULL, "
+                            + "date DATE NOT NULL, "
+                            + "description VARCHAR(255), "
+                            + "type VARCHAR(20) NOT NULL, "
+                            + "details VARCHAR(255))"),
+            new Migration(2, "typed detail columns",
+                    "ALTER TABLE expenses ADD COLUMN restaurant VARCHAR(100)",
+                    "ALTER TABLE expenses ADD COLUMN destination VARCHAR(100)",
+                    "ALTER TABLE expenses ADD COLUMN transport_mode VARCHAR(50)",
+                    "ALTER TABLE expenses ADD COLUMN utility_type VARCHAR(50)",
+                    "UPDATE expenses SET restaurant = details WHERE type = 'Food'",
+                    "UPDATE expenses SET utility_type = details WHERE type = 'Utility'",
+                    "UPDATE expenses SET destination = TRIM(SUBSTRING(details, 1, LOCATE(',', details) - 1)), "
+                            + "transport_mode = TRIM(SUBSTRING(details, LOCATE(',', details) + 1)) "
+                            + "WHERE type = 'Travel' AND LOCATE(',', details) > 0"),
+            // (date, id) serves ORDER BY date DESC, id DESC and the keyset predicates without a filesort;
+            // (type, date, amount) covers per-type range scans and the GROUP BY type, date aggregate.
+            new Migration(3, "indexes for date order and per-type aggregates",
+                    "CREATE INDEX idx_expenses_date_id ON expenses (date, id)",
+                    "CREATE INDEX idx_expenses_type_date ON expenses (type, date, amount)"),
+            // Transactions (see script.sql) may live in another schema, so the link is an indexed
+            // column rather than a foreign key constraint.
+            new Migration(4, "link expenses to transactions",
+                    "ALTER TABLE expenses ADD COLUMN transaction_id BIGINT",
+                    "CREATE INDEX idx_expenses_transaction ON expenses (transaction_id)"),
+            // version is bumped by every update and lets ExpenseSync detect concurrent edits; origin
+            // identifies rows pushed from a local store so a retried push does not insert them twice.
+            new Migration(5, "row versions for sync",
+                    "ALTER TABLE expenses ADD COLUMN version INT NOT NULL DEFAULT 1",
+                    "ALTER TABLE expenses ADD COLUMN origin VARCHAR(64)",
+                    "CREATE UNIQUE INDEX idx_expenses_origin ON expenses (origin)"),
+            // Every ExpenseDAO query filters on user_id, so the date-order and per-type indexes are
+            // rebuilt with it in front. Existing rows belong to user 1, the first user in script.sql.
+            // Accounts normally comes from script.sql; it is created here for stores that lack it.
+            new Migration(6, "scope expenses to users and accounts",
+                    "ALTER TABLE expenses ADD COLUMN user_id INT NOT NULL DEFAULT 1",
+                    "ALTER TABLE expenses ADD COLUMN account_id INT",
+                    "DROP INDEX idx_expenses_date_id ON expenses",
+                    "DROP INDEX idx_expenses_type_date ON expenses",
+                    "CREATE INDEX idx_expenses_user_date_id ON expenses (user_id, date, id)",
+                    "CREATE INDEX idx_expenses_user_type_date ON expenses (user_id, type, date, amount)",
+                    "CREATE INDEX idx_expenses_account_date ON expenses (account_id, date)",
+                    "CREATE TABLE IF NOT EXISTS Accounts ("
+                            + "AccountID INT AUTO_INCREMENT PRIMARY KEY, "
+                            + "UserID INT, "
+                            + "AccountName VARCHAR(50) NOT NULL, "
+                            + "Balance DECIMAL(10, 2) NOT NULL)",
+                    "CREATE INDEX idx_accounts_user ON Accounts (UserID)"),
+            // next_date is the first occurrence of a rule not yet written to expenses, NULL once the
+            // rule has ended. Occurrences carry their rule in recurrence_id, and the unique index on
+            // (recurrence_id, date) keeps a rule from ever writing the same day twice.
+            new Migration(7, "recurring expenses",
+                    "CREATE TABLE IF NOT EXISTS recurring_expenses ("
+                            + "id INT AUTO_INCREMENT PRIMARY KEY, "
+                            + "user_id INT NOT NULL, "
+                            + "account_id INT, "
+                            + "amount DECIMAL(12, 2) NOT NULL, "
+                            + "description VARCHAR(255), "
+                            + "type VARCHAR(20) NOT NULL, "
+                            + "details VARCHAR(255), "
+                            + "schedule VARCHAR(100) NOT NULL, "
+                            + "start_date DATE NOT NULL, "
+                            + "end_date DATE, "
+                            + "next_date DATE)",
+                    "CREATE INDEX idx_recurring_user_next ON recurring_expenses (user_id, next_date)",
+                    "ALTER TABLE expenses ADD COLUMN recurrence_id INT",
+                    "CREATE UNIQUE INDEX idx_expenses_recurrence ON expenses (recurrence_id, date)"),
+            // sync_changes holds the latest change to each expense id, deletes included, stamped from
+            // the single sync_clock row, so ExpenseSync pulls only what changed since its last round
+            // (see ExpenseSync.recordChanges). Existing rows count as changed at the first tick.
+            new Migration(8, "change log for incremental sync",
+                    "CREATE TABLE IF NOT EXISTS sync_clock (id INT PRIMARY KEY, seq BIGINT NOT NULL)",
+                    "INSERT INTO sync_clock (id, seq) VALUES (1, 1)",
+                    "CREATE TABLE IF NOT EXISTS sync_changes ("
+                            + "expense_id INT PRIMARY KEY, "
+                            + "seq BIGINT NOT NULL, "
+                            + "deleted BOOLEAN NOT NULL)",
+                    "CREATE INDEX idx_sync_changes_seq ON sync_changes (seq, expense_id)",
+                    "INSERT INTO sync_changes (expense_id, seq, deleted) SELECT id, 1, FALSE FROM expenses")
+    );
+
+    public static int latestVersion() {
+        return MIGRATIONS.get(MIGRATIONS.size() - 1).version;
+    }
+
+    // Returns the number of migrations applied.
+    public int migrate(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS schema_version ("
+                    + "version INT PRIMARY KEY, "
+                    + "description VARCHAR(200) NOT NULL, "
+                    + "installed_on TIMESTAMP NOT NULL)");
+        }
+        int current = currentVersion(conn);
+        List<Migration> pending = new ArrayList<>();
+        for (Migration m : MIGRATIONS) {
+            if (m.version > current) pending.add(m);
+        }
+        for (Migration m : pending) {
+            apply(conn, m);
+        }
+        return pending.size();
+    }
+
+    public int currentVersion(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(version), 0) FROM schema_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    // MySQL commits DDL implicitly, so a failed migration can leave partial changes behind;
+    // the version row is only written once every statement has succeeded.
+    private void apply(Connection conn, Migration m) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            for (String sql : m.statements) {
+                stmt.execute(sql);
+            }
+        } catch (SQLException ex) {
+            throw new SQLException("Schema migration " + m.version + " (" + m.description + ") failed: "
+                    + ex.getMessage(), ex.getSQLState(), ex);
+        }
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "INSERT INTO schema_version (version, description, installed_on) VALUES (?, ?, ?)")) {
+            pstmt.setInt(1, m.version);
+            pstmt.setString(2, m.description);
+            pstmt.setTimestamp(3, new Timestamp(System.currentTimeMillis()));
+            pstmt.executeUpdate();
+        }
+    }
+}
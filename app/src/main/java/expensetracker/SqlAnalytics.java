@@ -0,0 +1,39 @@
+package expensetracker;
+
+import java.sql.SQLException;
+import java.util.*;
+
+// The same reports as aggregate queries, for when the rows are not in memory.
+class SqlAnalytics implements ExpenseAnalytics {
+    private final ExpenseDAO dao;
+
+    public SqlAnalytics(ExpenseDAO dao) {
+        this.dao = dao;
+    }
+
+    @Override
+    public DailyTotals dailyTotals(String type) throws SQLException {
+        return dao.dailyTotals(type);
+    }
+
+    @Override
+    public Map<String, AggregateBucket> breakdown(Breakdown by) throws SQLException {
+        return dao.breakdown(by);
+    }
+
+    @Override
+    public List<Expense> top(int n, String type) throws SQLException {
+        return n <= 0 ? new ArrayList<>() : dao.topExpenses(n, type);
+    }
+
+    @Override
+    public long[] percentiles(String type, double... percentiles) throws SQLException {
+        long[] result = new long[percentiles.length];
+        int n = dao.countExpenses(type);
+        for (int i = 0; i < percentiles.length; i++) {
+            int rank = ColumnarAnalytics.nearestRank(percentiles[i], n);
+            if (n > 0) result[i] = dao.amountCentsAtRank(type, rank);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,44 @@
+package expensetracker;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Interns strings to dense int codes; code 0 is reserved for null.
+class StringDictionary {
+    private final Map<String, Integer> codes = new HashMap<>();
+    private final List<String> values = new ArrayList<>();
+
+    StringDictionary() {
+        values.add(null);
+    }
+
+    public int encode(String value) {
+        if (value == null) return 0;
+        Integer code = codes.get(value);
+        if (code == null) {
+            code = values.size();
+            values.add(value);
+            codes.put(value, code);
+        }
+        return code;
+    }
+
+    public String decode(int code) {
+        return values.get(code);
+    }
+
+    public int size() {
+        return values.size() - 1;
+    }
+
+    long estimatedBytes() {
+        long bytes = 16 + values.size() * 4L;
+        for (int i = 1; i < values.size(); i++) {
+            // String object, its byte[] and the HashMap node plus boxed code that point at it.
+            bytes += 24 + 16 + values.get(i).length() + 32 + 16;
+        }
+        return bytes;
+    }
+}
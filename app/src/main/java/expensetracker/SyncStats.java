@@ -0,0 +1,36 @@
+package expensetracker;
+
+class SyncStats {
+    private final long rounds;
+    private final long pushed;
+    private final long pulled;
+    private final long conflicts;
+    private final int pending;
+    private final long lastSuccessMillis;
+    private final String lastError;
+
+    public SyncStats(long rounds, long pushed, long pulled, long conflicts, int pending, long lastSuccessMillis,
+                     String lastError) {
+        this.rounds = rounds;
+        this.pushed = pushed;
+        this.pulled = pulled;
+        this.conflicts = conflicts;
+        this.pending = pending;
+        this.lastSuccessMillis = lastSuccessMillis;
+        this.lastError = lastError;
+    }
+
+    public long getRounds() { return rounds; }
+    public long getPushed() { return pushed; }
+    public long getPulled() { return pulled; }
+    public long getConflicts() { return conflicts; }
+    public int getPending() { return pending; }
+    public long getLastSuccessMillis() { return lastSuccessMillis; }
+    public String getLastError() { return lastError; }
+
+    @Override
+    public String toString() {
+        return String.format("rounds=%d pushed=%d pulled=%d conflicts=%d pending=%d lastError=%s",
+                rounds, pushed, pulled, conflicts, pending, lastError);
+    }
+}
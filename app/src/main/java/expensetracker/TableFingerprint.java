@@ -0,0 +1,43 @@
+package expensetracker;
+
+import java.util.*;
+
+// Cheap summary of the table used to check that a replayed journal still matches the database.
+class TableFingerprint {
+    private final long count;
+    private final long sumCents;
+    private final long maxId;
+
+    public TableFingerprint(long count, long sumCents, long maxId) {
+        this.count = count;
+        this.sumCents = sumCents;
+        this.maxId = maxId;
+    }
+
+    public static TableFingerprint of(Collection<Expense> expenses) {
+        long sum = 0;
+        long max = 0;
+        for (Expense exp : expenses) {
+            sum += ExpenseAggregates.toCents(exp.getAmount());
+            max = Math.max(max, exp.getId());
+        }
+        return new TableFingerprint(expenses.size(), sum, max);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof TableFingerprint)) return false;
+        TableFingerprint other = (TableFingerprint) o;
+        return count == other.count && sumCents == other.sumCents && maxId == other.maxId;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(count, sumCents, maxId);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count=%d sumCents=%d maxId=%d", count, sumCents, maxId);
+    }
+}
@@ -0,0 +1,34 @@
+package expensetracker;
+
+import java.nio.charset.StandardCharsets;
+
+// The fields an imported record can carry, with the column/key names they are read from.
+enum TransferField {
+    TYPE("type"), DATE("date"), AMOUNT("amount"), DESCRIPTION("description"), RESTAURANT("restaurant"),
+    DESTINATION("destination"), TRANSPORT_MODE("transport_mode"), UTILITY_TYPE("utility_type"), DETAILS("details"),
+    ACCOUNT_ID("account_id");
+
+    private static final TransferField[] ALL = values();
+    final byte[] key;
+
+    TransferField(String name) {
+        this.key = name.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    // Case-insensitive, with spaces and dashes read as underscores ("Transport Mode" is transport_mode).
+    static TransferField match(byte[] buf, int start, int end) {
+        for (TransferField f : ALL) {
+            if (end - start != f.key.length) continue;
+            int i = 0;
+            while (i < f.key.length) {
+                int c = buf[start + i];
+                if (c >= 'A' && c <= 'Z') c += 'a' - 'A';
+                else if (c == ' ' || c == '-') c = '_';
+                if (c != f.key[i]) break;
+                i++;
+            }
+            if (i == f.key.length) return f;
+        }
+        return null;
+    }
+}
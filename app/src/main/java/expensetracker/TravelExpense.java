@@ -0,0 +1,66 @@
+package expensetracker;
+
+class TravelExpense extends Expense {
+    private String destination;
+    private String transportMode;
+
+    public TravelExpense(int id, double amount, java.sql.Date date, String description, String destination, String transportMode) {
+        super(id, amount, date, description);
+        this.destination = destination;
+        this.transportMode = transportMode;
+    }
+
+    public TravelExpense(double amount, java.sql.Date date, String description, String destination, String transportMode) {
+        super(amount, date, description);
+        this.destination = destination;
+        this.transportMode = transportMode;
+    }
+
+    @Override
+    public String getType() { return "Travel"; }
+
+    public String getDestination() { return destination; }
+    public void setDestination(String destination) { this.destination = destination; }
+
+    public String getTransportMode() { return transportMode; }
+    public void setTransportMode(String transportMode) { this.transportMode = transportMode; }
+
+    @Override
+    public String getDetails() {
+        return destination + ", " + transportMode;
+    }
+
+    // Accepts "destination, mode" with the same rules as details.split(",\\s*") yielding two parts,
+    // but without compiling a regex or allocating an array per call.
+    @Override
+    public void setDetailsFromString(String details) {
+        int comma = details == null ? -1 : details.indexOf(',');
+        if (comma >= 0) {
+            int start = comma + 1;
+            while (start < details.length() && isSpace(details.charAt(start))) start++;
+            int end = details.indexOf(',', start);
+            if (end < 0) end = details.length();
+            if (end > start && onlySeparatorsFrom(details, end)) {
+                setDestination(details.substring(0, comma));
+                setTransportMode(details.substring(start, end));
+                return;
+            }
+        }
+        setDestination("");
+        setTransportMode("");
+    }
+
+    // Trailing ", ," sequences only produce empty parts, which split() drops.
+    private static boolean onlySeparatorsFrom(String s, int index) {
+        for (int i = index; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c != ',' && !isSpace(c)) return false;
+        }
+        return true;
+    }
+
+    // The characters matched by \s in a regex.
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+}
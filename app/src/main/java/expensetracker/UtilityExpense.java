@@ -0,0 +1,29 @@
+package expensetracker;
+
+class UtilityExpense extends Expense {
+    private String utilityType;
+
+    public UtilityExpense(int id, double amount, java.sql.Date date, String description, String utilityType) {
+        super(id, amount, date, description);
+        this.utilityType = utilityType;
+    }
+
+    public UtilityExpense(double amount, java.sql.Date date, String description, String utilityType) {
+        super(amount, date, description);
+        this.utilityType = utilityType;
+    }
+
+    @Override
+    public String getType() { return "Utility"; }
+
+    public String getUtilityType() { return utilityType; }
+    public void setUtilityType(String utilityType) { this.utilityType = utilityType; }
+
+    @Override
+    public String getDetails() { return utilityType; }
+
+    @Override
+    public void setDetailsFromString(String details) {
+        setUtilityType(details);
+    }
+}
@@ -0,0 +1,91 @@
+package expensetracker;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+
+// What the window showed when the app last exited: the first page of rows in the default order,
+// the row count and the total, taken from the table as the window closes. On start the frame
+// paints this before the database is opened, and the real rows, count and total replace it as
+// they arrive. Nothing is written through it.
+//
+// One small file per store and scope under expense.journal.dir: magic, format, store key, row
+// count, total cents, n, n expenses in ExpenseCodec form, then a CRC of everything before it. A file
+// written for another store, by another format, or cut short is ignored.
+class ViewSnapshot {
+    private static final int MAGIC = 0x45585631; // "EXV1"
+    private static final int FORMAT = 2;
+
+    private final List<Expense> rows;
+    private final int rowCount;
+    private final long totalCents;
+
+    ViewSnapshot(List<Expense> rows, int rowCount, long totalCents) {
+        this.rows = Collections.unmodifiableList(new ArrayList<>(rows));
+        this.rowCount = rowCount;
+        this.totalCents = totalCents;
+    }
+
+    // Rows in ExpenseSort.DEFAULT order; at most one table page.
+    public List<Expense> getRows() { return rows; }
+    public int getRowCount() { return rowCount; }
+    public double getTotal() { return totalCents / 100.0; }
+
+    // Null when snapshots are disabled.
+    static Path defaultFile() {
+        if (!Boolean.parseBoolean(System.getProperty("expense.snapshot.enabled", "true"))) return null;
+        Path dir = Paths.get(System.getProperty("expense.journal.dir", System.getProperty("user.home") + "/.expensetracker"));
+        return dir.resolve("view-" + Integer.toHexString(storeKey().hashCode()) + ".snapshot");
+    }
+
+    private static String storeKey() {
+        return DatabaseConnection.getStoreUrl() + "#" + ExpenseScope.defaultScope();
+    }
+
+    // Returns null if there is no usable snapshot; a damaged one is only reported.
+    static ViewSnapshot load(Path file) {
+        if (file == null || !Files.isRegularFile(file)) return null;
+        try {
+            ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(file));
+            if (data.limit() < 12 || data.getInt(0) != MAGIC || data.getInt(4) != FORMAT) return null;
+            CRC32 crc = new CRC32();
+            crc.update(data.array(), 0, data.limit() - 4);
+            if ((int) crc.getValue() != data.getInt(data.limit() - 4)) throw new IOException("checksum mismatch");
+            data.position(8).limit(data.limit() - 4);
+            if (!storeKey().equals(ExpenseCodec.getString(data))) return null;
+            int rowCount = data.getInt();
+            long totalCents = data.getLong();
+            int n = data.getInt();
+            if (n < 0 || n > rowCount || n > ExpenseTableModel.PAGE_SIZE) throw new IOException("bad row count " + n);
+            List<Expense> rows = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) rows.add(ExpenseCodec.get(data));
+            return new ViewSnapshot(rows, rowCount, totalCents);
+        } catch (IOException | RuntimeException ex) {
+            System.err.println("Ignoring view snapshot " + file + ": " + ex.getMessage());
+            return null;
+        }
+    }
+
+    // Written next to the target and moved over it, so a crash leaves the old file or the new one.
+    void save(Path file) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(16 * 1024);
+        buf.putInt(MAGIC).putInt(FORMAT);
+        buf = ExpenseCodec.putString(buf, storeKey());
+        buf = ExpenseCodec.ensure(buf, 16);
+        buf.putInt(rowCount).putLong(totalCents).putInt(rows.size());
+        for (Expense exp : rows) buf = ExpenseCodec.put(buf, exp);
+        CRC32 crc = new CRC32();
+        crc.update(buf.array(), 0, buf.position());
+        buf = ExpenseCodec.ensure(buf, 4);
+        buf.putInt((int) crc.getValue());
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.write(tmp, Arrays.copyOf(buf.array(), buf.position()));
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,109 @@
+package expensetracker;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.Collection;
+import java.util.zip.CRC32;
+
+// Append-only file of the changes a WriteBehindQueue holds: records of [int bodyLength][byte op,
+// payload][int crc]. Appends reach the operating system at once, so they survive the app crashing;
+// rewrite() replaces the file atomically with the changes that are still queued and forces it to disk.
+class WriteBehindLog implements AutoCloseable {
+    private static final byte OP_UPDATE = 1;
+    private static final byte OP_DELETE = 2;
+
+    private final Path file;
+    private FileChannel channel;
+
+    private WriteBehindLog(Path file) throws IOException {
+        this.file = file;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    static WriteBehindLog open(Path file) throws IOException {
+        Files.createDirectories(file.getParent());
+        return new WriteBehindLog(file);
+    }
+
+    interface UpdateSink { void accept(Expense exp); }
+    interface DeleteSink { void accept(int id); }
+
+    // Replays the records in order; a torn or corrupt tail ends the replay and is cut off.
+    void recover(UpdateSink updates, DeleteSink deletes) throws IOException {
+        ByteBuffer data = ByteBuffer.allocate((int) channel.size());
+        channel.read(data, 0);
+        data.flip();
+        int good = 0;
+        CRC32 crc = new CRC32();
+        while (data.remaining() >= 4) {
+            int length = data.getInt(data.position());
+            if (length <= 0 || data.remaining() < 4 + length + 4) break;
+            crc.reset();
+            crc.update(data.array(), data.position() + 4, length);
+            if ((int) crc.getValue() != data.getInt(data.position() + 4 + length)) break;
+            ByteBuffer body = data.slice(data.position() + 4, length);
+            byte op = body.get();
+            if (op == OP_UPDATE) {
+                updates.accept(ExpenseCodec.get(body));
+            } else if (op == OP_DELETE) {
+                deletes.accept(body.getInt());
+            } else {
+                break;
+            }
+            data.position(data.position() + 4 + length + 4);
+            good = data.position();
+        }
+        channel.truncate(good);
+        channel.position(good);
+    }
+
+    void appendUpdate(Expense exp) throws IOException {
+        channel.write(record(OP_UPDATE, exp, 0));
+    }
+
+    void appendDelete(int id) throws IOException {
+        channel.write(record(OP_DELETE, null, id));
+    }
+
+    void rewrite(Collection<Expense> updates, Collection<Integer> deletes) throws IOException {
+        if (updates.isEmpty() && deletes.isEmpty() && channel.size() == 0) return;
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE)) {
+            for (Expense exp : updates) out.write(record(OP_UPDATE, exp, 0));
+            for (int id : deletes) out.write(record(OP_DELETE, null, id));
+            out.force(false);
+        }
+        channel.close();
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        channel.position(channel.size());
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException ignored) {}
+    }
+
+    private static ByteBuffer record(byte op, Expense exp, int id) {
+        ByteBuffer buf = ByteBuffer.allocate(128);
+        buf.putInt(0);
+        buf.put(op);
+        if (exp == null) {
+            buf.putInt(id);
+        } else {
+            buf = ExpenseCodec.put(buf, exp);
+        }
+        int length = buf.position() - 4;
+        buf.putInt(0, length);
+        CRC32 crc = new CRC32();
+        crc.update(buf.array(), 4, length);
+        buf = ExpenseCodec.ensure(buf, 4);
+        buf.putInt((int) crc.getValue());
+        return buf.flip();
+    }
+}
@@ -0,0 +1,343 @@
+package expensetracker;
+
+import java.io.*;
+import java.nio.file.*;
+import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Write-behind for ExpenseManager's updates and deletes (expense.writeBehind.enabled). Changes are
+// applied to the cache at once and queued by id, so repeated updates of a row collapse into the last
+// one and a delete drops the updates before it. The queue is written out by ExpenseDAO.applyChanges
+// in one transaction every flushMillis, as soon as batchSize ids are waiting, before any read that
+// goes to the database, and on close. Callers that find maxPending ids waiting flush it themselves.
+//
+// Every change is also appended to a log file before it is queued, and the log is cut back to what
+// is still queued after each successful flush. A flush that fails because the database is out of
+// reach is retried on the next tick; one the database refuses is retried row by row, and rows that
+// still fail are reported and dropped, after which onRejected lets the manager re-read its state.
+// Changes still in the log when the app starts again are queued and written on the first flush.
+//
+// The queue also sums what its changes will do to account balances, so that balances can be read
+// from the database without writing the queue out first; see readBalances().
+//
+// Each queue has its own flusher thread, so one user's slow flush never holds up another user's.
+class WriteBehindQueue implements AutoCloseable {
+    private static final Counter QUEUED = Metrics.counter("writeBehind.queued");
+    private static final Counter COALESCED = Metrics.counter("writeBehind.coalesced");
+    private static final Counter FAILURES = Metrics.counter("writeBehind.failures");
+    private static final LatencyHistogram FLUSH = Metrics.histogram("writeBehind.flush");
+
+    private final ExpenseDAO dao;
+    private final int batchSize;
+    private final int maxPending;
+    private final WriteBehindLog log;
+    private final Runnable onRejected;
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final ScheduledExecutorService flusher;
+    private final ScheduledFuture<?> ticker;
+
+    // Guarded by this. A flush moves the queued changes to inFlight until they are committed.
+    private LinkedHashMap<Integer, Expense> updates = new LinkedHashMap<>();
+    private LinkedHashSet<Integer> deletes = new LinkedHashSet<>();
+    private Map<Integer, Expense> inFlightUpdates = Collections.emptyMap();
+    private Set<Integer> inFlightDeletes = Collections.emptySet();
+    // Net balance change in cents per account of the queued and in-flight changes.
+    private Map<Integer, Long> balanceCents = new HashMap<>();
+    private Map<Integer, Long> inFlightBalanceCents = Collections.emptyMap();
+    // Changes recovered from the log came without the rows they replace, so their effect on balances
+    // is unknown until the first successful flush has written them.
+    private boolean balancesUnknown;
+    private boolean failing;
+    private boolean closed;
+
+    // log may be null, in which case queued changes do not survive a crash.
+    WriteBehindQueue(ExpenseDAO dao, long flushMillis, int batchSize, int maxPending, WriteBehindLog log,
+                     Runnable onRejected) throws IOException {
+        if (batchSize <= 0 || maxPending < batchSize) throw new IllegalArgumentException("need 0 < batchSize <= maxPending");
+        this.dao = dao;
+        this.batchSize = batchSize;
+        this.maxPending = maxPending;
+        this.log = log;
+        this.onRejected = onRejected;
+        if (log != null) log.recover(this::queueUpdate, this::queueDelete);
+        balancesUnknown = !updates.isEmpty() || !deletes.isEmpty();
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "expense-write-behind");
+            t.setDaemon(true);
+            return t;
+        });
+        ticker = flusher.scheduleWithFixedDelay(this::flushQuietly, flushMillis, flushMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // The queue for a manager of the given scope, configured from system properties; null when
+    // write-behind is off.
+    static WriteBehindQueue openDefault(ExpenseDAO dao, Runnable onRejected) {
+        if (!Boolean.getBoolean("expense.writeBehind.enabled")) return null;
+        WriteBehindLog log = null;
+        try {
+            Path dir = Paths.get(System.getProperty("expense.journal.dir", System.getProperty("user.home") + "/.expensetracker"));
+            String key = DatabaseConnection.getStoreUrl() + "#" + dao.getScope();
+            log = WriteBehindLog.open(dir.resolve("pending-" + Integer.toHexString(key.hashCode()) + ".log"));
+            return new WriteBehindQueue(dao, Long.getLong("expense.writeBehind.flushMs", 500L),
+                    Integer.getInteger("expense.writeBehind.batchSize", 500),
+                    Integer.getInteger("expense.writeBehind.maxPending", 10_000), log, onRejected);
+        } catch (IOException ex) {
+            if (log != null) log.close();
+            System.err.println("Write-behind unavailable, writing through: " + ex.getMessage());
+            return null;
+        }
+    }
+
+    public synchronized boolean isEmpty() {
+        return updates.isEmpty() && deletes.isEmpty() && inFlightUpdates.isEmpty() && inFlightDeletes.isEmpty();
+    }
+
+    public synchronized int size() {
+        return updates.size() + deletes.size();
+    }
+
+    // The newest queued version of a row, or null if it has no queued update.
+    public synchronized Expense pendingUpdate(int id) {
+        Expense exp = updates.get(id);
+        return exp != null || deletes.contains(id) ? exp : inFlightUpdates.get(id);
+    }
+
+    public synchronized boolean isPendingDelete(int id) {
+        return deletes.contains(id) || inFlightDeletes.contains(id);
+    }
+
+    // previous is the version exp replaces, as the cache or this queue has it.
+    public void update(Expense exp, Expense previous) throws SQLException {
+        makeRoom();
+        synchronized (this) {
+            if (closed) throw new SQLException("Write-behind queue is closed.");
+            if (isPendingDelete(exp.getId())) throw new SQLException("Update failed, no rows affected.");
+            log(() -> log.appendUpdate(exp));
+            queueUpdate(exp);
+            AccountDAO.addExpenseChange(balanceCents, previous, exp);
+        }
+        afterQueued();
+    }
+
+    public void delete(Expense previous) throws SQLException {
+        int id = previous.getId();
+        makeRoom();
+        synchronized (this) {
+            if (closed) throw new SQLException("Write-behind queue is closed.");
+            if (isPendingDelete(id)) throw new SQLException("Delete failed, no rows affected.");
+            log(() -> log.appendDelete(id));
+            queueDelete(id);
+            AccountDAO.addExpenseChange(balanceCents, previous, null);
+        }
+        afterQueued();
+    }
+
+    // Runs reader on the database balances with the net change of everything queued, in cents per
+    // account. No batch is written meanwhile, so each change is either in the database or in the map,
+    // never both. Returns null without reading while changes recovered from the log are queued.
+    public <T> T readBalances(BalanceReader<T> reader) throws SQLException {
+        flushLock.lock();
+        try {
+            Map<Integer, Long> pending;
+            synchronized (this) {
+                if (balancesUnknown) return null;
+                pending = new HashMap<>(balanceCents);
+            }
+            return reader.read(pending);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    // Writes everything queued so far; on return the database holds every change made before the call.
+    public void flush() throws SQLException {
+        flushLock.lock();
+        try {
+            Map<Integer, Expense> batchUpdates;
+            Set<Integer> batchDeletes;
+            synchronized (this) {
+                if (updates.isEmpty() && deletes.isEmpty()) return;
+                batchUpdates = inFlightUpdates = updates;
+                batchDeletes = inFlightDeletes = deletes;
+                inFlightBalanceCents = balanceCents;
+                updates = new LinkedHashMap<>();
+                deletes = new LinkedHashSet<>();
+                balanceCents = new HashMap<>();
+            }
+            write(batchUpdates, batchDeletes);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    // Flushes what is left and stops the flusher once the tasks already handed to it have run.
+    // Whatever cannot be written stays in the log.
+    @Override
+    public void close() {
+        ticker.cancel(false);
+        try {
+            flush();
+        } catch (SQLException ex) {
+            System.err.println("Queued expense changes could not be written and will be retried on the next start: "
+                    + ex.getMessage());
+        }
+        synchronized (this) {
+            closed = true;
+            flusher.shutdown();
+            if (log != null) log.close();
+        }
+    }
+
+    private void write(Map<Integer, Expense> batchUpdates, Set<Integer> batchDeletes) throws SQLException {
+        long start = System.nanoTime();
+        List<Integer> rejected = new ArrayList<>();
+        try {
+            rejected.addAll(dao.applyChanges(batchUpdates.values(), batchDeletes));
+        } catch (SQLException ex) {
+            if (isTransient(ex)) {
+                requeue(batchUpdates, batchDeletes);
+                throw ex;
+            }
+            rejected.addAll(writeOneByOne(batchUpdates, batchDeletes));
+        }
+        FLUSH.record(System.nanoTime() - start);
+        synchronized (this) {
+            inFlightUpdates = Collections.emptyMap();
+            inFlightDeletes = Collections.emptySet();
+            inFlightBalanceCents = Collections.emptyMap();
+            balancesUnknown = false;
+            if (failing) System.err.println("Queued expense changes written again.");
+            failing = false;
+            log(() -> log.rewrite(updates.values(), deletes));
+        }
+        if (!rejected.isEmpty()) {
+            FAILURES.add(rejected.size());
+            System.err.println("Queued changes to expenses " + rejected + " were dropped; the rows no longer exist or were refused.");
+            runOnFlusher(onRejected);
+        }
+    }
+
+    // The batch was refused as a whole, e.g. for one expense charged to another user's account; the
+    // rows that still fail on their own are returned.
+    private List<Integer> writeOneByOne(Map<Integer, Expense> batchUpdates, Set<Integer> batchDeletes) throws SQLException {
+        List<Integer> rejected = new ArrayList<>();
+        List<Expense> rows = new ArrayList<>(batchUpdates.values());
+        List<Integer> ids = new ArrayList<>(batchDeletes);
+        int u = 0;
+        int d = 0;
+        try {
+            for (; u < rows.size(); u++) {
+                try {
+                    rejected.addAll(dao.applyChanges(List.of(rows.get(u)), List.of()));
+                } catch (SQLException ex) {
+                    if (isTransient(ex)) throw ex;
+                    rejected.add(rows.get(u).getId());
+                }
+            }
+            for (; d < ids.size(); d++) {
+                try {
+                    rejected.addAll(dao.applyChanges(List.of(), List.of(ids.get(d))));
+                } catch (SQLException ex) {
+                    if (isTransient(ex)) throw ex;
+                    rejected.add(ids.get(d));
+                }
+            }
+        } catch (SQLException ex) {
+            LinkedHashMap<Integer, Expense> leftUpdates = new LinkedHashMap<>();
+            for (Expense exp : rows.subList(u, rows.size())) leftUpdates.put(exp.getId(), exp);
+            requeue(leftUpdates, new LinkedHashSet<>(ids.subList(d, ids.size())));
+            // Part of the batch is written, and the balance sums do not say which part.
+            synchronized (this) {
+                balancesUnknown = true;
+            }
+            throw ex;
+        }
+        return rejected;
+    }
+
+    // Puts a failed batch back in front of what was queued meanwhile; newer changes to a row win.
+    private synchronized void requeue(Map<Integer, Expense> batchUpdates, Set<Integer> batchDeletes) {
+        LinkedHashMap<Integer, Expense> mergedUpdates = new LinkedHashMap<>();
+        batchUpdates.forEach((id, exp) -> {
+            if (!updates.containsKey(id) && !deletes.contains(id)) mergedUpdates.put(id, exp);
+        });
+        mergedUpdates.putAll(updates);
+        LinkedHashSet<Integer> mergedDeletes = new LinkedHashSet<>(batchDeletes);
+        mergedDeletes.addAll(deletes);
+        updates = mergedUpdates;
+        deletes = mergedDeletes;
+        inFlightBalanceCents.forEach((account, cents) -> balanceCents.merge(account, cents, Long::sum));
+        inFlightUpdates = Collections.emptyMap();
+        inFlightDeletes = Collections.emptySet();
+        inFlightBalanceCents = Collections.emptyMap();
+        FAILURES.increment();
+    }
+
+    private synchronized void queueUpdate(Expense exp) {
+        QUEUED.increment();
+        if (updates.remove(exp.getId()) != null) COALESCED.increment();
+        updates.put(exp.getId(), exp);
+    }
+
+    private synchronized void queueDelete(int id) {
+        QUEUED.increment();
+        if (updates.remove(id) != null) COALESCED.increment();
+        deletes.add(id);
+    }
+
+    // Back pressure: a caller that finds the queue full writes it out before adding to it.
+    private void makeRoom() throws SQLException {
+        if (size() >= maxPending) flush();
+    }
+
+    private void afterQueued() {
+        if (size() >= batchSize && !flushLock.isLocked()) runOnFlusher(this::flushQuietly);
+    }
+
+    private synchronized void runOnFlusher(Runnable task) {
+        if (!closed) flusher.execute(task);
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (SQLException ex) {
+            synchronized (this) {
+                if (!failing) System.err.println("Queued expense changes could not be written, retrying: " + ex.getMessage());
+                failing = true;
+            }
+        }
+    }
+
+    // Caller holds this. A log that cannot be written stops protecting the queue but does not stop it.
+    private void log(LogWrite write) {
+        if (log == null) return;
+        try {
+            write.run();
+        } catch (IOException ex) {
+            System.err.println("Write-behind log failed, queued changes will not survive a crash: " + ex.getMessage());
+        }
+    }
+
+    // The database could not be reached, as opposed to refusing the statements.
+    static boolean isTransient(SQLException ex) {
+        String state = ex.getSQLState();
+        return ex instanceof SQLTransientException || ex instanceof SQLRecoverableException
+                || (state != null && (state.startsWith("08") || state.startsWith("40")));
+    }
+
+    private interface LogWrite {
+        void run() throws IOException;
+    }
+
+    interface BalanceReader<T> {
+        T read(Map<Integer, Long> pendingCents) throws SQLException;
+    }
+}
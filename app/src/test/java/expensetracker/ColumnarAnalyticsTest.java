@@ -0,0 +1,71 @@
+package expensetracker;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static expensetracker.TestExpenses.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ColumnarAnalyticsTest {
+    // Enough rows that the fork-join path splits them into several leaves.
+    private static final int ROWS = 50_000;
+
+    private static ColumnarExpenseStore store(List<Expense> rows) {
+        return ColumnarExpenseStore.load(rows.stream());
+    }
+
+    private static List<Expense> spreadOverMay() {
+        List<Expense> rows = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            String day = String.format("2024-05-%02d", 1 + i % 31);
+            rows.add(i % 3 == 0 ? travel(i, 1 + i % 7, day) : food(i, 1 + i % 5, "lunch", day));
+        }
+        return rows;
+    }
+
+    @Test
+    void parallelDailyTotalsMatchOneSequentialScan() {
+        ColumnarExpenseStore store = store(spreadOverMay());
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (String type : new String[]{null, "Food", "Travel"}) {
+                DailyTotals parallel = new ColumnarAnalytics(store, pool).dailyTotals(type);
+                DailyTotals sequential = new ColumnarAnalytics(store, null).dailyTotals(type);
+                assertEquals(LocalDate.of(2024, 5, 1), parallel.getFirstDay());
+                assertEquals(LocalDate.of(2024, 5, 31), parallel.getLastDay());
+                assertEquals(sequential.total().getSumCents(), parallel.total().getSumCents());
+                for (int day = 1; day <= 31; day++) {
+                    LocalDate date = LocalDate.of(2024, 5, day);
+                    AggregateBucket expected = sequential.get(date);
+                    AggregateBucket actual = parallel.get(date);
+                    assertEquals(expected.getCount(), actual.getCount(), type + " " + date);
+                    assertEquals(expected.getSumCents(), actual.getSumCents(), type + " " + date);
+                    assertEquals(expected.getMinCents(), actual.getMinCents(), type + " " + date);
+                    assertEquals(expected.getMaxCents(), actual.getMaxCents(), type + " " + date);
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void mistypedYearStretchesOnlyTheResult() {
+        List<Expense> rows = spreadOverMay();
+        rows.add(food(ROWS, 9, "typo", "0202-05-01"));
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            DailyTotals totals = new ColumnarAnalytics(store(rows), pool).dailyTotals("Food");
+            assertEquals(LocalDate.of(202, 5, 1), totals.getFirstDay());
+            assertEquals(LocalDate.of(2024, 5, 31), totals.getLastDay());
+            assertEquals(900, totals.get(LocalDate.of(202, 5, 1)).getSumCents());
+            assertEquals(0, totals.get(LocalDate.of(1000, 1, 1)).getCount());
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package expensetracker;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConnectionPoolTest {
+    private static final AtomicInteger DATABASES = new AtomicInteger();
+
+    private ConnectionPool pool;
+
+    @AfterEach
+    void closePool() {
+        if (pool != null) pool.close();
+    }
+
+    private ConnectionPool open(int maxSize, int minIdle, long timeoutMillis) {
+        String url = "jdbc:h2:mem:pool" + DATABASES.incrementAndGet() + ";DB_CLOSE_DELAY=-1";
+        pool = new ConnectionPool(url, "sa", "", maxSize, minIdle, timeoutMillis, 30000, 8);
+        return pool;
+    }
+
+    @Test
+    void exhaustedPoolTimesOutAndRecoversOnRelease() throws SQLException {
+        open(2, 0, 200);
+        Connection first = pool.getConnection();
+        Connection second = pool.getConnection();
+
+        long start = System.nanoTime();
+        assertThrows(SQLTransientConnectionException.class, pool::getConnection);
+        assertTrue(System.nanoTime() - start >= 150_000_000L, "gave up before the acquire timeout");
+        assertEquals(1, pool.getStats().getTimeouts());
+        assertEquals(2, pool.getStats().getActive());
+
+        first.close();
+        try (Connection third = pool.getConnection()) {
+            assertTrue(third.isValid(1));
+        }
+        second.close();
+        assertEquals(0, pool.getStats().getActive());
+        assertEquals(2, pool.getStats().getCreated());
+    }
+
+    @Test
+    void releaseRollsBackAnOpenTransaction() throws SQLException {
+        open(1, 0, 1000);
+        try (Connection conn = pool.getConnection(); Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE t (id INT)");
+        }
+        try (Connection conn = pool.getConnection(); Statement stmt = conn.createStatement()) {
+            conn.setAutoCommit(false);
+            stmt.executeUpdate("INSERT INTO t VALUES (1)");
+        }
+        try (Connection conn = pool.getConnection(); Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM t")) {
+            assertTrue(conn.getAutoCommit());
+            rs.next();
+            assertEquals(0, rs.getInt(1));
+        }
+        assertEquals(1, pool.getStats().getCreated());
+    }
+
+    @Test
+    void returnedConnectionCannotBeUsed() throws SQLException {
+        open(1, 0, 1000);
+        Connection conn = pool.getConnection();
+        conn.close();
+        conn.close();
+        assertTrue(conn.isClosed());
+        assertThrows(SQLException.class, conn::createStatement);
+        assertEquals(0, pool.getStats().getActive());
+    }
+
+    @Test
+    void cachedStatementIsReusedAcrossBorrows() throws SQLException {
+        open(1, 0, 1000);
+        for (int i = 0; i < 3; i++) {
+            try (Connection conn = pool.getConnection(); PreparedStatement ps = conn.prepareStatement("SELECT ?")) {
+                ps.setInt(1, i);
+                try (ResultSet rs = ps.executeQuery()) {
+                    rs.next();
+                    assertEquals(i, rs.getInt(1));
+                }
+            }
+        }
+        assertEquals(1, pool.getStats().getStatementMisses());
+        assertEquals(2, pool.getStats().getStatementHits());
+    }
+
+    @Test
+    void minIdleIsOpenedAtCreation() throws InterruptedException {
+        open(4, 2, 1000);
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (pool.getStats().getIdle() < 2 && System.currentTimeMillis() < deadline) Thread.sleep(10);
+        assertEquals(2, pool.getStats().getIdle());
+        assertEquals(2, pool.getStats().getCreated());
+    }
+
+    @Test
+    void warmUpNeverOpensMoreThanMaxSize() throws Exception {
+        open(3, 3, 5000);
+        ExecutorService borrowers = Executors.newFixedThreadPool(6);
+        try {
+            List<Future<?>> done = new ArrayList<>();
+            for (int i = 0; i < 500; i++) {
+                done.add(borrowers.submit(() -> {
+                    try (Connection conn = pool.getConnection()) {
+                        assertTrue(conn.isValid(1));
+                    }
+                    return null;
+                }));
+            }
+            for (int i = 0; i < 50; i++) pool.warmUp();
+            for (Future<?> f : done) f.get();
+        } finally {
+            borrowers.shutdown();
+        }
+        assertTrue(pool.getStats().getCreated() <= 3, "opened " + pool.getStats().getCreated() + " connections");
+        assertEquals(0, pool.getStats().getActive());
+    }
+}
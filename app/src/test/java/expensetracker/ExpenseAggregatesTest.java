@@ -0,0 +1,81 @@
+package expensetracker;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.YearMonth;
+import java.util.List;
+
+import static expensetracker.TestExpenses.food;
+import static expensetracker.TestExpenses.travel;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExpenseAggregatesTest {
+    private static final YearMonth MAY = YearMonth.of(2024, 5);
+
+    private final ExpenseAggregates aggregates = new ExpenseAggregates();
+    private final BudgetMonitor budgets = new BudgetMonitor(80);
+    private final Counter crossed = Metrics.counter("budgets.crossed");
+
+    @BeforeEach
+    void setUp() {
+        budgets.setLimit("Food", 100);
+        budgets.setLimit(BudgetMonitor.ALL_TYPES, 300);
+        aggregates.setBudgets(budgets);
+    }
+
+    @Test
+    void editingAnExpenseOverItsLimitKeepsTheAlert() {
+        aggregates.add(food(1, 150, "lunch", "2024-05-03"));
+        long before = crossed.get();
+        List<BudgetAlert> alerts = budgets.getAlerts();
+        assertEquals(1, alerts.size());
+        assertTrue(alerts.get(0).isExceeded());
+
+        aggregates.replace(food(1, 150, "lunch", "2024-05-03"), food(1, 160, "lunch", "2024-05-04"));
+
+        assertEquals(before, crossed.get(), "an edit that stays over the limit is not a new crossing");
+        assertEquals(1, budgets.getAlerts().size());
+        assertEquals(16000, aggregates.getByTypeAndMonth("Food", MAY).getSumCents());
+        assertEquals(1, aggregates.getByMonth(MAY).getCount());
+        assertEquals(16000, aggregates.getByMonth(MAY).getMaxCents());
+    }
+
+    @Test
+    void movingARowChecksBothMonthsOnce() {
+        aggregates.add(food(1, 90, "lunch", "2024-05-03"));
+        aggregates.add(food(2, 20, "lunch", "2024-06-03"));
+        long before = crossed.get();
+        assertEquals(1, budgets.getAlerts().size(), "May is at 90% of the Food limit");
+
+        aggregates.replace(food(1, 90, "lunch", "2024-05-03"), food(1, 90, "lunch", "2024-06-10"));
+
+        assertEquals(before + 1, crossed.get(), "June crosses into exceeded; May only drops its warning");
+        List<BudgetAlert> alerts = budgets.getAlerts();
+        assertEquals(1, alerts.size());
+        assertEquals(YearMonth.of(2024, 6), alerts.get(0).getMonth());
+        assertEquals(0, aggregates.getByMonth(MAY).getCount());
+    }
+
+    @Test
+    void changingTheTypeMovesTheSumBetweenTypes() {
+        aggregates.add(food(1, 120, "lunch", "2024-05-03"));
+        aggregates.replace(food(1, 120, "lunch", "2024-05-03"), travel(1, 120, "2024-05-03"));
+
+        assertEquals(0, aggregates.getByTypeAndMonth("Food", MAY).getSumCents());
+        assertEquals(12000, aggregates.getByTypeAndMonth("Travel", MAY).getSumCents());
+        assertEquals(12000, aggregates.getByMonth(MAY).getSumCents());
+        assertTrue(budgets.getAlerts().isEmpty());
+        assertFalse(aggregates.hasStaleExtremes());
+    }
+
+    @Test
+    void loweringTheOnlyMaximumLeavesExtremesKnown() {
+        aggregates.add(food(1, 40, "lunch", "2024-05-03"));
+        aggregates.add(food(2, 60, "lunch", "2024-05-03"));
+        aggregates.replace(food(2, 60, "lunch", "2024-05-03"), food(2, 70, "lunch", "2024-05-03"));
+        assertFalse(aggregates.hasStaleExtremes());
+        aggregates.replace(food(2, 70, "lunch", "2024-05-03"), food(2, 50, "lunch", "2024-05-03"));
+        assertTrue(aggregates.hasStaleExtremes(), "the old maximum is gone and 50 may not be the new one");
+    }
+}
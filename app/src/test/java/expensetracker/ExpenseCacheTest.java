@@ -0,0 +1,79 @@
+package expensetracker;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+
+import static expensetracker.TestExpenses.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+// The DAO below lets a test run a write between a cache miss reading a row and the cache storing
+// it, which is where a reader without the manager's lock meets a concurrent update or delete.
+class ExpenseCacheTest {
+    private final RacingDAO dao = new RacingDAO();
+    private final ExpenseCache cache = new ExpenseCache(dao, 100);
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        deleteAll("expenses");
+    }
+
+    @Test
+    void missReadingAnOlderRowDoesNotOverwriteAConcurrentUpdate() throws SQLException {
+        Expense exp = food(-1, 10, "lunch");
+        dao.insertExpense(exp);
+        Expense edited = food(exp.getId(), 12, "lunch, tip");
+        dao.duringRead = () -> cache.update(edited);
+
+        assertEquals(10, cache.get(exp.getId()).getAmount(), "the reader still sees what it read");
+        assertEquals(12, cache.get(exp.getId()).getAmount());
+        assertEquals(12, stored(exp.getId()).getAmount());
+    }
+
+    @Test
+    void missDoesNotBringBackARowDeletedMeanwhile() throws SQLException {
+        Expense exp = food(-1, 10, "lunch");
+        dao.insertExpense(exp);
+        dao.duringRead = () -> cache.delete(exp.getId());
+
+        assertNotNull(cache.get(exp.getId()));
+        assertNull(cache.get(exp.getId()));
+    }
+
+    @Test
+    void quietMissIsCached() throws SQLException {
+        Expense exp = food(-1, 10, "lunch");
+        dao.insertExpense(exp);
+
+        assertEquals(10, cache.get(exp.getId()).getAmount());
+        assertEquals(1, cache.size());
+        assertEquals(1, dao.reads);
+        assertEquals(10, cache.get(exp.getId()).getAmount());
+        assertEquals(1, dao.reads, "the second read is a hit");
+    }
+
+    private static final class RacingDAO extends ExpenseDAO {
+        interface Write {
+            void run() throws SQLException;
+        }
+
+        // Runs once, after the row was read and before the cache sees it.
+        Write duringRead;
+        int reads;
+
+        RacingDAO() {
+            super(false);
+        }
+
+        @Override
+        public Expense findExpense(int expenseId) throws SQLException {
+            reads++;
+            Expense row = super.findExpense(expenseId);
+            Write write = duringRead;
+            duringRead = null;
+            if (write != null) write.run();
+            return row;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package expensetracker;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.*;
+
+import static expensetracker.TestExpenses.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExpenseDAOTest {
+    private final ExpenseDAO dao = new ExpenseDAO(false);
+    private final List<Integer> ids = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        deleteAll("expenses");
+        List<Expense> rows = new ArrayList<>();
+        for (int i = 0; i < 600; i++) rows.add(food(-1, 1 + i, "row " + i));
+        dao.insertExpenses(rows);
+        rows.forEach(exp -> ids.add(exp.getId()));
+    }
+
+    private static Set<Integer> idsOf(List<Expense> rows) {
+        Set<Integer> found = new HashSet<>();
+        for (Expense exp : rows) assertTrue(found.add(exp.getId()), "row " + exp.getId() + " returned twice");
+        return found;
+    }
+
+    @Test
+    void paddedIdListsReturnEachRowOnce() throws SQLException {
+        for (int n : new int[]{1, 2, 8, 9, 64, 65, 500, 501, 600}) {
+            int[] wanted = ids.subList(0, n).stream().mapToInt(Integer::intValue).toArray();
+            assertEquals(new HashSet<>(ids.subList(0, n)), idsOf(dao.findExpenses(wanted)), n + " ids");
+        }
+        int[] withMissing = {ids.get(0), -5, ids.get(1)};
+        assertEquals(Set.of(ids.get(0), ids.get(1)), idsOf(dao.findExpenses(withMissing)));
+    }
+
+    @Test
+    void idListsOfDifferentLengthsShareStatements() throws SQLException {
+        for (int n = 2; n <= 8; n++) dao.findExpenses(new int[]{ids.get(0), ids.get(n)});
+        long misses = DatabaseConnection.getPoolStats().getStatementMisses();
+        for (int n = 2; n <= 8; n++) {
+            int[] wanted = ids.subList(0, n).stream().mapToInt(Integer::intValue).toArray();
+            assertEquals(n, dao.findExpenses(wanted).size());
+        }
+        assertEquals(misses, DatabaseConnection.getPoolStats().getStatementMisses(),
+                "lists of 2 to 8 ids are all padded to 8 and reuse one prepared statement");
+    }
+}
@@ -0,0 +1,147 @@
+package expensetracker;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.*;
+
+import static expensetracker.TestExpenses.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+// Chunks of a few bytes put a chunk boundary inside nearly every record, so these tests cover
+// records, quotes and escapes cut anywhere by the reader.
+class ExpenseImporterTest {
+    private static final byte[] BOM = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+
+    @TempDir
+    Path dir;
+
+    private ExpenseManager manager;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        deleteAll("expenses");
+        manager = new ExpenseManager(null);
+    }
+
+    @AfterEach
+    void tearDown() {
+        manager.close();
+    }
+
+    private ExpenseImporter importer(String name, byte[] content, int chunkBytes) throws IOException {
+        Path file = dir.resolve(name);
+        Files.write(file, content);
+        return new ExpenseImporter(file, ExpenseFormat.forFile(file), 3, chunkBytes);
+    }
+
+    private static byte[] withBom(String text) {
+        byte[] body = text.getBytes(StandardCharsets.UTF_8);
+        byte[] bytes = Arrays.copyOf(BOM, BOM.length + body.length);
+        System.arraycopy(body, 0, bytes, BOM.length, body.length);
+        return bytes;
+    }
+
+    private Map<String, Expense> importedByDescription() throws SQLException {
+        Map<String, Expense> rows = new TreeMap<>();
+        for (Expense exp : manager.getAllExpenses()) rows.put(exp.getDescription(), exp);
+        return rows;
+    }
+
+    @Test
+    void csvWithBomQuotesAndCrlfSurvivesAnyChunkBoundary() throws Exception {
+        String csv = "Type;Date;Amount;Description;Restaurant;Destination;Transport Mode\r\n"
+                + "food;2024-05-01;12.50;\"lunch; \"\"the usual\"\"\";Café\r\n"
+                + "Travel;2024-05-02;300;\"two\nlines\";;Lisbon;Train\r\n"
+                + "\r\n"
+                + "Food;2024-05-03;4;coffee;Kiosk";
+        for (int chunkBytes : new int[]{1, 7, 64, 4096}) {
+            deleteAll("expenses");
+            manager.invalidate();
+            ExpenseImporter importer = importer("expenses.csv", withBom(csv), chunkBytes);
+            assertEquals(3, importer.run(manager, r -> { }).getRows(), "chunks of " + chunkBytes);
+            assertEquals(0, importer.getRejected());
+
+            Map<String, Expense> rows = importedByDescription();
+            assertEquals(Set.of("coffee", "lunch; \"the usual\"", "two\nlines"), rows.keySet());
+            Expense lunch = rows.get("lunch; \"the usual\"");
+            assertEquals("Food", lunch.getType(), "the BOM is not part of the first column name");
+            assertEquals(12.5, lunch.getAmount());
+            assertEquals("Café", lunch.getDetails());
+            assertEquals("Lisbon, Train", rows.get("two\nlines").getDetails());
+            assertEquals("Kiosk", rows.get("coffee").getDetails(), "the last record has no newline");
+        }
+    }
+
+    @Test
+    void rejectedRowsAreNumberedAcrossChunks() throws Exception {
+        StringBuilder csv = new StringBuilder("type,date,amount,description,restaurant\n");
+        for (int row = 1; row <= 40; row++) {
+            String amount = row % 10 == 0 ? "-1" : "5";
+            String date = row == 7 ? "2024-02-30" : "2024-05-01";
+            csv.append("Food,").append(date).append(',').append(amount).append(",row ").append(row).append(",Diner\n");
+        }
+        ExpenseImporter importer = importer("expenses.csv", csv.toString().getBytes(StandardCharsets.UTF_8), 50);
+        assertEquals(35, importer.run(manager, r -> { }).getRows());
+        assertEquals(5, importer.getRejected());
+        List<String> errors = importer.getErrors();
+        assertEquals(5, errors.size());
+        assertTrue(errors.get(0).startsWith("row 7: "), errors.get(0));
+        assertTrue(errors.get(1).startsWith("row 10: "), errors.get(1));
+        assertTrue(errors.get(4).startsWith("row 40: "), errors.get(4));
+    }
+
+    @Test
+    void headerWithoutRequiredColumnsIsRefused() throws Exception {
+        ExpenseImporter importer = importer("expenses.csv",
+                "type,amount,description\nFood,5,lunch\n".getBytes(StandardCharsets.UTF_8), 4096);
+        IOException ex = assertThrows(IOException.class, () -> importer.run(manager, r -> { }));
+        assertTrue(ex.getMessage().contains("type, date and amount"), ex.getMessage());
+        assertTrue(manager.getAllExpenses().isEmpty());
+    }
+
+    @Test
+    void jsonArrayWithEscapesAndNullsSurvivesAnyChunkBoundary() throws Exception {
+        String json = "[\n"
+                + "  {\"type\": \"Food\", \"date\": \"2024-05-01\", \"amount\": 9.75, "
+                + "\"description\": \"say \\\"hi\\\" {not an object}\", \"restaurant\": \"Caf\\u00e9\", \"account_id\": null},\n"
+                + "  {\"type\": \"Utility\", \"date\": \"2024-05-02\", \"amount\": \"80\", \"description\": \"power\", "
+                + "\"utility_type\": \"Electric\", \"ignored\": {\"nested\": 1}},\n"
+                + "  {\"type\": \"Travel\", \"date\": \"2024-05-03\", \"amount\": 20, \"description\": \"bus\", "
+                + "\"details\": \"Porto, Bus\"}\n"
+                + "]";
+        for (int chunkBytes : new int[]{1, 2, 3, 5, 13, 4096}) {
+            deleteAll("expenses");
+            manager.invalidate();
+            ExpenseImporter importer = importer("expenses.json", withBom(json), chunkBytes);
+            assertEquals(3, importer.run(manager, r -> { }).getRows(), "chunks of " + chunkBytes);
+
+            Map<String, Expense> rows = importedByDescription();
+            Expense food = rows.get("say \"hi\" {not an object}");
+            assertNotNull(food, rows.keySet().toString());
+            assertEquals("Café", food.getDetails());
+            assertNull(food.getAccountId());
+            assertEquals(80, rows.get("power").getAmount());
+            assertEquals("Electric", rows.get("power").getDetails());
+            assertEquals("Porto, Bus", rows.get("bus").getDetails());
+        }
+    }
+
+    @Test
+    void jsonLinesAreReadOnePerLine() throws Exception {
+        String lines = "{\"type\":\"Food\",\"date\":\"2024-05-01\",\"amount\":1,\"description\":\"a\",\"restaurant\":\"X\"}\n"
+                + "{\"type\":\"Food\",\"date\":\"2024-05-01\",\"amount\":0,\"description\":\"b\",\"restaurant\":\"X\"}\n"
+                + "{\"type\":\"Food\",\"date\":\"2024-05-01\",\"amount\":2,\"description\":\"c\",\"restaurant\":\"X\"}";
+        ExpenseImporter importer = importer("expenses.jsonl", lines.getBytes(StandardCharsets.UTF_8), 5);
+        assertEquals(2, importer.run(manager, r -> { }).getRows());
+        assertEquals(List.of("row 2: Amount must be a positive number."), importer.getErrors());
+        assertEquals(Set.of("a", "c"), importedByDescription().keySet());
+    }
+}
@@ -0,0 +1,166 @@
+package expensetracker;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+
+import static expensetracker.TestExpenses.food;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExpenseJournalTest {
+    private static final String STORE = "jdbc:h2:mem:journal#user=1";
+    // Must match the journal header: magic, format, generation, store hash, clean flag.
+    private static final int HEADER_SIZE = 28;
+
+    @TempDir
+    Path dir;
+
+    private ExpenseJournal open() throws IOException {
+        return ExpenseJournal.open(dir, STORE, 0, 1 << 20);
+    }
+
+    private static void assertSameExpense(Expense expected, Expense actual) {
+        assertNotNull(actual, "missing expense " + expected.getId());
+        assertEquals(expected.getType(), actual.getType());
+        assertEquals(expected.getAmount(), actual.getAmount());
+        assertEquals(expected.getDate(), actual.getDate());
+        assertEquals(expected.getDescription(), actual.getDescription());
+        assertEquals(expected.getDetails(), actual.getDetails());
+        assertEquals(expected.getUserId(), actual.getUserId());
+        assertEquals(expected.getAccountId(), actual.getAccountId());
+    }
+
+    @Test
+    void recoversSnapshotPlusJournalAfterCleanClose() throws IOException {
+        Expense travel = new TravelExpense(2, 120.5, java.sql.Date.valueOf("2024-02-10"), null, "Lisbon", null);
+        travel.setAccountId(3);
+        try (ExpenseJournal journal = open()) {
+            assertNull(journal.recover(), "a fresh journal has nothing to trust");
+            journal.compact(List.of(food(1, 10, "lunch"), travel));
+            journal.appendAdd(food(3, 7.25, "coffee"));
+            journal.appendUpdate(food(1, 12, "lunch, tip included"));
+            journal.appendDelete(2);
+        }
+
+        try (ExpenseJournal journal = open()) {
+            Map<Integer, Expense> rows = journal.recover();
+            assertNotNull(rows);
+            assertEquals(List.of(1, 3), List.copyOf(rows.keySet()));
+            assertSameExpense(food(1, 12, "lunch, tip included"), rows.get(1));
+            assertSameExpense(food(3, 7.25, "coffee"), rows.get(3));
+        }
+    }
+
+    @Test
+    void tornTailIsCutOffAndLaterAppendsFollowTheLastGoodRecord() throws IOException {
+        try (ExpenseJournal journal = open()) {
+            journal.compact(List.of(food(1, 10, "lunch")));
+            journal.appendAdd(food(2, 20, "dinner"));
+            journal.appendAdd(food(3, 30, "groceries"));
+        }
+        // Zero the end of the last record, as if the process died halfway through writing it.
+        try (FileChannel file = FileChannel.open(dir.resolve("expenses.journal"), StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            int second = HEADER_SIZE + 8 + readInt(file, HEADER_SIZE);
+            int length = readInt(file, second);
+            file.write(ByteBuffer.allocate(6), second + 4 + length - 2);
+        }
+
+        try (ExpenseJournal journal = open()) {
+            Map<Integer, Expense> rows = journal.recover();
+            assertEquals(List.of(1, 2), List.copyOf(rows.keySet()));
+            journal.appendAdd(food(4, 40, "taxi"));
+        }
+        try (ExpenseJournal journal = open()) {
+            Map<Integer, Expense> rows = journal.recover();
+            assertEquals(List.of(1, 2, 4), List.copyOf(rows.keySet()));
+            assertSameExpense(food(4, 40, "taxi"), rows.get(4));
+        }
+    }
+
+    @Test
+    void compactionFoldsTheJournalIntoANewSnapshot() throws IOException {
+        double last = 10;
+        try (ExpenseJournal journal = ExpenseJournal.open(dir, STORE, 0, 200)) {
+            journal.compact(List.of(food(1, 10, "lunch")));
+            for (int i = 1; !journal.needsCompaction(); i++) {
+                last = 10 + i;
+                journal.appendUpdate(food(1, last, "lunch " + i));
+            }
+            assertTrue(journal.needsCompaction());
+            Map<Integer, Expense> rows = journal.recover();
+            journal.compact(rows.values());
+            assertFalse(journal.needsCompaction());
+            assertTrue(journal.getStats().endsWith("bytes=0"), journal.getStats());
+            journal.appendAdd(food(2, 5, "snack"));
+        }
+        try (ExpenseJournal journal = open()) {
+            Map<Integer, Expense> rows = journal.recover();
+            assertEquals(List.of(1, 2), List.copyOf(rows.keySet()));
+            assertEquals(last, rows.get(1).getAmount());
+        }
+    }
+
+    @Test
+    void recordsFromBeforeTheLastCompactionAreNotReplayed() throws IOException {
+        try (ExpenseJournal journal = open()) {
+            journal.compact(List.of(food(1, 10, "lunch")));
+            journal.appendAdd(food(2, 20, "dinner"));
+            journal.appendAdd(food(3, 30, "groceries"));
+            journal.compact(List.of(food(1, 10, "lunch")));
+            // The old records are still in the file past this point, under the previous generation.
+        }
+        try (ExpenseJournal journal = open()) {
+            assertEquals(List.of(1), List.copyOf(journal.recover().keySet()));
+        }
+    }
+
+    @Test
+    void journalLeftOpenByACrashIsNotTrusted() throws IOException {
+        ExpenseJournal crashed = open();
+        crashed.compact(List.of(food(1, 10, "lunch")));
+        crashed.appendAdd(food(2, 20, "dinner"));
+        try (ExpenseJournal journal = open()) {
+            assertNull(journal.recover());
+            assertFalse(journal.isActive());
+        } finally {
+            crashed.close();
+        }
+    }
+
+    @Test
+    void journalOfAnotherStoreIsIgnored() throws IOException {
+        try (ExpenseJournal journal = open()) {
+            journal.compact(List.of(food(1, 10, "lunch")));
+        }
+        try (ExpenseJournal journal = ExpenseJournal.open(dir, "jdbc:h2:mem:other#user=1", 0, 1 << 20)) {
+            assertNull(journal.recover());
+        }
+    }
+
+    @Test
+    void invalidateDropsTheSnapshot() throws IOException {
+        try (ExpenseJournal journal = open()) {
+            journal.compact(List.of(food(1, 10, "lunch")));
+            journal.invalidate();
+            journal.appendAdd(food(2, 20, "dinner"));
+            assertNull(journal.recover());
+        }
+        try (ExpenseJournal journal = open()) {
+            assertNull(journal.recover());
+        }
+    }
+
+    private static int readInt(FileChannel file, long position) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(4);
+        file.read(buf, position);
+        return buf.getInt(0);
+    }
+}
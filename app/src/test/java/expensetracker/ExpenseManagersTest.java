@@ -0,0 +1,74 @@
+package expensetracker;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.SQLException;
+
+import static expensetracker.TestExpenses.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+// Write-behind is on with a long flush interval, so a queued change reaches the database only when
+// its manager is closed; that shows when an evicted manager actually gets closed.
+class ExpenseManagersTest {
+    @TempDir
+    Path dir;
+
+    @RegisterExtension
+    final SystemProperties properties = new SystemProperties();
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        useWriteBehind(properties, dir);
+        deleteAll("expenses");
+    }
+
+    @Test
+    void leasesOfOneUserShareTheManager() {
+        try (ExpenseManagers managers = new ExpenseManagers(2);
+             ExpenseManagers.Lease first = managers.forUser(1);
+             ExpenseManagers.Lease second = managers.forUser(1)) {
+            assertSame(first.manager(), second.manager());
+            assertEquals(1, managers.size());
+        }
+    }
+
+    @Test
+    void evictedManagerIsClosedOnlyAfterItsLastLease() throws SQLException {
+        try (ExpenseManagers managers = new ExpenseManagers(1)) {
+            ExpenseManagers.Lease held = managers.forUser(1);
+            Expense exp = food(-1, 10, "lunch");
+            held.manager().addExpense(exp);
+
+            managers.forUser(2).close();
+            assertEquals(1, managers.size());
+            // Still open: the change is queued, not written, and the manager keeps working.
+            held.manager().updateExpense(food(exp.getId(), 12, "lunch"));
+            assertEquals(12, held.manager().getExpense(exp.getId()).getAmount());
+            assertEquals(10, stored(exp.getId()).getAmount());
+
+            held.close();
+            assertEquals(12, stored(exp.getId()).getAmount(), "closing the last lease closes the evicted manager");
+            try (ExpenseManagers.Lease again = managers.forUser(1)) {
+                assertNotSame(held.manager(), again.manager());
+            }
+        }
+    }
+
+    @Test
+    void unleasedManagerIsClosedWhenEvicted() throws SQLException {
+        try (ExpenseManagers managers = new ExpenseManagers(1)) {
+            Expense exp = food(-1, 10, "lunch");
+            try (ExpenseManagers.Lease lease = managers.forUser(1)) {
+                lease.manager().addExpense(exp);
+                lease.manager().updateExpense(food(exp.getId(), 15, "lunch"));
+            }
+            assertEquals(10, stored(exp.getId()).getAmount());
+            managers.forUser(2).close();
+            assertEquals(15, stored(exp.getId()).getAmount());
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package expensetracker;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.Stream;
+
+import static expensetracker.TestExpenses.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExpenseSearchIndexTest {
+    private final ExpenseSearchIndex index = ExpenseSearchIndex.build(Stream.of(
+            food(1, 10, "Lunch with Anna"),
+            food(2, 20, "Restaurant dinner"),
+            food(3, 5, "lunchbox refill"),
+            travel(4, 300, DATE)));
+
+    @Test
+    void wordsMatchTheTermsTheyArePrefixesOf() {
+        assertArrayEquals(new int[]{1, 3}, index.search("lunch"));
+        assertArrayEquals(new int[]{2}, index.search("REST"));
+        assertArrayEquals(new int[]{1, 2, 3}, index.search("caf"), "details are indexed, accents included");
+        assertArrayEquals(new int[]{4}, index.search("porto"));
+        assertArrayEquals(new int[]{1}, index.search("lunch, anna"), "every word must match");
+        assertArrayEquals(new int[0], index.search("lunch dinner"));
+        assertArrayEquals(new int[0], index.search(" ,;"));
+    }
+
+    @Test
+    void misspelledWordsMatchWithinTheirEditBudget() {
+        assertArrayEquals(new int[]{2}, index.search("resturant"), "one deletion");
+        assertArrayEquals(new int[]{2}, index.search("restorant"), "two edits in a long word");
+        assertArrayEquals(new int[]{2}, index.search("diner"), "one missing letter");
+        assertArrayEquals(new int[0], index.search("dinenr"), "a swap is two edits, too many for six letters");
+        assertArrayEquals(new int[]{1, 3}, index.search("lumch"), "fuzzy matching also works on prefixes");
+        assertArrayEquals(new int[0], index.search("luc"), "short words are only matched as prefixes");
+    }
+
+    @Test
+    void fuzzyMatchingIsOnlyTheFallback() {
+        ExpenseSearchIndex withBoth = ExpenseSearchIndex.build(Stream.of(
+                food(1, 1, "tram"), food(2, 1, "train")));
+        assertArrayEquals(new int[]{1}, withBoth.search("tram"), "a prefix match hides near misses such as trai");
+        assertArrayEquals(new int[]{1, 2}, withBoth.search("trax"));
+    }
+
+    @Test
+    void editBudgetGrowsWithWordLength() {
+        assertEquals(0, ExpenseSearchIndex.maxEdits("bus"));
+        assertEquals(1, ExpenseSearchIndex.maxEdits("taxi"));
+        assertEquals(1, ExpenseSearchIndex.maxEdits("dinner"));
+        assertEquals(2, ExpenseSearchIndex.maxEdits("groceries"));
+    }
+
+    @Test
+    void prefixDistanceMeasuresAgainstTheClosestPrefix() {
+        assertEquals(0, ExpenseSearchIndex.prefixDistance("lunch", "lunchbox", 2));
+        assertEquals(1, ExpenseSearchIndex.prefixDistance("lunhc", "lunchbox", 2), "dropping the h leaves the prefix lunc");
+        assertEquals(1, ExpenseSearchIndex.prefixDistance("resturant", "restaurants", 2));
+        assertEquals(1, ExpenseSearchIndex.prefixDistance("lunchx", "lunch", 2), "an extra letter past the term");
+        assertEquals(3, ExpenseSearchIndex.prefixDistance("abcdef", "uvwxyz", 2), "gives up at limit + 1");
+        assertEquals(2, ExpenseSearchIndex.prefixDistance("abc", "", 1), "an empty term is limit + 1 away");
+    }
+
+    @Test
+    void removedAndUpdatedRowsLeaveNoStaleTerms() {
+        int terms = index.termCount();
+        Expense edited = food(1, 10, "Lunch with Bruno");
+        index.update(food(1, 10, "Lunch with Anna"), edited);
+        assertArrayEquals(new int[0], index.search("anna"));
+        assertArrayEquals(new int[]{1}, index.search("bruno"));
+        assertEquals(terms, index.termCount());
+
+        index.remove(edited);
+        index.remove(food(3, 5, "lunchbox refill"));
+        assertArrayEquals(new int[0], index.search("lunch"));
+        assertEquals(terms - 5, index.termCount(), "lunch, with, bruno, lunchbox and refill went; café stays");
+    }
+}
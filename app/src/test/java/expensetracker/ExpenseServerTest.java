@@ -0,0 +1,150 @@
+package expensetracker;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.SQLException;
+
+import static expensetracker.TestExpenses.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+// A real server on an ephemeral port, so requests go through HttpServer's routing and framing.
+class ExpenseServerTest {
+    private static final String LUNCH = "{\"type\":\"Food\",\"date\":\"2024-05-01\",\"amount\":12.5,"
+            + "\"description\":\"lunch\",\"restaurant\":\"Café\"}";
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private ExpenseManagers managers;
+    private ExpenseServer server;
+
+    @BeforeEach
+    void setUp() throws SQLException, IOException {
+        deleteAll("expenses");
+        managers = new ExpenseManagers();
+        server = new ExpenseServer(new InetSocketAddress("127.0.0.1", 0), managers);
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+        managers.close();
+    }
+
+    private HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.getPort() + path));
+    }
+
+    private HttpResponse<String> send(HttpRequest.Builder request) throws IOException, InterruptedException {
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpResponse<String> send(String method, String path, String body) throws IOException, InterruptedException {
+        HttpRequest.BodyPublisher publisher = body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body);
+        return send(request(path).method(method, publisher).header("Content-Type", "application/json"));
+    }
+
+    private String create(String json) throws IOException, InterruptedException {
+        HttpResponse<String> created = send("POST", "/expenses", json);
+        assertEquals(201, created.statusCode(), created.body());
+        return created.headers().firstValue("Location").orElseThrow();
+    }
+
+    @Test
+    void expensesCanBeCreatedReadReplacedAndDeleted() throws Exception {
+        String location = create(LUNCH);
+        assertTrue(location.matches("/expenses/\\d+"), location);
+
+        HttpResponse<String> read = send("GET", location, null);
+        assertEquals(200, read.statusCode());
+        assertTrue(read.body().contains("\"description\":\"lunch\""), read.body());
+        assertTrue(read.body().contains("Café"), "bodies are UTF-8");
+
+        HttpResponse<String> replaced = send("PUT", location, LUNCH.replace("12.5", "14"));
+        assertEquals(200, replaced.statusCode(), replaced.body());
+        assertEquals(14, stored(Integer.parseInt(location.substring("/expenses/".length()))).getAmount());
+
+        assertEquals(204, send("DELETE", location, null).statusCode());
+        assertEquals(404, send("GET", location, null).statusCode());
+        assertEquals(404, send("DELETE", location, null).statusCode());
+    }
+
+    @Test
+    void listingsStreamEveryRowAndPageOnRequest() throws Exception {
+        for (int i = 0; i < 5; i++) create(LUNCH.replace("lunch", "lunch " + i));
+        HttpResponse<String> all = send("GET", "/expenses?format=jsonl&sort=description&order=asc", null);
+        assertEquals(200, all.statusCode());
+        assertEquals("application/x-ndjson; charset=utf-8", all.headers().firstValue("Content-Type").orElse(null));
+        String[] lines = all.body().split("\n");
+        assertEquals(5, lines.length);
+        assertTrue(lines[0].contains("\"lunch 0\""), lines[0]);
+
+        HttpResponse<String> page = send("GET", "/expenses?format=jsonl&sort=description&order=asc&offset=1&limit=2", null);
+        assertEquals(2, page.body().split("\n").length);
+        assertTrue(page.body().startsWith("{") && page.body().contains("\"lunch 1\""), page.body());
+
+        HttpResponse<String> search = send("GET", "/expenses?format=jsonl&q=lunch%203", null);
+        assertEquals(1, search.body().split("\n").length, search.body());
+    }
+
+    @Test
+    void unknownRoutesAndMethodsAreRefused() throws Exception {
+        assertEquals(404, send("GET", "/expenses/1/receipt", null).statusCode());
+        assertEquals(404, send("GET", "/expenses?after=999999", null).statusCode());
+        assertEquals(405, send("PATCH", "/expenses", "{}").statusCode());
+        assertEquals(405, send("GET", "/expenses/import", null).statusCode());
+        assertEquals(405, send("POST", "/aggregates", "{}").statusCode());
+        assertEquals(405, send("DELETE", "/metrics", null).statusCode());
+        HttpResponse<String> bad = send("GET", "/expenses/abc", null);
+        assertEquals(400, bad.statusCode());
+        assertTrue(bad.body().startsWith("{\"error\":"), bad.body());
+        assertEquals(400, send("GET", "/expenses?limit=0", null).statusCode());
+        assertEquals(400, send("GET", "/expenses?sort=colour", null).statusCode());
+        assertEquals(400, send("POST", "/expenses", LUNCH.replace("12.5", "-1")).statusCode());
+    }
+
+    @Test
+    void oversizedBodiesAndUnknownContentTypesAreRefused() throws Exception {
+        String huge = LUNCH.replace("lunch", "x".repeat(70 * 1024));
+        assertEquals(413, send("POST", "/expenses", huge).statusCode());
+
+        HttpResponse<String> text = send(request("/expenses/import")
+                .header("Content-Type", "text/plain")
+                .POST(HttpRequest.BodyPublishers.ofString("Food,2024-05-01,1,a,X\n")));
+        assertEquals(415, text.statusCode());
+
+        HttpResponse<String> csv = send(request("/expenses/import")
+                .header("Content-Type", "text/csv; charset=utf-8")
+                .POST(HttpRequest.BodyPublishers.ofString("type,date,amount,description,restaurant\n"
+                        + "Food,2024-05-01,1,a,X\nFood,2024-05-01,0,b,X\n")));
+        assertEquals(200, csv.statusCode(), csv.body());
+        assertTrue(csv.body().startsWith("{\"rows\":1,\"rejected\":1,"), csv.body());
+    }
+
+    @Test
+    void aggregatesAnswerRevalidationWithNotModifiedUntilSomethingChanges() throws Exception {
+        create(LUNCH);
+        HttpResponse<String> first = send("GET", "/aggregates", null);
+        assertEquals(200, first.statusCode());
+        assertTrue(first.body().contains("\"total\":{\"count\":1,\"sum\":12.50,"), first.body());
+        String etag = first.headers().firstValue("ETag").orElseThrow();
+
+        HttpResponse<String> again = send(request("/aggregates").header("If-None-Match", "\"other\", " + etag));
+        assertEquals(304, again.statusCode());
+        assertEquals("", again.body());
+        assertEquals(etag, again.headers().firstValue("ETag").orElse(null));
+
+        create(LUNCH);
+        HttpResponse<String> changed = send(request("/aggregates").header("If-None-Match", etag));
+        assertEquals(200, changed.statusCode());
+        assertNotEquals(etag, changed.headers().firstValue("ETag").orElse(null));
+        assertTrue(changed.body().contains("\"total\":{\"count\":2,\"sum\":25.00,"), changed.body());
+    }
+}
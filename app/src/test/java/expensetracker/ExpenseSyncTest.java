@@ -0,0 +1,212 @@
+package expensetracker;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.*;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static expensetracker.TestExpenses.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+// The test database is the local store and a fresh in-memory H2 database per test is the upstream
+// one. Local writes go through ExpenseDAO with change tracking on; writes made upstream by other
+// clients are plain SQL logged with recordChanges, as ExpenseDAO does when it writes there directly.
+class ExpenseSyncTest {
+    private static final AtomicInteger UPSTREAMS = new AtomicInteger();
+
+    private final ExpenseDAO dao = new ExpenseDAO(ExpenseScope.user(1), true);
+    private final AtomicInteger remoteChanges = new AtomicInteger();
+    private ConnectionPool upstream;
+    private ExpenseSync sync;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            ExpenseSync.createLocalTables(conn);
+        }
+        deleteAll("expenses", "Accounts", "sync_outbox", "sync_link", "sync_meta");
+        String url = "jdbc:h2:mem:upstream" + UPSTREAMS.incrementAndGet() + ";DB_CLOSE_DELAY=-1;MODE=MySQL";
+        upstream = new ConnectionPool(url, "sa", "", 2, 0, 5000, 30000, 8);
+        sync = new ExpenseSync(DatabaseConnection::getConnection, upstream, true, remoteChanges::incrementAndGet);
+    }
+
+    @AfterEach
+    void tearDown() {
+        sync.close();
+    }
+
+    private static Double localAmount(String description) throws SQLException {
+        return amount(DatabaseConnection.getConnection(), description);
+    }
+
+    private Double upstreamAmount(String description) throws SQLException {
+        return amount(upstream.getConnection(), description);
+    }
+
+    private static Double amount(Connection borrowed, String description) throws SQLException {
+        try (Connection conn = borrowed;
+             PreparedStatement pstmt = conn.prepareStatement("SELECT amount FROM expenses WHERE description=?")) {
+            pstmt.setString(1, description);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getDouble(1) : null;
+            }
+        }
+    }
+
+    private int upstreamId(String description) throws SQLException {
+        try (Connection conn = upstream.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement("SELECT id FROM expenses WHERE description=?")) {
+            pstmt.setString(1, description);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                assertTrue(rs.next(), description + " is not upstream");
+                return rs.getInt(1);
+            }
+        }
+    }
+
+    // Runs sql upstream in one transaction with the change logged, like another client's write.
+    private void writeUpstream(String sql, int id, boolean delete) throws SQLException {
+        try (Connection conn = upstream.getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            conn.setAutoCommit(false);
+            pstmt.setInt(1, id);
+            assertEquals(1, pstmt.executeUpdate());
+            ExpenseSync.recordChanges(conn, List.of(id), delete ? Set.of(id) : Set.of());
+            conn.commit();
+        }
+    }
+
+    private int insertUpstream(String description, double amount) throws SQLException {
+        try (Connection conn = upstream.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement("INSERT INTO expenses (amount, date, description, type, "
+                     + "details, user_id) VALUES (?, DATE '2024-06-02', ?, 'Food', 'Cafe', 1)", Statement.RETURN_GENERATED_KEYS)) {
+            conn.setAutoCommit(false);
+            pstmt.setDouble(1, amount);
+            pstmt.setString(2, description);
+            pstmt.executeUpdate();
+            int id;
+            try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                assertTrue(keys.next());
+                id = keys.getInt(1);
+            }
+            ExpenseSync.recordChanges(conn, List.of(id), Set.of());
+            conn.commit();
+            return id;
+        }
+    }
+
+    @Test
+    void pushesLocalRowsAndPullsChangesMadeUpstream() throws SQLException {
+        dao.insertExpense(food(-1, 10, "lunch"));
+        sync.syncOnce();
+        assertEquals(10, upstreamAmount("lunch"));
+        assertEquals(0, sync.getStats().getPending());
+
+        writeUpstream("UPDATE expenses SET amount=20, version=version+1 WHERE id=?", upstreamId("lunch"), false);
+        insertUpstream("coffee", 3.5);
+        sync.syncOnce();
+        assertEquals(20, localAmount("lunch"));
+        assertEquals(3.5, localAmount("coffee"));
+        assertEquals(1, remoteChanges.get(), "pulling back the row it pushed is not a change");
+    }
+
+    @Test
+    void pullReadsOnlyChangesPastItsMark() throws SQLException {
+        dao.insertExpense(food(-1, 10, "lunch"));
+        sync.syncOnce();
+        sync.syncOnce();
+        long pulled = sync.getStats().getPulled();
+        int changes = remoteChanges.get();
+
+        // Not logged, so no pull looks at it again; only logged changes are read.
+        try (Connection conn = upstream.getConnection(); Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("UPDATE expenses SET amount=99, version=version+1");
+        }
+        sync.syncOnce();
+        assertEquals(pulled, sync.getStats().getPulled());
+        assertEquals(changes, remoteChanges.get());
+        assertEquals(10, localAmount("lunch"));
+
+        insertUpstream("coffee", 3.5);
+        sync.syncOnce();
+        assertEquals(pulled + 1, sync.getStats().getPulled());
+        assertEquals(3.5, localAmount("coffee"));
+        assertEquals(10, localAmount("lunch"));
+    }
+
+    @Test
+    void rowEditedOnBothSidesTakesTheUpstreamCopy() throws SQLException {
+        Expense exp = food(-1, 10, "lunch");
+        dao.insertExpense(exp);
+        sync.syncOnce();
+
+        exp.setAmount(11);
+        dao.updateExpense(exp);
+        writeUpstream("UPDATE expenses SET amount=30, version=version+1 WHERE id=?", upstreamId("lunch"), false);
+        sync.syncOnce();
+
+        assertEquals(1, sync.getStats().getConflicts());
+        assertEquals(30, localAmount("lunch"));
+        assertEquals(30, upstreamAmount("lunch"));
+        sync.syncOnce();
+        assertEquals(30, localAmount("lunch"), "the conflict is resolved once");
+        assertEquals(1, sync.getStats().getConflicts());
+    }
+
+    @Test
+    void deletesTravelBothWays() throws SQLException {
+        Expense lunch = food(-1, 10, "lunch");
+        dao.insertExpense(lunch);
+        dao.insertExpense(food(-1, 20, "dinner"));
+        sync.syncOnce();
+        int dinner = upstreamId("dinner");
+
+        writeUpstream("DELETE FROM expenses WHERE id=?", dinner, true);
+        dao.deleteExpense(lunch.getId());
+        sync.syncOnce();
+
+        assertNull(localAmount("dinner"));
+        assertNull(upstreamAmount("lunch"));
+        try (Connection conn = DatabaseConnection.getConnection(); Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM sync_link")) {
+            assertTrue(rs.next());
+            assertEquals(0, rs.getInt(1));
+        }
+        try (Connection conn = upstream.getConnection(); Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM sync_changes WHERE deleted")) {
+            assertTrue(rs.next());
+            assertEquals(2, rs.getInt(1), "both deletes leave a tombstone");
+        }
+    }
+
+    @Test
+    void localDeleteOfARowEditedUpstreamBringsTheRowBack() throws SQLException {
+        Expense exp = food(-1, 10, "lunch");
+        dao.insertExpense(exp);
+        sync.syncOnce();
+
+        dao.deleteExpense(exp.getId());
+        writeUpstream("UPDATE expenses SET amount=12, version=version+1 WHERE id=?", upstreamId("lunch"), false);
+        sync.syncOnce();
+
+        assertEquals(1, sync.getStats().getConflicts());
+        assertEquals(12, upstreamAmount("lunch"));
+        assertEquals(12, localAmount("lunch"));
+    }
+
+    @Test
+    void firstPullWalksRowsThatPredateTheLog() throws SQLException {
+        try (Connection conn = upstream.getConnection()) {
+            new SchemaMigrator().migrate(conn);
+            try (Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate("INSERT INTO expenses (amount, date, description, type, details, user_id) "
+                        + "VALUES (7, DATE '2024-06-03', 'old', 'Food', 'Cafe', 1)");
+            }
+        }
+        sync.syncOnce();
+        assertEquals(7, localAmount("old"));
+    }
+}
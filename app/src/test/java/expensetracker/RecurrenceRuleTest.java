@@ -0,0 +1,82 @@
+package expensetracker;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RecurrenceRuleTest {
+    private static LocalDate next(String spec, String start, String from) {
+        return RecurrenceRule.parse(spec).next(LocalDate.parse(start), LocalDate.parse(from));
+    }
+
+    private static LocalDate next(String spec, String from) {
+        return next(spec, from, from);
+    }
+
+    @Test
+    void monthlyClampsToShortMonthsWithoutDrifting() {
+        assertEquals(LocalDate.parse("2024-02-29"), next("monthly", "2024-01-31", "2024-02-01"));
+        assertEquals(LocalDate.parse("2024-03-31"), next("monthly", "2024-01-31", "2024-03-01"),
+                "each month counts from the start, not from February's clamped day");
+        assertEquals(LocalDate.parse("2024-04-30"), next("monthly", "2024-01-31", "2024-04-01"));
+        assertEquals(LocalDate.parse("2025-02-28"), next("monthly", "2024-01-31", "2025-02-01"));
+        assertEquals(LocalDate.parse("2024-03-15"), next("monthly", "2024-01-15", "2024-02-16"));
+        assertEquals(LocalDate.parse("2024-02-29"), next("monthly/3", "2023-11-30", "2024-01-01"));
+    }
+
+    @Test
+    void fixedPeriodsCountFromTheStart() {
+        assertEquals(LocalDate.parse("2024-05-01"), next("daily", "2024-05-01", "2024-04-01"));
+        assertEquals(LocalDate.parse("2024-05-03"), next("daily/2", "2024-05-01", "2024-05-02"));
+        assertEquals(LocalDate.parse("2024-05-08"), next("weekly", "2024-05-01", "2024-05-08"));
+        assertEquals(LocalDate.parse("2024-05-15"), next("Weekly/2", "2024-05-01", "2024-05-09"));
+    }
+
+    @Test
+    void cronDueOnEitherDayFieldWhenBothAreRestricted() {
+        // 2024-09-01 is a Sunday.
+        assertEquals(LocalDate.parse("2024-09-06"), next("cron 13 * fri", "2024-09-01"), "the first Friday");
+        assertEquals(LocalDate.parse("2024-09-13"), next("cron 13 * fri", "2024-09-07"));
+        assertEquals(LocalDate.parse("2024-10-04"), next("cron 13 * fri", "2024-09-28"));
+        assertEquals(LocalDate.parse("2024-10-13"), next("cron 13 * fri", "2024-10-12"), "the 13th, a Sunday");
+        assertEquals(LocalDate.parse("2024-09-06"), next("cron * * fri", "2024-09-01"));
+        assertEquals(LocalDate.parse("2024-09-13"), next("cron 13 * *", "2024-09-01"));
+    }
+
+    @Test
+    void cronStarWithAStepStillRestrictsBothFields() {
+        // */10 is a star to cron, so the day must be 1, 11, 21 or 31 and also a Sunday.
+        assertEquals(LocalDate.parse("2024-09-01"), next("cron */10 * 0", "2024-09-01"));
+        assertEquals(LocalDate.parse("2024-12-01"), next("cron */10 * 0", "2024-09-02"));
+    }
+
+    @Test
+    void cronWeekdayZeroAndSevenAreBothSunday() {
+        LocalDate sunday = LocalDate.parse("2024-09-08");
+        assertEquals(sunday, next("cron * * 0", "2024-09-02"));
+        assertEquals(sunday, next("cron * * 7", "2024-09-02"));
+        assertEquals(sunday, next("cron * * SUN", "2024-09-02"));
+        assertEquals(LocalDate.parse("2024-09-06"), next("cron * * 5-7", "2024-09-02"));
+        assertEquals(sunday, next("cron * * 6-7", "2024-09-08"));
+        assertEquals(LocalDate.parse("2024-09-09"), next("cron * * 1-5", "2024-09-07"));
+    }
+
+    @Test
+    void cronScansMonthsAndYears() {
+        assertEquals(LocalDate.parse("2024-12-25"), next("cron 25 dec *", "2024-01-10"));
+        assertEquals(LocalDate.parse("2025-01-01"), next("cron 1 jan,jul *", "2024-07-02"));
+        assertEquals(LocalDate.parse("2028-02-29"), next("cron 29 2 *", "2025-03-01"));
+        assertNull(next("cron 31 feb *", "2024-01-01"));
+    }
+
+    @Test
+    void specsAreNormalizedAndValidated() {
+        assertEquals("cron 1 jan mon", RecurrenceRule.parse("  Cron 1   JAN  mon ").toString());
+        for (String bad : new String[]{null, "", "yearly", "weekly/0", "cron 1 2", "cron 32 * *", "cron 5-1 * *",
+                "cron * 13 *", "cron * * 8", "cron * * funday", "cron */0 * *"}) {
+            assertThrows(IllegalArgumentException.class, () -> RecurrenceRule.parse(bad), bad);
+        }
+    }
+}
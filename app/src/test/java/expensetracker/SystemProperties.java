@@ -0,0 +1,32 @@
+package expensetracker;
+
+import org.junit.jupiter.api.extension.AfterEachCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Sets system properties for one test and puts back what was there before once it ends. Register
+// it with @RegisterExtension; it restores after the test's own @AfterEach methods have run, so
+// those still see the test's settings.
+final class SystemProperties implements AfterEachCallback {
+    private final Map<String, String> previous = new LinkedHashMap<>();
+
+    SystemProperties set(String name, String value) {
+        if (!previous.containsKey(name)) previous.put(name, System.getProperty(name));
+        System.setProperty(name, value);
+        return this;
+    }
+
+    @Override
+    public void afterEach(ExtensionContext context) {
+        previous.forEach((name, value) -> {
+            if (value == null) {
+                System.clearProperty(name);
+            } else {
+                System.setProperty(name, value);
+            }
+        });
+        previous.clear();
+    }
+}
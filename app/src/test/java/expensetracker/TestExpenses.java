@@ -0,0 +1,49 @@
+package expensetracker;
+
+import java.nio.file.Path;
+import java.sql.*;
+
+// Rows and database setup shared by the tests. Expenses belong to user 1, the default user; pass
+// -1 as the id for a row that is not stored yet.
+final class TestExpenses {
+    static final String DATE = "2024-05-01";
+
+    private TestExpenses() {
+    }
+
+    static Expense food(int id, double amount, String description) {
+        return food(id, amount, description, DATE);
+    }
+
+    // The restaurant is not ASCII, so every row also checks that text survives a round trip.
+    static Expense food(int id, double amount, String description, String date) {
+        Expense exp = new FoodExpense(id, amount, java.sql.Date.valueOf(date), description, "Café");
+        exp.setUserId(1);
+        return exp;
+    }
+
+    static Expense travel(int id, double amount, String date) {
+        Expense exp = new TravelExpense(id, amount, java.sql.Date.valueOf(date), "trip", "Porto", null);
+        exp.setUserId(1);
+        return exp;
+    }
+
+    // The row as the test database holds it, bypassing every cache; null if it is not there.
+    static Expense stored(int id) throws SQLException {
+        return new ExpenseDAO(false).findExpense(id);
+    }
+
+    static void deleteAll(String... tables) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection(); Statement stmt = conn.createStatement()) {
+            for (String table : tables) stmt.executeUpdate("DELETE FROM " + table);
+        }
+    }
+
+    // Write-behind with a flush interval long enough that nothing is written unless a test asks for
+    // it, and the write-behind log kept under dir.
+    static void useWriteBehind(SystemProperties properties, Path dir) {
+        properties.set("expense.writeBehind.enabled", "true")
+                .set("expense.writeBehind.flushMs", "600000")
+                .set("expense.journal.dir", dir.toString());
+    }
+}
@@ -0,0 +1,190 @@
+package expensetracker;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static expensetracker.TestExpenses.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+// Runs ExpenseManager with write-behind on against the test database; the flush interval is long
+// enough that nothing is written unless a test asks for it.
+class WriteBehindQueueTest {
+    private static final int ACCOUNT = 7;
+
+    @TempDir
+    Path dir;
+
+    @RegisterExtension
+    final SystemProperties properties = new SystemProperties();
+
+    private final List<ExpenseManager> managers = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        useWriteBehind(properties, dir);
+        deleteAll("expenses", "Accounts");
+        try (Connection conn = DatabaseConnection.getConnection(); Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("INSERT INTO Accounts (AccountID, UserID, AccountName, Balance) VALUES ("
+                    + ACCOUNT + ", 1, 'Checking', 1000.00)");
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        managers.forEach(ExpenseManager::close);
+    }
+
+    private ExpenseManager newManager() {
+        ExpenseManager manager = new ExpenseManager(null);
+        managers.add(manager);
+        return manager;
+    }
+
+    private static Expense charged(int id, double amount, String description) {
+        Expense exp = food(id, amount, description);
+        exp.setAccountId(ACCOUNT);
+        return exp;
+    }
+
+    private static double storedBalance() throws SQLException {
+        return new AccountDAO(1).findAccount(ACCOUNT).getBalance();
+    }
+
+    @Test
+    void repeatedUpdatesCollapseIntoOneWrite() throws SQLException {
+        ExpenseManager manager = newManager();
+        Expense kept = charged(-1, 10, "lunch");
+        Expense dropped = charged(-1, 20, "dinner");
+        manager.addExpense(kept);
+        manager.addExpense(dropped);
+        long coalesced = Metrics.counter("writeBehind.coalesced").get();
+
+        for (int i = 1; i <= 50; i++) manager.updateExpense(charged(kept.getId(), 10 + i, "lunch " + i));
+        manager.updateExpense(charged(dropped.getId(), 25, "dinner, moved"));
+        manager.deleteExpense(dropped.getId());
+
+        assertEquals(50, Metrics.counter("writeBehind.coalesced").get() - coalesced);
+        assertEquals(10, stored(kept.getId()).getAmount(), "written before the queue was flushed");
+        assertEquals(60, manager.getExpense(kept.getId()).getAmount());
+        assertNull(manager.getExpense(dropped.getId()));
+        assertThrows(SQLException.class, () -> manager.updateExpense(charged(dropped.getId(), 1, "gone")));
+
+        // A read that goes to the database writes the queue out first.
+        assertEquals(1, manager.getAllExpenses().size());
+        assertEquals("lunch 50", stored(kept.getId()).getDescription());
+        assertNull(stored(dropped.getId()));
+        assertEquals(940, storedBalance());
+    }
+
+    @Test
+    void balancesAndPositionsDoNotFlushTheQueue() throws SQLException {
+        ExpenseManager manager = newManager();
+        Expense first = charged(-1, 10, "a");
+        Expense second = charged(-1, 30, "b");
+        manager.addExpense(first);
+        manager.addExpense(second);
+        assertTrue(manager.warmCache());
+        assertEquals(960, manager.getAccounts().get(0).getBalance());
+
+        Expense moved = charged(first.getId(), 50, "a, more");
+        manager.updateExpense(moved);
+        assertEquals(920, manager.getAccounts().get(0).getBalance());
+        ExpenseSort byAmount = new ExpenseSort(ExpenseSort.Column.AMOUNT, true);
+        assertEquals(1, manager.countExpensesBefore(byAmount, moved));
+        assertEquals(2, manager.countExpenses());
+
+        // Read again from the database, with the queued change added on top.
+        manager.invalidate();
+        assertEquals(920, manager.getAccounts().get(0).getBalance());
+        assertEquals(960, storedBalance(), "the queue was not written out");
+        assertEquals(10, stored(first.getId()).getAmount());
+    }
+
+    @Test
+    void changesLeftInTheLogAreWrittenOnTheNextStart() throws SQLException {
+        ExpenseManager crashed = newManager();
+        Expense updated = charged(-1, 10, "lunch");
+        Expense deleted = charged(-1, 20, "dinner");
+        crashed.addExpense(updated);
+        crashed.addExpense(deleted);
+        crashed.updateExpense(charged(updated.getId(), 15, "lunch, tip"));
+        crashed.deleteExpense(deleted.getId());
+        // The process dies here: the queue is never flushed or closed.
+        managers.remove(crashed);
+        assertEquals(10, stored(updated.getId()).getAmount());
+        assertNotNull(stored(deleted.getId()));
+
+        ExpenseManager restarted = newManager();
+        assertEquals(15, restarted.getExpense(updated.getId()).getAmount());
+        assertNull(restarted.getExpense(deleted.getId()));
+        // What the recovered changes do to balances is only known once they are written.
+        assertEquals(985, restarted.getAccounts().get(0).getBalance());
+        assertEquals(15, stored(updated.getId()).getAmount());
+        assertNull(stored(deleted.getId()));
+        assertEquals(985, storedBalance());
+    }
+
+    @Test
+    void changesTheDatabaseRefusesAreDropped() throws SQLException {
+        ExpenseManager manager = newManager();
+        Expense exp = charged(-1, 10, "lunch");
+        manager.addExpense(exp);
+        manager.updateExpense(charged(exp.getId(), 12, "lunch, edited"));
+        new ExpenseDAO(false).deleteExpense(exp.getId());
+
+        assertEquals(0, manager.getAllExpenses().size());
+        assertNull(stored(exp.getId()));
+    }
+
+    @Test
+    void aStuckFlushDoesNotHoldUpAnotherQueue() throws Exception {
+        ExpenseDAO dao = new ExpenseDAO(false);
+        Expense first = charged(-1, 10, "lunch");
+        Expense second = charged(-1, 20, "dinner");
+        dao.insertExpense(first);
+        dao.insertExpense(second);
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExpenseDAO stuckDao = new ExpenseDAO(false) {
+            @Override
+            public List<Integer> applyChanges(Collection<? extends Expense> updates, Collection<Integer> deletes)
+                    throws SQLException {
+                entered.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.applyChanges(updates, deletes);
+            }
+        };
+        // A batch size of one hands every change to the queue's flusher at once.
+        WriteBehindQueue stuck = new WriteBehindQueue(stuckDao, 600_000, 1, 10, null, () -> { });
+        WriteBehindQueue other = new WriteBehindQueue(dao, 600_000, 1, 10, null, () -> { });
+        try {
+            stuck.update(charged(first.getId(), 11, "lunch"), first);
+            assertTrue(entered.await(5, TimeUnit.SECONDS));
+            other.update(charged(second.getId(), 21, "dinner"), second);
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (stored(second.getId()).getAmount() != 21 && System.nanoTime() < deadline) Thread.sleep(10);
+            assertEquals(21, stored(second.getId()).getAmount());
+            assertEquals(10, stored(first.getId()).getAmount());
+        } finally {
+            release.countDown();
+            stuck.close();
+            other.close();
+        }
+        assertEquals(11, stored(first.getId()).getAmount());
+    }
+}
@@ -0,0 +1,57 @@
+package expensetracker;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+// ColumnarAnalytics reports run sequentially (threads = 0) vs on fork-join pools of 2, 4 and 8 workers.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx6g"})
+@State(Scope.Benchmark)
+public class AnalyticsBenchmark {
+    @Param({"1000000", "10000000"})
+    public int rows;
+
+    @Param({"0", "2", "4", "8"})
+    public int threads;
+
+    private ForkJoinPool pool;
+    private ColumnarAnalytics analytics;
+
+    @Setup
+    public void setUp() {
+        pool = threads == 0 ? null : new ForkJoinPool(threads);
+        analytics = new ColumnarAnalytics(BenchmarkData.sampleStore(rows), pool);
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (pool != null) pool.shutdown();
+    }
+
+    @Benchmark
+    public Map<?, ?> monthlyRollup() {
+        return analytics.dailyTotals(null).monthly();
+    }
+
+    @Benchmark
+    public Map<String, AggregateBucket> restaurantBreakdown() {
+        return analytics.breakdown(Breakdown.RESTAURANT);
+    }
+
+    @Benchmark
+    public List<Expense> top100() {
+        return analytics.top(100, null);
+    }
+
+    @Benchmark
+    public long[] percentiles() {
+        return analytics.percentiles(null, 50, 90, 99);
+    }
+}
@@ -0,0 +1,64 @@
+package expensetracker;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+// Shared fixtures: an embedded database unless expense.db.url says otherwise, and synthetic expenses.
+final class BenchmarkData {
+    private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+
+    private BenchmarkData() {}
+
+    // Must run before DatabaseConnection is first touched, since it reads its settings once.
+    // Benchmarks talk to the database directly rather than through the synced local store.
+    static void useEmbeddedDatabase() {
+        if (System.getProperty("expense.sync.enabled") == null) {
+            System.setProperty("expense.sync.enabled", "false");
+        }
+        if (System.getProperty("expense.db.url") == null) {
+            System.setProperty("expense.db.url", "jdbc:h2:mem:bench;DB_CLOSE_DELAY=-1;MODE=MySQL");
+            System.setProperty("expense.db.user", "sa");
+        }
+    }
+
+    // The schema itself is created by SchemaMigrator when the pool starts.
+    static void resetTable() throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("DELETE FROM expenses");
+        }
+    }
+
+    static List<Expense> sampleExpenses(int rows) {
+        List<Expense> expenses = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            expenses.add(sampleExpense(i));
+        }
+        return expenses;
+    }
+
+    // Built row by row, so ten million rows never exist as Expense objects at once.
+    static ColumnarExpenseStore sampleStore(int rows) {
+        ColumnarExpenseStore store = new ColumnarExpenseStore();
+        for (int i = 0; i < rows; i++) {
+            store.add(sampleExpense(i));
+        }
+        return store;
+    }
+
+    static Expense sampleExpense(int i) {
+        java.sql.Date date = new java.sql.Date(1_700_000_000_000L - (i % 3650) * DAY_MILLIS);
+        double amount = 1 + (i % 500) + (i % 100) / 100.0;
+        switch (i % 3) {
+            case 0:
+                return new FoodExpense(i + 1, amount, date, "Lunch " + (i % 20), "Cafe " + (i % 50));
+            case 1:
+                return new TravelExpense(i + 1, amount, date, "Trip " + (i % 20), "City " + (i % 40), "Train");
+            default:
+                return new UtilityExpense(i + 1, amount, date, "Bill " + (i % 20), "Electricity");
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package expensetracker;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.stream.Stream;
+
+// Compares the retained heap of List<Expense> with ColumnarExpenseStore for the same rows.
+// Usage: java ColumnarMemoryReport [rows]     synthetic data
+//        java ColumnarMemoryReport --db       everything in expense.db.url
+public class ColumnarMemoryReport {
+    public static void main(String[] args) throws SQLException {
+        boolean fromDb = args.length > 0 && args[0].equals("--db");
+        int rows = !fromDb && args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+
+        long baseline = usedHeap();
+        List<Expense> objects = fromDb ? new ExpenseManager(null).getAllExpenses() : BenchmarkData.sampleExpenses(rows);
+        long objectBytes = usedHeap() - baseline;
+        long expectedCents = objects.stream().mapToLong(e -> ExpenseAggregates.toCents(e.getAmount())).sum();
+
+        ColumnarExpenseStore store;
+        try (Stream<Expense> source = objects.stream()) {
+            store = ColumnarExpenseStore.load(source);
+        }
+        objects = null;
+        long columnarBytes = usedHeap() - baseline;
+
+        System.out.printf("rows:                 %,d%n", store.size());
+        System.out.printf("ArrayList<Expense>:   %,d bytes (%.1f bytes/row)%n", objectBytes, objectBytes / (double) store.size());
+        System.out.printf("columnar (measured):  %,d bytes (%.1f bytes/row)%n", columnarBytes, columnarBytes / (double) store.size());
+        System.out.printf("columnar (estimated): %,d bytes, %,d distinct strings%n", store.estimatedBytes(), store.distinctStrings());
+        System.out.printf("ratio:                %.1fx smaller%n", objectBytes / (double) columnarBytes);
+        if (store.sumCents() != expectedCents) {
+            throw new IllegalStateException("Columnar totals differ from the object list.");
+        }
+        DatabaseConnection.closeConnection();
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
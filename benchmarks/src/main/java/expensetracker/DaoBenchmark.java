@@ -0,0 +1,76 @@
+package expensetracker;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// ExpenseDAO against the embedded database: per-row vs batched inserts, and full-table row mapping.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DaoBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class InsertState {
+        @Param({"1000"})
+        public int rows;
+
+        @Param({"100", "1000"})
+        public int batchSize;
+
+        ExpenseDAO dao;
+        List<Expense> expenses;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            BenchmarkData.useEmbeddedDatabase();
+            dao = new ExpenseDAO();
+            dao.setBatchSize(batchSize);
+            expenses = BenchmarkData.sampleExpenses(rows);
+        }
+
+        @Setup(Level.Iteration)
+        public void clearTable() throws SQLException {
+            BenchmarkData.resetTable();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class ReadState {
+        @Param({"10000", "100000"})
+        public int tableRows;
+
+        ExpenseDAO dao;
+
+        @Setup(Level.Trial)
+        public void setUp() throws SQLException {
+            BenchmarkData.useEmbeddedDatabase();
+            BenchmarkData.resetTable();
+            dao = new ExpenseDAO();
+            dao.insertExpenses(BenchmarkData.sampleExpenses(tableRows));
+        }
+    }
+
+    @Benchmark
+    public int insertPerRow(InsertState state) throws SQLException {
+        for (Expense exp : state.expenses) {
+            state.dao.insertExpense(exp);
+        }
+        return state.expenses.size();
+    }
+
+    @Benchmark
+    public int insertBatched(InsertState state) throws SQLException {
+        state.dao.insertExpenses(state.expenses);
+        return state.expenses.size();
+    }
+
+    @Benchmark
+    public List<Expense> getAllExpenses(ReadState state) throws SQLException {
+        return state.dao.getAllExpenses();
+    }
+}
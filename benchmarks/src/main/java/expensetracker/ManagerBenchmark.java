@@ -0,0 +1,40 @@
+package expensetracker;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Totals: re-summing the loaded list on every change vs reading the incrementally maintained aggregate.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ManagerBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    public int rows;
+
+    private ExpenseManager manager;
+    private List<Expense> expenses;
+    private ExpenseAggregates aggregates;
+
+    @Setup
+    public void setUp() {
+        manager = new ExpenseManager(null);
+        expenses = BenchmarkData.sampleExpenses(rows);
+        aggregates = new ExpenseAggregates();
+        expenses.forEach(aggregates::add);
+    }
+
+    @Benchmark
+    public double getTotalExpenses() {
+        return manager.getTotalExpenses(expenses);
+    }
+
+    @Benchmark
+    public long aggregateTotal() {
+        return aggregates.getTotal().getSumCents();
+    }
+}
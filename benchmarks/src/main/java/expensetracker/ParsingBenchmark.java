@@ -0,0 +1,44 @@
+package expensetracker;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// TravelExpense.setDetailsFromString runs once per Travel row read from the database.
+// legacySplit is the original regex-based implementation, kept for comparison.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ParsingBenchmark {
+    @Param({"Paris, Train", "New York,Plane", "malformed"})
+    public String details;
+
+    private TravelExpense expense;
+
+    @Setup
+    public void setUp() {
+        expense = new TravelExpense(1, 10, new java.sql.Date(0), "Trip", "", "");
+    }
+
+    @Benchmark
+    public String setDetailsFromString() {
+        expense.setDetailsFromString(details);
+        return expense.getTransportMode();
+    }
+
+    @Benchmark
+    public String legacySplit() {
+        String[] parts = details.split(",\\s*");
+        if (parts.length == 2) {
+            expense.setDestination(parts[0]);
+            expense.setTransportMode(parts[1]);
+        } else {
+            expense.setDestination("");
+            expense.setTransportMode("");
+        }
+        return expense.getTransportMode();
+    }
+}
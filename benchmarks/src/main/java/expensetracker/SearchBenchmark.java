@@ -0,0 +1,44 @@
+package expensetracker;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// ExpenseSearchIndex lookups: an exact word, a prefix matching many terms, two words, and a misspelling.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+@State(Scope.Benchmark)
+public class SearchBenchmark {
+    @Param({"100000", "1000000"})
+    public int rows;
+
+    private ExpenseSearchIndex index;
+
+    @Setup
+    public void setUp() {
+        index = ExpenseSearchIndex.build(BenchmarkData.sampleExpenses(rows).stream());
+    }
+
+    @Benchmark
+    public int[] word() {
+        return index.search("cafe");
+    }
+
+    @Benchmark
+    public int[] prefix() {
+        return index.search("c");
+    }
+
+    @Benchmark
+    public int[] twoWords() {
+        return index.search("city 3");
+    }
+
+    @Benchmark
+    public int[] fuzzy() {
+        return index.search("electrcity");
+    }
+}
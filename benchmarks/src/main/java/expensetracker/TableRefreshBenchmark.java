@@ -0,0 +1,46 @@
+package expensetracker;
+
+import org.openjdk.jmh.annotations.*;
+
+import javax.swing.table.DefaultTableModel;
+import java.text.SimpleDateFormat;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// The original refreshTable(): clear a DefaultTableModel and re-add every row with formatted strings.
+// ExpenseTableModel replaced this; its cost per change is one page, independent of these row counts.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(value = 1, jvmArgs = {"-Djava.awt.headless=true", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class TableRefreshBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    public int rows;
+
+    private List<Expense> expenses;
+    private DefaultTableModel tableModel;
+    private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
+
+    @Setup
+    public void setUp() {
+        expenses = BenchmarkData.sampleExpenses(rows);
+        tableModel = new DefaultTableModel(new String[]{"Type", "Amount", "Date", "Description", "Details"}, 0);
+    }
+
+    @Benchmark
+    public int legacyRefreshTable() {
+        tableModel.setRowCount(0);
+        for (Expense exp : expenses) {
+            tableModel.addRow(new Object[]{
+                    exp.getType(),
+                    String.format("%.2f", exp.getAmount()),
+                    dateFormat.format(exp.getDate()),
+                    exp.getDescription() == null || exp.getDescription().isEmpty() ? "-" : exp.getDescription(),
+                    exp.getDetails()
+            });
+        }
+        return tableModel.getRowCount();
+    }
+}
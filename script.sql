@@ -39,26 +39,108 @@ CREATE TABLE Transactions (
     Type VARCHAR(10) CHECK (Type IN ('Income', 'Expense'))
 );
 
+-- Indexes for the per-user and per-category lookups below
+CREATE INDEX idx_transactions_user_type ON Transactions (UserID, Type, CategoryID);
+CREATE INDEX idx_transactions_account_date ON Transactions (AccountID, TransactionDate);
+CREATE INDEX idx_accounts_user ON Accounts (UserID);
+
+-- Create expenses table used by the desktop app. The app applies the same schema through
+-- SchemaMigrator on startup (recorded in schema_version), so running this part is optional.
+CREATE TABLE expenses (
+    id INT AUTO_INCREMENT PRIMARY KEY,
+    amount DECIMAL(12, 2) NOT NULL,
+    date DATE NOT NULL,
+    description VARCHAR(255),
+    type VARCHAR(20) NOT NULL,
+    details VARCHAR(255),
+    restaurant VARCHAR(100),
+    destination VARCHAR(100),
+    transport_mode VARCHAR(50),
+    utility_type VARCHAR(50),
+    transaction_id BIGINT,
+    version INT NOT NULL DEFAULT 1,
+    origin VARCHAR(64),
+    user_id INT NOT NULL DEFAULT 1,
+    account_id INT,
+    recurrence_id INT
+);
+
+CREATE INDEX idx_expenses_user_date_id ON expenses (user_id, date, id);
+CREATE INDEX idx_expenses_user_type_date ON expenses (user_id, type, date, amount);
+CREATE INDEX idx_expenses_account_date ON expenses (account_id, date);
+CREATE INDEX idx_expenses_transaction ON expenses (transaction_id);
+CREATE UNIQUE INDEX idx_expenses_origin ON expenses (origin);
+CREATE UNIQUE INDEX idx_expenses_recurrence ON expenses (recurrence_id, date);
+
+-- Rules for expenses that repeat; the app writes each due occurrence into expenses.
+CREATE TABLE recurring_expenses (
+    id INT AUTO_INCREMENT PRIMARY KEY,
+    user_id INT NOT NULL,
+    account_id INT,
+    amount DECIMAL(12, 2) NOT NULL,
+    description VARCHAR(255),
+    type VARCHAR(20) NOT NULL,
+    details VARCHAR(255),
+    schedule VARCHAR(100) NOT NULL,
+    start_date DATE NOT NULL,
+    end_date DATE,
+    next_date DATE
+);
+
+CREATE INDEX idx_recurring_user_next ON recurring_expenses (user_id, next_date);
+
+-- The latest change to each expense, deletes included, for incremental sync pulls.
+CREATE TABLE sync_clock (
+    id INT PRIMARY KEY,
+    seq BIGINT NOT NULL
+);
+
+INSERT INTO sync_clock (id, seq) VALUES (1, 1);
+
+CREATE TABLE sync_changes (
+    expense_id INT PRIMARY KEY,
+    seq BIGINT NOT NULL,
+    deleted BOOLEAN NOT NULL
+);
+
+CREATE INDEX idx_sync_changes_seq ON sync_changes (seq, expense_id);
+
+CREATE TABLE schema_version (
+    version INT PRIMARY KEY,
+    description VARCHAR(200) NOT NULL,
+    installed_on TIMESTAMP NOT NULL
+);
+
+INSERT INTO schema_version (version, description, installed_on) VALUES
+(1, 'create expenses', CURRENT_TIMESTAMP),
+(2, 'typed detail columns', CURRENT_TIMESTAMP),
+(3, 'indexes for date order and per-type aggregates', CURRENT_TIMESTAMP),
+(4, 'link expenses to transactions', CURRENT_TIMESTAMP),
+(5, 'row versions for sync', CURRENT_TIMESTAMP),
+(6, 'scope expenses to users and accounts', CURRENT_TIMESTAMP),
+(7, 'recurring expenses', CURRENT_TIMESTAMP),
+(8, 'change log for incremental sync', CURRENT_TIMESTAMP);
+
 -- Insert sample data into Users table
 INSERT INTO Users (Username, Email, Password) VALUES 
 ('user1', 'user1@example.com', 'password1'),
 ('user2', 'user2@example.com', 'password2');
 
 -- Insert sample data into Accounts table
-INSERT INTO Accounts (User ID, AccountName, Balance) VALUES 
+INSERT INTO Accounts (UserID, AccountName, Balance) VALUES 
 (1, 'Savings Account', 5000.00),
 (1, 'Checking Account', 1500.00),
 (2, 'Business Account', 3000.00);
 
 -- Insert sample data into Categories table
-INSERT INTO Categories (User ID, CategoryName) VALUES 
+INSERT INTO Categories (UserID, CategoryName) VALUES 
 (1, 'Groceries'),
 (1, 'Utilities'),
 (2, 'Travel'),
 (2, 'Entertainment');
 
 -- Insert sample data into Transactions table
-INSERT INTO Transactions (User ID, AccountID, CategoryID, Amount, TransactionDate, Description, Type) VALUES 
+INSERT INTO Transactions (UserID, AccountID, CategoryID, Amount, TransactionDate, Description, Type) VALUES 
 (1, 1, 1, 50.00, '2024-03-26', 'Grocery shopping', 'Expense'),
 (1, 1, 2, 100.00, '2024-03-25', 'Electricity bill', 'Expense'),
 (2, 3, 3, 200.00, '2024-03-20', 'Flight to New York', 'Expense'),